@@ -1,9 +1,18 @@
 package com.company.qa.config;
 
+import com.company.qa.model.enums.AIRoutingPolicy;
+import com.company.qa.model.enums.AITaskType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * AI Configuration for multiple providers.
  *
@@ -37,6 +46,21 @@ public class AIConfig {
      */
     private OllamaConfig ollama = new OllamaConfig();
 
+    /**
+     * Response cache for gateway requests (see AIResponseCache)
+     */
+    private ResponseCacheConfig cache = new ResponseCacheConfig();
+
+    /**
+     * Token budget for generated prompts (see PromptBudgeter)
+     */
+    private PromptBudgetConfig promptBudget = new PromptBudgetConfig();
+
+    /**
+     * Routing across enabled providers (see AIProviderRouter)
+     */
+    private RoutingConfig routing = new RoutingConfig();
+
     @Data
     public static class BedrockConfig {
         private boolean enabled = false;
@@ -64,6 +88,49 @@ public class AIConfig {
         private Integer maxTokens = 8000;
         private Double temperature = 0.7;
         private Integer timeout = 120; // seconds
+
+        /**
+         * Connections in the async (Netty) client's pool.
+         */
+        private Integer maxConnections = 50;
+
+        /**
+         * Seconds to wait for a pooled connection before failing the call.
+         */
+        private Integer connectionAcquireTimeout = 10;
+
+        /**
+         * Upper bound on model calls in flight (AdaptiveConcurrencyLimiter).
+         * Throttling lowers the effective limit, successes raise it back.
+         */
+        private Integer maxInFlight = 16;
+
+        /**
+         * Floor for the adaptive in-flight limit.
+         */
+        private Integer minInFlight = 2;
+
+        /**
+         * Multiplier applied to the in-flight limit on a throttling response.
+         */
+        private Double throttleBackoffRatio = 0.5;
+
+        /**
+         * Seconds a call waits for an in-flight slot before failing.
+         */
+        private Integer inFlightWaitTimeout = 60;
+
+        /**
+         * Mark the stable prompt prefix as cacheable (Claude cache_control,
+         * Nova cachePoint) for test generation requests.
+         */
+        private boolean promptCaching = true;
+
+        /**
+         * Smallest prefix (estimated tokens) worth a cache marker; the models
+         * ignore markers on shorter prefixes.
+         */
+        private Integer promptCacheMinTokens = 1024;
     }
 
     @Data
@@ -74,5 +141,162 @@ public class AIConfig {
         private Integer maxTokens = 4096;
         private Double temperature = 0.7;
         private Integer timeout = 120; // seconds
+
+        /**
+         * Seconds to wait for a TCP (and TLS) connection to Ollama.
+         */
+        private Integer connectTimeout = 5;
+
+        /**
+         * Negotiate HTTP/2. Ollama itself speaks HTTP/1.1; enable this when
+         * it sits behind a TLS proxy that offers HTTP/2.
+         */
+        private boolean http2 = false;
+
+        /**
+         * Model calls in flight, matching the server's OLLAMA_NUM_PARALLEL.
+         * A busy answer (503/429) lowers the effective limit, successes raise
+         * it back.
+         */
+        private Integer maxParallel = 4;
+
+        /**
+         * Floor for the adaptive in-flight limit.
+         */
+        private Integer minParallel = 1;
+
+        /**
+         * Multiplier applied to the in-flight limit on a busy answer.
+         */
+        private Double busyBackoffRatio = 0.5;
+
+        /**
+         * Seconds a call waits for an in-flight slot before failing.
+         */
+        private Integer queueTimeout = 120;
+
+        /**
+         * Seconds a streamed generation may go without a new line before it
+         * is dropped as stalled (0 = never). timeout only covers the headers.
+         */
+        private Integer streamIdleTimeout = 60;
+
+        /**
+         * Calls slower than this (seconds) count as slow for the circuit
+         * breaker.
+         */
+        private Integer slowCallThreshold = 90;
+    }
+
+    @Data
+    public static class ResponseCacheConfig {
+        private boolean enabled = true;
+
+        /**
+         * Share cached responses across instances and restarts via Redis.
+         */
+        private boolean redisEnabled = true;
+
+        /**
+         * TTL for task types without an entry in ttl.
+         */
+        private Duration defaultTtl = Duration.ofHours(1);
+
+        /**
+         * TTL per task type. Generated tests stay valid longer than
+         * failure analyses, which go stale as the application changes.
+         */
+        private Map<AITaskType, Duration> ttl = new EnumMap<>(Map.of(
+                AITaskType.TEST_GENERATION, Duration.ofHours(6),
+                AITaskType.FAILURE_ANALYSIS, Duration.ofHours(1)));
+
+        /**
+         * In-process budget (characters of cached content) for task types
+         * without an entry in maxMemoryChars.
+         */
+        private long defaultMaxMemoryChars = 2_000_000;
+
+        /**
+         * In-process budget per task type, so one task type's large
+         * responses cannot push out all of another's.
+         */
+        private Map<AITaskType, Long> maxMemoryChars = new EnumMap<>(AITaskType.class);
+    }
+
+    @Data
+    public static class PromptBudgetConfig {
+        private boolean enabled = true;
+
+        /**
+         * Prompt budget (estimated tokens) for models without an entry in maxTokens.
+         */
+        private int defaultMaxTokens = 12000;
+
+        /**
+         * Prompt budget per model. Keys are matched against the configured
+         * model ID (longest key contained in the ID wins), so
+         * "nova-micro" covers "us.amazon.nova-micro-v1:0".
+         */
+        private Map<String, Integer> maxTokens = new LinkedHashMap<>();
+
+        /**
+         * Optional sections with less room than this are dropped rather than cut.
+         */
+        private int minSectionTokens = 200;
+    }
+
+    @Data
+    public static class RoutingConfig {
+        /**
+         * Route each request across every enabled provider (ai.bedrock.enabled,
+         * ai.ollama.enabled) instead of sending everything to ai.provider.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Policy for task types without an entry in policies.
+         */
+        private AIRoutingPolicy defaultPolicy = AIRoutingPolicy.CHEAPEST;
+
+        private Map<AITaskType, AIRoutingPolicy> policies = new EnumMap<>(AITaskType.class);
+
+        /**
+         * Latency-critical task types: if the first provider has not answered
+         * within its hedgePercentile latency, the next one is asked too and
+         * the first valid response wins.
+         */
+        private List<AITaskType> hedgedTasks = new ArrayList<>();
+
+        private double hedgePercentile = 95;
+
+        /**
+         * Bounds on the hedge delay. hedgeMaxDelayMs is also used until a
+         * provider has minSamples successful calls.
+         */
+        private long hedgeMinDelayMs = 500;
+        private long hedgeMaxDelayMs = 30_000;
+
+        /**
+         * Recent calls kept per provider, model and task type for latency
+         * percentiles and error rate.
+         */
+        private int windowSize = 100;
+        private int minSamples = 10;
+
+        /**
+         * Calls older than this drop out of the window (0 = kept until
+         * pushed out by newer calls), so a demoted provider gets traffic
+         * and a fresh measurement again.
+         */
+        private long windowMaxAgeSeconds = 600;
+
+        /**
+         * Providers whose recent error rate reaches this are tried last.
+         */
+        private double maxErrorRate = 0.5;
+
+        public AIRoutingPolicy policyFor(AITaskType taskType) {
+            return policies.getOrDefault(taskType, defaultPolicy);
+        }
     }
-}
\ No newline at end of file
+}
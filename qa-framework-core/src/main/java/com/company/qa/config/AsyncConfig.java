@@ -40,4 +40,88 @@ public class AsyncConfig implements AsyncConfigurer {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs independent agent tool calls concurrently (see AgentPlan.parallelActions).
+     *
+     * Kept separate from agentExecutor so tool fan-out never starves agent loops.
+     */
+    @Bean(name = "agentToolExecutor")
+    public Executor agentToolExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("agent-tool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs flaky sweep coordinators (see AgentSweepService).
+     *
+     * A coordinator waits on its children for the whole sweep, so it gets its
+     * own small pool instead of holding an agentExecutor thread; extra sweeps
+     * queue until one finishes.
+     */
+    @Bean(name = "agentSweepExecutor")
+    public Executor agentSweepExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("agent-sweep-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs hedged AI calls (see AIProviderRouter): the first-ranked provider's
+     * call and, if it is slow, the backup call run here while the caller waits
+     * for the first valid answer.
+     */
+    @Bean(name = "aiRoutingExecutor")
+    public Executor aiRoutingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(32);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("ai-routing-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs test generation batch workers (see TestGenerationBatchService).
+     *
+     * The pool size bounds the stories generated at the same time across
+     * all batches on this node.
+     */
+    @Bean(name = "testGenerationExecutor")
+    public Executor testGenerationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("test-gen-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs best-of-N test candidates (see AITestGenerationService).
+     *
+     * Candidates of one story run side by side; the queue absorbs stories
+     * generated at the same time by batch workers.
+     */
+    @Bean(name = "testCandidateExecutor")
+    public Executor testCandidateExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(6);
+        executor.setMaxPoolSize(12);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("test-candidate-");
+        executor.initialize();
+        return executor;
+    }
+}
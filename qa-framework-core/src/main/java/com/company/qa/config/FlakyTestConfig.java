@@ -60,5 +60,29 @@ public class FlakyTestConfig {
      */
     private int testExecutionTimeout = 300;
 
+    /**
+     * How far back to look for pass/fail flips when selecting candidates.
+     * Default: 14 days
+     */
+    private int candidateLookbackDays = 14;
+
+    /**
+     * Minimum executions in the lookback window for a test to be a candidate.
+     * Default: 3
+     */
+    private int candidateMinRuns = 3;
+
+    /**
+     * Number of ranked candidates fetched per page.
+     * Default: 25
+     */
+    private int candidatePageSize = 25;
+
+    /**
+     * Maximum candidates analysed in one agent run (0 = no limit).
+     * Default: 0
+     */
+    private int maxCandidatesPerRun = 0;
+
 
 }
\ No newline at end of file
@@ -90,6 +90,16 @@ public class PlaywrightProperties {
      */
     private boolean ignoreHttpsErrors = false;
 
+    /**
+     * Browsers that may be open at once across all agents (0 = unlimited)
+     */
+    private int maxConcurrentBrowsers = 0;
+
+    /**
+     * Seconds createBrowser waits for a free browser slot before failing
+     */
+    private int browserSlotTimeoutSeconds = 300;
+
     /**
      * Viewport dimensions
      */
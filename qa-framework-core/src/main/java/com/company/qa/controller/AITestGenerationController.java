@@ -1,11 +1,14 @@
 package com.company.qa.controller;
 
 import com.company.qa.model.dto.request.TestApprovalRequest;
+import com.company.qa.model.dto.request.TestGenerationBatchRequest;
 import com.company.qa.model.dto.request.TestGenerationRequest;
 import com.company.qa.model.dto.response.TestApprovalResponse;
+import com.company.qa.model.dto.response.TestGenerationBatchResponse;
 import com.company.qa.model.dto.response.TestGenerationResponse;
 import com.company.qa.model.entity.AIGeneratedTest;
 import com.company.qa.service.ai.AITestGenerationService;
+import com.company.qa.service.ai.TestGenerationBatchService;
 import com.company.qa.service.approval.TestApprovalService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -16,7 +19,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * REST API for AI-powered test generation and approval workflow.
@@ -40,6 +45,7 @@ public class AITestGenerationController {
 
     private final AITestGenerationService generationService;
     private final TestApprovalService approvalService;
+    private final TestGenerationBatchService batchService;
 
     // ============================================================
     // TEST GENERATION ENDPOINTS
@@ -67,6 +73,51 @@ public class AITestGenerationController {
         return ResponseEntity.status(HttpStatus.CREATED).body(responses);
     }
 
+    // ============================================================
+    // BATCH JOB ENDPOINTS
+    // ============================================================
+
+    @PostMapping("/batches")
+    @Operation(summary = "Start a background batch generating tests for many JIRA stories")
+    public ResponseEntity<TestGenerationBatchResponse> startBatch(
+            @Valid @RequestBody TestGenerationBatchRequest request) {
+
+        log.info("REST: Start generation batch for {} stories",
+                request.getJiraStoryKeys() != null && !request.getJiraStoryKeys().isEmpty()
+                        ? request.getJiraStoryKeys().size() : "all ready");
+        TestGenerationBatchResponse response = batchService.startBatch(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/batches")
+    @Operation(summary = "List recent generation batches")
+    public ResponseEntity<List<TestGenerationBatchResponse>> getRecentBatches() {
+        return ResponseEntity.ok(batchService.getRecentBatches());
+    }
+
+    @GetMapping("/batches/{batchId}")
+    @Operation(summary = "Get generation batch progress per story")
+    public ResponseEntity<TestGenerationBatchResponse> getBatch(@PathVariable UUID batchId) {
+        return ResponseEntity.ok(batchService.getBatch(batchId));
+    }
+
+    @PostMapping("/batches/{batchId}/cancel")
+    @Operation(summary = "Stop starting new stories in a generation batch")
+    public ResponseEntity<TestGenerationBatchResponse> cancelBatch(@PathVariable UUID batchId) {
+        log.info("REST: Cancel generation batch {}", batchId);
+        return ResponseEntity.ok(batchService.cancelBatch(batchId));
+    }
+
+    @PostMapping("/batches/{batchId}/resume")
+    @Operation(summary = "Resume a cancelled or budget-exhausted generation batch")
+    public ResponseEntity<TestGenerationBatchResponse> resumeBatch(
+            @PathVariable UUID batchId,
+            @RequestParam(required = false) BigDecimal maxCostUsd) {
+
+        log.info("REST: Resume generation batch {}", batchId);
+        return ResponseEntity.ok(batchService.resumeBatch(batchId, maxCostUsd));
+    }
+
     // ============================================================
     // APPROVAL WORKFLOW ENDPOINTS
     // ============================================================
@@ -5,9 +5,12 @@ import com.company.qa.model.agent.*;
 import com.company.qa.model.agent.entity.AgentActionHistory;
 import com.company.qa.model.agent.entity.AgentExecution;
 import com.company.qa.model.dto.ApiResponse;
+import com.company.qa.model.enums.AgentPriority;
 import com.company.qa.model.enums.AgentType;
 import com.company.qa.service.agent.AgentExecutionService;
+import com.company.qa.service.agent.AgentMemoryService;
 import com.company.qa.service.agent.AgentOrchestrator;
+import com.company.qa.service.agent.AgentSweepService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -27,11 +30,12 @@ import java.util.stream.Collectors;
  * REST API for agent execution.
  *
  * Endpoints:
- * - POST /api/agents/start - Start agent
+ * - POST /api/agents/start - Start agent (FLAKY_SWEEP goals fan out over child executions)
  * - POST /api/agents/{id}/stop - Stop agent
  * - GET /api/agents/{id} - Get execution status
  * - GET /api/agents/{id}/actions - Get action history
  * - GET /api/agents/running - Get running agents
+ * - GET /api/agents/active - Page through agents with a live Redis context
  * - GET /api/agents/types - Get available agent types
  */
 @RestController
@@ -42,6 +46,8 @@ public class AgentController {
 
     private final AgentOrchestrator orchestrator;
     private final AgentExecutionService executionService;
+    private final AgentMemoryService memoryService;
+    private final AgentSweepService sweepService;
 
     /**
      * Start agent execution.
@@ -57,8 +63,12 @@ public class AgentController {
      *     "framework": "PLAYWRIGHT"
      *   },
      *   "maxIterations": 20,
-     *   "maxAICost": 5.0
+     *   "maxAICost": 5.0,
+     *   "maxDurationSeconds": 3600,
+     *   "priority": "INTERACTIVE"
      * }
+     *
+     * priority defaults to INTERACTIVE for runs started here.
      */
     @PostMapping("/start")
     public ResponseEntity<AgentExecutionResponse> startAgent(
@@ -91,6 +101,9 @@ public class AgentController {
                 .maxAICost(request.getMaxAICost() != null ? request.getMaxAICost() : 5.0)
                 .approvalTimeoutSeconds(request.getApprovalTimeoutSeconds() != null ?
                         request.getApprovalTimeoutSeconds() : 3600)
+                .maxDurationSeconds(request.getMaxDurationSeconds() != null ?
+                        request.getMaxDurationSeconds() : 3600)
+                .priority(request.getPriority() != null ? request.getPriority() : AgentPriority.INTERACTIVE)
                 .build();
 
         // Parse user info
@@ -99,13 +112,16 @@ public class AgentController {
 
         // Create execution record synchronously, then launch agent async.
         // This avoids the race condition of querying getRunningAgents() right after start.
-        AgentExecution execution = orchestrator.createAndStartAgent(
-                request.getAgentType(),
-                goal,
-                config,
-                triggeredBy,
-                triggeredByName
-        );
+        // FLAKY_SWEEP goals run as a parent execution with concurrent children
+        AgentExecution execution = AgentSweepService.isSweep(request.getAgentType(), goal)
+                ? sweepService.startFlakySweep(goal, config, triggeredBy, triggeredByName)
+                : orchestrator.createAndStartAgent(
+                        request.getAgentType(),
+                        goal,
+                        config,
+                        triggeredBy,
+                        triggeredByName
+                );
 
         AgentExecutionResponse response = mapToResponse(execution);
 
@@ -178,6 +194,26 @@ public class AgentController {
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * Page through executions with a live agent context.
+     *
+     * Reads the active execution index in Redis, so it is cheap enough
+     * for monitoring pages to poll.
+     *
+     * GET /api/v1/agents/active?cursor=0&size=50
+     */
+    @GetMapping("/active")
+    public ResponseEntity<ActiveExecutionPage> getActiveExecutions(
+            @RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(defaultValue = "50") int size) {
+
+        if (cursor < 0 || size <= 0 || size > 500) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(memoryService.getActiveExecutions(cursor, size));
+    }
+
     /**
      * Get all agent execution history, sorted by startedAt DESC.
      *
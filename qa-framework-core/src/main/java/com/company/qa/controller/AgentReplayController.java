@@ -0,0 +1,93 @@
+package com.company.qa.controller;
+
+import com.company.qa.model.agent.*;
+import com.company.qa.model.agent.entity.AgentExecution;
+import com.company.qa.service.agent.replay.AgentReplayService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST API for the agent replay benchmark harness.
+ *
+ * Endpoints:
+ * - GET /api/v1/agents/replays - List recordings
+ * - POST /api/v1/agents/replays/{name} - Start a live agent run and record it
+ * - POST /api/v1/agents/replays/{name}/run - Replay a recording offline
+ *
+ * Recording returns the execution ID right away; track or stop the run via
+ * /api/v1/agents/{executionId}. Replaying blocks until the agent finishes.
+ */
+@RestController
+@RequestMapping("/api/v1/agents/replays")
+@Slf4j
+@RequiredArgsConstructor
+public class AgentReplayController {
+
+    private final AgentReplayService replayService;
+
+    @GetMapping
+    public ResponseEntity<List<String>> listRecordings() {
+        return ResponseEntity.ok(replayService.listRecordings());
+    }
+
+    /**
+     * Start recording a live agent run.
+     *
+     * Request body is the same as POST /api/v1/agents/start. The recording
+     * is saved when the run finishes.
+     */
+    @PostMapping("/{name}")
+    public ResponseEntity<AgentExecutionResponse> record(
+            @PathVariable String name,
+            @Valid @RequestBody StartAgentRequest request) {
+
+        log.info("Recording agent run '{}': {}", name, request.getAgentType());
+
+        AgentGoal goal = AgentGoal.builder()
+                .goalType(request.getGoalType())
+                .parameters(request.getParameters())
+                .build();
+
+        AgentConfig config = AgentConfig.builder()
+                .maxIterations(request.getMaxIterations() != null ? request.getMaxIterations() : 20)
+                .maxAICost(request.getMaxAICost() != null ? request.getMaxAICost() : 5.0)
+                .approvalTimeoutSeconds(request.getApprovalTimeoutSeconds() != null ?
+                        request.getApprovalTimeoutSeconds() : 3600)
+                .priority(request.getPriority())
+                .build();
+
+        AgentExecution execution = replayService.record(name, request.getAgentType(), goal, config);
+        return ResponseEntity.accepted().body(AgentExecutionResponse.builder()
+                .executionId(execution.getId())
+                .agentType(execution.getAgentType())
+                .status(execution.getStatus())
+                .goal(execution.getGoal())
+                .maxIterations(execution.getMaxIterations())
+                .startedAt(execution.getStartedAt())
+                .triggeredBy(execution.getTriggeredByName())
+                .build());
+    }
+
+    /**
+     * Replay a recording and return the baseline and replay reports.
+     */
+    @PostMapping("/{name}/run")
+    public ResponseEntity<Map<String, AgentRunReport>> replay(@PathVariable String name) {
+        log.info("Replaying agent run '{}'", name);
+
+        AgentRunReport baseline = replayService.load(name).getReport();
+        AgentRunReport replay = replayService.replay(name);
+
+        Map<String, AgentRunReport> response = new LinkedHashMap<>();
+        response.put("baseline", baseline);
+        response.put("replay", replay);
+        return ResponseEntity.ok(response);
+    }
+}
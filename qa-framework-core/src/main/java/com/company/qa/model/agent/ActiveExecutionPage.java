@@ -0,0 +1,40 @@
+package com.company.qa.model.agent;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of the active agent execution index.
+ *
+ * Returned by AgentMemoryService.getActiveExecutions(cursor, pageSize).
+ * Pass nextCursor back to fetch the following page; it is null once
+ * the index has been fully walked.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveExecutionPage {
+
+    /**
+     * Execution IDs with a live context, ordered by context expiry (soonest first).
+     */
+    @Builder.Default
+    private List<UUID> executionIds = new ArrayList<>();
+
+    /**
+     * Cursor for the next page, or null if this is the last page.
+     */
+    private Long nextCursor;
+
+    /**
+     * Total number of live entries in the index when this page was read.
+     */
+    private long totalActive;
+}
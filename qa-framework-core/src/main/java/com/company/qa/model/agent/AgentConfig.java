@@ -1,6 +1,7 @@
 package com.company.qa.model.agent;
 
 import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.model.enums.AgentPriority;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,10 +18,11 @@ import java.util.Set;
  * - Max iterations
  * - Budget limits
  * - Approval rules
- * - Timeout settings
+ * - Timeout settings (iterations, wall-clock deadline, approval wait)
+ * - Scheduling priority
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class AgentConfig {
@@ -37,6 +39,21 @@ public class AgentConfig {
     @Builder.Default
     private Double maxAICost = 1.0;
 
+    /**
+     * Wall-clock limit for the whole execution (seconds, 0 = none).
+     * Tools get the time left via ToolBudget; the agent stops with
+     * TIMEOUT once it is used up.
+     */
+    @Builder.Default
+    private long maxDurationSeconds = 3600; // 1 hour
+
+    /**
+     * Scheduling class (see AgentScheduler). Only AgentController starts
+     * INTERACTIVE executions; everything else defaults to BACKGROUND.
+     */
+    @Builder.Default
+    private AgentPriority priority = AgentPriority.BACKGROUND;
+
     /**
      * Actions that ALWAYS require approval.
      */
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Agent's working memory during execution.
@@ -29,6 +30,11 @@ import java.util.Map;
 @AllArgsConstructor
 public class AgentContext {
 
+    /**
+     * Execution this context belongs to.
+     */
+    private UUID executionId;
+
     /**
      * The goal this agent is working toward.
      */
@@ -86,6 +92,24 @@ public class AgentContext {
      */
     private Instant startedAt;
 
+    /**
+     * When the execution must finish (startedAt + AgentConfig.maxDurationSeconds).
+     * Null = no deadline.
+     */
+    private Instant deadline;
+
+    /**
+     * AgentConfig.maxAICost, kept so tool budgets can be derived from the context.
+     */
+    private Double maxAICost;
+
+    /**
+     * Configuration the execution was started with, kept so an execution
+     * interrupted by a restart can be resumed with the same limits and
+     * approval rules (AgentStartupCleanupService).
+     */
+    private AgentConfig config;
+
     /**
      * Last update timestamp.
      */
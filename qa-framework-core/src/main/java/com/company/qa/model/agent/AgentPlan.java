@@ -1,11 +1,14 @@
 package com.company.qa.model.agent;
 
 import com.company.qa.model.enums.AgentActionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -72,6 +75,40 @@ public class AgentPlan {
      */
     private boolean requiresApproval;
 
+    /**
+     * Further actions that do not depend on nextAction or on each other.
+     *
+     * When present, nextAction and these actions are executed concurrently
+     * by AgentToolRegistry and their results merged into the context in
+     * order, all within the same iteration.
+     */
+    @Builder.Default
+    private List<PlannedAction> parallelActions = new ArrayList<>();
+
+    /**
+     * Does this plan carry independent actions to run concurrently?
+     */
+    @JsonIgnore
+    public boolean hasParallelActions() {
+        return parallelActions != null && !parallelActions.isEmpty();
+    }
+
+    /**
+     * All actions in this plan: nextAction first, then parallel actions.
+     */
+    @JsonIgnore
+    public List<PlannedAction> getAllActions() {
+        List<PlannedAction> all = new ArrayList<>();
+        all.add(PlannedAction.builder()
+                .actionType(nextAction)
+                .parameters(actionParameters)
+                .build());
+        if (parallelActions != null) {
+            all.addAll(parallelActions);
+        }
+        return all;
+    }
+
     /**
      * Get action parameter by key.
      */
@@ -0,0 +1,52 @@
+package com.company.qa.model.agent;
+
+import com.company.qa.model.enums.AgentType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A recorded agent run that can be replayed offline.
+ *
+ * Holds everything needed to re-run the agent deterministically: the goal
+ * and config it started with and every tool call in order. Stored as JSON
+ * by AgentReplayService.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentReplayRecording {
+
+    /**
+     * Recording name (file name without extension).
+     */
+    private String name;
+
+    /**
+     * Execution the recording was captured from.
+     */
+    private UUID sourceExecutionId;
+
+    private AgentType agentType;
+
+    private AgentGoal goal;
+
+    private AgentConfig config;
+
+    private Instant recordedAt;
+
+    @Builder.Default
+    private List<RecordedToolCall> toolCalls = new ArrayList<>();
+
+    /**
+     * Figures for the recorded run - the baseline for replays.
+     */
+    private AgentRunReport report;
+}
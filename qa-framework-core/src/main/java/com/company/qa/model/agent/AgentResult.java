@@ -87,6 +87,16 @@ public class AgentResult {
      */
     private String summary;
 
+    /**
+     * Tool calls served from the idempotent tool result cache.
+     */
+    private Integer toolCacheHits;
+
+    /**
+     * Idempotent tool calls that had to be executed.
+     */
+    private Integer toolCacheMisses;
+
     /**
      * Get output value by key.
      */
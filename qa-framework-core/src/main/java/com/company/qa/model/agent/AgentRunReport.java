@@ -0,0 +1,64 @@
+package com.company.qa.model.agent;
+
+import com.company.qa.model.enums.AgentStatus;
+import com.company.qa.model.enums.AgentType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Benchmark figures for one recorded or replayed agent run.
+ *
+ * Written next to each replay recording so runs of the same recording
+ * can be compared across commits.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentRunReport {
+
+    private AgentType agentType;
+
+    /**
+     * Final outcome of the run.
+     */
+    private AgentStatus status;
+
+    private Integer iterations;
+
+    /**
+     * Total wall time of the run (milliseconds).
+     */
+    private long wallTimeMs;
+
+    /**
+     * Wall time per phase (milliseconds): one entry per action type for
+     * time spent in tools, plus "PLANNING" for everything else in the loop.
+     */
+    @Builder.Default
+    private Map<String, Long> phaseTimingsMs = new LinkedHashMap<>();
+
+    private int toolCalls;
+
+    /**
+     * Tokens reported by AI-backed tools ("tokensUsed" in their results).
+     */
+    private long tokensUsed;
+
+    private Double aiCost;
+
+    /**
+     * Replay only: tool calls with no recorded result of the same action type.
+     */
+    private int replayMisses;
+
+    /**
+     * Replay only: tool calls served by a recorded result whose parameters differed.
+     */
+    private int replayDivergences;
+}
@@ -0,0 +1,41 @@
+package com.company.qa.model.agent;
+
+import com.company.qa.model.enums.AgentActionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single tool invocation inside an AgentPlan.
+ *
+ * Used for plans that carry several independent actions which
+ * AgentToolRegistry can run concurrently.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlannedAction {
+
+    /**
+     * Action to execute.
+     */
+    private AgentActionType actionType;
+
+    /**
+     * Parameters for the action.
+     */
+    @Builder.Default
+    private Map<String, Object> parameters = new HashMap<>();
+
+    /**
+     * Optional timeout override (milliseconds).
+     *
+     * When null, the tool's own AgentTool.getTimeout() applies.
+     */
+    private Long timeoutMs;
+}
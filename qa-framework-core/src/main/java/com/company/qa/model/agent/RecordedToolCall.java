@@ -0,0 +1,48 @@
+package com.company.qa.model.agent;
+
+import com.company.qa.model.enums.AgentActionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * One tool call captured in an agent replay recording.
+ *
+ * Agents reach the AI gateway only through tools, so the parameters and
+ * result of AI-backed tools (GENERATE_TEST_CODE, DISCOVER_LOCATOR, ...)
+ * carry the prompt inputs and the model response.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordedToolCall {
+
+    /**
+     * Position of the call within the run (0-based).
+     */
+    private int sequence;
+
+    /**
+     * Action the tool was executed for.
+     */
+    private AgentActionType actionType;
+
+    /**
+     * Tool parameters, as JSON-compatible values.
+     */
+    private Map<String, Object> parameters;
+
+    /**
+     * Tool result, as JSON-compatible values.
+     */
+    private Map<String, Object> result;
+
+    /**
+     * Wall time spent in the tool (milliseconds).
+     */
+    private long durationMs;
+}
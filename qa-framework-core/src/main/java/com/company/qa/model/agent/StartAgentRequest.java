@@ -1,5 +1,6 @@
 package com.company.qa.model.agent;
 
+import com.company.qa.model.enums.AgentPriority;
 import com.company.qa.model.enums.AgentType;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -32,4 +33,6 @@ public class StartAgentRequest {
     private Integer maxIterations;
     private Double maxAICost;
     private Integer approvalTimeoutSeconds;
+    private Long maxDurationSeconds;
+    private AgentPriority priority;
 }
\ No newline at end of file
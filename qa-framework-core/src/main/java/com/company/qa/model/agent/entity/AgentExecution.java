@@ -72,7 +72,11 @@ public class AgentExecution extends BaseEntity {
     @Column(name = "total_ai_cost", precision = 10, scale = 6)
     private BigDecimal totalAICost;
 
-    @Column(name = "total_actions")
+    /**
+     * Maintained by AgentExecutionRepository.incrementTotalActions only, so
+     * entity saves never overwrite a concurrent batch increment.
+     */
+    @Column(name = "total_actions", updatable = false)
     private Integer totalActions;
 
     public Long getDurationSeconds() {
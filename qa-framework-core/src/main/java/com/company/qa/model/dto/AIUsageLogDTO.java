@@ -29,11 +29,14 @@ public class AIUsageLogDTO {
     private Integer promptTokens;
     private Integer completionTokens;
     private Integer totalTokens;
+    private Integer cacheReadTokens;
+    private Integer cacheWriteTokens;
 
     private BigDecimal totalCost;
     private String currency;
 
     private Long processingTimeMs;
+    private String promptBreakdown;
     private Boolean success;
     private String errorMessage;
 
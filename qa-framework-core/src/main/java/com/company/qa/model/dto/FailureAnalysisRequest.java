@@ -19,4 +19,5 @@ public class FailureAnalysisRequest {
     private String stackTrace;
     private String testCode;
     private String screenshotUrl;
+    private Integer maxTokens; // ceiling on response tokens, null = provider default
 }
\ No newline at end of file
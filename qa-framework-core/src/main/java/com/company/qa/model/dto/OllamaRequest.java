@@ -41,4 +41,14 @@ public class OllamaRequest {
                         .build())
                 .build();
     }
+
+    /**
+     * Same as create, but Ollama answers with an NDJSON stream of partial responses.
+     */
+    public static OllamaRequest createStreaming(String model, String prompt,
+                                                Integer maxTokens, Double temperature) {
+        OllamaRequest request = create(model, prompt, maxTokens, temperature);
+        request.setStream(true);
+        return request;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.company.qa.model.dto;
 
 import com.company.qa.model.enums.UserRole;
+import com.company.qa.service.ai.AIStreamConsumer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -73,6 +75,47 @@ public class SecureAIRequest {
      */
     private OperationType operationType;
 
+    /**
+     * Ceiling on response tokens (null = provider default).
+     * Set by agent tools to what their remaining AI budget can pay for.
+     */
+    private Integer maxTokens;
+
+    /**
+     * Sampling temperature for this request (null = provider default).
+     * Test generation candidates are sampled at different temperatures.
+     */
+    private Double temperature;
+
+    /**
+     * May the response be served from / stored in the AI response cache?
+     * Set to false when a fresh, different answer is wanted (regenerate,
+     * sampling several candidates).
+     */
+    @Builder.Default
+    private boolean cacheable = true;
+
+    /**
+     * Per-section token breakdown of the prompt (PromptBudgeter), recorded
+     * in the usage log. Null when the prompt was not budgeted.
+     */
+    private String promptBreakdown;
+
+    /**
+     * Leading part of content that is identical across requests built the
+     * same way (PromptBudgeter stable prefix). Providers that support prompt
+     * caching cache up to the end of it. Null = nothing to cache.
+     */
+    private String cacheablePrefix;
+
+    /**
+     * Optional incremental consumer of the generated text (test generation).
+     * It can stop the generation early; see AIStreamConsumer. Not called when
+     * the response comes from the response cache. Requests with a consumer
+     * are never shared with other in-flight requests.
+     */
+    @JsonIgnore
+    private AIStreamConsumer streamConsumer;
 
 
     /**
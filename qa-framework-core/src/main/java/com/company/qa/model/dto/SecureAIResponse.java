@@ -99,6 +99,34 @@ public class SecureAIResponse {
      */
     private Instant timestamp;
 
+    /**
+     * Was the content served from the AI response cache?
+     */
+    @Builder.Default
+    private boolean cacheHit = false;
+
+    /**
+     * Cache tier that served the content (MEMORY or REDIS), if cacheHit
+     */
+    private String cacheTier;
+
+    /**
+     * Content hash the response is cached under (null if not cacheable)
+     */
+    private String cacheKey;
+
+    /**
+     * Tokens the original call used that were not spent again, if cacheHit
+     */
+    private int tokensSaved;
+
+    /**
+     * Number of identical concurrent requests that shared one model call
+     * (1 = own call). tokensUsed and estimatedCost are this request's share.
+     */
+    @Builder.Default
+    private int sharedWith = 1;
+
     /**
      * Add a validation error
      */
@@ -16,4 +16,10 @@ public class TestGenerationRequest {
     private String framework; // SELENIUM, PLAYWRIGHT, etc.
     private String language;  // java, python, etc.
     private String additionalContext;
+
+    // Stable leading part of description, cacheable by the provider (optional)
+    private String cacheablePrefix;
+
+    // Sampling temperature (optional, provider default otherwise)
+    private Double temperature;
 }
\ No newline at end of file
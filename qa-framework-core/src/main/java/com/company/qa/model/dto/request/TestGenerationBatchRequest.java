@@ -0,0 +1,52 @@
+package com.company.qa.model.dto.request;
+
+import com.company.qa.model.entity.AIGeneratedTest.TestFramework;
+import com.company.qa.model.entity.AIGeneratedTest.TestType;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Request DTO for generating tests for many JIRA stories in one batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestGenerationBatchRequest {
+
+    // Optional: stories to generate; empty = every story ready for generation
+    private List<String> jiraStoryKeys;
+
+    @NotNull(message = "Test type is required")
+    private TestType testType; // UI, API, E2E
+
+    @NotNull(message = "Test framework is required")
+    @Builder.Default
+    private TestFramework testFramework = TestFramework.CUCUMBER;
+
+    // Optional: stories generated at the same time (capped by ai.test-generation.batch.max-parallelism)
+    @Min(value = 1, message = "Parallelism must be at least 1")
+    private Integer parallelism;
+
+    // Optional: cost ceiling for the whole batch, in USD
+    @DecimalMin(value = "0.0", message = "Cost ceiling must not be negative")
+    private BigDecimal maxCostUsd;
+
+    // Optional: regenerate stories that are unchanged since their last generation
+    @Builder.Default
+    private boolean forceRegenerate = false;
+
+    // Optional: Skip quality assessment (for testing)
+    @Builder.Default
+    private boolean skipQualityCheck = false;
+
+    private String requestedBy;
+}
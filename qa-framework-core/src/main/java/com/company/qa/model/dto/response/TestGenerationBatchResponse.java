@@ -0,0 +1,74 @@
+package com.company.qa.model.dto.response;
+
+import com.company.qa.model.entity.AIGeneratedTest;
+import com.company.qa.model.entity.TestGenerationBatch;
+import com.company.qa.model.entity.TestGenerationBatchItem;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Response DTO for a test generation batch and its per-story progress.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestGenerationBatchResponse {
+
+    private UUID batchId;
+    private TestGenerationBatch.BatchStatus status;
+    private AIGeneratedTest.TestType testType;
+    private AIGeneratedTest.TestFramework testFramework;
+    private Integer parallelism;
+
+    // Progress
+    private int totalStories;
+    private int pending;
+    private int running;
+    private int succeeded;
+    private int skipped;
+    private int failed;
+
+    // Cost
+    private BigDecimal maxCostUsd;
+    private BigDecimal spentCostUsd;
+
+    private String errorMessage;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant completedAt;
+
+    // Per story (omitted in batch listings)
+    private List<StoryProgress> stories;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class StoryProgress {
+        private String jiraStoryKey;
+        private TestGenerationBatchItem.ItemStatus status;
+        private UUID generatedTestId;
+        private BigDecimal costUsd;
+        private Long durationMs;
+        private String errorMessage;
+
+        public static StoryProgress fromEntity(TestGenerationBatchItem item) {
+            return StoryProgress.builder()
+                    .jiraStoryKey(item.getJiraStoryKey())
+                    .status(item.getStatus())
+                    .generatedTestId(item.getGeneratedTestId())
+                    .costUsd(item.getCostUsd())
+                    .durationMs(item.getDurationMs())
+                    .errorMessage(item.getErrorMessage())
+                    .build();
+        }
+    }
+}
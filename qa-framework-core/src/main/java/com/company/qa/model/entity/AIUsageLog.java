@@ -61,6 +61,13 @@ public class AIUsageLog {
     @Column(name = "total_tokens", nullable = false)
     private Integer totalTokens;
 
+    // Prompt tokens read from / written to the provider's prompt cache (part of promptTokens)
+    @Column(name = "cache_read_tokens")
+    private Integer cacheReadTokens;
+
+    @Column(name = "cache_write_tokens")
+    private Integer cacheWriteTokens;
+
     // Cost Calculation
     @Column(name = "prompt_cost_per_token", precision = 12, scale = 8)
     private BigDecimal promptCostPerToken;
@@ -84,6 +91,10 @@ public class AIUsageLog {
     @Column(name = "processing_time_ms")
     private Long processingTimeMs;
 
+    // Estimated tokens per prompt section, e.g. "storyContext=310, pageObjects=0/800(dropped)"
+    @Column(name = "prompt_breakdown", columnDefinition = "TEXT")
+    private String promptBreakdown;
+
     // Success/Failure
     @Column(name = "success", nullable = false)
     private Boolean success;
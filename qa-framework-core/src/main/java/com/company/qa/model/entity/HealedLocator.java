@@ -0,0 +1,87 @@
+package com.company.qa.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A verified replacement for a broken locator on a given page.
+ *
+ * Written by the self-healing workflow once a fix passes verification,
+ * and consulted by PlaywrightTestExecutor (runtime fallback) and
+ * ExtractBrokenLocatorTool so other tests sharing the locator are healed
+ * without their own agent run.
+ */
+@Entity
+@Table(name = "healed_locators")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealedLocator {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    /**
+     * Host + path of the page, e.g. "www.saucedemo.com/inventory.html".
+     */
+    @Column(name = "page_key", nullable = false, length = 500)
+    private String pageKey;
+
+    @Column(name = "broken_locator", nullable = false, length = 1000)
+    private String brokenLocator;
+
+    /**
+     * Broken locator without a redundant css=/xpath= prefix, used for matching.
+     */
+    @Column(name = "locator_key", nullable = false, length = 1000)
+    private String locatorKey;
+
+    @Column(name = "healed_locator", nullable = false, length = 1000)
+    private String healedLocator;
+
+    @Column(name = "confidence", nullable = false, precision = 4, scale = 3)
+    private BigDecimal confidence;
+
+    @Column(name = "discovered_by", length = 50)
+    private String discoveredBy;
+
+    @Column(name = "source_test_id")
+    private UUID sourceTestId;
+
+    @Column(name = "agent_execution_id")
+    private UUID agentExecutionId;
+
+    @Column(name = "hit_count", nullable = false)
+    @Builder.Default
+    private Integer hitCount = 0;
+
+    @Column(name = "last_hit_at")
+    private Instant lastHitAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
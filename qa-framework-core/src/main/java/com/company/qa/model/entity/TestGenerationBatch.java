@@ -0,0 +1,113 @@
+package com.company.qa.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Bulk test generation job over many JIRA stories.
+ *
+ * Per-story progress is kept in TestGenerationBatchItem; this row only
+ * holds the settings shared by every story and the job lifecycle, so
+ * parallel workers never write to it.
+ */
+@Entity
+@Table(name = "test_generation_batches")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestGenerationBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 30)
+    private BatchStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "test_type", nullable = false, length = 20)
+    private AIGeneratedTest.TestType testType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "test_framework", nullable = false, length = 20)
+    private AIGeneratedTest.TestFramework testFramework;
+
+    @Column(name = "skip_quality_check", nullable = false)
+    @Builder.Default
+    private Boolean skipQualityCheck = false;
+
+    /**
+     * Regenerate stories even if they are unchanged since their last
+     * successful generation.
+     */
+    @Column(name = "force_regenerate", nullable = false)
+    @Builder.Default
+    private Boolean forceRegenerate = false;
+
+    /**
+     * Stories generated at the same time.
+     */
+    @Column(name = "parallelism", nullable = false)
+    private Integer parallelism;
+
+    /**
+     * Cost ceiling for the whole batch (null = none).
+     */
+    @Column(name = "max_cost_usd", precision = 10, scale = 6)
+    private BigDecimal maxCostUsd;
+
+    @Column(name = "total_stories", nullable = false)
+    @Builder.Default
+    private Integer totalStories = 0;
+
+    @Column(name = "requested_by", length = 255)
+    private String requestedBy;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+
+    public boolean isActive() {
+        return status == BatchStatus.QUEUED || status == BatchStatus.RUNNING;
+    }
+
+    public enum BatchStatus {
+        QUEUED,            // Created, workers not started yet
+        RUNNING,           // Workers generating (resumed after a restart)
+        COMPLETED,         // Every story generated, skipped or failed
+        BUDGET_EXHAUSTED,  // Stopped at the cost ceiling; remaining stories left PENDING
+        CANCELLED          // Stopped on request; remaining stories left PENDING
+    }
+}
@@ -0,0 +1,91 @@
+package com.company.qa.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Progress of one JIRA story within a TestGenerationBatch.
+ *
+ * Each item is written by the one worker generating it. Items still
+ * RUNNING when the server stops are put back to PENDING on startup.
+ */
+@Entity
+@Table(name = "test_generation_batch_items")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestGenerationBatchItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "batch_id", nullable = false)
+    private UUID batchId;
+
+    @Column(name = "jira_story_key", nullable = false, length = 50)
+    private String jiraStoryKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ItemStatus status;
+
+    /**
+     * SHA-256 of the story content and generation settings, set when the
+     * story is picked up.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "generated_test_id")
+    private UUID generatedTestId;
+
+    @Column(name = "cost_usd", precision = 10, scale = 6)
+    private BigDecimal costUsd;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+
+    public enum ItemStatus {
+        PENDING,    // Not picked up yet
+        RUNNING,    // Being generated
+        SUCCEEDED,  // Test generated (generatedTestId)
+        SKIPPED,    // Unchanged since its last successful generation
+        FAILED      // Generation failed after all retries
+    }
+}
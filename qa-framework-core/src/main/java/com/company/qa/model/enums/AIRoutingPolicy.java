@@ -0,0 +1,13 @@
+package com.company.qa.model.enums;
+
+/**
+ * How AIProviderRouter orders the enabled providers for a task type.
+ */
+public enum AIRoutingPolicy {
+    /** Lowest token price first (free providers first), fastest on ties. */
+    CHEAPEST,
+    /** Lowest recent median latency first; providers without samples are tried first. */
+    FASTEST,
+    /** Local model (Ollama) first, then as CHEAPEST. */
+    LOCAL_FIRST
+}
@@ -0,0 +1,27 @@
+package com.company.qa.model.enums;
+
+/**
+ * Scheduling class of an agent execution (see AgentScheduler).
+ *
+ * Declared in scheduling order: queued executions of a higher class
+ * always start before those of a lower one.
+ */
+public enum AgentPriority {
+
+    /**
+     * Started by a person (AgentController). Has reserved slots and may
+     * preempt BACKGROUND executions.
+     */
+    INTERACTIVE,
+
+    /**
+     * Started by a scheduled job. Never preempted.
+     */
+    SCHEDULED,
+
+    /**
+     * Started by the system (auto-heal, flaky sweeps). Paused at an
+     * iteration boundary when an INTERACTIVE execution needs its slot.
+     */
+    BACKGROUND
+}
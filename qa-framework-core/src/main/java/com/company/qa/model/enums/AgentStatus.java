@@ -5,6 +5,11 @@ package com.company.qa.model.enums;
  */
 public enum AgentStatus {
 
+    /**
+     * Agent is waiting for a free slot (see AgentScheduler).
+     */
+    QUEUED,
+
     /**
      * Agent is currently running and executing actions.
      */
@@ -15,6 +20,12 @@ public enum AgentStatus {
      */
     WAITING_FOR_APPROVAL,
 
+    /**
+     * Agent yielded its slot to an interactive execution; its context is
+     * checkpointed in Redis and it resumes when a slot frees up.
+     */
+    PAUSED,
+
     /**
      * Agent successfully achieved its goal.
      */
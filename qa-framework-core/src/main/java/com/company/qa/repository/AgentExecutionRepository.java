@@ -7,6 +7,7 @@ import com.company.qa.model.enums.AgentType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -43,17 +44,30 @@ public interface AgentExecutionRepository extends JpaRepository<AgentExecution,
     @Query("SELECT ae FROM AgentExecution ae ORDER BY ae.createdAt DESC")
     List<AgentExecution> findLatestExecutions();
 
+    /**
+     * Add a batch of persisted actions to the execution's action counter.
+     *
+     * Native so the increment happens in SQL and never races with the
+     * load-modify-save updates done by AgentExecutionService.updateExecution.
+     */
+    @Modifying
+    @Query(value = "UPDATE agent_executions SET total_actions = COALESCE(total_actions, 0) + :count WHERE id = :executionId",
+            nativeQuery = true)
+    int incrementTotalActions(@Param("executionId") UUID executionId, @Param("count") int count);
+
 
     List<AgentExecution> findByStatusIn(List<AgentStatus> statuses);
 
     /**
-     * Find running or waiting executions.
+     * Find running, waiting, queued or paused executions.
      * ✅ Convenience method.
      */
     default List<AgentExecution> findRunningAgents() {
         return findByStatusIn(Arrays.asList(
                 AgentStatus.RUNNING,
-                AgentStatus.WAITING_FOR_APPROVAL
+                AgentStatus.WAITING_FOR_APPROVAL,
+                AgentStatus.QUEUED,
+                AgentStatus.PAUSED
         ));
     }
 
@@ -0,0 +1,27 @@
+package com.company.qa.repository;
+
+import com.company.qa.model.entity.HealedLocator;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for HealedLocator entities.
+ */
+@Repository
+public interface HealedLocatorRepository extends JpaRepository<HealedLocator, UUID> {
+
+    Optional<HealedLocator> findByPageKeyAndLocatorKey(String pageKey, String locatorKey);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE HealedLocator h SET h.hitCount = h.hitCount + 1, h.lastHitAt = :now WHERE h.id = :id")
+    int recordHit(@Param("id") UUID id, @Param("now") Instant now);
+}
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
@@ -51,4 +52,50 @@ public interface TestExecutionRepository extends JpaRepository<TestExecution, UU
     long countConcurrentAt(@Param("timestamp") Instant timestamp);
 
     Optional<TestExecution> findByExternalExecutionRef(String externalExecutionRef);
+
+    /**
+     * Rank active tests by how often their outcome flips between pass and fail.
+     *
+     * Score = flips / (runs - 1) over executions since :since, rounded to 4
+     * places so it can be used as a keyset. Only tests with at least one flip
+     * and :minRuns runs are returned, ordered by score desc then test id.
+     * Pass :afterScore / :afterTestId of the last row of the previous page
+     * (2 and "" for the first page).
+     *
+     * Row: [testId (String), score (BigDecimal), runCount, flipCount, failureCount]
+     */
+    @Query(value = """
+            WITH outcomes AS (
+                SELECT e.test_id,
+                       CASE WHEN e.status = 'PASSED' THEN 1 ELSE 0 END AS passed,
+                       LAG(CASE WHEN e.status = 'PASSED' THEN 1 ELSE 0 END)
+                           OVER (PARTITION BY e.test_id ORDER BY e.created_at) AS prev_passed
+                FROM test_executions e
+                JOIN tests t ON t.id = e.test_id AND t.is_active = true
+                WHERE e.created_at >= :since
+                  AND e.status IN ('PASSED', 'FAILED', 'ERROR', 'TIMEOUT')
+            ), scored AS (
+                SELECT CAST(test_id AS VARCHAR) AS test_id,
+                       COUNT(*) AS run_count,
+                       SUM(CASE WHEN prev_passed IS NOT NULL AND passed <> prev_passed THEN 1 ELSE 0 END) AS flip_count,
+                       SUM(1 - passed) AS failure_count
+                FROM outcomes
+                GROUP BY test_id
+            ), ranked AS (
+                SELECT test_id, run_count, flip_count, failure_count,
+                       ROUND(CAST(flip_count AS NUMERIC) / NULLIF(run_count - 1, 0), 4) AS score
+                FROM scored
+                WHERE run_count >= :minRuns AND flip_count > 0
+            )
+            SELECT test_id, score, run_count, flip_count, failure_count
+            FROM ranked
+            WHERE score < :afterScore OR (score = :afterScore AND test_id > :afterTestId)
+            ORDER BY score DESC, test_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findFlakyCandidates(@Param("since") Instant since,
+                                       @Param("minRuns") int minRuns,
+                                       @Param("afterScore") BigDecimal afterScore,
+                                       @Param("afterTestId") String afterTestId,
+                                       @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.company.qa.repository;
+
+import com.company.qa.model.entity.TestGenerationBatchItem;
+import com.company.qa.model.entity.TestGenerationBatchItem.ItemStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for TestGenerationBatchItem entities.
+ */
+@Repository
+public interface TestGenerationBatchItemRepository extends JpaRepository<TestGenerationBatchItem, UUID> {
+
+    List<TestGenerationBatchItem> findByBatchIdOrderByCreatedAtAsc(UUID batchId);
+
+    List<TestGenerationBatchItem> findByBatchIdAndStatusOrderByCreatedAtAsc(UUID batchId, ItemStatus status);
+
+    /**
+     * Latest successful generation of a story with the same content and settings.
+     */
+    Optional<TestGenerationBatchItem> findFirstByJiraStoryKeyAndContentHashAndStatusOrderByCompletedAtDesc(
+            String jiraStoryKey, String contentHash, ItemStatus status);
+
+    @Query("SELECT i.status, COUNT(i) FROM TestGenerationBatchItem i WHERE i.batchId = :batchId GROUP BY i.status")
+    List<Object[]> countByStatus(@Param("batchId") UUID batchId);
+
+    @Query("SELECT COALESCE(SUM(i.costUsd), 0) FROM TestGenerationBatchItem i WHERE i.batchId = :batchId")
+    BigDecimal sumCost(@Param("batchId") UUID batchId);
+
+    /**
+     * Put stories interrupted by a restart back in the queue.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE TestGenerationBatchItem i SET i.status = 'PENDING', i.startedAt = null " +
+            "WHERE i.batchId = :batchId AND i.status = 'RUNNING'")
+    int resetRunning(@Param("batchId") UUID batchId);
+}
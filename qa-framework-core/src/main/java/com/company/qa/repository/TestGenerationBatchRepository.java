@@ -0,0 +1,21 @@
+package com.company.qa.repository;
+
+import com.company.qa.model.entity.TestGenerationBatch;
+import com.company.qa.model.entity.TestGenerationBatch.BatchStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for TestGenerationBatch entities.
+ */
+@Repository
+public interface TestGenerationBatchRepository extends JpaRepository<TestGenerationBatch, UUID> {
+
+    List<TestGenerationBatch> findByStatusIn(Collection<BatchStatus> statuses);
+
+    List<TestGenerationBatch> findTop20ByOrderByCreatedAtDesc();
+}
@@ -0,0 +1,231 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.model.agent.AgentContext;
+import com.company.qa.model.agent.AgentHistoryEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Per-execution buffered writer for agent action history.
+ *
+ * Problem: BaseAgent used to call AgentExecutionService.saveAction() after
+ * every action - one history insert plus a read-modify-write of the
+ * execution's action counter, each in its own transaction on the agent thread.
+ *
+ * Solution: actions are appended to an in-memory buffer per execution and
+ * written with AgentExecutionService.saveActions() - one transaction, one
+ * JDBC batch, one counter increment. Full batches (or batches older than the
+ * flush interval) are written on the task executor, so the agent loop never
+ * waits on Postgres. The final flush on completion, stop or failure is
+ * synchronous.
+ *
+ * Crash safety: the AgentContext saved to Redis by AgentMemoryService already
+ * holds the full action history, and batches are written strictly in order,
+ * so the history table always holds a prefix of it. recover() re-writes the
+ * missing tail from that journal. The final flush is retried a few times;
+ * if it still fails, the buffer is dropped and BaseAgent keeps the journal,
+ * which AgentStartupCleanupService recovers on the next start.
+ */
+@Component
+@Slf4j
+public class AgentActionHistoryWriter {
+
+    private final AgentExecutionService executionService;
+    private final Executor taskExecutor;
+
+    @Value("${agent.action-history.batch-size:20}")
+    private int batchSize = 20;
+
+    @Value("${agent.action-history.flush-interval-ms:5000}")
+    private long flushIntervalMs = 5000;
+
+    @Value("${agent.action-history.final-flush-attempts:3}")
+    private int finalFlushAttempts = 3;
+
+    @Value("${agent.action-history.final-flush-retry-ms:500}")
+    private long finalFlushRetryMs = 500;
+
+    private final Map<UUID, ExecutionBuffer> buffers = new ConcurrentHashMap<>();
+
+    public AgentActionHistoryWriter(
+            AgentExecutionService executionService,
+            @Qualifier("taskExecutor") Executor taskExecutor) {
+        this.executionService = executionService;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Buffer an action for later persistence.
+     *
+     * Never blocks on the database. Triggers a background flush once the
+     * batch is full or the oldest buffered entry exceeds the flush interval.
+     *
+     * @param executionId Agent execution ID
+     * @param entry History entry (must carry its iteration number)
+     */
+    public void append(UUID executionId, AgentHistoryEntry entry) {
+        ExecutionBuffer buffer = buffers.computeIfAbsent(executionId, id -> new ExecutionBuffer());
+
+        boolean flushNow;
+        synchronized (buffer) {
+            if (buffer.pending.isEmpty()) {
+                buffer.oldestPendingAt = Instant.now();
+            }
+            buffer.pending.add(entry);
+            flushNow = buffer.pending.size() >= batchSize
+                    || Duration.between(buffer.oldestPendingAt, Instant.now()).toMillis() >= flushIntervalMs;
+        }
+
+        if (flushNow) {
+            flushAsync(executionId, buffer);
+        }
+    }
+
+    /**
+     * Flush all buffered actions for an execution and release its buffer.
+     *
+     * Called by BaseAgent when the agent loop exits for any reason. The
+     * flush is retried up to final-flush-attempts times; the buffer is
+     * released either way, since nothing appends to it any more. Entries
+     * that could not be written remain in the context journal.
+     *
+     * @param executionId Agent execution ID
+     * @return true if everything buffered was persisted
+     */
+    public boolean complete(UUID executionId) {
+        ExecutionBuffer buffer = buffers.get(executionId);
+        if (buffer == null) {
+            return true;
+        }
+
+        try {
+            for (int attempt = 1; attempt <= Math.max(1, finalFlushAttempts); attempt++) {
+                if (attempt > 1 && !sleepBeforeRetry(attempt)) {
+                    return false;
+                }
+                if (flush(executionId, buffer)) {
+                    return true;
+                }
+            }
+            log.error("❌ Giving up on {} unflushed action(s) for execution: {} - left in the context journal",
+                    getPendingCount(executionId), executionId);
+            return false;
+        } finally {
+            buffers.remove(executionId, buffer);
+        }
+    }
+
+    /**
+     * Persist history entries from the context journal that never reached the database.
+     *
+     * Used after a crash or restart: compares the journal in Redis with the
+     * number of rows already in agent_action_history and writes the tail.
+     *
+     * @param executionId Agent execution ID
+     * @param context Context loaded from AgentMemoryService
+     * @return Number of entries recovered
+     */
+    public int recover(UUID executionId, AgentContext context) {
+        if (context == null || context.getActionHistory() == null) {
+            return 0;
+        }
+
+        List<AgentHistoryEntry> journal = context.getActionHistory();
+        long persisted = executionService.countActions(executionId);
+
+        if (persisted >= journal.size()) {
+            return 0;
+        }
+
+        List<AgentHistoryEntry> missing = new ArrayList<>(journal.subList((int) persisted, journal.size()));
+        executionService.saveActions(executionId, missing);
+
+        log.info("♻️  Recovered {} unflushed action(s) for execution: {}", missing.size(), executionId);
+        return missing.size();
+    }
+
+    /**
+     * Number of actions buffered but not yet persisted (for monitoring).
+     */
+    public int getPendingCount(UUID executionId) {
+        ExecutionBuffer buffer = buffers.get(executionId);
+        if (buffer == null) {
+            return 0;
+        }
+        synchronized (buffer) {
+            return buffer.pending.size();
+        }
+    }
+
+    private boolean sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(finalFlushRetryMs * (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flushAsync(UUID executionId, ExecutionBuffer buffer) {
+        try {
+            taskExecutor.execute(() -> flush(executionId, buffer));
+        } catch (RejectedExecutionException e) {
+            log.debug("Task executor saturated, flushing actions inline for: {}", executionId);
+            flush(executionId, buffer);
+        }
+    }
+
+    /**
+     * Write the buffer contents as one batch.
+     *
+     * Serialised per execution by flushLock so batches land in order; a
+     * failed batch is put back at the head of the buffer for the next flush.
+     */
+    private boolean flush(UUID executionId, ExecutionBuffer buffer) {
+        synchronized (buffer.flushLock) {
+            List<AgentHistoryEntry> batch;
+            synchronized (buffer) {
+                if (buffer.pending.isEmpty()) {
+                    return true;
+                }
+                batch = new ArrayList<>(buffer.pending);
+                buffer.pending.clear();
+                buffer.oldestPendingAt = null;
+            }
+
+            try {
+                executionService.saveActions(executionId, batch);
+                log.debug("✅ Flushed {} action(s) for execution: {}", batch.size(), executionId);
+                return true;
+
+            } catch (Exception e) {
+                log.error("❌ Failed to flush {} action(s) for execution: {} - {}",
+                        batch.size(), executionId, e.getMessage());
+                synchronized (buffer) {
+                    buffer.pending.addAll(0, batch);
+                    buffer.oldestPendingAt = Instant.now();
+                }
+                return false;
+            }
+        }
+    }
+
+    private static class ExecutionBuffer {
+        final List<AgentHistoryEntry> pending = new ArrayList<>();
+        final Object flushLock = new Object();
+        Instant oldestPendingAt;
+    }
+}
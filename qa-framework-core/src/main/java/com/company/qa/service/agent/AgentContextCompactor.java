@@ -0,0 +1,240 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.model.agent.AgentContext;
+import com.company.qa.model.agent.AgentHistoryEntry;
+import com.company.qa.model.dto.FileMetadata;
+import com.company.qa.service.storage.FileStorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Keeps agent context - and the prompts built from it - bounded in size.
+ *
+ * Problem: every action's full input and output (page HTML, stack traces,
+ * test code) stays in AgentContext.actionHistory for the whole execution.
+ * The context grows with every iteration, is re-serialized to Redis on each
+ * one, and whatever tools pull from it into AI prompts grows with it.
+ *
+ * 1. History compaction (compact): entries older than
+ *    agent.context.compaction.keep-recent-iterations are replaced by compact
+ *    copies. Each value of their input/output becomes a structured summary:
+ *    - strings longer than blob-threshold-chars are written to artifact
+ *      storage (FileStorageService, under the execution ID) and replaced by
+ *      {artifactRef, chars, preview}
+ *    - shorter long strings are cut to a preview ({chars, preview})
+ *    - long lists keep their first items plus a count
+ *    Iteration, action type, success, error, cost and timings are untouched,
+ *    so agents' history checks work as before. Entries are replaced, not
+ *    modified, so the copies still queued in AgentActionHistoryWriter are
+ *    persisted in full. Work products are not compacted: they hold only the
+ *    latest value per key and agents read them.
+ *
+ * 2. Prompt section ceiling (fitSection): context-derived sections of AI
+ *    prompts (page HTML, failure messages) are cut to
+ *    agent.context.max-prompt-section-tokens, keeping head and tail.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentContextCompactor {
+
+    /**
+     * Same estimate as AIGatewayService: ~4 characters per token.
+     */
+    static final int CHARS_PER_TOKEN = 4;
+
+    private static final int MAX_LIST_ITEMS = 5;
+    private static final String COMPACTED_MARKER = "_compacted";
+
+    private final FileStorageService fileStorageService;
+
+    @Value("${agent.context.compaction.enabled:true}")
+    private boolean compactionEnabled = true;
+
+    @Value("${agent.context.compaction.keep-recent-iterations:3}")
+    private int keepRecentIterations = 3;
+
+    @Value("${agent.context.compaction.blob-threshold-chars:4000}")
+    private int blobThresholdChars = 4000;
+
+    @Value("${agent.context.compaction.preview-chars:200}")
+    private int previewChars = 200;
+
+    @Value("${agent.context.max-prompt-section-tokens:6000}")
+    private int maxPromptSectionTokens = 6000;
+
+    /**
+     * Compact history entries that fell out of the recent window.
+     *
+     * Called by BaseAgent at the end of each iteration.
+     *
+     * @return Number of entries compacted
+     */
+    public int compact(UUID executionId, AgentContext context) {
+        if (!compactionEnabled || context == null || context.getActionHistory() == null) {
+            return 0;
+        }
+
+        int cutoff = context.getCurrentIteration() - Math.max(0, keepRecentIterations);
+        List<AgentHistoryEntry> history = context.getActionHistory();
+        int compacted = 0;
+
+        for (int i = 0; i < history.size(); i++) {
+            AgentHistoryEntry entry = history.get(i);
+            if (entry.getIteration() >= cutoff || isCompacted(entry)) {
+                continue;
+            }
+            history.set(i, compactEntry(executionId, entry));
+            compacted++;
+        }
+
+        if (compacted > 0) {
+            log.debug("🗜️ Compacted {} history entries for execution {} (before iteration {})",
+                    compacted, executionId, cutoff);
+        }
+        return compacted;
+    }
+
+    /**
+     * Cut a context-derived prompt section to the configured token ceiling.
+     *
+     * @param section Section text (page HTML, failure messages, ...)
+     * @return The section unchanged if it fits, otherwise its head and tail
+     *         around an omission marker
+     */
+    public String fitSection(String section) {
+        return fitSection(section, maxPromptSectionTokens);
+    }
+
+    /**
+     * Cut a prompt section to maxTokens, keeping 80% head and 20% tail
+     * (stack traces end with the cause, HTML starts with the structure).
+     */
+    public static String fitSection(String section, int maxTokens) {
+        if (section == null || maxTokens <= 0) {
+            return section;
+        }
+        int maxChars = maxTokens * CHARS_PER_TOKEN;
+        if (section.length() <= maxChars) {
+            return section;
+        }
+
+        int head = maxChars * 4 / 5;
+        int tail = maxChars - head;
+        int omitted = section.length() - head - tail;
+        return section.substring(0, head)
+                + "\n[... " + omitted + " characters omitted ...]\n"
+                + section.substring(section.length() - tail);
+    }
+
+    public int getMaxPromptSectionTokens() {
+        return maxPromptSectionTokens;
+    }
+
+    // ========== ENTRY COMPACTION ==========
+
+    private AgentHistoryEntry compactEntry(UUID executionId, AgentHistoryEntry entry) {
+        String artifactPrefix = "agent-" + entry.getIteration() + "-" + entry.getActionType();
+        return AgentHistoryEntry.builder()
+                .iteration(entry.getIteration())
+                .actionType(entry.getActionType())
+                .actionInput(summariseMap(executionId, artifactPrefix + "-input", entry.getActionInput()))
+                .actionOutput(summariseMap(executionId, artifactPrefix + "-output", entry.getActionOutput()))
+                .success(entry.isSuccess())
+                .errorMessage(preview(entry.getErrorMessage()))
+                .durationMs(entry.getDurationMs())
+                .aiCost(entry.getAiCost())
+                .timestamp(entry.getTimestamp())
+                .requiredApproval(entry.isRequiredApproval())
+                .approvalRequestId(entry.getApprovalRequestId())
+                .build();
+    }
+
+    private Map<String, Object> summariseMap(UUID executionId, String artifactPrefix, Map<String, Object> values) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put(COMPACTED_MARKER, true);
+        if (values != null) {
+            values.forEach((key, value) ->
+                    summary.put(key, summarise(executionId, artifactPrefix + "-" + key, value)));
+        }
+        return summary;
+    }
+
+    private Object summarise(UUID executionId, String artifactName, Object value) {
+        if (value instanceof String text) {
+            return summariseText(executionId, artifactName, text);
+        }
+        if (value instanceof Collection<?> items && items.size() > MAX_LIST_ITEMS) {
+            List<Object> kept = new ArrayList<>();
+            items.stream().limit(MAX_LIST_ITEMS).forEach(item -> kept.add(summariseNested(item)));
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("size", items.size());
+            summary.put("first", kept);
+            return summary;
+        }
+        if (value instanceof Collection<?> items) {
+            return items.stream().map(this::summariseNested).toList();
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> nested = new LinkedHashMap<>();
+            map.forEach((k, v) -> nested.put(String.valueOf(k), summariseNested(v)));
+            return nested;
+        }
+        return value;
+    }
+
+    /**
+     * Nested values are only previewed - blobs worth an artifact are top-level outputs.
+     */
+    private Object summariseNested(Object value) {
+        if (value instanceof String text) {
+            return text.length() > previewChars ? previewSummary(text) : text;
+        }
+        if (value instanceof Map<?, ?> || value instanceof Collection<?>) {
+            String rendered = String.valueOf(value);
+            return rendered.length() > previewChars ? previewSummary(rendered) : value;
+        }
+        return value;
+    }
+
+    private Object summariseText(UUID executionId, String artifactName, String text) {
+        if (text.length() <= previewChars) {
+            return text;
+        }
+
+        Map<String, Object> summary = previewSummary(text);
+        if (text.length() > blobThresholdChars && executionId != null) {
+            try {
+                FileMetadata artifact = fileStorageService.saveLog(executionId.toString(), text, artifactName);
+                summary.put("artifactRef", artifact.getFilename());
+            } catch (Exception e) {
+                // Keep the preview - compaction must never fail the agent loop
+                log.warn("Could not offload {} for execution {}: {}", artifactName, executionId, e.getMessage());
+            }
+        }
+        return summary;
+    }
+
+    private Map<String, Object> previewSummary(String text) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("chars", text.length());
+        summary.put("preview", text.substring(0, Math.min(text.length(), previewChars)));
+        return summary;
+    }
+
+    private String preview(String text) {
+        if (text == null || text.length() <= previewChars) {
+            return text;
+        }
+        return text.substring(0, previewChars) + "...";
+    }
+
+    private static boolean isCompacted(AgentHistoryEntry entry) {
+        Map<String, Object> output = entry.getActionOutput();
+        return output != null && Boolean.TRUE.equals(output.get(COMPACTED_MARKER));
+    }
+}
@@ -167,38 +167,48 @@ public class AgentExecutionService {
     /**
      * Save action to history table.
      *
-     * Called after each agent action.
+     * Single-row variant; agents write through AgentActionHistoryWriter,
+     * which batches entries into saveActions().
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void saveAction(UUID executionId, int iteration, AgentHistoryEntry historyEntry) {
-        Map<String, Object> input = historyEntry.getActionInput();
-        Map<String, Object> output = historyEntry.getActionOutput();
+        actionHistoryRepository.save(toActionHistory(executionId, iteration, historyEntry));
+        executionRepository.incrementTotalActions(executionId, 1);
 
-        AgentActionHistory action = AgentActionHistory.builder()
-                .agentExecutionId(executionId)
-                .iteration(iteration)
-                .actionType(historyEntry.getActionType())
-                .actionInput(input)
-                .actionOutput(output)
-                .success(historyEntry.isSuccess())
-                .errorMessage(historyEntry.getErrorMessage())
-                .durationMs(historyEntry.getDurationMs())
-                .aiCost(historyEntry.getAiCost() != null ? BigDecimal.valueOf(historyEntry.getAiCost()) : null)
-                .requiredApproval(historyEntry.isRequiredApproval())
-                .approvalRequestId(historyEntry.getApprovalRequestId())
-                .timestamp(Instant.now())
-                .build();
+        log.debug("Saved action: {} - iteration: {}, type: {}, success: {}",
+                executionId, iteration, historyEntry.getActionType(), historyEntry.isSuccess());
+    }
 
-        actionHistoryRepository.save(action);
+    /**
+     * Save a batch of actions in one transaction.
+     *
+     * Inserts go through saveAll (JDBC-batched when hibernate.jdbc.batch_size
+     * is set) and the execution's action counter is bumped once for the batch.
+     * Entries must carry their own iteration number.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void saveActions(UUID executionId, List<AgentHistoryEntry> historyEntries) {
+        if (historyEntries == null || historyEntries.isEmpty()) {
+            return;
+        }
 
-        // Update execution total actions count
-        executionRepository.findById(executionId).ifPresent(execution -> {
-            execution.setTotalActions((execution.getTotalActions() != null ? execution.getTotalActions() : 0) + 1);
-            executionRepository.save(execution);
-        });
+        List<AgentActionHistory> actions = historyEntries.stream()
+                .map(entry -> toActionHistory(executionId, entry.getIteration(), entry))
+                .toList();
 
-        log.debug("Saved action: {} - iteration: {}, type: {}, success: {}",
-                executionId, iteration, historyEntry.getActionType(), historyEntry.isSuccess());
+        actionHistoryRepository.saveAll(actions);
+        executionRepository.incrementTotalActions(executionId, actions.size());
+
+        log.debug("Saved {} action(s) for execution: {}", actions.size(), executionId);
+    }
+
+    /**
+     * Count actions already persisted for an execution.
+     *
+     * Used to reconcile the Redis context journal with the history table.
+     */
+    public long countActions(UUID executionId) {
+        return actionHistoryRepository.countByAgentExecutionId(executionId);
     }
 
     /**
@@ -245,4 +255,21 @@ public class AgentExecutionService {
     public List<AgentExecution> getExecutionsByStatus(AgentStatus status) {
         return executionRepository.findByStatus(status);
     }
-}
\ No newline at end of file
+
+    private AgentActionHistory toActionHistory(UUID executionId, int iteration, AgentHistoryEntry historyEntry) {
+        return AgentActionHistory.builder()
+                .agentExecutionId(executionId)
+                .iteration(iteration)
+                .actionType(historyEntry.getActionType())
+                .actionInput(historyEntry.getActionInput())
+                .actionOutput(historyEntry.getActionOutput())
+                .success(historyEntry.isSuccess())
+                .errorMessage(historyEntry.getErrorMessage())
+                .durationMs(historyEntry.getDurationMs())
+                .aiCost(historyEntry.getAiCost() != null ? BigDecimal.valueOf(historyEntry.getAiCost()) : null)
+                .requiredApproval(historyEntry.isRequiredApproval())
+                .approvalRequestId(historyEntry.getApprovalRequestId())
+                .timestamp(historyEntry.getTimestamp() != null ? historyEntry.getTimestamp() : Instant.now())
+                .build();
+    }
+}
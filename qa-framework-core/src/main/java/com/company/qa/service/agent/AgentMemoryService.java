@@ -1,18 +1,20 @@
 package com.company.qa.service.agent;
 
+import com.company.qa.model.agent.ActiveExecutionPage;
 import com.company.qa.model.agent.AgentContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * Manages agent context persistence using Redis.
@@ -26,6 +28,12 @@ import java.util.stream.Collectors;
  * Redis Key Format: "agent:context:{executionId}"
  * Default TTL: 24 hours
  *
+ * Active Execution Index: "agent:active-executions"
+ * A sorted set of execution IDs scored by context expiry time (epoch millis).
+ * Updated on save, clear and TTL extension, and pruned of expired entries,
+ * so monitoring never has to walk the keyspace with KEYS (which blocks Redis
+ * for every other client - rate limiter, caches, etc.).
+ *
  * Used by:
  * - BaseAgent: saveContext() after each action
  * - AgentOrchestrator: loadContext() to resume execution
@@ -39,7 +47,9 @@ public class AgentMemoryService {
     private final ObjectMapper objectMapper;
 
     private static final String KEY_PREFIX = "agent:context:";
+    private static final String ACTIVE_INDEX_KEY = "agent:active-executions";
     private static final Duration DEFAULT_TTL = Duration.ofHours(24);
+    private static final int DEFAULT_PAGE_SIZE = 100;
 
     /**
      * Save complete agent context to Redis.
@@ -55,6 +65,7 @@ public class AgentMemoryService {
         try {
             String contextJson = objectMapper.writeValueAsString(context);
             redisTemplate.opsForValue().set(key, contextJson, DEFAULT_TTL);
+            indexActiveExecution(executionId, DEFAULT_TTL);
 
             log.debug("💾 Saved agent context: {} (iteration: {})",
                     executionId, context.getCurrentIteration());
@@ -108,6 +119,7 @@ public class AgentMemoryService {
         String key = buildKey(executionId);
 
         Boolean deleted = redisTemplate.delete(key);
+        removeFromIndex(executionId);
 
         if (Boolean.TRUE.equals(deleted)) {
             log.debug("🗑️  Cleared agent context: {}", executionId);
@@ -141,6 +153,7 @@ public class AgentMemoryService {
         Boolean extended = redisTemplate.expire(key, duration.getSeconds(), TimeUnit.SECONDS);
 
         if (Boolean.TRUE.equals(extended)) {
+            indexActiveExecution(executionId, duration);
             log.debug("⏰ Extended TTL for execution: {} to {} hours",
                     executionId, duration.toHours());
         } else {
@@ -162,26 +175,125 @@ public class AgentMemoryService {
     /**
      * Get all active agent executions (for monitoring).
      *
-     * Scans Redis for all agent context keys.
+     * Walks the active execution index page by page instead of
+     * scanning the keyspace.
      *
      * @return List of execution IDs with active contexts
      */
     public List<UUID> getActiveExecutions() {
+        List<UUID> executionIds = new ArrayList<>();
+        Long cursor = 0L;
+
+        while (cursor != null) {
+            ActiveExecutionPage page = getActiveExecutions(cursor, DEFAULT_PAGE_SIZE);
+            executionIds.addAll(page.getExecutionIds());
+            cursor = page.getNextCursor();
+        }
+
+        return executionIds;
+    }
+
+    /**
+     * Get one page of active agent executions.
+     *
+     * Entries whose context TTL has elapsed are skipped. Executions are
+     * ordered by expiry, so an agent that saves its context while a caller
+     * is paging moves to the tail and may be seen twice - callers that
+     * need exact counts should use totalActive.
+     *
+     * @param cursor Cursor returned by the previous page (0 for the first page)
+     * @param pageSize Maximum number of IDs to return
+     * @return Page of execution IDs with the cursor for the next page
+     */
+    public ActiveExecutionPage getActiveExecutions(long cursor, int pageSize) {
+        if (cursor < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("cursor must be >= 0 and pageSize must be > 0");
+        }
+
         try {
-            Set<String> keys = redisTemplate.keys(KEY_PREFIX + "*");
+            double now = System.currentTimeMillis();
+
+            Set<Object> members = redisTemplate.opsForZSet()
+                    .rangeByScore(ACTIVE_INDEX_KEY, now, Double.POSITIVE_INFINITY, cursor, pageSize);
+            Long total = redisTemplate.opsForZSet()
+                    .count(ACTIVE_INDEX_KEY, now, Double.POSITIVE_INFINITY);
 
-            if (keys == null || keys.isEmpty()) {
-                return List.of();
+            List<UUID> executionIds = new ArrayList<>();
+            if (members != null) {
+                for (Object member : members) {
+                    try {
+                        executionIds.add(UUID.fromString(member.toString()));
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Ignoring malformed active index entry: {}", member);
+                    }
+                }
             }
 
-            return keys.stream()
-                    .map(key -> key.replace(KEY_PREFIX, ""))
-                    .map(UUID::fromString)
-                    .collect(Collectors.toList());
+            long totalActive = total != null ? total : 0L;
+            // Advance past every member read, including skipped malformed ones
+            int read = members != null ? members.size() : 0;
+            long next = cursor + read;
+            boolean hasMore = read == pageSize && next < totalActive;
+
+            return ActiveExecutionPage.builder()
+                    .executionIds(executionIds)
+                    .nextCursor(hasMore ? next : null)
+                    .totalActive(totalActive)
+                    .build();
 
         } catch (Exception e) {
             log.error("Failed to get active executions", e);
-            return List.of();
+            return ActiveExecutionPage.builder().build();
+        }
+    }
+
+    /**
+     * Remove index entries whose context has expired.
+     *
+     * Contexts expire through their own TTL without notifying us, so the
+     * index is trimmed by score on a schedule and on demand.
+     *
+     * @return Number of entries removed
+     */
+    @Scheduled(fixedDelayString = "${agent.memory.index-prune-interval-ms:300000}")
+    public long pruneExpiredExecutions() {
+        try {
+            Long removed = redisTemplate.opsForZSet()
+                    .removeRangeByScore(ACTIVE_INDEX_KEY, Double.NEGATIVE_INFINITY, System.currentTimeMillis());
+
+            if (removed != null && removed > 0) {
+                log.debug("🧹 Pruned {} expired entries from active execution index", removed);
+            }
+            return removed != null ? removed : 0L;
+
+        } catch (Exception e) {
+            log.warn("Failed to prune active execution index: {}", e.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * Record execution in the active index, scored by context expiry.
+     *
+     * Index failures are logged but never fail the context write itself.
+     */
+    private void indexActiveExecution(UUID executionId, Duration ttl) {
+        try {
+            double expiresAt = System.currentTimeMillis() + ttl.toMillis();
+            redisTemplate.opsForZSet().add(ACTIVE_INDEX_KEY, executionId.toString(), expiresAt);
+        } catch (Exception e) {
+            log.warn("Failed to update active execution index for {}: {}", executionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Remove execution from the active index.
+     */
+    private void removeFromIndex(UUID executionId) {
+        try {
+            redisTemplate.opsForZSet().remove(ACTIVE_INDEX_KEY, executionId.toString());
+        } catch (Exception e) {
+            log.warn("Failed to remove {} from active execution index: {}", executionId, e.getMessage());
         }
     }
 
@@ -1,9 +1,11 @@
 package com.company.qa.service.agent;
 
 import com.company.qa.model.agent.AgentConfig;
+import com.company.qa.model.agent.AgentContext;
 import com.company.qa.model.agent.AgentGoal;
 import com.company.qa.model.agent.AgentResult;
 import com.company.qa.model.agent.entity.AgentExecution;
+import com.company.qa.model.enums.AgentPriority;
 import com.company.qa.model.enums.AgentStatus;
 import com.company.qa.model.enums.AgentType;
 import lombok.RequiredArgsConstructor;
@@ -13,17 +15,19 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * Orchestrates agent execution lifecycle.
  *
  * Responsibilities:
- * - Start agents asynchronously
+ * - Start agents asynchronously (admitted by AgentScheduler, by AgentPriority)
  * - Track running agents
  * - Stop agents
  * - Monitor execution progress
@@ -38,6 +42,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class AgentOrchestrator {
 
     private final AgentExecutionService executionService;
+    private final AgentScheduler scheduler;
+    private final AgentMemoryService memoryService;
     private final Map<AgentType, BaseAgent> agentRegistry = new ConcurrentHashMap<>();
 
     // Track running agents
@@ -53,6 +59,11 @@ public class AgentOrchestrator {
      */
     private final Map<UUID, AtomicBoolean> stopFlags = new ConcurrentHashMap<>();
 
+    /**
+     * AI cost pools of sweep children (see AgentSweepService), by child execution.
+     */
+    private final Map<UUID, SharedAgentBudget> sharedBudgets = new ConcurrentHashMap<>();
+
     /**
      * Check if stop has been requested for an execution.
      * Called by BaseAgent at the start of each iteration.
@@ -62,6 +73,14 @@ public class AgentOrchestrator {
         return flag != null && flag.get();
     }
 
+    /**
+     * Whether a BACKGROUND execution should pause so an interactive run can start.
+     * Called by BaseAgent at the start of each iteration.
+     */
+    public boolean shouldYield(UUID executionId) {
+        return scheduler.shouldYield(executionId);
+    }
+
     /**
      * Register an agent implementation.
      *
@@ -93,47 +112,9 @@ public class AgentOrchestrator {
             UUID triggeredBy,
             String triggeredByName) {
 
-        // Get agent implementation
-        BaseAgent agent = agentRegistry.get(agentType);
-        if (agent == null) {
-            throw new IllegalArgumentException("No agent registered for type: " + agentType);
-        }
-
-        // Create execution record
-        AgentExecution execution = executionService.createExecution(
-                agentType, goal, config, triggeredBy, triggeredByName  // ✅ PASS CONFIG
-        );
-        UUID executionId = execution.getId();
-
-        log.info("🚀 Starting agent: {} - Execution ID: {}", agentType, executionId);
-
-        // Execute agent asynchronously
-        CompletableFuture<AgentResult> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                return agent.execute(goal, config, executionId);
-            } catch (Exception e) {
-                log.error("Agent execution failed: {}", executionId, e);
-                executionService.recordError(executionId, e.getMessage());
-                throw new RuntimeException("Agent execution failed", e);
-            }
-        }, Executors.newSingleThreadExecutor());
-
-
-
-        // Track running agent
-        runningAgents.put(executionId, future);
-
-        // Remove from tracking when complete
-        future.whenComplete((result, error) -> {
-            runningAgents.remove(executionId);
-            if (error == null) {
-                log.info("✅ Agent completed: {} - Status: {}", executionId, result.getStatus());
-            } else {
-                log.error("❌ Agent failed: {}", executionId, error);
-            }
-        });
-
-        return future;
+        // Admitted through AgentScheduler like every other agent loop
+        return createAndStartChildAgent(agentType, goal, config, triggeredBy, triggeredByName, null)
+                .future();
     }
 
     /**
@@ -152,6 +133,25 @@ public class AgentOrchestrator {
             UUID triggeredBy,
             String triggeredByName) {
 
+        return createAndStartChildAgent(agentType, goal, config, triggeredBy, triggeredByName, null)
+                .execution();
+    }
+
+    /**
+     * Same as createAndStartAgent, for executions started by another
+     * execution (sweep children): the AI cost is charged to a shared pool
+     * and the caller gets the future to track completion.
+     *
+     * @param sharedBudget Pool to charge AI cost to, or null for none
+     */
+    public ChildExecution createAndStartChildAgent(
+            AgentType agentType,
+            AgentGoal goal,
+            AgentConfig config,
+            UUID triggeredBy,
+            String triggeredByName,
+            SharedAgentBudget sharedBudget) {
+
         BaseAgent agent = agentRegistry.get(agentType);
         if (agent == null) {
             throw new IllegalArgumentException("No agent registered for type: " + agentType);
@@ -163,34 +163,179 @@ public class AgentOrchestrator {
         );
         UUID executionId = execution.getId();
 
+        // Registered before the agent thread starts so the first charge is never missed
+        if (sharedBudget != null) {
+            sharedBudgets.put(executionId, sharedBudget);
+        }
+
+        return new ChildExecution(execution, launchAgent(agent, agentType, goal, config, executionId));
+    }
+
+    /**
+     * Launch an execution record the caller created itself.
+     *
+     * For callers that must set up per-execution state before the agent
+     * thread starts (e.g. AgentReplayService attaching the run recorder).
+     * The run is tracked and admitted through AgentScheduler like any other.
+     *
+     * @param execution Execution record created via AgentExecutionService
+     * @return Future completed when the agent finishes
+     */
+    public CompletableFuture<AgentResult> startExecution(AgentExecution execution, AgentGoal goal,
+                                                         AgentConfig config) {
+        AgentType agentType = execution.getAgentType();
+        BaseAgent agent = agentRegistry.get(agentType);
+        if (agent == null) {
+            throw new IllegalArgumentException("No agent registered for type: " + agentType);
+        }
+        return launchAgent(agent, agentType, goal, config, execution.getId());
+    }
+
+    private CompletableFuture<AgentResult> launchAgent(BaseAgent agent, AgentType agentType, AgentGoal goal,
+                                                       AgentConfig config, UUID executionId) {
         log.info("🚀 Launching agent async: {} - Execution ID: {}", agentType, executionId);
+        return schedule(agent, config, executionId, () -> agent.execute(goal, config, executionId));
+    }
+
+    /**
+     * Continue an execution interrupted by a restart from its checkpointed context.
+     *
+     * Goes through AgentScheduler like a new run, with the priority it was
+     * started with.
+     *
+     * @param execution Execution record left RUNNING (or PAUSED/QUEUED) by the previous process
+     * @param context Context loaded from AgentMemoryService
+     * @return Future of the resumed run, or empty if no agent is registered for its type
+     */
+    public Optional<CompletableFuture<AgentResult>> resumeExecution(AgentExecution execution, AgentContext context) {
+        BaseAgent agent = agentRegistry.get(execution.getAgentType());
+        if (agent == null) {
+            return Optional.empty();
+        }
+
+        UUID executionId = execution.getId();
+        AgentConfig config = context.getConfig() != null
+                ? context.getConfig()
+                : AgentConfig.builder()
+                        .maxIterations(context.getMaxIterations())
+                        .maxAICost(context.getMaxAICost() != null ? context.getMaxAICost() : 5.0)
+                        .build();
+
+        log.info("♻️ Resuming interrupted agent: {} - Execution ID: {} (iteration {})",
+                execution.getAgentType(), executionId, context.getCurrentIteration());
 
-        // Launch async execution
-        CompletableFuture<AgentResult> future = CompletableFuture.supplyAsync(() -> {
+        return Optional.of(schedule(agent, config, executionId, () -> agent.resume(config, executionId)));
+    }
+
+    /**
+     * Track an execution and hand it to AgentScheduler.
+     *
+     * @return Future completed by the agent thread - a paused run keeps it open until it finishes
+     */
+    private CompletableFuture<AgentResult> schedule(BaseAgent agent, AgentConfig config, UUID executionId,
+                                                    Supplier<AgentResult> run) {
+        CompletableFuture<AgentResult> future = new CompletableFuture<>();
+        trackExecution(executionId, future);
+
+        AgentPriority priority = config.getPriority() != null ? config.getPriority() : AgentPriority.BACKGROUND;
+        scheduler.submit(executionId, priority,
+                () -> launch(agent, config, executionId, future, run),
+                () -> executionService.updateExecution(executionId, null, AgentStatus.QUEUED));
+        return future;
+    }
+
+    /**
+     * Run (or resume) an agent loop on its own thread.
+     *
+     * A PAUSED result means the run yielded its slot (AgentScheduler): it is
+     * re-queued with a resume from its checkpoint and the future stays open.
+     * Any other outcome completes the future and frees the slot.
+     */
+    private void launch(BaseAgent agent, AgentConfig config, UUID executionId,
+                        CompletableFuture<AgentResult> future, Supplier<AgentResult> run) {
+        Executors.newSingleThreadExecutor().execute(() -> {
+            boolean paused = false;
             try {
-                return agent.execute(goal, config, executionId);
+                AgentResult result = run.get();
+                if (result != null && result.getStatus() == AgentStatus.PAUSED) {
+                    paused = true;
+                    scheduler.pause(executionId, () -> launch(agent, config, executionId, future,
+                            () -> agent.resume(config, executionId)));
+                    return;
+                }
+                future.complete(result);
             } catch (Exception e) {
                 log.error("Agent execution failed: {}", executionId, e);
                 executionService.recordError(executionId, e.getMessage());
-                throw new RuntimeException("Agent execution failed", e);
+                future.completeExceptionally(new RuntimeException("Agent execution failed", e));
+            } finally {
+                if (!paused) {
+                    scheduler.release(executionId);
+                    executionFinished(executionId);
+                }
             }
-        }, Executors.newSingleThreadExecutor());
+        });
+    }
 
+    /**
+     * Track a running execution so it can be listed and stopped.
+     *
+     * Used for agent loops and for executions driven elsewhere (sweep parents).
+     */
+    public void trackExecution(UUID executionId, CompletableFuture<AgentResult> future) {
         // Register stop flag before adding to runningAgents so stopAgent() can set it
         stopFlags.put(executionId, new AtomicBoolean(false));
         runningAgents.put(executionId, future);
 
         future.whenComplete((result, error) -> {
             runningAgents.remove(executionId);
-            stopFlags.remove(executionId);
+            // A cancelled future completes immediately while the agent thread is
+            // still inside its current action; the flag must survive until the
+            // thread itself ends (executionFinished), or the loop never sees it.
+            if (!future.isCancelled()) {
+                executionFinished(executionId);
+            }
             if (error == null) {
                 log.info("✅ Agent completed: {} - Status: {}", executionId, result.getStatus());
             } else {
                 log.error("❌ Agent failed: {}", executionId, error);
             }
         });
+    }
+
+    /**
+     * Drop per-execution bookkeeping once the executing thread has ended.
+     */
+    public void executionFinished(UUID executionId) {
+        stopFlags.remove(executionId);
+        sharedBudgets.remove(executionId);
+    }
 
-        return execution;
+    /**
+     * Charge AI cost to the execution's shared pool, if it has one.
+     * Called by BaseAgent after each action.
+     */
+    public void chargeSharedBudget(UUID executionId, double cost) {
+        SharedAgentBudget budget = sharedBudgets.get(executionId);
+        if (budget != null) {
+            budget.charge(cost);
+        }
+    }
+
+    /**
+     * Unspent amount of the execution's shared pool, or null if it has none.
+     */
+    public Double getSharedBudgetRemaining(UUID executionId) {
+        SharedAgentBudget budget = sharedBudgets.get(executionId);
+        return budget != null ? budget.getRemaining() : null;
+    }
+
+    /**
+     * Whether the execution's shared pool (if any) is spent.
+     */
+    public boolean isSharedBudgetExhausted(UUID executionId) {
+        SharedAgentBudget budget = sharedBudgets.get(executionId);
+        return budget != null && budget.isExhausted();
     }
 
     /**
@@ -246,6 +391,14 @@ public class AgentOrchestrator {
         // The flag is removed in whenComplete(), which fires only after the agent thread
         // actually terminates — ensuring the flag stays alive long enough to be read.
 
+        // A queued or paused run has no agent thread to see the flag: drop it
+        // from the scheduler queue and clean up here instead.
+        if (scheduler.cancel(executionId)) {
+            log.info("🛑 Removed waiting execution from queue: {}", executionId);
+            memoryService.clearContext(executionId);
+            executionFinished(executionId);
+        }
+
         // Step 2: Also cancel the future + interrupt the thread as a backup.
         // Has no effect inside Playwright I/O but helps for pure-Java blocking calls.
         future.cancel(true);
@@ -280,10 +433,23 @@ public class AgentOrchestrator {
         return executionService.getRunningExecutions();
     }
 
+    /**
+     * Get the registered implementation for an agent type.
+     */
+    public Optional<BaseAgent> getAgent(AgentType agentType) {
+        return Optional.ofNullable(agentRegistry.get(agentType));
+    }
+
     /**
      * Get registered agent types.
      */
     public List<AgentType> getAvailableAgentTypes() {
         return agentRegistry.keySet().stream().toList();
     }
+
+    /**
+     * An execution started by createAndStartChildAgent.
+     */
+    public record ChildExecution(AgentExecution execution, CompletableFuture<AgentResult> future) {
+    }
 }
\ No newline at end of file
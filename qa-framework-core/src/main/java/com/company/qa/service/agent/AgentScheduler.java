@@ -0,0 +1,212 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.model.enums.AgentPriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admission control for agent loops, by AgentPriority.
+ *
+ * Problem: bulk system work (auto-heal after repeated failures, flaky sweep
+ * children) started as many agent loops as there were requests, and a run
+ * started by a person from the UI competed with all of them for browsers
+ * and AI capacity.
+ *
+ * Rules:
+ * - At most agent.scheduling.max-concurrent agent loops run at once
+ * - agent.scheduling.reserved-interactive of those slots are only used by
+ *   INTERACTIVE executions
+ * - Executions that cannot start wait in a queue ordered by priority
+ *   (paused executions ahead of new ones of the same class, then FIFO)
+ * - An INTERACTIVE execution that has to wait asks the most recently
+ *   started BACKGROUND execution to yield; BaseAgent checks shouldYield()
+ *   at each iteration boundary, checkpoints its context and returns PAUSED,
+ *   and AgentOrchestrator re-queues it through pause()
+ *
+ * The scheduler only decides when to run the launch/resume callbacks it is
+ * given; AgentOrchestrator owns the threads and futures.
+ */
+@Slf4j
+@Component
+public class AgentScheduler {
+
+    @Value("${agent.scheduling.max-concurrent:6}")
+    private int maxConcurrent = 6;
+
+    @Value("${agent.scheduling.reserved-interactive:2}")
+    private int reservedInteractive = 2;
+
+    @Value("${agent.scheduling.preemption-enabled:true}")
+    private boolean preemptionEnabled = true;
+
+    /**
+     * Running executions in start order (the last BACKGROUND one is preempted first).
+     */
+    private final LinkedHashMap<UUID, AgentPriority> running = new LinkedHashMap<>();
+
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>(
+            Comparator.comparing(Pending::priority)
+                    .thenComparing(Pending::resumed, Comparator.reverseOrder())
+                    .thenComparingLong(Pending::sequence));
+
+    /**
+     * Executions asked to yield. Read by agent threads without the lock.
+     */
+    private final Set<UUID> yieldRequested = ConcurrentHashMap.newKeySet();
+
+    private long sequence;
+
+    /**
+     * Start an execution now if a slot is free, otherwise queue it.
+     *
+     * @param executionId Execution to start
+     * @param priority Scheduling class
+     * @param launch Starts the agent thread (must not block)
+     * @param onQueued Called (under the scheduler lock) if the execution has to wait
+     * @return true if launched now, false if queued
+     */
+    public synchronized boolean submit(UUID executionId, AgentPriority priority,
+                                       Runnable launch, Runnable onQueued) {
+        AgentPriority effective = priority != null ? priority : AgentPriority.BACKGROUND;
+
+        if (canStart(effective)) {
+            start(executionId, effective, launch);
+            return true;
+        }
+
+        queue.add(new Pending(executionId, effective, false, sequence++, launch));
+        log.info("⏳ Queued {} execution {} ({} running, {} queued)",
+                effective, executionId, running.size(), queue.size());
+        if (onQueued != null) {
+            onQueued.run();
+        }
+        requestPreemption();
+        return false;
+    }
+
+    /**
+     * Give up the slot of an execution that has finished (any outcome).
+     */
+    public synchronized void release(UUID executionId) {
+        running.remove(executionId);
+        yieldRequested.remove(executionId);
+        drain();
+    }
+
+    /**
+     * Give up the slot of an execution that yielded, and queue its resume.
+     *
+     * @param resume Resumes the agent from its checkpoint (must not block)
+     */
+    public synchronized void pause(UUID executionId, Runnable resume) {
+        AgentPriority priority = running.remove(executionId);
+        yieldRequested.remove(executionId);
+        queue.add(new Pending(executionId, priority != null ? priority : AgentPriority.BACKGROUND,
+                true, sequence++, resume));
+        log.info("⏸️  Paused execution {} ({} running, {} queued)", executionId, running.size(), queue.size());
+        drain();
+    }
+
+    /**
+     * Drop a queued (or paused) execution that will not be started any more.
+     *
+     * @return true if it was waiting, false if running or unknown
+     */
+    public synchronized boolean cancel(UUID executionId) {
+        return queue.removeIf(pending -> pending.executionId().equals(executionId));
+    }
+
+    /**
+     * Whether a running execution should pause at its next iteration boundary.
+     */
+    public boolean shouldYield(UUID executionId) {
+        return yieldRequested.contains(executionId);
+    }
+
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized boolean isQueued(UUID executionId) {
+        return queue.stream().anyMatch(pending -> pending.executionId().equals(executionId));
+    }
+
+    private boolean canStart(AgentPriority priority) {
+        int limit = Math.max(1, maxConcurrent);
+        if (running.size() >= limit) {
+            return false;
+        }
+        if (priority == AgentPriority.INTERACTIVE) {
+            return true;
+        }
+        long nonInteractive = running.values().stream()
+                .filter(p -> p != AgentPriority.INTERACTIVE)
+                .count();
+        return nonInteractive < Math.max(1, limit - Math.max(0, reservedInteractive));
+    }
+
+    private void start(UUID executionId, AgentPriority priority, Runnable launch) {
+        running.put(executionId, priority);
+        try {
+            launch.run();
+        } catch (RuntimeException e) {
+            running.remove(executionId);
+            throw e;
+        }
+    }
+
+    /**
+     * Start queued executions in priority order while slots allow.
+     */
+    private void drain() {
+        while (!queue.isEmpty() && canStart(queue.peek().priority())) {
+            Pending next = queue.poll();
+            try {
+                start(next.executionId(), next.priority(), next.launch());
+                log.info("▶️ Started {} execution {} from queue ({} still queued)",
+                        next.priority(), next.executionId(), queue.size());
+            } catch (RuntimeException e) {
+                log.error("Failed to start queued execution {}", next.executionId(), e);
+            }
+        }
+        requestPreemption();
+    }
+
+    /**
+     * Ask one BACKGROUND execution to yield per waiting INTERACTIVE one.
+     */
+    private void requestPreemption() {
+        if (!preemptionEnabled) {
+            return;
+        }
+        long interactiveWaiting = queue.stream()
+                .filter(pending -> pending.priority() == AgentPriority.INTERACTIVE)
+                .count();
+        if (interactiveWaiting <= yieldRequested.size()) {
+            return;
+        }
+
+        List<UUID> newestFirst = new ArrayList<>(running.keySet());
+        Collections.reverse(newestFirst);
+        for (UUID candidate : newestFirst) {
+            if (interactiveWaiting <= yieldRequested.size()) {
+                break;
+            }
+            if (running.get(candidate) == AgentPriority.BACKGROUND && yieldRequested.add(candidate)) {
+                log.info("🔀 Asking BACKGROUND execution {} to yield to an interactive run", candidate);
+            }
+        }
+    }
+
+    private record Pending(UUID executionId, AgentPriority priority, boolean resumed,
+                           long sequence, Runnable launch) {
+    }
+}
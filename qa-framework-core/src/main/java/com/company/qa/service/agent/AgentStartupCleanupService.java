@@ -1,10 +1,12 @@
 package com.company.qa.service.agent;
 
+import com.company.qa.model.agent.AgentContext;
 import com.company.qa.model.agent.entity.AgentExecution;
 import com.company.qa.model.enums.AgentStatus;
 import com.company.qa.repository.AgentExecutionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
@@ -12,6 +14,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Cleans up orphaned agent executions on startup.
@@ -20,9 +26,28 @@ import java.util.List;
  * When the server restarts, that map is wiped but the DB still has every past
  * execution stuck at RUNNING status forever - causing the "78 running agents" bug.
  *
- * Solution: On every startup, find all RUNNING or WAITING_FOR_APPROVAL executions
- * and mark them STOPPED with an explanatory message. They are unreachable - the
- * CompletableFuture is gone.
+ * Solution: On every startup, find all RUNNING, WAITING_FOR_APPROVAL, QUEUED or
+ * PAUSED executions. Those whose AgentContext is still in Redis are resumed from
+ * their last checkpoint (AgentOrchestrator.resumeExecution, through the agent
+ * scheduler) instead of being repeated from iteration zero; side-effecting tool
+ * calls that already went through are not repeated (SideEffectLedger). The rest
+ * are marked STOPPED with an explanatory message - the CompletableFuture and the
+ * AgentScheduler queue are gone.
+ *
+ * Not resumed (stopped as before):
+ * - executions without a context (expired, or never started)
+ * - sweep children (parentExecutionId goal parameter): the sweep coordinator
+ *   that owned their shared budget did not survive the restart
+ * - everything, when agent.resume.enabled is false
+ *
+ * Stopped executions have their Redis contexts cleared through the active
+ * execution index maintained by AgentMemoryService, so cleanup never scans
+ * the keyspace. Before a context is cleared or resumed, any action history
+ * still only present in the context journal is written to the database.
+ *
+ * Finished executions (SUCCEEDED, FAILED, ...) whose context is still
+ * indexed kept it because their final action-history flush failed; their
+ * missing actions are written and the context is cleared.
  */
 @Component
 @RequiredArgsConstructor
@@ -30,24 +55,46 @@ import java.util.List;
 public class AgentStartupCleanupService {
 
     private final AgentExecutionRepository executionRepository;
+    private final AgentMemoryService memoryService;
+    private final AgentActionHistoryWriter actionHistoryWriter;
+    private final AgentOrchestrator orchestrator;
+
+    @Value("${agent.resume.enabled:true}")
+    private boolean resumeEnabled = true;
 
     /**
      * Runs after the application is fully started.
-     * Marks all orphaned executions so the UI shows accurate running counts.
+     * Resumes or marks all orphaned executions so the UI shows accurate running counts.
      */
     @EventListener(ApplicationReadyEvent.class)
     @Transactional
     public void cleanupOrphanedExecutions() {
+        long pruned = memoryService.pruneExpiredExecutions();
+        if (pruned > 0) {
+            log.info("🧹 Agent startup cleanup: pruned {} expired context index entries", pruned);
+        }
+
         List<AgentExecution> orphaned = executionRepository.findRunningAgents();
+        recoverFinishedJournals(orphaned.stream().map(AgentExecution::getId).collect(Collectors.toSet()));
 
         if (orphaned.isEmpty()) {
             log.info("✅ Agent startup cleanup: no orphaned executions found");
             return;
         }
 
-        log.warn("⚠️ Agent startup cleanup: found {} orphaned execution(s) - marking as STOPPED", orphaned.size());
+        log.warn("⚠️ Agent startup cleanup: found {} orphaned execution(s)", orphaned.size());
 
+        int resumed = 0;
+        int stopped = 0;
         for (AgentExecution execution : orphaned) {
+            AgentContext context = memoryService.loadContext(execution.getId());
+            recoverActionHistory(execution, context);
+
+            if (resumeEnabled && isResumable(context) && resume(execution, context)) {
+                resumed++;
+                continue;
+            }
+
             execution.setStatus(AgentStatus.STOPPED);
             execution.setErrorMessage(
                     "Execution interrupted: server restarted while agent was running. " +
@@ -55,11 +102,77 @@ public class AgentStartupCleanupService {
             );
             execution.setCompletedAt(Instant.now());
             executionRepository.save(execution);
+            memoryService.clearContext(execution.getId());
+            stopped++;
 
             log.info("  → Stopped orphaned execution: {} (type={}, startedAt={})",
                     execution.getId(), execution.getAgentType(), execution.getStartedAt());
         }
 
-        log.info("✅ Agent startup cleanup complete: {} execution(s) marked as STOPPED", orphaned.size());
+        log.info("✅ Agent startup cleanup complete: {} execution(s) resumed, {} marked as STOPPED",
+                resumed, stopped);
+    }
+
+    private boolean isResumable(AgentContext context) {
+        if (context == null) {
+            return false;
+        }
+        Map<String, Object> parameters = context.getGoal() != null ? context.getGoal().getParameters() : null;
+        return parameters == null || !parameters.containsKey("parentExecutionId");
+    }
+
+    private boolean resume(AgentExecution execution, AgentContext context) {
+        try {
+            if (orchestrator.resumeExecution(execution, context).isPresent()) {
+                log.info("  → Resuming orphaned execution: {} (type={}) from iteration {}",
+                        execution.getId(), execution.getAgentType(), context.getCurrentIteration());
+                return true;
+            }
+            log.warn("  → No agent registered for {} - cannot resume {}", execution.getAgentType(), execution.getId());
+        } catch (Exception e) {
+            log.warn("  → Could not resume {}: {}", execution.getId(), e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Persist actions that were buffered in memory when the server went down.
+     *
+     * @return true if the journal is fully persisted (or there is none)
+     */
+    private boolean recoverActionHistory(AgentExecution execution, AgentContext context) {
+        try {
+            actionHistoryWriter.recover(execution.getId(), context);
+            return true;
+        } catch (Exception e) {
+            log.warn("  → Could not recover action history for {}: {}", execution.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Write the journals that finished executions kept after a failed final
+     * flush, then clear them. Orphaned (unfinished) executions are handled
+     * by the main cleanup.
+     */
+    private void recoverFinishedJournals(Set<UUID> orphanedIds) {
+        int recovered = 0;
+        for (UUID executionId : memoryService.getActiveExecutions()) {
+            if (orphanedIds.contains(executionId)) {
+                continue;
+            }
+            AgentExecution execution = executionRepository.findById(executionId).orElse(null);
+            if (execution == null) {
+                continue;
+            }
+            AgentContext context = memoryService.loadContext(executionId);
+            if (recoverActionHistory(execution, context)) {
+                memoryService.clearContext(executionId);
+                recovered++;
+            }
+        }
+        if (recovered > 0) {
+            log.info("♻️  Agent startup cleanup: recovered the journals of {} finished execution(s)", recovered);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,257 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.config.FlakyTestConfig;
+import com.company.qa.model.agent.AgentConfig;
+import com.company.qa.model.agent.AgentGoal;
+import com.company.qa.model.agent.AgentResult;
+import com.company.qa.model.agent.entity.AgentExecution;
+import com.company.qa.model.enums.AgentPriority;
+import com.company.qa.model.enums.AgentStatus;
+import com.company.qa.model.enums.AgentType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Suite-wide FlakyTestAgent sweeps (goalType FLAKY_SWEEP).
+ *
+ * Instead of one execution walking every candidate with moveToNextTest,
+ * the sweep:
+ * 1. Creates a parent execution
+ * 2. Walks the ranked candidates (FlakyCandidateService) page by page
+ * 3. Splits them into shards of agent.sweep.tests-per-child tests, each run
+ *    by a child FlakyTestAgent execution ("testIds" goal parameter)
+ * 4. Runs at most agent.sweep.max-concurrent-children children at a time
+ * 5. Records a summary of all children on the parent - FAILED if no child
+ *    succeeded
+ *
+ * Children share one AI cost pool (the parent's AgentConfig.maxAICost) and the
+ * PlaywrightFactory browser slots. Stopping the parent stops all children.
+ */
+@Slf4j
+@Service
+public class AgentSweepService {
+
+    private final AgentOrchestrator orchestrator;
+    private final AgentExecutionService executionService;
+    private final FlakyCandidateService candidateService;
+    private final FlakyTestConfig flakyConfig;
+    private final Executor sweepExecutor;
+
+    @Value("${agent.sweep.max-concurrent-children:4}")
+    private int maxConcurrentChildren = 4;
+
+    @Value("${agent.sweep.tests-per-child:5}")
+    private int testsPerChild = 5;
+
+    public AgentSweepService(AgentOrchestrator orchestrator,
+                             AgentExecutionService executionService,
+                             FlakyCandidateService candidateService,
+                             FlakyTestConfig flakyConfig,
+                             @Qualifier("agentSweepExecutor") Executor sweepExecutor) {
+        this.orchestrator = orchestrator;
+        this.executionService = executionService;
+        this.candidateService = candidateService;
+        this.flakyConfig = flakyConfig;
+        this.sweepExecutor = sweepExecutor;
+    }
+
+    /**
+     * Whether a start request should run as a sweep.
+     */
+    public static boolean isSweep(AgentType agentType, AgentGoal goal) {
+        return agentType == AgentType.FLAKY_TEST_FIXER
+                && FlakyTestAgent.SWEEP_GOAL_TYPE.equals(goal.getGoalType());
+    }
+
+    /**
+     * Create the parent execution synchronously, then run the sweep async.
+     *
+     * @return Parent execution (returned before any child starts)
+     */
+    public AgentExecution startFlakySweep(AgentGoal goal, AgentConfig config,
+                                          UUID triggeredBy, String triggeredByName) {
+        AgentExecution parent = executionService.createExecution(
+                AgentType.FLAKY_TEST_FIXER, goal, config, triggeredBy, triggeredByName);
+        UUID parentId = parent.getId();
+
+        log.info("🧹 Starting flaky sweep {} (budget ${}, {} children x {} tests)",
+                parentId, config.getMaxAICost(), maxConcurrentChildren, testsPerChild);
+
+        // Tracked before the coordinator starts; stopAgent(parent) cancels this
+        // future, which the coordinator polls between children.
+        CompletableFuture<AgentResult> future = new CompletableFuture<>();
+        orchestrator.trackExecution(parentId, future);
+        BooleanSupplier stopRequested = () -> future.isCancelled() || orchestrator.isStopRequested(parentId);
+
+        try {
+            sweepExecutor.execute(() -> {
+                try {
+                    future.complete(runSweep(parentId, goal, config, triggeredBy, triggeredByName, stopRequested));
+                } catch (Exception e) {
+                    log.error("Flaky sweep failed: {}", parentId, e);
+                    executionService.recordError(parentId, e.getMessage());
+                    future.completeExceptionally(e);
+                } finally {
+                    orchestrator.executionFinished(parentId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Too many flaky sweeps queued - sweep {} not started", parentId);
+            executionService.recordError(parentId, "Too many flaky sweeps queued");
+            future.completeExceptionally(e);
+            orchestrator.executionFinished(parentId);
+            throw e;
+        }
+
+        return parent;
+    }
+
+    private AgentResult runSweep(UUID parentId, AgentGoal goal, AgentConfig config,
+                                 UUID triggeredBy, String triggeredByName,
+                                 BooleanSupplier stopRequested) throws InterruptedException {
+        Instant startedAt = Instant.now();
+        SharedAgentBudget budget = new SharedAgentBudget(config.getMaxAICost());
+        Semaphore childSlots = new Semaphore(Math.max(1, maxConcurrentChildren));
+        Map<UUID, List<String>> shards = new LinkedHashMap<>();
+        Map<UUID, CompletableFuture<AgentResult>> children = new LinkedHashMap<>();
+
+        executionService.updateExecution(parentId, null, AgentStatus.RUNNING);
+
+        AgentConfig childConfig = config.toBuilder().priority(AgentPriority.BACKGROUND).build();
+        int limit = flakyConfig.getMaxCandidatesPerRun();
+        int queued = 0;
+        boolean stopped = false;
+        FlakyCandidateService.Cursor cursor = FlakyCandidateService.START;
+
+        sweep:
+        while (true) {
+            List<FlakyCandidateService.Candidate> page = candidateService.nextPage(cursor);
+            if (page.isEmpty()) break;
+            cursor = page.get(page.size() - 1).cursor();
+
+            List<String> ids = page.stream().map(FlakyCandidateService.Candidate::testId).toList();
+            if (limit > 0) {
+                ids = ids.subList(0, Math.min(ids.size(), limit - queued));
+            }
+
+            for (int from = 0; from < ids.size(); from += testsPerChild) {
+                List<String> shard = new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + testsPerChild)));
+
+                // Wait for a free child slot, checking stop/budget while waiting
+                while (!childSlots.tryAcquire(1, TimeUnit.SECONDS)) {
+                    if (stopRequested.getAsBoolean() || budget.isExhausted()) break;
+                }
+                if (stopRequested.getAsBoolean()) {
+                    stopped = true;
+                    break sweep;
+                }
+                if (budget.isExhausted()) {
+                    log.warn("💰 Sweep {} budget spent (${}) - no more children", parentId, budget.getSpent());
+                    break sweep;
+                }
+
+                Map<String, Object> params = new HashMap<>(goal.getParameters() != null ? goal.getParameters() : Map.of());
+                params.put("testIds", shard);
+                params.put("parentExecutionId", parentId.toString());
+                AgentGoal childGoal = AgentGoal.builder()
+                        .goalType("FIX_FLAKY_TESTS")
+                        .parameters(params)
+                        .successCriteria(goal.getSuccessCriteria())
+                        .build();
+
+                // Children are bulk work: they may be paused for interactive runs
+                AgentOrchestrator.ChildExecution child = orchestrator.createAndStartChildAgent(
+                        AgentType.FLAKY_TEST_FIXER, childGoal, childConfig, triggeredBy, triggeredByName, budget);
+                UUID childId = child.execution().getId();
+                child.future().whenComplete((result, error) -> childSlots.release());
+
+                shards.put(childId, shard);
+                children.put(childId, child.future());
+                queued += shard.size();
+                log.info("🧹 Sweep {}: child {} started with {} tests ({} queued)",
+                        parentId, childId, shard.size(), queued);
+            }
+
+            if (limit > 0 && queued >= limit) break;
+        }
+
+        if (stopped) {
+            children.keySet().forEach(orchestrator::stopAgent);
+        }
+
+        // Wait for every child, then summarise
+        List<Map<String, Object>> childSummaries = new ArrayList<>();
+        Map<String, Integer> statusCounts = new TreeMap<>();
+        for (Map.Entry<UUID, CompletableFuture<AgentResult>> entry : children.entrySet()) {
+            AgentResult result = null;
+            try {
+                result = entry.getValue().join();
+            } catch (Exception e) {
+                log.warn("Sweep child {} ended with error: {}", entry.getKey(), e.getMessage());
+            }
+
+            String status = result != null && result.getStatus() != null
+                    ? result.getStatus().name()
+                    : AgentStatus.FAILED.name();
+            statusCounts.merge(status, 1, Integer::sum);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("executionId", entry.getKey().toString());
+            summary.put("testIds", shards.get(entry.getKey()));
+            summary.put("status", status);
+            summary.put("iterations", result != null ? result.getIterationsCompleted() : 0);
+            summary.put("aiCost", result != null && result.getTotalAICost() != null ? result.getTotalAICost() : 0.0);
+            if (result != null && result.getErrorMessage() != null) {
+                summary.put("error", result.getErrorMessage());
+            }
+            childSummaries.add(summary);
+        }
+
+        // A sweep whose children all failed is a failed sweep, not a successful one
+        boolean anySucceeded = statusCounts.containsKey(AgentStatus.SUCCEEDED.name());
+        AgentStatus finalStatus = stopped || stopRequested.getAsBoolean() ? AgentStatus.STOPPED
+                : budget.isExhausted() ? AgentStatus.BUDGET_EXCEEDED
+                : !children.isEmpty() && !anySucceeded ? AgentStatus.FAILED
+                : AgentStatus.SUCCEEDED;
+
+        Map<String, Object> outputs = new LinkedHashMap<>();
+        outputs.put("testsQueued", queued);
+        outputs.put("childExecutions", children.size());
+        outputs.put("childStatusCounts", statusCounts);
+        outputs.put("budgetLimit", budget.getLimit());
+        outputs.put("budgetSpent", budget.getSpent());
+        outputs.put("children", childSummaries);
+
+        Instant completedAt = Instant.now();
+        AgentResult result = AgentResult.builder()
+                .executionId(parentId)
+                .status(finalStatus)
+                .goal(goal)
+                .iterationsCompleted(children.size())
+                .outputs(outputs)
+                .totalAICost(budget.getSpent())
+                .totalDuration(Duration.between(startedAt, completedAt))
+                .startedAt(startedAt)
+                .completedAt(completedAt)
+                .summary(String.format("Flaky sweep: %d tests over %d child executions %s, $%.4f of $%.2f spent",
+                        queued, children.size(), statusCounts, budget.getSpent(), budget.getLimit()))
+                .build();
+
+        executionService.recordResult(parentId, result);
+        executionService.updateExecution(parentId, null, finalStatus);
+        log.info("🧹 {}", result.getSummary());
+        return result;
+    }
+}
@@ -5,6 +5,7 @@ import com.company.qa.model.enums.AgentActionType;
 import com.company.qa.model.enums.AgentStatus;
 import com.company.qa.model.enums.AgentType;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
+import com.company.qa.service.agent.tool.ToolBudget;
 import com.company.qa.service.ai.AIBudgetService;
 import com.company.qa.service.ai.AIGatewayService;
 import com.company.qa.service.approval.ApprovalRequestService;
@@ -63,6 +64,12 @@ public abstract class BaseAgent {
     @Autowired
     protected AgentToolRegistry toolRegistry;
 
+    @Autowired
+    protected AgentActionHistoryWriter actionHistoryWriter;
+
+    @Autowired
+    protected AgentContextCompactor contextCompactor;
+
     /**
      * Injected to check the cooperative stop flag each iteration.
      * Lazy to avoid circular dependency (agents register with orchestrator at startup).
@@ -191,10 +198,47 @@ public abstract class BaseAgent {
 
         // Initialize context
         AgentContext context = initializeContext(goal, config);
+        context.setExecutionId(executionId);
 
         // Create execution record in database
         updateExecution(executionId, context, AgentStatus.RUNNING);
 
+        return runLoop(context, config, executionId);
+    }
+
+    /**
+     * Continue an execution from the context it checkpointed in Redis.
+     *
+     * Called by AgentOrchestrator for PAUSED executions once AgentScheduler
+     * has a slot for them again, and for executions interrupted by a restart
+     * (AgentStartupCleanupService). The loop picks up at the start of the
+     * iteration that was checkpointed; side-effecting tool calls that already
+     * went through are not repeated (SideEffectLedger). Time spent paused or
+     * down does not count against the execution deadline.
+     */
+    public AgentResult resume(AgentConfig config, UUID executionId) {
+        AgentContext context = loadContext(executionId);
+        if (context == null) {
+            throw new IllegalStateException("No checkpointed context to resume execution: " + executionId);
+        }
+
+        if (context.getDeadline() != null && context.getLastUpdatedAt() != null) {
+            context.setDeadline(context.getDeadline()
+                    .plus(Duration.between(context.getLastUpdatedAt(), Instant.now())));
+        }
+
+        log.info("▶️ Resuming agent execution: {} at iteration {}", executionId, context.getCurrentIteration());
+        updateExecution(executionId, context, AgentStatus.RUNNING);
+        toolRegistry.resumeExecution(executionId);
+
+        return runLoop(context, config, executionId);
+    }
+
+    /**
+     * The agent loop itself, shared by execute() and resume().
+     */
+    private AgentResult runLoop(AgentContext context, AgentConfig config, UUID executionId) {
+        boolean paused = false;
         try {
             // Main agent loop
             while (context.getCurrentIteration() < context.getMaxIterations()) {
@@ -216,6 +260,28 @@ public abstract class BaseAgent {
                     return result;
                 }
 
+                // Yield the slot to a waiting interactive run (AgentScheduler).
+                // The saved context is the checkpoint resume() continues from;
+                // lastUpdatedAt marks when the pause began.
+                if (agentOrchestrator != null && agentOrchestrator.shouldYield(executionId)) {
+                    log.info("⏸️  Yielding to interactive run — pausing at iteration {}: {}",
+                            context.getCurrentIteration(), executionId);
+                    paused = true;
+                    context.setLastUpdatedAt(Instant.now());
+                    saveContext(executionId, context);
+                    updateExecution(executionId, context, AgentStatus.PAUSED);
+                    return buildPausedResult(context, executionId);
+                }
+
+                // Check wall-clock deadline (AgentConfig.maxDurationSeconds)
+                if (context.getDeadline() != null && !Instant.now().isBefore(context.getDeadline())) {
+                    log.warn("⏱️  Execution deadline reached: {}", executionId);
+                    AgentResult result = buildDeadlineResult(context, executionId);
+                    executionService.recordResult(executionId, result);
+                    updateExecution(executionId, context, AgentStatus.TIMEOUT);
+                    return result;
+                }
+
                 // Check if goal achieved
                 if (isGoalAchieved(context)) {
                     log.info("✅ Goal achieved at iteration {}", context.getCurrentIteration());
@@ -237,53 +303,77 @@ public abstract class BaseAgent {
                     // For now, we'll assume approval granted
                 }
 
-                // Execute action
+                // Execute action (plus any independent actions, concurrently)
                 long startTime = System.currentTimeMillis();
-                ActionResult actionResult = executeAction(plan.getNextAction(), plan.getActionParameters(), context);
+                List<PlannedAction> plannedActions;
+                List<ActionResult> actionResults;
+                if (plan.hasParallelActions()) {
+                    plannedActions = plan.getAllActions();
+                    actionResults = executeParallelActions(plannedActions, context);
+                } else {
+                    plannedActions = List.of(PlannedAction.builder()
+                            .actionType(plan.getNextAction())
+                            .parameters(plan.getActionParameters())
+                            .build());
+                    actionResults = List.of(
+                            executeAction(plan.getNextAction(), plan.getActionParameters(), context));
+                }
                 long duration = System.currentTimeMillis() - startTime;
 
-                // Record action in history
-                // NOTE: iteration MUST be set here so hasCompletedAction() filters correctly.
-                // If iteration is omitted (defaults to 0), any call to moveToNextTest() sets
-                // currentTestStartIteration to a non-zero value, causing all history entries
-                // to fail the ">= testStartIteration" filter — producing an infinite loop.
-                AgentHistoryEntry historyEntry = AgentHistoryEntry.builder()
-                        .iteration(context.getCurrentIteration())
-                        .actionType(plan.getNextAction())
-                        .actionInput(plan.getActionParameters())
-                        .actionOutput(actionResult.getOutput())
-                        .success(actionResult.isSuccess())
-                        .errorMessage(actionResult.getErrorMessage())
-                        .durationMs((int) duration)
-                        .aiCost(actionResult.getAiCost())
-                        .timestamp(java.time.Instant.now())
-                        .build();
-
-                context.addToHistory(historyEntry);
-
-                log.info("🔍 DEBUG: About to save action: {}", historyEntry.getActionType());
-
-                // Save action to database
-                saveAction(executionId, context, historyEntry);
-
-                log.info("🔍 DEBUG: saveAction() completed");
-
+                for (int i = 0; i < plannedActions.size(); i++) {
+                    PlannedAction plannedAction = plannedActions.get(i);
+                    ActionResult actionResult = actionResults.get(i);
+
+                    // Record action in history
+                    // NOTE: iteration MUST be set here so hasCompletedAction() filters correctly.
+                    // If iteration is omitted (defaults to 0), any call to moveToNextTest() sets
+                    // currentTestStartIteration to a non-zero value, causing all history entries
+                    // to fail the ">= testStartIteration" filter — producing an infinite loop.
+                    // Concurrent actions overlap, so each records its own run time, not the batch's.
+                    AgentHistoryEntry historyEntry = AgentHistoryEntry.builder()
+                            .iteration(context.getCurrentIteration())
+                            .actionType(plannedAction.getActionType())
+                            .actionInput(plannedAction.getParameters())
+                            .actionOutput(actionResult.getOutput())
+                            .success(actionResult.isSuccess())
+                            .errorMessage(actionResult.getErrorMessage())
+                            .durationMs(plannedActions.size() > 1 && actionResult.getDurationMs() != null
+                                    ? actionResult.getDurationMs() : (int) duration)
+                            .aiCost(actionResult.getAiCost())
+                            .timestamp(java.time.Instant.now())
+                            .build();
+
+                    context.addToHistory(historyEntry);
+
+                    // Buffer action for batched persistence
+                    saveAction(executionId, context, historyEntry);
+
+
+                    // Update context
+                    if (actionResult.isSuccess()) {
+                        // Add any work products from action result
+                        if (actionResult.getOutput() != null) {
+                            actionResult.getOutput().forEach(context::putWorkProduct);
+                        }
+                    }
 
-                // Update context
-                if (actionResult.isSuccess()) {
-                    // Add any work products from action result
-                    if (actionResult.getOutput() != null) {
-                        actionResult.getOutput().forEach(context::putWorkProduct);
+                    // Update AI cost
+                    if (actionResult.getAiCost() != null) {
+                        context.addAICost(actionResult.getAiCost());
+                        if (agentOrchestrator != null) {
+                            agentOrchestrator.chargeSharedBudget(executionId, actionResult.getAiCost());
+                        }
                     }
                 }
 
-                // Update AI cost
-                if (actionResult.getAiCost() != null) {
-                    context.addAICost(actionResult.getAiCost());
+                // Keep the context bounded: older history entries become summaries
+                if (contextCompactor != null) {
+                    contextCompactor.compact(executionId, context);
                 }
 
-                // Check budget
-                if (context.getTotalAICost() > config.getMaxAICost()) {
+                // Check budget (own limit, and the sweep-wide pool for sweep children)
+                if (context.getTotalAICost() > config.getMaxAICost()
+                        || (agentOrchestrator != null && agentOrchestrator.isSharedBudgetExhausted(executionId))) {
                     log.warn("💰 Budget exceeded: ${} > ${}", context.getTotalAICost(), config.getMaxAICost());
                     AgentResult result = buildBudgetExceededResult(context, executionId);
                     executionService.recordResult(executionId, result);
@@ -310,8 +400,19 @@ public abstract class BaseAgent {
             return buildFailureResult(context, executionId, e);
 
         } finally {
-            // Cleanup
-            memoryService.clearContext(executionId);
+            // Flush buffered action history, then drop the context journal.
+            // If the flush still fails after its retries, the journal is kept:
+            // on the next start AgentStartupCleanupService writes the missing
+            // actions from it and clears it.
+            // A paused execution keeps its context: it is the resume checkpoint.
+            if (flushActions(executionId)) {
+                if (!paused) {
+                    memoryService.clearContext(executionId);
+                }
+            } else {
+                log.warn("⚠️ Keeping context journal for {} - action history not fully persisted", executionId);
+            }
+            toolRegistry.releaseExecution(executionId);
         }
     }
 
@@ -345,22 +446,56 @@ public abstract class BaseAgent {
      * Initialize context from goal and config.
      */
     protected AgentContext initializeContext(AgentGoal goal, AgentConfig config) {
+        Instant now = Instant.now();
         return AgentContext.builder()
                 .goal(goal)
                 .currentIteration(0)
                 .maxIterations(config.getMaxIterations())
-                .startedAt(Instant.now())
-                .lastUpdatedAt(Instant.now())
+                .startedAt(now)
+                .deadline(config.getMaxDurationSeconds() > 0
+                        ? now.plusSeconds(config.getMaxDurationSeconds()) : null)
+                .maxAICost(config.getMaxAICost())
+                .config(config)
+                .lastUpdatedAt(now)
                 .totalAICost(0.0)
                 .build();
     }
 
+    /**
+     * What is left of this execution's time and AI cost, for the next tool call.
+     *
+     * The remaining cost is the lower of the execution's own allowance and
+     * its shared sweep pool (if any). Stop requests from the orchestrator
+     * are visible to tools through the budget.
+     */
+    protected ToolBudget toolBudget(AgentContext context) {
+        if (context == null || context.getExecutionId() == null) {
+            return ToolBudget.UNLIMITED;
+        }
+        UUID executionId = context.getExecutionId();
+
+        Double remainingCost = context.getMaxAICost() != null
+                ? context.getMaxAICost() - context.getTotalAICost()
+                : null;
+        if (agentOrchestrator != null) {
+            Double sharedRemaining = agentOrchestrator.getSharedBudgetRemaining(executionId);
+            if (sharedRemaining != null) {
+                remainingCost = remainingCost != null ? Math.min(remainingCost, sharedRemaining) : sharedRemaining;
+            }
+        }
+
+        return ToolBudget.of(context.getDeadline(), remainingCost,
+                () -> agentOrchestrator != null && agentOrchestrator.isStopRequested(executionId));
+    }
+
     /**
      * Build success result.
      */
     protected AgentResult buildSuccessResult(AgentContext context, UUID executionId) {
         return AgentResult.builder()
                 .executionId(executionId)
+                .toolCacheHits(toolRegistry.getCacheStats(executionId).hits())
+                .toolCacheMisses(toolRegistry.getCacheStats(executionId).misses())
                 .status(AgentStatus.SUCCEEDED)
                 .goal(context.getGoal())
                 .iterationsCompleted(context.getCurrentIteration())
@@ -382,6 +517,8 @@ public abstract class BaseAgent {
     protected AgentResult buildStoppedResult(AgentContext context, UUID executionId) {
         return AgentResult.builder()
                 .executionId(executionId)
+                .toolCacheHits(toolRegistry.getCacheStats(executionId).hits())
+                .toolCacheMisses(toolRegistry.getCacheStats(executionId).misses())
                 .status(AgentStatus.STOPPED)
                 .goal(context.getGoal())
                 .iterationsCompleted(context.getCurrentIteration())
@@ -395,9 +532,23 @@ public abstract class BaseAgent {
                 .build();
     }
 
+    protected AgentResult buildPausedResult(AgentContext context, UUID executionId) {
+        return AgentResult.builder()
+                .executionId(executionId)
+                .status(AgentStatus.PAUSED)
+                .goal(context.getGoal())
+                .iterationsCompleted(context.getCurrentIteration())
+                .totalAICost(context.getTotalAICost())
+                .startedAt(context.getStartedAt())
+                .summary("Paused at iteration " + context.getCurrentIteration() + " for an interactive run")
+                .build();
+    }
+
     protected AgentResult buildBudgetExceededResult(AgentContext context, UUID executionId) {
         return AgentResult.builder()
                 .executionId(executionId)
+                .toolCacheHits(toolRegistry.getCacheStats(executionId).hits())
+                .toolCacheMisses(toolRegistry.getCacheStats(executionId).misses())
                 .status(AgentStatus.BUDGET_EXCEEDED)
                 .goal(context.getGoal())
                 .iterationsCompleted(context.getCurrentIteration())
@@ -417,6 +568,8 @@ public abstract class BaseAgent {
     protected AgentResult buildTimeoutResult(AgentContext context, UUID executionId) {
         return AgentResult.builder()
                 .executionId(executionId)
+                .toolCacheHits(toolRegistry.getCacheStats(executionId).hits())
+                .toolCacheMisses(toolRegistry.getCacheStats(executionId).misses())
                 .status(AgentStatus.TIMEOUT)
                 .goal(context.getGoal())
                 .iterationsCompleted(context.getCurrentIteration())
@@ -430,12 +583,26 @@ public abstract class BaseAgent {
                 .build();
     }
 
+    /**
+     * Build result for an execution that ran out of wall-clock time.
+     */
+    protected AgentResult buildDeadlineResult(AgentContext context, UUID executionId) {
+        AgentResult result = buildTimeoutResult(context, executionId);
+        Duration limit = Duration.between(context.getStartedAt(), context.getDeadline());
+        result.setErrorMessage("Execution deadline reached: " + limit.toSeconds() + "s");
+        result.setSummary("Timeout after " + limit.toSeconds() + "s ("
+                + context.getCurrentIteration() + " iterations)");
+        return result;
+    }
+
     /**
      * Build failure result.
      */
     protected AgentResult buildFailureResult(AgentContext context, UUID executionId, Exception e) {
         return AgentResult.builder()
                 .executionId(executionId)
+                .toolCacheHits(toolRegistry.getCacheStats(executionId).hits())
+                .toolCacheMisses(toolRegistry.getCacheStats(executionId).misses())
                 .status(AgentStatus.FAILED)
                 .goal(context.getGoal())
                 .iterationsCompleted(context.getCurrentIteration())
@@ -530,6 +697,8 @@ public abstract class BaseAgent {
     ) {
         return AgentResult.builder()
                 .executionId(executionId)
+                .toolCacheHits(toolRegistry.getCacheStats(executionId).hits())
+                .toolCacheMisses(toolRegistry.getCacheStats(executionId).misses())
                 .status(status)
                 .goal(context.getGoal())
                 .iterationsCompleted(context.getCurrentIteration())
@@ -646,13 +815,14 @@ public abstract class BaseAgent {
     /**
      * Save action to database.
      *
-     * Called after each action execution.
+     * Called after each action execution. The entry is buffered by
+     * AgentActionHistoryWriter and written in batches off the agent thread.
      */
 
     protected void saveAction(UUID executionId, AgentContext context, AgentHistoryEntry historyEntry) {
         try {
-            executionService.saveAction(executionId, context.getCurrentIteration(), historyEntry);
-            log.debug("✅ Saved action: {} - iteration: {}",
+            actionHistoryWriter.append(executionId, historyEntry);
+            log.debug("✅ Buffered action: {} - iteration: {}",
                     historyEntry.getActionType(), context.getCurrentIteration());
         } catch (Exception e) {
             log.error("❌ Failed to save action: {} - {}",
@@ -661,6 +831,22 @@ public abstract class BaseAgent {
         }
     }
 
+    /**
+     * Flush buffered action history for this execution.
+     *
+     * Called once when the agent loop exits (completion, stop or failure).
+     *
+     * @return true if all buffered actions were persisted
+     */
+    protected boolean flushActions(UUID executionId) {
+        try {
+            return actionHistoryWriter.complete(executionId);
+        } catch (Exception e) {
+            log.error("Failed to flush action history: {}", executionId, e);
+            return false;
+        }
+    }
+
     /**
      * Update execution in database.
      *
@@ -674,24 +860,111 @@ public abstract class BaseAgent {
         }
     }
 
+    /**
+     * Execute a plan's independent actions concurrently.
+     *
+     * Tool calls run in parallel through AgentToolRegistry; their results
+     * are then applied to the context one at a time, in plan order, on the
+     * agent thread via applyToolResult(), so context updates stay
+     * single-threaded. Falls back to sequential executeAction() if any
+     * action has no registered tool (e.g. meta-actions).
+     *
+     * Parallel calls are not retried - plan only independent, read-only
+     * actions this way. Each result's durationMs is that call's own run time.
+     *
+     * @param actions Actions to execute (nextAction first)
+     * @param context Current agent context
+     * @return Results in the same order as actions
+     */
+    protected List<ActionResult> executeParallelActions(List<PlannedAction> actions, AgentContext context) {
+        boolean allToolBacked = actions.stream()
+                .allMatch(action -> toolRegistry.hasToolFor(action.getActionType()));
+
+        if (!allToolBacked) {
+            log.debug("Parallel plan contains non-tool actions, executing sequentially");
+            return actions.stream()
+                    .map(action -> executeAction(action.getActionType(), action.getParameters(), context))
+                    .toList();
+        }
+
+        log.info("⚡ Executing {} actions concurrently: {}", actions.size(),
+                actions.stream().map(PlannedAction::getActionType).toList());
+
+        List<Map<String, Object>> toolResults =
+                toolRegistry.executeToolsConcurrently(actions, context.getExecutionId(), toolBudget(context));
+
+        List<ActionResult> results = new ArrayList<>(actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            PlannedAction action = actions.get(i);
+            Map<String, Object> toolResult = toolResults.get(i);
+            Integer durationMs = toolResult.get("durationMs") instanceof Number n ? n.intValue() : null;
+            ActionResult result;
+            try {
+                result = applyToolResult(action.getActionType(), toolResult, context);
+            } catch (Exception e) {
+                log.error("❌ Failed to apply result of {}", action.getActionType(), e);
+                result = ActionResult.builder()
+                        .actionType(action.getActionType())
+                        .success(false)
+                        .errorMessage(e.getMessage())
+                        .build();
+            }
+            if (result.getDurationMs() == null) {
+                result.setDurationMs(durationMs);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Apply a raw tool result to the context and convert it to an ActionResult.
+     *
+     * Used for concurrently executed actions. Agents that keep per-action
+     * state should override this and share it with executeAction().
+     */
+    protected ActionResult applyToolResult(
+            AgentActionType actionType, Map<String, Object> result, AgentContext context) {
+        return ActionResult.builder()
+                .actionType(actionType)
+                .success(result.get("success") == Boolean.TRUE)
+                .output(result)
+                .errorMessage((String) result.get("error"))
+                .build();
+    }
+
     /**
      * Execute tool using registry.
      *
      * Replaces direct service calls.
      */
     protected Map<String, Object> executeTool(AgentActionType actionType, Map<String, Object> parameters) {
+        return executeTool(actionType, parameters, null);
+    }
+
+    /**
+     * Execute tool on behalf of the execution owning the context.
+     *
+     * Passing the context lets the registry scope memoised results of
+     * idempotent tools to this execution.
+     */
+    protected Map<String, Object> executeTool(
+            AgentActionType actionType, Map<String, Object> parameters, AgentContext context) {
         if (!toolRegistry.hasToolFor(actionType)) {
             throw new IllegalStateException("No tool registered for action: " + actionType);
         }
 
+        UUID executionId = context != null ? context.getExecutionId() : null;
+        ToolBudget budget = toolBudget(context);
+
         // Retry for critical actions
         boolean shouldRetry = shouldRetryAction(actionType);
         int maxRetries = shouldRetry ? 3 : 1;
 
         if (shouldRetry) {
-            return toolRegistry.executeToolWithRetry(actionType, parameters, maxRetries);
+            return toolRegistry.executeToolWithRetry(actionType, parameters, maxRetries, executionId, budget);
         } else {
-            return toolRegistry.executeTool(actionType, parameters);
+            return toolRegistry.executeTool(actionType, parameters, executionId, budget);
         }
     }
 
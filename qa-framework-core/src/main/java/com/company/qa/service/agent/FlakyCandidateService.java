@@ -0,0 +1,78 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.config.FlakyTestConfig;
+import com.company.qa.repository.TestExecutionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Ranked, paged source of flaky-test candidates for FlakyTestAgent.
+ *
+ * Candidates are active tests whose recent executions flip between pass
+ * and fail, ranked in SQL by flip rate (see
+ * TestExecutionRepository.findFlakyCandidates). Pages are walked with a
+ * keyset cursor (score, testId), so the agent never loads the whole test
+ * table and only the cursor needs to live in its context.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlakyCandidateService {
+
+    /**
+     * Cursor value placed before the first candidate (scores are 0..1).
+     */
+    public static final Cursor START = new Cursor(new BigDecimal("2"), "");
+
+    private final TestExecutionRepository executionRepository;
+    private final FlakyTestConfig config;
+
+    /**
+     * Next page of candidates after a cursor.
+     *
+     * @param after Cursor from the last candidate of the previous page, or START
+     * @return Up to candidatePageSize candidates, best first; empty when exhausted
+     */
+    public List<Candidate> nextPage(Cursor after) {
+        Instant since = Instant.now().minus(Duration.ofDays(config.getCandidateLookbackDays()));
+        int minRuns = Math.max(2, config.getCandidateMinRuns());
+
+        List<Candidate> page = executionRepository.findFlakyCandidates(
+                        since, minRuns, after.score(), after.testId(), config.getCandidatePageSize())
+                .stream()
+                .map(FlakyCandidateService::toCandidate)
+                .toList();
+
+        log.info("🎯 Loaded {} flaky candidates after score {} (lookback {}d, min runs {})",
+                page.size(), after.score(), config.getCandidateLookbackDays(), minRuns);
+        return page;
+    }
+
+    private static Candidate toCandidate(Object[] row) {
+        return new Candidate(
+                row[0].toString(),
+                new BigDecimal(row[1].toString()),
+                ((Number) row[2]).intValue(),
+                ((Number) row[3]).intValue(),
+                ((Number) row[4]).intValue());
+    }
+
+    /**
+     * Keyset position in the ranked candidate list.
+     */
+    public record Cursor(BigDecimal score, String testId) {
+    }
+
+    public record Candidate(String testId, BigDecimal score, int runCount, int flipCount, int failureCount) {
+
+        public Cursor cursor() {
+            return new Cursor(score, testId);
+        }
+    }
+}
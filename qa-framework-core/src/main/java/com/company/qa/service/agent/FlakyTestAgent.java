@@ -17,6 +17,7 @@ import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.*;
 
 /**
@@ -37,6 +38,13 @@ import java.util.*;
  * 8. If still flaky → Try next fix (up to 3 total attempts)
  * 9. If all fail → Create approval for manual review
  *
+ * CANDIDATE SELECTION:
+ * Without a testId goal parameter, tests are walked in flakiness order from
+ * FlakyCandidateService (recent pass/fail flips, ranked in SQL) one page at a
+ * time. The context holds only the keyset cursor and the current page, never
+ * the full list of tests. A "testIds" goal parameter pins the run to a fixed
+ * shard (used by AgentSweepService for FLAKY_SWEEP fan-out).
+ *
  * @author QA Framework
  * @since Week 16
  */
@@ -48,6 +56,12 @@ public class FlakyTestAgent extends BaseAgent {
     private final FlakyTestConfig config;
     private final ObjectMapper objectMapper;
     private final AgentOrchestrator orchestrator;
+    private final FlakyCandidateService candidateService;
+
+    /**
+     * Goal type that fans the candidate list out over concurrent child executions.
+     */
+    public static final String SWEEP_GOAL_TYPE = "FLAKY_SWEEP";
 
     // Agent state (per execution)
 
@@ -61,13 +75,15 @@ public class FlakyTestAgent extends BaseAgent {
             TestRepository testRepository,
             FlakyTestConfig config,
             ObjectMapper objectMapper,
-            AgentOrchestrator orchestrator) {
+            AgentOrchestrator orchestrator,
+            FlakyCandidateService candidateService) {
 
         super(aiGateway, auditService, approvalService, budgetService, memoryService, toolRegistry);
         this.testRepository = testRepository;
         this.config = config;
         this.objectMapper = objectMapper;
         this.orchestrator = orchestrator;
+        this.candidateService = candidateService;
     }
 
     @PostConstruct
@@ -85,15 +101,14 @@ public class FlakyTestAgent extends BaseAgent {
     @Override
     protected AgentPlan plan(AgentContext context) {
         // Initialize on first call
-        if (getTestIds(context).isEmpty() && context.getCurrentIteration() == 0) {
+        if (context.getState(State.CANDIDATE_PAGE, List.class) == null && context.getCurrentIteration() == 0) {
             initializeAgentState(context);
         }
 
-        List<String> testIds = getTestIds(context);
-        int currentTestIndex = getTestIndex(context);
+        String currentTestId = currentTestId(context);
 
-        log.info("📋 Planning - Test {}/{}, Fix attempt {}/{}",
-                currentTestIndex, testIds.size(),
+        log.info("📋 Planning - Test #{} ({}), Fix attempt {}/{}",
+                getProcessedCount(context) + 1, currentTestId,
                 getFixAttemptCount(context), config.getMaxFixAttempts());
 
         AgentActionType lastAction = getLastActionType(context);
@@ -116,11 +131,11 @@ public class FlakyTestAgent extends BaseAgent {
             }
         }
 
-        if (currentTestIndex >= testIds.size()) {
+        if (currentTestId == null) {
             return planComplete(context);
         }
 
-        UUID testId = UUID.fromString(testIds.get(currentTestIndex));
+        UUID testId = UUID.fromString(currentTestId);
         Test test = testRepository.findById(testId).orElseThrow();
 
         // AFTER — analysis actions use full-test window, fix actions use fix-attempt window
@@ -287,7 +302,7 @@ public class FlakyTestAgent extends BaseAgent {
                         .build();
             }
             // Execute using tool registry
-            Map<String, Object> result = executeTool(actionType, parameters);
+            Map<String, Object> result = executeTool(actionType, parameters, context);
 
             boolean success = (boolean) result.getOrDefault("success", false);
 
@@ -330,10 +345,11 @@ public class FlakyTestAgent extends BaseAgent {
 
     @Override
     protected boolean isGoalAchieved(AgentContext context) {
-        List<String> ids = getTestIds(context);
-        boolean allProcessed = !ids.isEmpty() && getTestIndex(context) >= ids.size();
+        boolean allProcessed = getProcessedCount(context) > 0
+                && isCandidatesExhausted(context)
+                && getTestIndex(context) >= getCandidatePage(context).size();
         if (allProcessed) {
-            log.info("✅ Goal achieved: All {} tests processed", ids.size());
+            log.info("✅ Goal achieved: All {} tests processed", getProcessedCount(context));
         }
         return allProcessed;
     }
@@ -342,19 +358,25 @@ public class FlakyTestAgent extends BaseAgent {
         log.info("🔧 Initializing FlakyTestAgent state");
 
         Map<String, Object> goalParams = context.getGoal().getParameters();
-        List<String> testIds = new ArrayList<>();
 
-        if (goalParams.containsKey("testId")) {
-            testIds.add((String) goalParams.get("testId"));
+        if (goalParams.get("testIds") instanceof List<?> shard && !shard.isEmpty()) {
+            // Sweep child: fixed shard of candidates assigned by AgentSweepService
+            context.putState(State.CANDIDATE_PAGE, new ArrayList<>(shard.stream().map(String::valueOf).toList()));
+            context.putState(State.CANDIDATES_EXHAUSTED, true);
+            log.info("Analyzing sweep shard of {} tests", shard.size());
+        } else if (goalParams.containsKey("testId")) {
+            context.putState(State.CANDIDATE_PAGE, new ArrayList<>(List.of((String) goalParams.get("testId"))));
+            context.putState(State.CANDIDATES_EXHAUSTED, true);
             log.info("Analyzing specific test: {}", goalParams.get("testId"));
         } else {
-            testRepository.findAll().stream()
-                    .filter(t -> Boolean.TRUE.equals(t.getIsActive()))
-                    .forEach(t -> testIds.add(t.getId().toString()));
-            log.info("Added {} active tests for analysis", testIds.size());
+            // Pages are fetched lazily by currentTestId()
+            context.putState(State.CANDIDATE_PAGE, new ArrayList<String>());
+            context.putState(State.CANDIDATES_EXHAUSTED, false);
+            setCursor(context, FlakyCandidateService.START);
+            log.info("Analyzing ranked flaky candidates (page size {})", config.getCandidatePageSize());
         }
 
-        context.putState(State.TESTS_TO_ANALYZE,      testIds);
+        context.putState(State.PROCESSED_COUNT,        0);
         context.putState(State.CURRENT_TEST_INDEX,     0);
         context.putState(State.CURRENT_TEST_ANALYSIS,  new HashMap<>());
         context.putState(State.FIX_ATTEMPT_COUNT,      0);
@@ -589,7 +611,7 @@ public class FlakyTestAgent extends BaseAgent {
         return AgentPlan.builder()
                 .nextAction(AgentActionType.COMPLETE)
                 .actionParameters(Map.of(
-                        "totalAnalyzed", getTestIds(context).size(),
+                        "totalAnalyzed", getProcessedCount(context),
                         "results", getTestAnalysis(context)
                 ))
                 .reasoning("All tests processed")
@@ -628,9 +650,10 @@ public class FlakyTestAgent extends BaseAgent {
 
     private void moveToNextTest(AgentContext context) {
 
+        List<String> page = getCandidatePage(context);
         if (!isFixVerified(context) && getOriginalContent(context) != null
-                && getTestIndex(context) < getTestIds(context).size()) {
-            UUID testId = UUID.fromString(getTestIds(context).get(getTestIndex(context)));
+                && getTestIndex(context) < page.size()) {
+            UUID testId = UUID.fromString(page.get(getTestIndex(context)));
             testRepository.findById(testId).ifPresent(test -> {
                 test.setContent(getOriginalContent(context));
                 testRepository.save(test);
@@ -638,6 +661,7 @@ public class FlakyTestAgent extends BaseAgent {
             });
         }
         setTestIndex(context, getTestIndex(context) + 1);
+        context.putState(State.PROCESSED_COUNT, getProcessedCount(context) + 1);
         setFixAttemptCount(context, 0);
         setOriginalContent(context, null);
         setLastAppliedFix(context, null);
@@ -662,8 +686,12 @@ public class FlakyTestAgent extends BaseAgent {
     }
 
     interface State {
-        String TESTS_TO_ANALYZE      = "flaky.testsToAnalyze";      // List<String> (UUID strings)
-        String CURRENT_TEST_INDEX    = "flaky.currentTestIndex";     // Integer
+        String CANDIDATE_PAGE        = "flaky.candidatePage";        // List<String> (UUID strings), current page only
+        String CURSOR_SCORE          = "flaky.cursorScore";          // String (BigDecimal), end of current page
+        String CURSOR_TEST_ID        = "flaky.cursorTestId";         // String, end of current page
+        String CANDIDATES_EXHAUSTED  = "flaky.candidatesExhausted";  // Boolean
+        String PROCESSED_COUNT       = "flaky.processedCount";       // Integer
+        String CURRENT_TEST_INDEX    = "flaky.currentTestIndex";     // Integer, index within page
         String CURRENT_TEST_ANALYSIS = "flaky.currentTestAnalysis";  // Map<String,Object>
         String FIX_ATTEMPT_COUNT     = "flaky.fixAttemptCount";      // Integer
         String ORIGINAL_CONTENT      = "flaky.originalTestContent";  // String
@@ -673,12 +701,75 @@ public class FlakyTestAgent extends BaseAgent {
 
     // ── context accessors ─────────────────────────────────────────────────────
 
+    /**
+     * Test currently being processed, fetching the next candidate page when
+     * the current one is used up. Null once candidates are exhausted. A page
+     * is trimmed to what is left of max-candidates-per-run, as the sweep's
+     * shards are.
+     */
+    String currentTestId(AgentContext ctx) {
+        List<String> page = getCandidatePage(ctx);
+        if (getTestIndex(ctx) < page.size()) {
+            return page.get(getTestIndex(ctx));
+        }
+        if (isCandidatesExhausted(ctx)) {
+            return null;
+        }
+
+        int limit = config.getMaxCandidatesPerRun();
+        if (limit > 0 && getProcessedCount(ctx) >= limit) {
+            log.info("⏹️ Reached max candidates per run ({})", limit);
+            ctx.putState(State.CANDIDATES_EXHAUSTED, true);
+            return null;
+        }
+
+        List<FlakyCandidateService.Candidate> next = candidateService.nextPage(getCursor(ctx));
+        if (next.isEmpty()) {
+            ctx.putState(State.CANDIDATES_EXHAUSTED, true);
+            return null;
+        }
+        if (limit > 0 && next.size() > limit - getProcessedCount(ctx)) {
+            next = next.subList(0, limit - getProcessedCount(ctx));
+        }
+
+        next.forEach(c -> log.debug("  candidate {} score={} flips={}/{} runs",
+                c.testId(), c.score(), c.flipCount(), c.runCount()));
+        ctx.putState(State.CANDIDATE_PAGE,
+                new ArrayList<>(next.stream().map(FlakyCandidateService.Candidate::testId).toList()));
+        setCursor(ctx, next.get(next.size() - 1).cursor());
+        setTestIndex(ctx, 0);
+        return next.get(0).testId();
+    }
+
     @SuppressWarnings("unchecked")
-    private List<String> getTestIds(AgentContext ctx) {
-        List<String> ids = ctx.getState(State.TESTS_TO_ANALYZE, List.class);
+    private List<String> getCandidatePage(AgentContext ctx) {
+        List<String> ids = ctx.getState(State.CANDIDATE_PAGE, List.class);
         return ids != null ? ids : List.of();
     }
 
+    private boolean isCandidatesExhausted(AgentContext ctx) {
+        Boolean v = ctx.getState(State.CANDIDATES_EXHAUSTED, Boolean.class);
+        return v == null || v;
+    }
+
+    private int getProcessedCount(AgentContext ctx) {
+        Integer v = ctx.getState(State.PROCESSED_COUNT, Integer.class);
+        return v != null ? v : 0;
+    }
+
+    private FlakyCandidateService.Cursor getCursor(AgentContext ctx) {
+        String score  = ctx.getState(State.CURSOR_SCORE, String.class);
+        String testId = ctx.getState(State.CURSOR_TEST_ID, String.class);
+        return score != null && testId != null
+                ? new FlakyCandidateService.Cursor(new BigDecimal(score), testId)
+                : FlakyCandidateService.START;
+    }
+
+    private void setCursor(AgentContext ctx, FlakyCandidateService.Cursor cursor) {
+        ctx.putState(State.CURSOR_SCORE, cursor.score().toPlainString());
+        ctx.putState(State.CURSOR_TEST_ID, cursor.testId());
+    }
+
     private int getTestIndex(AgentContext ctx) {
         Integer v = ctx.getState(State.CURRENT_TEST_INDEX, Integer.class);
         return v != null ? v : 0;
@@ -124,7 +124,7 @@ public class PlaywrightTestGeneratorAgent extends BaseAgent {
 
         try {
             // Execute using tool registry
-            Map<String, Object> result = executeTool(actionType, parameters);
+            Map<String, Object> result = executeTool(actionType, parameters, context);
 
             boolean success = (boolean) result.getOrDefault("success", false);
 
@@ -14,6 +14,7 @@ import com.company.qa.service.playwright.PlaywrightJavaRenderer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import com.company.qa.service.draft.DraftFileService;
 
@@ -49,6 +50,20 @@ public class SelfHealingAgent extends BaseAgent {
 
     private final DraftFileService draftFileService;
     private final PlaywrightJavaRenderer playwrightJavaRenderer;
+
+    /**
+     * Capture page HTML concurrently with EXTRACT_BROKEN_LOCATOR, so the AI
+     * discovery fallback does not pay for a browser launch on its own iteration.
+     */
+    @Value("${agent.self-healing.parallel-prefetch:true}")
+    private boolean parallelPrefetch = true;
+
+    /**
+     * Memo confidence for verified fixes whose candidate carried no score
+     * (registry alternatives).
+     */
+    private static final double VERIFIED_FIX_CONFIDENCE = 0.9;
+
     // ── NO instance state fields ───────────────────────────────────────────────
     // All per-execution state lives in AgentContext.state via State keys below.
 
@@ -149,7 +164,10 @@ public class SelfHealingAgent extends BaseAgent {
 
         if (registryExhausted && !isFixVerified(context)) {
 
-            if (!hasCompletedAction(context, AgentActionType.READ_FILE)) {
+            // Re-capture if the page inferred now differs from the prefetched one
+            // (e.g. a failed verification run pointed at a later NAVIGATE step)
+            if (!hasCompletedAction(context, AgentActionType.READ_FILE)
+                    || !inferPageUrl(context, test).equals(context.getState(State.CAPTURED_PAGE_URL, String.class))) {
                 return planCapturePageHtml(context, test);
             }
 
@@ -243,31 +261,8 @@ public class SelfHealingAgent extends BaseAgent {
                         .build();
             }
 
-            Map<String, Object> result = executeTool(actionType, parameters);
-            boolean success = (boolean) result.getOrDefault("success", false);
-
-            if (success) {
-                updateStateFromActionResult(actionType, result, context);
-            } else if (actionType == AgentActionType.EXTRACT_BROKEN_LOCATOR) {
-                // Always advance state for this tool so the planner doesn't loop
-                log.warn("⚠️ EXTRACT_BROKEN_LOCATOR returned success=false — updating state anyway");
-                updateStateFromActionResult(actionType, result, context);
-            } else if (actionType == AgentActionType.DISCOVER_LOCATOR) {
-                // FIX 3: DISCOVER_LOCATOR returned success=false (should be rare after Fix 1+2,
-                // but guard here as a safety net). Force aiSuggestions=[] so the planner
-                // hits the aiSuggestions.isEmpty() branch and escalates to manual review
-                // instead of looping forever on planAiDiscovery() (aiSuggestions==null → retry).
-                log.warn("⚠️ DISCOVER_LOCATOR failed — forcing aiSuggestions=[] to break retry loop");
-                setAiSuggestions(context, List.of());
-                setAiSuggestionIdx(context, 0);
-            }
-
-            return ActionResult.builder()
-                    .actionType(actionType)
-                    .success(success)
-                    .output(result)
-                    .errorMessage((String) result.get("error"))
-                    .build();
+            Map<String, Object> result = executeTool(actionType, parameters, context);
+            return applyToolResult(actionType, result, context);
 
         } catch (Exception e) {
             log.error("❌ Action execution failed: {}", actionType, e);
@@ -279,6 +274,44 @@ public class SelfHealingAgent extends BaseAgent {
         }
     }
 
+    /**
+     * Update healing state from a tool result.
+     *
+     * Shared by executeAction() and concurrently executed actions
+     * (the page HTML prefetch planned alongside EXTRACT_BROKEN_LOCATOR).
+     */
+    @Override
+    protected ActionResult applyToolResult(
+            AgentActionType actionType,
+            Map<String, Object> result,
+            AgentContext context) {
+
+        boolean success = (boolean) result.getOrDefault("success", false);
+
+        if (success) {
+            updateStateFromActionResult(actionType, result, context);
+        } else if (actionType == AgentActionType.EXTRACT_BROKEN_LOCATOR) {
+            // Always advance state for this tool so the planner doesn't loop
+            log.warn("⚠️ EXTRACT_BROKEN_LOCATOR returned success=false — updating state anyway");
+            updateStateFromActionResult(actionType, result, context);
+        } else if (actionType == AgentActionType.DISCOVER_LOCATOR) {
+            // FIX 3: DISCOVER_LOCATOR returned success=false (should be rare after Fix 1+2,
+            // but guard here as a safety net). Force aiSuggestions=[] so the planner
+            // hits the aiSuggestions.isEmpty() branch and escalates to manual review
+            // instead of looping forever on planAiDiscovery() (aiSuggestions==null → retry).
+            log.warn("⚠️ DISCOVER_LOCATOR failed — forcing aiSuggestions=[] to break retry loop");
+            setAiSuggestions(context, List.of());
+            setAiSuggestionIdx(context, 0);
+        }
+
+        return ActionResult.builder()
+                .actionType(actionType)
+                .success(success)
+                .output(result)
+                .errorMessage((String) result.get("error"))
+                .build();
+    }
+
     private boolean isMetaAction(AgentActionType actionType) {
         return actionType == AgentActionType.COMPLETE
                 || actionType == AgentActionType.INITIALIZE
@@ -361,11 +394,24 @@ public class SelfHealingAgent extends BaseAgent {
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("errorMessage", errorMessage);
         parameters.put("testContent",  test.getContent());
+        parameters.put("pageUrl",      inferPageUrl(context, test));
+
+        List<PlannedAction> parallelActions = new ArrayList<>();
+        if (parallelPrefetch) {
+            // Page capture doesn't depend on the locator analysis - run it alongside
+            parallelActions.add(PlannedAction.builder()
+                    .actionType(AgentActionType.READ_FILE)
+                    .parameters(buildCapturePageParameters(context, test))
+                    .build());
+        }
 
         return AgentPlan.builder()
                 .nextAction(AgentActionType.EXTRACT_BROKEN_LOCATOR)
                 .actionParameters(parameters)
-                .reasoning("Extracting broken locator from test failure")
+                .parallelActions(parallelActions)
+                .reasoning(parallelPrefetch
+                        ? "Extracting broken locator from test failure (prefetching page HTML)"
+                        : "Extracting broken locator from test failure")
                 .confidence(1.0)
                 .requiresApproval(false)
                 .build();
@@ -441,19 +487,26 @@ public class SelfHealingAgent extends BaseAgent {
 
         String workingLocator;
         String elementName;
+        String discoveredBy;
+        Object confidence = null;
 
         if (alternatives != null && !alternatives.isEmpty() && altIndex < alternatives.size()) {
             Map<String, Object> alt = alternatives.get(altIndex);
             workingLocator = (String) alt.get("locator");
             elementName    = (String) alt.get("elementName");
+            discoveredBy   = "memo".equals(alt.get("source")) ? "memo" : "registry";
+            confidence     = alt.get("confidence");
         } else if (aiSuggestions != null && !aiSuggestions.isEmpty() && aiIdx < aiSuggestions.size()) {
             Map<String, Object> suggestion = aiSuggestions.get(aiIdx);
             workingLocator = (String) suggestion.get("locator");
             elementName    = "AI-discovered-element-" + System.currentTimeMillis();
+            discoveredBy   = String.valueOf(suggestion.getOrDefault("source", "ai"));
+            confidence     = suggestion.get("confidence");
         } else {
             log.error("❌ planUpdateRegistry called but no working alternative found!");
             workingLocator = getLastAppliedFix(context);
             elementName    = "fallback-element";
+            discoveredBy   = "agent";
         }
 
         Map<String, Object> analysis = getFailureAnalysis(context);
@@ -465,6 +518,15 @@ public class SelfHealingAgent extends BaseAgent {
         parameters.put("elementName", elementName);
         parameters.put("workingLocator", workingLocator);
         parameters.put("brokenLocator", brokenLocator);
+        parameters.put("discoveredBy", discoveredBy);
+        // Verified fix → shared with other tests via the healed-locator memo
+        String pageUrl = context.getState(State.CAPTURED_PAGE_URL, String.class);
+        parameters.put("pageUrl", pageUrl != null ? pageUrl : inferPageUrl(context, test));
+        parameters.put("confidence", confidence instanceof Number n ? n.doubleValue() : VERIFIED_FIX_CONFIDENCE);
+        parameters.put("testId", test.getId().toString());
+        if (context.getExecutionId() != null) {
+            parameters.put("agentExecutionId", context.getExecutionId().toString());
+        }
 
         return AgentPlan.builder()
                 .nextAction(AgentActionType.UPDATE_ELEMENT_REGISTRY)
@@ -571,21 +633,25 @@ public class SelfHealingAgent extends BaseAgent {
     }
 
     private AgentPlan planCapturePageHtml(AgentContext context, Test test) {
-        String pageUrl = inferPageUrl(context, test);
-
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("pageUrl", pageUrl);
-        parameters.put("selectorContext", "body");
-
         return AgentPlan.builder()
                 .nextAction(AgentActionType.READ_FILE)
-                .actionParameters(parameters)
+                .actionParameters(buildCapturePageParameters(context, test))
                 .reasoning("Capturing page HTML for AI analysis (registry had no matches)")
                 .confidence(1.0)
                 .requiresApproval(false)
                 .build();
     }
 
+    private Map<String, Object> buildCapturePageParameters(AgentContext context, Test test) {
+        String pageUrl = inferPageUrl(context, test);
+        context.putState(State.CAPTURED_PAGE_URL, pageUrl);
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("pageUrl", pageUrl);
+        parameters.put("selectorContext", "body");
+        return parameters;
+    }
+
     private AgentPlan planAiDiscovery(AgentContext context, Test test) {
         Map<String, Object> analysis = getFailureAnalysis(context);
 
@@ -595,6 +661,7 @@ public class SelfHealingAgent extends BaseAgent {
         parameters.put("elementPurpose",  analysis.get("elementPurpose"));
         parameters.put("pageName",        analysis.get("pageName"));
         parameters.put("actionType",      analysis.get("actionType"));
+        parameters.put("pageUrl",         context.getState(State.CAPTURED_PAGE_URL, String.class));
         String failedStepLocator = context.getWorkProduct("failedStepLocator", String.class);
         if (failedStepLocator != null) {
             parameters.put("originalLocator", failedStepLocator);
@@ -660,7 +727,13 @@ public class SelfHealingAgent extends BaseAgent {
                     setFailureAnalysis(context, new HashMap<>(result));
 
             case QUERY_ELEMENT_REGISTRY -> {
-                setAlternatives(context, (List<Map<String, Object>>) result.get("alternatives"));
+                List<Map<String, Object>> alternatives = new ArrayList<>();
+                Object registryAlternatives = result.get("alternatives");
+                if (registryAlternatives instanceof List<?> list) {
+                    alternatives.addAll((List<Map<String, Object>>) list);
+                }
+                addHealedLocatorAlternative(context, alternatives);
+                setAlternatives(context, alternatives);
                 setAltIndex(context, 0);
             }
 
@@ -731,6 +804,28 @@ public class SelfHealingAgent extends BaseAgent {
         }
     }
 
+    /**
+     * Put a verified fix from the healed-locator memo (another test already
+     * healed this locator) ahead of the registry alternatives, so it is the
+     * first thing tried and verified.
+     */
+    private void addHealedLocatorAlternative(AgentContext context, List<Map<String, Object>> alternatives) {
+        String healedLocator = (String) getFailureAnalysis(context).get("healedLocator");
+        if (healedLocator == null || healedLocator.isBlank()) {
+            return;
+        }
+        alternatives.removeIf(alt -> healedLocator.equals(alt.get("locator")));
+
+        Map<String, Object> memoAlternative = new HashMap<>();
+        memoAlternative.put("locator",     healedLocator);
+        memoAlternative.put("elementName", "healed-" + System.currentTimeMillis());
+        memoAlternative.put("confidence",  getFailureAnalysis(context).get("healedConfidence"));
+        memoAlternative.put("source",      "memo");
+        alternatives.add(0, memoAlternative);
+
+        log.info("🧠 Trying memoised healed locator first: {}", healedLocator);
+    }
+
     private void moveToNextTest(AgentContext context) {
 
         if (!isFixVerified(context) && getOriginalContent(context) != null
@@ -766,6 +861,7 @@ public class SelfHealingAgent extends BaseAgent {
         setLastAppliedFix(context, null);
         context.putState(State.RENDERED_FILE_PATH, null);
         context.putState(State.HAS_RENDERED_FILE, false);
+        context.putState(State.CAPTURED_PAGE_URL, null);
         context.putState("currentTestStartIteration", context.getCurrentIteration());
     }
 
@@ -1097,5 +1193,6 @@ public class SelfHealingAgent extends BaseAgent {
         String SUCCESSFULLY_FIXED_COUNT   = "heal.successfullyFixedCount";
         String RENDERED_FILE_PATH         = "heal.renderedFilePath";
         String HAS_RENDERED_FILE          = "heal.hasRenderedFile";
+        String CAPTURED_PAGE_URL          = "heal.capturedPageUrl";
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.company.qa.service.agent;
+
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * AI cost pool shared by the child executions of a sweep.
+ *
+ * The limit is the parent's AgentConfig.maxAICost. Every child charges its
+ * AI cost here (BaseAgent via AgentOrchestrator), and all children stop with
+ * BUDGET_EXCEEDED once the pool is spent - the sweep as a whole never costs
+ * more than one agent run was allowed to.
+ */
+public class SharedAgentBudget {
+
+    private final double limit;
+    private final DoubleAdder spent = new DoubleAdder();
+
+    public SharedAgentBudget(double limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Add cost to the pool.
+     *
+     * @return true while the pool is still within its limit
+     */
+    public boolean charge(double cost) {
+        if (cost > 0) {
+            spent.add(cost);
+        }
+        return !isExhausted();
+    }
+
+    public boolean isExhausted() {
+        return spent.sum() > limit;
+    }
+
+    public double getSpent() {
+        return spent.sum();
+    }
+
+    public double getRemaining() {
+        return Math.max(0.0, limit - spent.sum());
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,279 @@
+package com.company.qa.service.agent.replay;
+
+import com.company.qa.exception.ResourceNotFoundException;
+import com.company.qa.exception.StorageException;
+import com.company.qa.model.agent.*;
+import com.company.qa.model.agent.entity.AgentExecution;
+import com.company.qa.model.enums.AgentType;
+import com.company.qa.service.agent.AgentExecutionService;
+import com.company.qa.service.agent.AgentOrchestrator;
+import com.company.qa.service.agent.BaseAgent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Record-and-replay benchmark harness for agents.
+ *
+ * record() runs an agent for real and saves every tool call, the goal and
+ * the config to {directory}/{name}.json together with a baseline
+ * AgentRunReport. replay() re-runs the same agent against that file: tools
+ * are answered from the recording (see AgentRunRecorder) so no browser,
+ * Git or AI provider is touched, and the run is deterministic as long as
+ * the agent's decisions are. The replay report is written to
+ * {directory}/{name}.replay.json so it can be diffed across commits.
+ *
+ * Recordings run asynchronously through AgentOrchestrator; replays touch
+ * nothing outside the JVM and run synchronously on the calling thread.
+ */
+@Service
+@Slf4j
+public class AgentReplayService {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final String PLANNING_PHASE = "PLANNING";
+
+    private final AgentOrchestrator orchestrator;
+    private final AgentExecutionService executionService;
+    private final AgentRunRecorder runRecorder;
+    private final ObjectMapper objectMapper;
+
+    @Value("${agent.replay.directory:./agent-replays}")
+    private String replayDirectory = "./agent-replays";
+
+    public AgentReplayService(
+            AgentOrchestrator orchestrator,
+            AgentExecutionService executionService,
+            AgentRunRecorder runRecorder,
+            ObjectMapper objectMapper) {
+        this.orchestrator = orchestrator;
+        this.executionService = executionService;
+        this.runRecorder = runRecorder;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Start a live agent run and save it as a replay recording once it finishes.
+     *
+     * The run goes through AgentOrchestrator like any other execution, so it
+     * is admitted by AgentScheduler and can be stopped. The recording is
+     * written when the run completes; a stopped or failed run leaves no file.
+     *
+     * @return The execution being recorded
+     */
+    public AgentExecution record(String name, AgentType agentType, AgentGoal goal, AgentConfig config) {
+        Path path = recordingPath(name);
+        requireAgent(agentType);
+
+        AgentExecution execution = executionService
+                .createExecution(agentType, goal, config, null, "replay-recorder");
+        UUID executionId = execution.getId();
+
+        log.info("⏺️  Recording agent run '{}': {} - Execution ID: {}", name, agentType, executionId);
+
+        // Attached before the agent thread starts so the first tool call is captured
+        runRecorder.startRecording(executionId);
+        long startedAt = System.currentTimeMillis();
+        CompletableFuture<AgentResult> future;
+        try {
+            future = orchestrator.startExecution(execution, goal, config);
+        } catch (RuntimeException e) {
+            runRecorder.finish(executionId);
+            throw e;
+        }
+
+        future.whenComplete((result, error) -> {
+            AgentRunRecorder.Capture capture = runRecorder.finish(executionId);
+            if (error != null || result == null) {
+                log.warn("⚠️ Recording '{}' not saved - run {} did not complete", name, executionId);
+                return;
+            }
+            try {
+                saveRecording(path, name, executionId, agentType, goal, config, result, capture,
+                        wallTimeMs(result, startedAt));
+            } catch (RuntimeException e) {
+                log.error("❌ Failed to save recording '{}'", name, e);
+            }
+        });
+        return execution;
+    }
+
+    private void saveRecording(Path path, String name, UUID executionId, AgentType agentType, AgentGoal goal,
+                               AgentConfig config, AgentResult result, AgentRunRecorder.Capture capture,
+                               long wallTimeMs) {
+        AgentRunReport report = buildReport(agentType, result, capture, wallTimeMs);
+        AgentReplayRecording recording = AgentReplayRecording.builder()
+                .name(name)
+                .sourceExecutionId(executionId)
+                .agentType(agentType)
+                .goal(goal)
+                .config(config)
+                .recordedAt(Instant.now())
+                .toolCalls(capture.toolCalls())
+                .report(report)
+                .build();
+
+        write(path, recording);
+        log.info("✅ Saved recording '{}' ({} tool calls, {})",
+                name, recording.getToolCalls().size(), report.getStatus());
+    }
+
+    /**
+     * Replay a recording offline and report how the run compares.
+     */
+    public AgentRunReport replay(String name) {
+        AgentReplayRecording recording = load(name);
+        BaseAgent agent = requireAgent(recording.getAgentType());
+
+        UUID executionId = executionService
+                .createExecution(recording.getAgentType(), recording.getGoal(), recording.getConfig(),
+                        null, "replay")
+                .getId();
+
+        log.info("▶️  Replaying '{}': {} - Execution ID: {}", name, recording.getAgentType(), executionId);
+
+        runRecorder.startReplay(executionId, recording.getToolCalls());
+        RunOutcome outcome = run(agent, recording.getAgentType(), recording.getGoal(),
+                recording.getConfig(), executionId);
+
+        AgentRunReport report = outcome.report();
+        write(resolve(name + ".replay.json"), report);
+
+        AgentRunReport baseline = recording.getReport();
+        if (baseline != null) {
+            log.info("📊 Replay '{}': status {} → {}, iterations {} → {}, misses {}, divergences {}",
+                    name, baseline.getStatus(), report.getStatus(),
+                    baseline.getIterations(), report.getIterations(),
+                    report.getReplayMisses(), report.getReplayDivergences());
+        }
+        return report;
+    }
+
+    /**
+     * Load a saved recording.
+     */
+    public AgentReplayRecording load(String name) {
+        Path path = recordingPath(name);
+        if (!Files.exists(path)) {
+            throw new ResourceNotFoundException("Agent replay recording", name);
+        }
+        try {
+            return objectMapper.readValue(path.toFile(), AgentReplayRecording.class);
+        } catch (IOException e) {
+            throw new StorageException("Failed to read replay recording: " + name, e);
+        }
+    }
+
+    /**
+     * Names of all saved recordings.
+     */
+    public List<String> listRecordings() {
+        Path dir = Paths.get(replayDirectory);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(file -> file.endsWith(".json") && !file.endsWith(".replay.json"))
+                    .map(file -> file.substring(0, file.length() - ".json".length()))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new StorageException("Failed to list replay recordings", e);
+        }
+    }
+
+    private RunOutcome run(BaseAgent agent, AgentType agentType, AgentGoal goal,
+                           AgentConfig config, UUID executionId) {
+        long startedAt = System.currentTimeMillis();
+        AgentResult result;
+        AgentRunRecorder.Capture capture;
+        try {
+            result = agent.execute(goal, config, executionId);
+        } finally {
+            capture = runRecorder.finish(executionId);
+        }
+        return new RunOutcome(capture, buildReport(agentType, result, capture, wallTimeMs(result, startedAt)));
+    }
+
+    /**
+     * Time the agent loop ran, leaving out any wait in the AgentScheduler queue.
+     */
+    private static long wallTimeMs(AgentResult result, long startedAt) {
+        return result.getTotalDuration() != null
+                ? result.getTotalDuration().toMillis()
+                : System.currentTimeMillis() - startedAt;
+    }
+
+    static AgentRunReport buildReport(AgentType agentType, AgentResult result,
+                                      AgentRunRecorder.Capture capture, long wallTimeMs) {
+        Map<String, Long> phaseTimings = new LinkedHashMap<>();
+        long toolTimeMs = 0;
+        long tokensUsed = 0;
+
+        for (RecordedToolCall call : capture.toolCalls()) {
+            phaseTimings.merge(call.getActionType().name(), call.getDurationMs(), Long::sum);
+            toolTimeMs += call.getDurationMs();
+            if (call.getResult() != null && call.getResult().get("tokensUsed") instanceof Number tokens) {
+                tokensUsed += tokens.longValue();
+            }
+        }
+        // Concurrent tool calls overlap, so tool time can exceed wall time
+        phaseTimings.put(PLANNING_PHASE, Math.max(0, wallTimeMs - toolTimeMs));
+
+        return AgentRunReport.builder()
+                .agentType(agentType)
+                .status(result.getStatus())
+                .iterations(result.getIterationsCompleted())
+                .wallTimeMs(wallTimeMs)
+                .phaseTimingsMs(phaseTimings)
+                .toolCalls(capture.toolCalls().size())
+                .tokensUsed(tokensUsed)
+                .aiCost(result.getTotalAICost())
+                .replayMisses(capture.misses())
+                .replayDivergences(capture.divergences())
+                .build();
+    }
+
+    private BaseAgent requireAgent(AgentType agentType) {
+        return orchestrator.getAgent(agentType)
+                .orElseThrow(() -> new IllegalArgumentException("No agent registered for type: " + agentType));
+    }
+
+    private Path recordingPath(String name) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid recording name: " + name);
+        }
+        return resolve(name + ".json");
+    }
+
+    private Path resolve(String fileName) {
+        return Paths.get(replayDirectory).resolve(fileName);
+    }
+
+    private void write(Path path, Object value) {
+        try {
+            Files.createDirectories(path.getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), value);
+        } catch (IOException e) {
+            throw new StorageException("Failed to write " + path, e);
+        }
+    }
+
+    private record RunOutcome(AgentRunRecorder.Capture capture, AgentRunReport report) {
+    }
+}
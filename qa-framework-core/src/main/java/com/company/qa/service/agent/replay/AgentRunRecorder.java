@@ -0,0 +1,189 @@
+package com.company.qa.service.agent.replay;
+
+import com.company.qa.model.agent.RecordedToolCall;
+import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.service.agent.tool.ToolResultCache;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Captures and replays the tool calls of an agent execution.
+ *
+ * AgentToolRegistry consults this for every tool call made on behalf of an
+ * execution. Executions not registered here are untouched.
+ *
+ * - Recording: calls run normally; parameters, results and durations are captured.
+ * - Replay: calls are answered from a recording and the real tool is never
+ *   invoked. A call is matched to the first unused recorded call with the
+ *   same action type and parameters; failing that, to the first unused call
+ *   of the same action type (counted as a divergence). Calls with nothing
+ *   left to match get a failed result (counted as a miss).
+ *
+ * Parameters and results are stored in their JSON form so a recording
+ * loaded from disk matches a live run.
+ */
+@Slf4j
+@Component
+public class AgentRunRecorder {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+
+    public AgentRunRecorder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Start capturing tool calls for an execution.
+     */
+    public void startRecording(UUID executionId) {
+        sessions.put(executionId, new Session(null));
+        log.info("⏺️  Recording tool calls for execution: {}", executionId);
+    }
+
+    /**
+     * Serve tool calls for an execution from a recording.
+     */
+    public void startReplay(UUID executionId, List<RecordedToolCall> recordedCalls) {
+        sessions.put(executionId, new Session(new ArrayList<>(recordedCalls)));
+        log.info("▶️  Replaying {} recorded tool calls for execution: {}", recordedCalls.size(), executionId);
+    }
+
+    public boolean isActive(UUID executionId) {
+        return executionId != null && sessions.containsKey(executionId);
+    }
+
+    public boolean isReplaying(UUID executionId) {
+        Session session = executionId != null ? sessions.get(executionId) : null;
+        return session != null && session.recorded != null;
+    }
+
+    /**
+     * Answer a tool call from the recording (replay sessions only).
+     *
+     * @return Recorded result, a failed result if nothing matches, or empty
+     *         if the execution is not being replayed
+     */
+    public Optional<Map<String, Object>> replay(
+            UUID executionId, AgentActionType actionType, Map<String, Object> parameters) {
+
+        Session session = executionId != null ? sessions.get(executionId) : null;
+        if (session == null || session.recorded == null) {
+            return Optional.empty();
+        }
+
+        String wanted = ToolResultCache.normalise(toJson(parameters));
+
+        synchronized (session) {
+            RecordedToolCall match = null;
+            for (RecordedToolCall call : session.recorded) {
+                if (call.getActionType() == actionType
+                        && wanted.equals(ToolResultCache.normalise(call.getParameters()))) {
+                    match = call;
+                    break;
+                }
+            }
+
+            if (match == null) {
+                match = session.recorded.stream()
+                        .filter(call -> call.getActionType() == actionType)
+                        .findFirst()
+                        .orElse(null);
+                if (match != null) {
+                    session.divergences++;
+                    log.warn("⚠️ Replay divergence: {} called with different parameters than recorded", actionType);
+                }
+            }
+
+            if (match == null) {
+                session.misses++;
+                log.warn("⚠️ Replay miss: no recorded result left for {}", actionType);
+                Map<String, Object> missing = new HashMap<>();
+                missing.put("success", false);
+                missing.put("error", "No recorded result for " + actionType);
+                return Optional.of(missing);
+            }
+
+            session.recorded.remove(match);
+            return Optional.of(new HashMap<>(match.getResult()));
+        }
+    }
+
+    /**
+     * Capture a completed tool call (recording and replay sessions).
+     */
+    public void record(
+            UUID executionId,
+            AgentActionType actionType,
+            Map<String, Object> parameters,
+            Map<String, Object> result,
+            long durationMs) {
+
+        Session session = executionId != null ? sessions.get(executionId) : null;
+        if (session == null) {
+            return;
+        }
+
+        synchronized (session) {
+            session.calls.add(RecordedToolCall.builder()
+                    .sequence(session.calls.size())
+                    .actionType(actionType)
+                    .parameters(toJson(parameters))
+                    .result(toJson(result))
+                    .durationMs(durationMs)
+                    .build());
+        }
+    }
+
+    /**
+     * Stop capturing for an execution and return what was captured.
+     */
+    public Capture finish(UUID executionId) {
+        Session session = sessions.remove(executionId);
+        if (session == null) {
+            return new Capture(List.of(), 0, 0);
+        }
+        synchronized (session) {
+            return new Capture(List.copyOf(session.calls), session.misses, session.divergences);
+        }
+    }
+
+    private Map<String, Object> toJson(Map<String, Object> value) {
+        if (value == null) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.convertValue(value, MAP_TYPE);
+        } catch (IllegalArgumentException e) {
+            // Non-serialisable values - keep their string form so matching still works
+            Map<String, Object> fallback = new HashMap<>();
+            value.forEach((k, v) -> fallback.put(k, v != null ? v.toString() : null));
+            return fallback;
+        }
+    }
+
+    private static class Session {
+        /** Remaining recorded calls (replay) or null (recording). */
+        final List<RecordedToolCall> recorded;
+        final List<RecordedToolCall> calls = new ArrayList<>();
+        int misses;
+        int divergences;
+
+        Session(List<RecordedToolCall> recorded) {
+            this.recorded = recorded;
+        }
+    }
+
+    /**
+     * Tool calls captured for one execution.
+     */
+    public record Capture(List<RecordedToolCall> toolCalls, int misses, int divergences) {
+    }
+}
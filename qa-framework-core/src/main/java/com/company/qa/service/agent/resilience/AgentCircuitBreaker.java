@@ -1,32 +1,107 @@
 package com.company.qa.service.agent.resilience;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Circuit Breaker pattern for agent tool execution.
  *
  * Prevents cascading failures by temporarily disabling tools
- * that are consistently failing.
+ * that are consistently failing - or consistently slow, so a slow
+ * Bedrock or browser doesn't drag every agent down with it.
  *
  * States:
  * - CLOSED: Normal operation, requests pass through
- * - OPEN: Tool is failing, requests rejected immediately
- * - HALF_OPEN: Testing if tool has recovered
+ * - OPEN: Tool is failing or slow, requests rejected immediately
+ * - HALF_OPEN: A single probe request tests if the tool has recovered
+ *
+ * Per tool, the breaker keeps a sliding window of the last
+ * agent.circuit-breaker.window-size call outcomes and opens when, with at
+ * least minimum-calls in the window:
+ * - failure rate >= failure-rate-threshold, or
+ * - slow-call rate >= slow-call-rate-threshold (slower than the threshold
+ *   passed by the caller - AgentTool.getSlowCallThreshold())
+ *
+ * After open-seconds one probe is let through (others are still rejected);
+ * a fast success closes the circuit, anything else reopens it. A probe that
+ * never reports back is replaced after another open-seconds.
+ *
+ * Lock-free: state is an AtomicReference changed by CAS, the window is a
+ * ring of atomic slots with running counters. Rates are eventually
+ * consistent under concurrent updates, which is all a breaker needs.
+ *
+ * Metrics (Micrometer, per tool):
+ * - agent.tool.circuit.state (0 = CLOSED, 1 = HALF_OPEN, 2 = OPEN)
+ * - agent.tool.circuit.transitions{from,to}
+ * - agent.tool.circuit.rejections
+ * - agent.tool.circuit.failure.rate / agent.tool.circuit.slow.rate
+ * - agent.tool.calls{outcome} timer with p50/p95/p99
  */
 @Slf4j
 @Component
 public class AgentCircuitBreaker {
 
-    private static final int FAILURE_THRESHOLD = 5;
-    private static final long TIMEOUT_MS = 60_000; // 1 minute
+    private static final long DEFAULT_SLOW_CALL_MS = 60_000;
+
+    // Window slot values
+    private static final int EMPTY = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+    private static final int SLOW_SUCCESS = 3;
+    private static final int SLOW_FAILURE = 4;
 
     private final Map<String, CircuitState> circuits = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    @Value("${agent.circuit-breaker.window-size:20}")
+    private int windowSize = 20;
+
+    @Value("${agent.circuit-breaker.minimum-calls:5}")
+    private int minimumCalls = 5;
+
+    @Value("${agent.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold = 0.5;
+
+    @Value("${agent.circuit-breaker.slow-call-rate-threshold:0.8}")
+    private double slowCallRateThreshold = 0.8;
+
+    @Value("${agent.circuit-breaker.open-seconds:60}")
+    private long openSeconds = 60;
+
+    @Value("${agent.circuit-breaker.latency-window:100}")
+    private int latencyWindow = 100;
+
+    @Autowired
+    public AgentCircuitBreaker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Standalone breaker with in-memory metrics (tests, tools outside Spring).
+     */
+    public AgentCircuitBreaker() {
+        this(new SimpleMeterRegistry());
+    }
 
     public enum State {
         CLOSED,
@@ -34,93 +109,351 @@ public class AgentCircuitBreaker {
         HALF_OPEN
     }
 
-    private static class CircuitState {
-        State state = State.CLOSED;
-        AtomicInteger failureCount = new AtomicInteger(0);
-        Instant lastFailureTime;
-        Instant openedAt;
+    /**
+     * Point-in-time view of one tool's circuit.
+     */
+    public record CircuitSnapshot(
+            String toolName,
+            State state,
+            int bufferedCalls,
+            double failureRate,
+            double slowCallRate,
+            long p50LatencyMs,
+            long p95LatencyMs,
+            long rejectedCalls,
+            long transitions,
+            Instant openedAt) {
+    }
+
+    private final class CircuitState {
+        final String toolName;
+        final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+        final AtomicLong openedAtMs = new AtomicLong();
+        // Thread running the half-open probe, and when it started (0 = no probe)
+        final AtomicLong probeThreadId = new AtomicLong(-1);
+        final AtomicLong probeStartedAtMs = new AtomicLong();
+
+        // Outcome window: ring of slots plus running counters
+        final AtomicIntegerArray outcomes;
+        final AtomicLong outcomeCursor = new AtomicLong();
+        final AtomicInteger buffered = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger slowCalls = new AtomicInteger();
+
+        // Latency window for percentiles
+        final AtomicLongArray latencies;
+        final AtomicLong latencyCursor = new AtomicLong();
+
+        final Counter rejections;
+        final AtomicLong rejectedCount = new AtomicLong();
+        final AtomicLong transitionCount = new AtomicLong();
+        final Timer successTimer;
+        final Timer failureTimer;
+
+        CircuitState(String toolName) {
+            this.toolName = toolName;
+            this.outcomes = new AtomicIntegerArray(Math.max(1, windowSize));
+            this.latencies = new AtomicLongArray(Math.max(1, latencyWindow));
+
+            this.rejections = Counter.builder("agent.tool.circuit.rejections")
+                    .description("Calls rejected by an open circuit")
+                    .tag("tool", toolName)
+                    .register(meterRegistry);
+            this.successTimer = callTimer(toolName, "success");
+            this.failureTimer = callTimer(toolName, "failure");
+
+            Gauge.builder("agent.tool.circuit.state", state, s -> stateValue(s.get()))
+                    .description("0 = CLOSED, 1 = HALF_OPEN, 2 = OPEN")
+                    .tag("tool", toolName)
+                    .register(meterRegistry);
+            Gauge.builder("agent.tool.circuit.failure.rate", this, CircuitState::failureRate)
+                    .tag("tool", toolName)
+                    .register(meterRegistry);
+            Gauge.builder("agent.tool.circuit.slow.rate", this, CircuitState::slowCallRate)
+                    .tag("tool", toolName)
+                    .register(meterRegistry);
+        }
+
+        void record(int outcome, long durationMs) {
+            int slot = (int) (outcomeCursor.getAndIncrement() % outcomes.length());
+            int previous = outcomes.getAndSet(slot, outcome);
+
+            if (previous == EMPTY) {
+                buffered.incrementAndGet();
+            }
+            failures.addAndGet(isFailure(outcome) - isFailure(previous));
+            slowCalls.addAndGet(isSlow(outcome) - isSlow(previous));
+
+            int latencySlot = (int) (latencyCursor.getAndIncrement() % latencies.length());
+            latencies.set(latencySlot, Math.max(0, durationMs));
+        }
+
+        void resetWindow() {
+            for (int i = 0; i < outcomes.length(); i++) {
+                int previous = outcomes.getAndSet(i, EMPTY);
+                if (previous != EMPTY) {
+                    buffered.decrementAndGet();
+                    failures.addAndGet(-isFailure(previous));
+                    slowCalls.addAndGet(-isSlow(previous));
+                }
+            }
+        }
+
+        double failureRate() {
+            int calls = buffered.get();
+            return calls > 0 ? (double) failures.get() / calls : 0.0;
+        }
+
+        double slowCallRate() {
+            int calls = buffered.get();
+            return calls > 0 ? (double) slowCalls.get() / calls : 0.0;
+        }
+
+        long latencyPercentile(double percentile) {
+            long[] values = new long[latencies.length()];
+            int count = 0;
+            long recorded = Math.min(latencyCursor.get(), latencies.length());
+            for (int i = 0; i < recorded; i++) {
+                values[count++] = latencies.get(i);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            Arrays.sort(values, 0, count);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return values[Math.max(0, Math.min(count - 1, index))];
+        }
+
+        /**
+         * Open the circuit. The opening time is set before the state flips,
+         * so a caller that sees OPEN never pairs it with the previous opening
+         * time and probes straight away; it is restored if another thread
+         * moved the state first.
+         */
+        boolean open(State from) {
+            long now = System.currentTimeMillis();
+            long previous = openedAtMs.getAndSet(now);
+            if (transition(from, State.OPEN)) {
+                return true;
+            }
+            openedAtMs.compareAndSet(now, previous);
+            return false;
+        }
+
+        boolean transition(State from, State to) {
+            if (!state.compareAndSet(from, to)) {
+                return false;
+            }
+            transitionCount.incrementAndGet();
+            Counter.builder("agent.tool.circuit.transitions")
+                    .tag("tool", toolName)
+                    .tag("from", from.name())
+                    .tag("to", to.name())
+                    .register(meterRegistry)
+                    .increment();
+            return true;
+        }
     }
 
     /**
      * Check if request should be allowed through.
+     *
+     * In HALF_OPEN only one caller (the probe) gets true until it reports back.
      */
     public boolean allowRequest(String toolName) {
-        CircuitState circuit = circuits.computeIfAbsent(toolName, k -> new CircuitState());
-
-        synchronized (circuit) {
-            switch (circuit.state) {
-                case CLOSED:
-                    return true;
-
-                case OPEN:
-                    // Check if timeout has elapsed
-                    if (Instant.now().toEpochMilli() - circuit.openedAt.toEpochMilli() > TIMEOUT_MS) {
-                        log.info("Circuit breaker for {} transitioning to HALF_OPEN", toolName);
-                        circuit.state = State.HALF_OPEN;
-                        return true;
-                    }
-                    log.warn("Circuit breaker OPEN for {}, rejecting request", toolName);
-                    return false;
-
-                case HALF_OPEN:
-                    return true;
-
-                default:
-                    return true;
+        CircuitState circuit = circuit(toolName);
+        long now = System.currentTimeMillis();
+
+        State state = circuit.state.get();
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        if (state == State.OPEN) {
+            if (now - circuit.openedAtMs.get() < openMillis()) {
+                return reject(circuit);
             }
+            if (circuit.transition(State.OPEN, State.HALF_OPEN)) {
+                log.info("🟡 Circuit breaker for {} transitioning to HALF_OPEN", toolName);
+            }
+        }
+
+        // HALF_OPEN: claim the single probe (or take over one that never reported back)
+        long probeStarted = circuit.probeStartedAtMs.get();
+        boolean probeFree = probeStarted == 0 || now - probeStarted >= openMillis();
+        if (probeFree && circuit.probeStartedAtMs.compareAndSet(probeStarted, now)) {
+            circuit.probeThreadId.set(Thread.currentThread().getId());
+            log.info("🔎 Circuit breaker for {} letting one probe request through", toolName);
+            return true;
         }
+        return reject(circuit);
     }
 
     /**
-     * Record successful execution.
+     * Record successful execution (latency unknown).
      */
     public void recordSuccess(String toolName) {
-        CircuitState circuit = circuits.get(toolName);
-        if (circuit == null) return;
-
-        synchronized (circuit) {
-            if (circuit.state == State.HALF_OPEN) {
-                log.info("Circuit breaker for {} transitioning to CLOSED (recovered)", toolName);
-                circuit.state = State.CLOSED;
-                circuit.failureCount.set(0);
-            }
-        }
+        recordCall(toolName, true, 0, DEFAULT_SLOW_CALL_MS);
     }
 
     /**
-     * Record failed execution.
+     * Record failed execution (latency unknown).
      */
     public void recordFailure(String toolName) {
-        CircuitState circuit = circuits.computeIfAbsent(toolName, k -> new CircuitState());
-
-        synchronized (circuit) {
-            circuit.lastFailureTime = Instant.now();
-            int failures = circuit.failureCount.incrementAndGet();
-
-            if (circuit.state == State.HALF_OPEN) {
-                log.warn("Circuit breaker for {} failed in HALF_OPEN, reopening", toolName);
-                circuit.state = State.OPEN;
-                circuit.openedAt = Instant.now();
-            } else if (failures >= FAILURE_THRESHOLD && circuit.state == State.CLOSED) {
-                log.error("Circuit breaker for {} OPENING after {} failures", toolName, failures);
-                circuit.state = State.OPEN;
-                circuit.openedAt = Instant.now();
+        recordCall(toolName, false, 0, DEFAULT_SLOW_CALL_MS);
+    }
+
+    /**
+     * Record the outcome and latency of a call.
+     *
+     * @param success Whether the call succeeded
+     * @param durationMs How long the call took
+     * @param slowCallThresholdMs Calls slower than this count as slow
+     */
+    public void recordCall(String toolName, boolean success, long durationMs, long slowCallThresholdMs) {
+        CircuitState circuit = circuit(toolName);
+        boolean slow = slowCallThresholdMs > 0 && durationMs > slowCallThresholdMs;
+
+        (success ? circuit.successTimer : circuit.failureTimer).record(durationMs, TimeUnit.MILLISECONDS);
+
+        State state = circuit.state.get();
+        if (state == State.HALF_OPEN) {
+            // Only the probe decides; late results of calls let in before the
+            // circuit opened are ignored
+            if (circuit.probeThreadId.get() == Thread.currentThread().getId()) {
+                completeProbe(circuit, success && !slow, durationMs);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        circuit.record(outcome(success, slow), durationMs);
+
+        if (circuit.buffered.get() >= minimumCalls) {
+            double failureRate = circuit.failureRate();
+            double slowRate = circuit.slowCallRate();
+            if ((failureRate >= failureRateThreshold || slowRate >= slowCallRateThreshold)
+                    && circuit.open(State.CLOSED)) {
+                log.error("🔴 Circuit breaker for {} OPENING: failure rate {}%, slow-call rate {}% over {} calls",
+                        toolName, Math.round(failureRate * 100), Math.round(slowRate * 100),
+                        circuit.buffered.get());
             }
         }
     }
 
+    private void completeProbe(CircuitState circuit, boolean healthy, long durationMs) {
+        circuit.probeThreadId.set(-1);
+        if (healthy) {
+            if (circuit.transition(State.HALF_OPEN, State.CLOSED)) {
+                circuit.resetWindow();
+                log.info("🟢 Circuit breaker for {} transitioning to CLOSED (recovered, probe took {}ms)",
+                        circuit.toolName, durationMs);
+            }
+        } else if (circuit.open(State.HALF_OPEN)) {
+            log.warn("🔴 Circuit breaker for {} probe failed or was slow ({}ms), reopening",
+                    circuit.toolName, durationMs);
+        }
+        circuit.probeStartedAtMs.set(0);
+    }
+
     /**
      * Get current state of circuit.
      */
     public State getState(String toolName) {
         CircuitState circuit = circuits.get(toolName);
-        return circuit != null ? circuit.state : State.CLOSED;
+        return circuit != null ? circuit.state.get() : State.CLOSED;
+    }
+
+    /**
+     * Current view of one tool's circuit.
+     */
+    public CircuitSnapshot getSnapshot(String toolName) {
+        return snapshot(circuit(toolName));
+    }
+
+    /**
+     * Current view of every circuit, by tool name.
+     */
+    public List<CircuitSnapshot> getSnapshots() {
+        return circuits.values().stream()
+                .map(this::snapshot)
+                .sorted(Comparator.comparing(CircuitSnapshot::toolName))
+                .toList();
     }
 
     /**
      * Reset circuit (for testing).
      */
     public void reset(String toolName) {
-        circuits.remove(toolName);
+        CircuitState circuit = circuits.get(toolName);
+        if (circuit == null) return;
+        circuit.resetWindow();
+        circuit.state.set(State.CLOSED);
+        circuit.probeStartedAtMs.set(0);
+        circuit.probeThreadId.set(-1);
+    }
+
+    private CircuitSnapshot snapshot(CircuitState circuit) {
+        State state = circuit.state.get();
+        return new CircuitSnapshot(
+                circuit.toolName,
+                state,
+                circuit.buffered.get(),
+                circuit.failureRate(),
+                circuit.slowCallRate(),
+                circuit.latencyPercentile(0.50),
+                circuit.latencyPercentile(0.95),
+                circuit.rejectedCount.get(),
+                circuit.transitionCount.get(),
+                state == State.CLOSED ? null : Instant.ofEpochMilli(circuit.openedAtMs.get()));
+    }
+
+    private CircuitState circuit(String toolName) {
+        return circuits.computeIfAbsent(toolName, CircuitState::new);
+    }
+
+    private boolean reject(CircuitState circuit) {
+        circuit.rejectedCount.incrementAndGet();
+        circuit.rejections.increment();
+        log.warn("Circuit breaker {} for {}, rejecting request", circuit.state.get(), circuit.toolName);
+        return false;
+    }
+
+    private long openMillis() {
+        return TimeUnit.SECONDS.toMillis(openSeconds);
+    }
+
+    private Timer callTimer(String toolName, String outcome) {
+        return Timer.builder("agent.tool.calls")
+                .description("Agent tool call latency")
+                .tag("tool", toolName)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static int outcome(boolean success, boolean slow) {
+        if (success) {
+            return slow ? SLOW_SUCCESS : SUCCESS;
+        }
+        return slow ? SLOW_FAILURE : FAILURE;
+    }
+
+    private static int isFailure(int outcome) {
+        return outcome == FAILURE || outcome == SLOW_FAILURE ? 1 : 0;
+    }
+
+    private static int isSlow(int outcome) {
+        return outcome == SLOW_SUCCESS || outcome == SLOW_FAILURE ? 1 : 0;
+    }
+
+    private static double stateValue(State state) {
+        return switch (state) {
+            case CLOSED -> 0;
+            case HALF_OPEN -> 1;
+            case OPEN -> 2;
+        };
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package com.company.qa.service.agent.tool;
 
 import com.company.qa.model.enums.AgentActionType;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 
 /**
@@ -51,6 +53,23 @@ public interface AgentTool {
      */
     Map<String, Object> execute(Map<String, Object> parameters);
 
+    /**
+     * Execute the tool within what is left of the calling execution's budget.
+     *
+     * AgentToolRegistry always calls this variant. Tools that can run for a
+     * long time (test runs, AI calls) override it to shrink their timeouts,
+     * run counts or token limits to the budget and to stop early once
+     * budget.shouldAbort() - returning what they have so far. Other tools
+     * keep the default, which ignores the budget.
+     *
+     * @param parameters Tool-specific parameters
+     * @param budget Remaining deadline/cost of the execution (UNLIMITED outside an agent run)
+     * @return Tool execution result as Map
+     */
+    default Map<String, Object> execute(Map<String, Object> parameters, ToolBudget budget) {
+        return execute(parameters);
+    }
+
     /**
      * Validate parameters before execution.
      *
@@ -76,4 +95,92 @@ public interface AgentTool {
      * @return Parameter schema
      */
     Map<String, String> getParameterSchema();
-}
\ No newline at end of file
+
+    /**
+     * Is this tool free of side effects, so that identical parameters
+     * always produce an equivalent result?
+     *
+     * Idempotent tools have their successful results memoised by
+     * AgentToolRegistry (see ToolResultCache). Default: false.
+     */
+    default boolean isIdempotent() {
+        return false;
+    }
+
+    /**
+     * How long a memoised result stays valid. Only used when idempotent.
+     */
+    default Duration getResultCacheTtl() {
+        return Duration.ofMinutes(5);
+    }
+
+    /**
+     * Whether memoised results are shared across executions or kept per execution.
+     * Only used when idempotent.
+     */
+    default CacheScope getResultCacheScope() {
+        return CacheScope.EXECUTION;
+    }
+
+    /**
+     * Maximum time a single call may take when run concurrently with
+     * other tools. Calls that overrun are cancelled and reported as failed.
+     */
+    default Duration getTimeout() {
+        return Duration.ofMinutes(5);
+    }
+
+    /**
+     * Calls slower than this count as slow calls for the tool's circuit
+     * breaker (AgentCircuitBreaker opens on a high slow-call rate as well as
+     * on failures). Default: 80% of getTimeout().
+     */
+    default Duration getSlowCallThreshold() {
+        return getTimeout().multipliedBy(4).dividedBy(5);
+    }
+
+    /**
+     * Does this tool change something outside the framework (a commit, a
+     * pull request) that must not happen twice for the same parameters?
+     *
+     * Calls of such tools made on behalf of an execution are recorded in
+     * SideEffectLedger, so an execution resumed after a restart gets the
+     * earlier result back instead of repeating the side effect. Default: false.
+     */
+    default boolean hasExternalSideEffects() {
+        return false;
+    }
+
+    /**
+     * For tools with external side effects: what besides the parameters
+     * makes two calls the same side effect (e.g. a hash of the files a
+     * commit writes). Calls with equal parameters but a different
+     * fingerprint are recorded separately. Default: none.
+     */
+    default String sideEffectFingerprint(Map<String, Object> parameters) {
+        return null;
+    }
+
+    /**
+     * For tools with external side effects: check whether an interrupted
+     * call with these parameters took effect before the interruption.
+     *
+     * @param parameters Parameters of the interrupted call
+     * @param startedAt When the interrupted call started; older traces are not its own
+     * @return The result the call would have returned, or null if there is
+     *         no trace of it (the call is then run again)
+     */
+    default Map<String, Object> findAppliedResult(Map<String, Object> parameters, Instant startedAt) {
+        return null;
+    }
+
+    /**
+     * Sharing scope for memoised tool results.
+     */
+    enum CacheScope {
+        /** Reused only within the execution that produced it. */
+        EXECUTION,
+        /** Reused by any execution (and by calls outside an agent run). */
+        GLOBAL
+    }
+}
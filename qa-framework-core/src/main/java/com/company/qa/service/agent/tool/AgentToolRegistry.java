@@ -1,12 +1,21 @@
 package com.company.qa.service.agent.tool;
 
+import com.company.qa.model.agent.PlannedAction;
 import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.service.agent.replay.AgentRunRecorder;
 import com.company.qa.service.agent.resilience.AgentCircuitBreaker;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -16,6 +25,11 @@ import java.util.stream.Collectors;
  * - Tool registration (auto at startup)
  * - Tool discovery by action type
  * - Tool execution with validation
+ * - Result memoisation for idempotent tools (ToolResultCache)
+ * - No repeated side effects on resume (SideEffectLedger, see resumeExecution)
+ * - Concurrent execution of independent tool calls with per-tool timeouts
+ * - Execution deadline/cost propagation to tools (ToolBudget)
+ * - Recording and offline replay of tool calls (AgentRunRecorder)
  * - Tool catalog for AI prompts
  *
  * Tools self-register via @PostConstruct in their implementations.
@@ -26,9 +40,25 @@ public class AgentToolRegistry {
 
     private final Map<AgentActionType, AgentTool> tools = new ConcurrentHashMap<>();
     private final AgentCircuitBreaker circuitBreaker; // ✅ INJECTED
-
-    public AgentToolRegistry(AgentCircuitBreaker circuitBreaker) {
+    private final ToolResultCache resultCache;
+    private final Executor toolExecutor;
+    private final AgentRunRecorder runRecorder;
+    private final SideEffectLedger sideEffectLedger;
+    private final Set<UUID> resumedExecutions = ConcurrentHashMap.newKeySet();
+
+    private static final long DEFAULT_TOOL_TIMEOUT_MS = 300_000;
+
+    public AgentToolRegistry(
+            AgentCircuitBreaker circuitBreaker,
+            ToolResultCache resultCache,
+            @Qualifier("agentToolExecutor") Executor toolExecutor,
+            AgentRunRecorder runRecorder,
+            SideEffectLedger sideEffectLedger) {
         this.circuitBreaker = circuitBreaker;
+        this.resultCache = resultCache;
+        this.toolExecutor = toolExecutor;
+        this.runRecorder = runRecorder;
+        this.sideEffectLedger = sideEffectLedger;
     }
 
 
@@ -73,6 +103,64 @@ public class AgentToolRegistry {
     public Map<String, Object> executeTool(
             AgentActionType actionType,
             Map<String, Object> parameters) {
+        return executeTool(actionType, parameters, null);
+    }
+
+    /**
+     * Execute a tool on behalf of an agent execution.
+     *
+     * Idempotent tools are served from ToolResultCache when an equivalent
+     * call has already succeeded (within the execution, or globally,
+     * depending on the tool's cache scope).
+     *
+     * Executions being recorded or replayed by AgentRunRecorder have their
+     * calls captured, and during replay answered from the recording
+     * without invoking the tool.
+     *
+     * @param actionType Action type to execute
+     * @param parameters Tool parameters
+     * @param executionId Calling agent execution (null outside an agent run)
+     * @return Tool execution result
+     */
+    public Map<String, Object> executeTool(
+            AgentActionType actionType,
+            Map<String, Object> parameters,
+            UUID executionId) {
+        return executeTool(actionType, parameters, executionId, ToolBudget.UNLIMITED);
+    }
+
+    /**
+     * Execute a tool within what is left of the execution's budget.
+     *
+     * Calls made after the deadline passed (or a stop was requested) are
+     * not started and fail with "budgetExhausted" = true; they are not
+     * counted against the tool's circuit breaker.
+     *
+     * @param budget Remaining deadline/cost of the calling execution
+     */
+    public Map<String, Object> executeTool(
+            AgentActionType actionType,
+            Map<String, Object> parameters,
+            UUID executionId,
+            ToolBudget budget) {
+
+        if (!runRecorder.isActive(executionId)) {
+            return invokeTool(actionType, parameters, executionId, budget);
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Map<String, Object> result = runRecorder.replay(executionId, actionType, parameters)
+                .orElseGet(() -> invokeTool(actionType, parameters, executionId, budget));
+        runRecorder.record(executionId, actionType, parameters, result,
+                System.currentTimeMillis() - startedAt);
+        return result;
+    }
+
+    private Map<String, Object> invokeTool(
+            AgentActionType actionType,
+            Map<String, Object> parameters,
+            UUID executionId,
+            ToolBudget budget) {
 
         AgentTool tool = tools.get(actionType);
         if (tool == null) {
@@ -81,7 +169,37 @@ public class AgentToolRegistry {
 
         String toolName = tool.getClass().getSimpleName();
 
-        // 1. ✅ CHECK CIRCUIT BREAKER BEFORE EXECUTION
+        // 0. Serve memoised result for idempotent tools
+        if (tool.isIdempotent()) {
+            Optional<Map<String, Object>> cached = resultCache.get(tool, parameters, executionId);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        // 0b. Don't start work the execution has no time left for
+        if (budget.shouldAbort()) {
+            log.warn("⏱️ Not starting {}: execution deadline reached or stop requested", toolName);
+            return budgetExhaustedResult(toolName);
+        }
+
+        // 1. Validate parameters
+        // (before the circuit breaker: returning early after allowRequest would leak a HALF_OPEN probe)
+        if (!tool.validateParameters(parameters)) {
+            return Map.of("success", false, "error", "Invalid parameters");
+        }
+
+        // 1b. Don't repeat a commit/PR an earlier (interrupted) attempt already made.
+        // Every call is recorded, but only a resumed execution can have such an attempt.
+        boolean guarded = tool.hasExternalSideEffects() && executionId != null;
+        if (guarded && resumedExecutions.contains(executionId)) {
+            Optional<Map<String, Object>> applied = sideEffectLedger.findApplied(tool, parameters, executionId);
+            if (applied.isPresent()) {
+                return applied.get();
+            }
+        }
+
+        // 2. ✅ CHECK CIRCUIT BREAKER BEFORE EXECUTION
         if (!circuitBreaker.allowRequest(toolName)) {
             log.warn("🔴 Circuit OPEN for {}, rejecting request", toolName);
             return Map.of(
@@ -90,29 +208,46 @@ public class AgentToolRegistry {
                     "circuitBreakerOpen", true
             );
         }
-
-        // 2. Validate parameters
-        if (!tool.validateParameters(parameters)) {
-            return Map.of("success", false, "error", "Invalid parameters");
+        if (guarded) {
+            sideEffectLedger.started(tool, parameters, executionId);
         }
 
         // 3. Execute tool
+        long slowCallMs = tool.getSlowCallThreshold().toMillis();
+        long callStartedAt = System.currentTimeMillis();
         try {
-            Map<String, Object> result = tool.execute(parameters);
+            Map<String, Object> result = tool.execute(parameters, budget);
+            boolean success = result.get("success") == Boolean.TRUE;
+
+            // 4. ✅ RECORD OUTCOME AND LATENCY TO CIRCUIT BREAKER
+            // (a cancelled call's timeout has been judged by executeToolsConcurrently)
+            if (!budget.isCancelled()) {
+                circuitBreaker.recordCall(toolName, success,
+                        System.currentTimeMillis() - callStartedAt, slowCallMs);
+            }
 
-            // 4. ✅ RECORD SUCCESS/FAILURE TO CIRCUIT BREAKER
-            if (result.get("success") == Boolean.TRUE) {
-                circuitBreaker.recordSuccess(toolName);
-            } else {
-                circuitBreaker.recordFailure(toolName);
+            if (tool.isIdempotent()) {
+                resultCache.put(tool, parameters, executionId, result);
+            }
+            if (guarded) {
+                if (success) {
+                    sideEffectLedger.completed(tool, parameters, executionId, result);
+                } else {
+                    sideEffectLedger.failed(tool, parameters, executionId);
+                }
             }
 
             return result;
 
         } catch (Exception e) {
             // 5. ✅ RECORD EXCEPTION TO CIRCUIT BREAKER
-            circuitBreaker.recordFailure(toolName);
+            if (!budget.isCancelled()) {
+                circuitBreaker.recordCall(toolName, false, System.currentTimeMillis() - callStartedAt, slowCallMs);
+            }
             log.error("Tool {} threw exception", toolName, e);
+            if (guarded) {
+                sideEffectLedger.failed(tool, parameters, executionId);
+            }
 
             return Map.of(
                     "success", false,
@@ -128,13 +263,37 @@ public class AgentToolRegistry {
             AgentActionType actionType,
             Map<String, Object> parameters,
             int maxRetries) {
+        return executeToolWithRetry(actionType, parameters, maxRetries, null);
+    }
+
+    /**
+     * Execute with retry logic on behalf of an agent execution.
+     */
+    public Map<String, Object> executeToolWithRetry(
+            AgentActionType actionType,
+            Map<String, Object> parameters,
+            int maxRetries,
+            UUID executionId) {
+        return executeToolWithRetry(actionType, parameters, maxRetries, executionId, ToolBudget.UNLIMITED);
+    }
+
+    /**
+     * Execute with retry logic within the execution's budget.
+     * No retry is started (and no backoff slept) past the deadline.
+     */
+    public Map<String, Object> executeToolWithRetry(
+            AgentActionType actionType,
+            Map<String, Object> parameters,
+            int maxRetries,
+            UUID executionId,
+            ToolBudget budget) {
 
         int attempt = 0;
         Map<String, Object> lastResult = null;
 
         while (attempt < maxRetries) {
             attempt++;
-            lastResult = executeTool(actionType, parameters);
+            lastResult = executeTool(actionType, parameters, executionId, budget);
 
             // Success - return
             if (lastResult.get("success") == Boolean.TRUE) {
@@ -150,9 +309,15 @@ public class AgentToolRegistry {
                 return lastResult;
             }
 
+            // Out of time - a retry would only be rejected
+            if (budget.shouldAbort()) {
+                log.warn("⏱️ Budget spent, stopping retries for {}", actionType);
+                return lastResult;
+            }
+
             // Retry with exponential backoff
             if (attempt < maxRetries) {
-                long backoffMs = (long) (Math.pow(2, attempt) * 1000);
+                long backoffMs = budget.capWaitMillis((long) (Math.pow(2, attempt) * 1000));
                 log.warn("⚠️ {} failed (attempt {}/{}), retry in {}ms",
                         actionType, attempt, maxRetries, backoffMs);
                 try {
@@ -167,16 +332,190 @@ public class AgentToolRegistry {
         return lastResult;
     }
 
+    /**
+     * Execute independent tool calls concurrently.
+     *
+     * Each call goes through executeTool (cache, circuit breaker, validation)
+     * on the agent tool executor and is bounded by its own timeout - the
+     * PlannedAction override if set, else the tool's getTimeout(). A call
+     * that overruns is cancelled - its thread is interrupted and its budget
+     * reports shouldAbort(), so tools stop at their next safe point and
+     * close their browser - and reported as a failed result with
+     * "timedOut" = true; the other calls are unaffected.
+     *
+     * Every result carries "durationMs": how long that call itself ran.
+     *
+     * @param actions Independent actions to run
+     * @param executionId Calling agent execution (null outside an agent run)
+     * @return Results in the same order as actions
+     */
+    public List<Map<String, Object>> executeToolsConcurrently(
+            List<PlannedAction> actions,
+            UUID executionId) {
+        return executeToolsConcurrently(actions, executionId, ToolBudget.UNLIMITED);
+    }
+
+    /**
+     * Execute independent tool calls concurrently within the execution's
+     * budget: each call's timeout is also capped by the time left until
+     * the deadline.
+     */
+    public List<Map<String, Object>> executeToolsConcurrently(
+            List<PlannedAction> actions,
+            UUID executionId,
+            ToolBudget budget) {
+
+        // FutureTask rather than CompletableFuture: cancel(true) has to interrupt the tool thread
+        List<FutureTask<Map<String, Object>>> tasks = new ArrayList<>(actions.size());
+        List<AtomicBoolean> cancelled = new ArrayList<>(actions.size());
+        for (PlannedAction action : actions) {
+            AtomicBoolean callCancelled = new AtomicBoolean(false);
+            ToolBudget callBudget = budget.withCancellation(callCancelled::get);
+            FutureTask<Map<String, Object>> task = new FutureTask<>(() -> {
+                long callStartedAt = System.currentTimeMillis();
+                Map<String, Object> result = new HashMap<>(executeTool(
+                        action.getActionType(), action.getParameters(), executionId, callBudget));
+                result.put("durationMs", System.currentTimeMillis() - callStartedAt);
+                return result;
+            });
+            cancelled.add(callCancelled);
+            tasks.add(task);
+            toolExecutor.execute(task);
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(actions.size());
+        long startedAt = System.currentTimeMillis();
+
+        for (int i = 0; i < actions.size(); i++) {
+            PlannedAction action = actions.get(i);
+            FutureTask<Map<String, Object>> task = tasks.get(i);
+
+            // Timeouts run from batch start, not from when we begin waiting on this task;
+            // the execution deadline can cut them shorter
+            long toolTimeoutMs = resolveTimeoutMs(action);
+            long timeoutMs = budget.hasDeadline()
+                    ? Math.max(0, Math.min(toolTimeoutMs, budget.getDeadline().toEpochMilli() - startedAt))
+                    : toolTimeoutMs;
+            boolean deadlineBound = timeoutMs < toolTimeoutMs;
+            long remainingMs = Math.max(0, timeoutMs - (System.currentTimeMillis() - startedAt));
+
+            try {
+                results.add(task.get(remainingMs, TimeUnit.MILLISECONDS));
+
+            } catch (TimeoutException e) {
+                cancelled.get(i).set(true);
+                boolean interrupted = task.cancel(true);
+                // The timeout is the call's only breaker outcome (executeTool skips cancelled calls);
+                // running out of execution time says nothing about the tool's health
+                if (interrupted && !deadlineBound) {
+                    getTool(action.getActionType())
+                            .ifPresent(tool -> circuitBreaker.recordFailure(tool.getClass().getSimpleName()));
+                }
+                log.warn("⏱️ Tool {} timed out after {}ms{}, {}", action.getActionType(), timeoutMs,
+                        deadlineBound ? " (execution deadline)" : "",
+                        interrupted ? "interrupted" : "already finishing");
+
+                Map<String, Object> timedOut = new HashMap<>();
+                timedOut.put("success", false);
+                timedOut.put("error", "Tool timed out after " + timeoutMs + "ms");
+                timedOut.put("timedOut", true);
+                timedOut.put("durationMs", System.currentTimeMillis() - startedAt);
+                if (deadlineBound) {
+                    timedOut.put("budgetExhausted", true);
+                }
+                results.add(timedOut);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.forEach(flag -> flag.set(true));
+                tasks.forEach(t -> t.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for concurrent tool calls", e);
+
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Tool {} failed in concurrent execution", action.getActionType(), cause);
+
+                Map<String, Object> failed = new HashMap<>();
+                failed.put("success", false);
+                failed.put("error", cause.getMessage());
+                failed.put("durationMs", System.currentTimeMillis() - startedAt);
+                results.add(failed);
+            }
+        }
+
+        return results;
+    }
+
+    private static Map<String, Object> budgetExhaustedResult(String toolName) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("error", "Execution deadline reached or stop requested before " + toolName + " started");
+        result.put("budgetExhausted", true);
+        return result;
+    }
+
+    private long resolveTimeoutMs(PlannedAction action) {
+        if (action.getTimeoutMs() != null && action.getTimeoutMs() > 0) {
+            return action.getTimeoutMs();
+        }
+        return getTool(action.getActionType())
+                .map(tool -> tool.getTimeout().toMillis())
+                .orElse(DEFAULT_TOOL_TIMEOUT_MS);
+    }
+
     public List<AgentTool> getAllTools() {
         return List.copyOf(tools.values());
     }
 
+    /**
+     * Get result cache hit/miss counts for an execution.
+     */
+    public ToolResultCache.Stats getCacheStats(UUID executionId) {
+        return resultCache.getStats(executionId);
+    }
+
+    /**
+     * Drop memoised results for an action type after its data changed.
+     */
+    public void invalidateCachedResults(AgentActionType actionType) {
+        resultCache.invalidate(actionType);
+    }
+
+    /**
+     * Mark an execution as resumed from its checkpoint: until it is
+     * released, its side-effecting calls are checked against
+     * SideEffectLedger so nothing that went through before the
+     * interruption is repeated.
+     */
+    public void resumeExecution(UUID executionId) {
+        if (executionId != null) {
+            resumedExecutions.add(executionId);
+        }
+    }
+
+    /**
+     * Release per-execution cache entries once an execution finishes.
+     */
+    public void releaseExecution(UUID executionId) {
+        resultCache.releaseExecution(executionId);
+        if (executionId != null) {
+            resumedExecutions.remove(executionId);
+        }
+    }
+
     public AgentCircuitBreaker.State getCircuitState(AgentActionType actionType) {
         AgentTool tool = tools.get(actionType);
         if (tool == null) return null;
         return circuitBreaker.getState(tool.getClass().getSimpleName());
     }
 
+    /**
+     * Circuit state, error/slow-call rates, latency and rejections of every tool called so far.
+     */
+    public List<AgentCircuitBreaker.CircuitSnapshot> getCircuitSnapshots() {
+        return circuitBreaker.getSnapshots();
+    }
+
     /**
      * Get all registered tools.
      *
@@ -0,0 +1,159 @@
+package com.company.qa.service.agent.tool;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Idempotency guard for tools with external side effects (commits, pull requests).
+ *
+ * An agent resumed from its checkpoint (BaseAgent.resume) re-runs the
+ * iteration it was in when it was interrupted, so it may plan a commit or
+ * PR that already went through before the restart. AgentToolRegistry
+ * records every such call here, in Redis so it survives the restart:
+ *
+ * - STARTED (with its start time) before the tool runs
+ * - COMPLETED with the tool's result once it succeeds
+ * - removed again if it fails (safe to retry)
+ *
+ * In a resumed execution, a repeated call with the same action type,
+ * parameters and fingerprint (AgentTool.sideEffectFingerprint, e.g. the
+ * committed files' contents) gets the recorded result back
+ * ("alreadyApplied" = true) instead of running again. A call found STARTED
+ * was interrupted mid-flight; the tool is asked (AgentTool.findAppliedResult)
+ * whether it took effect after it started before it is run again.
+ *
+ * Key format: "agent:side-effect:{executionId}:{actionType}:{sha256 of normalised parameters and fingerprint}"
+ * TTL: 24 hours, matching the agent context.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SideEffectLedger {
+
+    private static final String KEY_PREFIX = "agent:side-effect:";
+    private static final Duration TTL = Duration.ofHours(24);
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private static final String STATE = "state";
+    private static final String RESULT = "result";
+    private static final String STARTED_AT = "startedAt";
+    private static final String STARTED = "STARTED";
+    private static final String COMPLETED = "COMPLETED";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Result of an earlier call with the same parameters that already took effect.
+     *
+     * @return The earlier result marked "alreadyApplied", or empty if the call should run
+     */
+    public Optional<Map<String, Object>> findApplied(AgentTool tool, Map<String, Object> parameters,
+                                                     UUID executionId) {
+        String key = buildKey(tool, parameters, executionId);
+        Map<String, Object> entry = read(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> applied = null;
+        if (COMPLETED.equals(entry.get(STATE))) {
+            applied = toMap(entry.get(RESULT));
+        } else if (STARTED.equals(entry.get(STATE))) {
+            // Interrupted mid-call: only the tool can tell whether it went through
+            Instant startedAt = entry.get(STARTED_AT) instanceof Number millis
+                    ? Instant.ofEpochMilli(millis.longValue())
+                    : Instant.EPOCH;
+            applied = tool.findAppliedResult(parameters, startedAt);
+            if (applied != null) {
+                write(key, COMPLETED, applied);
+            }
+        }
+
+        if (applied == null) {
+            return Optional.empty();
+        }
+
+        log.info("🔁 Not repeating {} for execution {} - already applied", tool.getActionType(), executionId);
+        Map<String, Object> result = new HashMap<>(applied);
+        result.put("alreadyApplied", true);
+        return Optional.of(result);
+    }
+
+    /**
+     * Record that a call is about to run.
+     */
+    public void started(AgentTool tool, Map<String, Object> parameters, UUID executionId) {
+        write(buildKey(tool, parameters, executionId), STARTED, null);
+    }
+
+    /**
+     * Record a call that succeeded, with its result.
+     */
+    public void completed(AgentTool tool, Map<String, Object> parameters, UUID executionId,
+                          Map<String, Object> result) {
+        write(buildKey(tool, parameters, executionId), COMPLETED, result);
+    }
+
+    /**
+     * Forget a call that failed, so it may be retried.
+     */
+    public void failed(AgentTool tool, Map<String, Object> parameters, UUID executionId) {
+        try {
+            redisTemplate.delete(buildKey(tool, parameters, executionId));
+        } catch (Exception e) {
+            log.warn("Failed to clear side-effect record for {}: {}", tool.getActionType(), e.getMessage());
+        }
+    }
+
+    private String buildKey(AgentTool tool, Map<String, Object> parameters, UUID executionId) {
+        String fingerprint = tool.sideEffectFingerprint(parameters);
+        String identity = ToolResultCache.normalise(parameters) + (fingerprint != null ? "#" + fingerprint : "");
+        return KEY_PREFIX + executionId + ":" + tool.getActionType().name() + ":"
+                + DigestUtils.sha256Hex(identity);
+    }
+
+    private Map<String, Object> read(String key) {
+        try {
+            Object json = redisTemplate.opsForValue().get(key);
+            return json != null ? objectMapper.readValue(json.toString(), MAP_TYPE) : null;
+        } catch (Exception e) {
+            log.warn("Failed to read side-effect record {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, String state, Map<String, Object> result) {
+        try {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put(STATE, state);
+            if (STARTED.equals(state)) {
+                entry.put(STARTED_AT, System.currentTimeMillis());
+            }
+            if (result != null) {
+                entry.put(RESULT, result);
+            }
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(entry), TTL);
+        } catch (Exception e) {
+            // The guard is best effort - never fail the tool call because of it
+            log.warn("Failed to write side-effect record {}: {}", key, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(Object value) {
+        return value instanceof Map<?, ?> map ? (Map<String, Object>) map : null;
+    }
+}
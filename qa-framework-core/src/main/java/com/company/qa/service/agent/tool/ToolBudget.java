@@ -0,0 +1,161 @@
+package com.company.qa.service.agent.tool;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.BooleanSupplier;
+
+/**
+ * What is left of an agent execution's budget when a tool is called.
+ *
+ * Built by BaseAgent before every tool call from the execution deadline
+ * (AgentConfig.maxDurationSeconds), the unspent AI cost (AgentConfig.maxAICost
+ * and any shared sweep pool) and the orchestrator's stop flag, and passed to
+ * AgentTool.execute(parameters, budget).
+ *
+ * Long-running tools use it to:
+ * - shrink Playwright timeouts to the time left (capTimeoutMs)
+ * - cap AI output tokens to what the remaining cost can pay for (maxAffordableTokens)
+ * - check between runs whether to stop early (shouldAbort)
+ *
+ * Calls made outside an agent run get UNLIMITED.
+ */
+public final class ToolBudget {
+
+    /**
+     * No deadline, no cost limit, never stopped.
+     */
+    public static final ToolBudget UNLIMITED = new ToolBudget(null, null, () -> false, () -> false);
+
+    /**
+     * Timeouts are never shrunk below this, so a nearly spent budget still
+     * fails fast with a Playwright timeout rather than a zero-wait error.
+     */
+    static final int MIN_TIMEOUT_MS = 1_000;
+
+    /**
+     * Smallest AI response worth asking for.
+     */
+    static final int MIN_MAX_TOKENS = 256;
+
+    private final Instant deadline;
+    private final Double remainingAICost;
+    private final BooleanSupplier stopRequested;
+    private final BooleanSupplier cancelled;
+
+    private ToolBudget(Instant deadline, Double remainingAICost, BooleanSupplier stopRequested,
+                       BooleanSupplier cancelled) {
+        this.deadline = deadline;
+        this.remainingAICost = remainingAICost;
+        this.stopRequested = stopRequested;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @param deadline When the execution must finish (null = no deadline)
+     * @param remainingAICost Unspent AI cost in USD (null = no limit)
+     * @param stopRequested Whether the execution has been asked to stop
+     */
+    public static ToolBudget of(Instant deadline, Double remainingAICost, BooleanSupplier stopRequested) {
+        return new ToolBudget(deadline, remainingAICost, stopRequested != null ? stopRequested : () -> false,
+                () -> false);
+    }
+
+    /**
+     * The same budget, additionally stopped once cancelled returns true.
+     * Used to tell a single concurrent call it has been given up on.
+     */
+    public ToolBudget withCancellation(BooleanSupplier cancelled) {
+        BooleanSupplier stopped = stopRequested;
+        BooleanSupplier alreadyCancelled = this.cancelled;
+        BooleanSupplier anyCancelled = () -> alreadyCancelled.getAsBoolean() || cancelled.getAsBoolean();
+        return new ToolBudget(deadline, remainingAICost,
+                () -> stopped.getAsBoolean() || anyCancelled.getAsBoolean(), anyCancelled);
+    }
+
+    /**
+     * Whether this call has been given up on (see withCancellation). Whoever
+     * cancelled it has already accounted for its outcome.
+     */
+    public boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+
+    public boolean hasDeadline() {
+        return deadline != null;
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Milliseconds until the deadline (0 once passed, Long.MAX_VALUE without one).
+     */
+    public long remainingMillis() {
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+    }
+
+    public boolean isExpired() {
+        return deadline != null && !Instant.now().isBefore(deadline);
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested.getAsBoolean();
+    }
+
+    /**
+     * Whether a tool should stop at its next safe point.
+     */
+    public boolean shouldAbort() {
+        return isExpired() || isStopRequested() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Unspent AI cost in USD, or null without a cost limit.
+     */
+    public Double getRemainingAICost() {
+        return remainingAICost;
+    }
+
+    /**
+     * A timeout no longer than the time left (but at least MIN_TIMEOUT_MS).
+     */
+    public int capTimeoutMs(int timeoutMs) {
+        if (deadline == null) {
+            return timeoutMs;
+        }
+        long capped = Math.min(timeoutMs, remainingMillis());
+        return (int) Math.max(MIN_TIMEOUT_MS, capped);
+    }
+
+    /**
+     * A wait no longer than the time left (no minimum).
+     */
+    public long capWaitMillis(long waitMs) {
+        return Math.min(waitMs, remainingMillis());
+    }
+
+    /**
+     * Output tokens the remaining AI cost can pay for.
+     *
+     * @param costPer1kTokens Blended price of 1K tokens in USD
+     * @return Token ceiling (at least MIN_MAX_TOKENS), or null without a cost limit
+     */
+    public Integer maxAffordableTokens(double costPer1kTokens) {
+        if (remainingAICost == null || costPer1kTokens <= 0) {
+            return null;
+        }
+        double affordable = Math.max(0.0, remainingAICost) / costPer1kTokens * 1000;
+        return (int) Math.max(MIN_MAX_TOKENS, Math.min(Integer.MAX_VALUE, affordable));
+    }
+
+    @Override
+    public String toString() {
+        return "ToolBudget{remainingMs=" + (deadline != null ? remainingMillis() : "∞")
+                + ", remainingAICost=" + (remainingAICost != null ? String.format("%.4f", remainingAICost) : "∞")
+                + "}";
+    }
+}
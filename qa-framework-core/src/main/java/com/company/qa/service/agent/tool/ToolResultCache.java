@@ -0,0 +1,217 @@
+package com.company.qa.service.agent.tool;
+
+import com.company.qa.model.enums.AgentActionType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Memoises results of idempotent agent tools.
+ *
+ * Agents call the same read-only tools with identical parameters across
+ * iterations and retries (registry lookups, page captures, failure analysis
+ * of the same error). Tools opt in via AgentTool.isIdempotent() and choose
+ * a TTL and scope; AgentToolRegistry consults this cache before executing.
+ *
+ * Cache key: scope + action type + SHA-256 of the normalised parameters
+ * (keys sorted recursively, null values dropped, strings trimmed).
+ *
+ * Only successful results are cached. Hit/miss counts are tracked per
+ * execution and reported in AgentResult.
+ */
+@Slf4j
+@Component
+public class ToolResultCache {
+
+    @Value("${agent.tool-cache.max-entries:500}")
+    private int maxEntries = 500;
+
+    private final Map<String, CachedResult> entries = new ConcurrentHashMap<>();
+    private final Map<UUID, Counters> countersByExecution = new ConcurrentHashMap<>();
+
+    /**
+     * Look up a cached result.
+     *
+     * @param tool Tool being executed
+     * @param parameters Tool parameters
+     * @param executionId Calling execution (may be null outside an agent run)
+     * @return Copy of the cached result, or empty on miss
+     */
+    public Optional<Map<String, Object>> get(AgentTool tool, Map<String, Object> parameters, UUID executionId) {
+        String key = buildKey(tool, parameters, executionId);
+        if (key == null) {
+            return Optional.empty();
+        }
+
+        CachedResult cached = entries.get(key);
+        if (cached == null || cached.isExpired()) {
+            if (cached != null) {
+                entries.remove(key, cached);
+            }
+            counters(executionId).ifPresent(c -> c.misses.incrementAndGet());
+            return Optional.empty();
+        }
+
+        counters(executionId).ifPresent(c -> c.hits.incrementAndGet());
+        log.debug("♻️  Tool cache hit: {} ({})", tool.getActionType(), tool.getResultCacheScope());
+        return Optional.of(new HashMap<>(cached.result));
+    }
+
+    /**
+     * Store a successful result.
+     */
+    public void put(AgentTool tool, Map<String, Object> parameters, UUID executionId, Map<String, Object> result) {
+        if (result == null || result.get("success") != Boolean.TRUE) {
+            return;
+        }
+
+        String key = buildKey(tool, parameters, executionId);
+        if (key == null) {
+            return;
+        }
+
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+
+        long expiresAt = System.currentTimeMillis() + tool.getResultCacheTtl().toMillis();
+        UUID owner = tool.getResultCacheScope() == AgentTool.CacheScope.EXECUTION ? executionId : null;
+        entries.put(key, new CachedResult(new HashMap<>(result), expiresAt, owner));
+    }
+
+    /**
+     * Get hit/miss counts for an execution.
+     */
+    public Stats getStats(UUID executionId) {
+        Counters counters = executionId != null ? countersByExecution.get(executionId) : null;
+        if (counters == null) {
+            return new Stats(0, 0);
+        }
+        return new Stats(counters.hits.get(), counters.misses.get());
+    }
+
+    /**
+     * Drop execution-scoped entries and stats once an execution finishes.
+     */
+    public void releaseExecution(UUID executionId) {
+        if (executionId == null) {
+            return;
+        }
+        countersByExecution.remove(executionId);
+        entries.values().removeIf(cached -> executionId.equals(cached.executionId));
+    }
+
+    /**
+     * Invalidate all cached results for an action type (e.g. after the
+     * data behind a read-only tool has been changed by another tool).
+     */
+    public void invalidate(AgentActionType actionType) {
+        String marker = ":" + actionType.name() + ":";
+        entries.keySet().removeIf(key -> key.contains(marker));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // ========== KEYING ==========
+
+    private String buildKey(AgentTool tool, Map<String, Object> parameters, UUID executionId) {
+        String scope;
+        if (tool.getResultCacheScope() == AgentTool.CacheScope.GLOBAL) {
+            scope = "global";
+        } else if (executionId != null) {
+            scope = executionId.toString();
+        } else {
+            // Execution-scoped tool called outside an execution - nothing to scope to
+            return null;
+        }
+
+        String normalised = normalise(parameters);
+        return scope + ":" + tool.getActionType().name() + ":" + DigestUtils.sha256Hex(normalised);
+    }
+
+    /**
+     * Render parameters in a canonical form so that equivalent maps
+     * (different key order, null entries, surrounding whitespace) share a key.
+     */
+    public static String normalise(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendNormalised(sb, value);
+        return sb.toString();
+    }
+
+    private static void appendNormalised(StringBuilder sb, Object value) {
+        if (value instanceof Map<?, ?> map) {
+            TreeMap<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> {
+                if (k != null && v != null) {
+                    sorted.put(k.toString(), v);
+                }
+            });
+            sb.append('{');
+            sorted.forEach((k, v) -> {
+                sb.append(k).append('=');
+                appendNormalised(sb, v);
+                sb.append(';');
+            });
+            sb.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            sb.append('[');
+            collection.forEach(item -> {
+                appendNormalised(sb, item);
+                sb.append(',');
+            });
+            sb.append(']');
+        } else if (value instanceof CharSequence text) {
+            sb.append('"').append(text.toString().trim()).append('"');
+        } else {
+            sb.append(value);
+        }
+    }
+
+    // ========== HOUSEKEEPING ==========
+
+    private void evict() {
+        entries.entrySet().removeIf(e -> e.getValue().isExpired());
+
+        if (entries.size() >= maxEntries) {
+            // Still full - drop the entries closest to expiry
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt))
+                    .limit(Math.max(1, maxEntries / 10))
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(entries::remove);
+        }
+    }
+
+    private Optional<Counters> counters(UUID executionId) {
+        if (executionId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(countersByExecution.computeIfAbsent(executionId, id -> new Counters()));
+    }
+
+    private record CachedResult(Map<String, Object> result, long expiresAt, UUID executionId) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private static class Counters {
+        final AtomicInteger hits = new AtomicInteger();
+        final AtomicInteger misses = new AtomicInteger();
+    }
+
+    /**
+     * Snapshot of cache effectiveness for one execution.
+     */
+    public record Stats(int hits, int misses) {
+    }
+}
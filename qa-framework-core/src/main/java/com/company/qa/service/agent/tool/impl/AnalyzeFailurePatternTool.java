@@ -15,6 +15,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -120,6 +121,7 @@ public class AnalyzeFailurePatternTool implements AgentTool {
             result.put("explanation", stabilityResult.getRootCauseExplanation());
             result.put("recommendedFix", stabilityResult.getRecommendedFix());
             result.put("testCaseName",stabilityResult.getTestName());
+            result.put("tokensUsed", aiResponse.getTokensUsed());
 
             return result;
 
@@ -133,6 +135,25 @@ public class AnalyzeFailurePatternTool implements AgentTool {
         }
     }
 
+    /**
+     * The same stability result always maps to the same root cause analysis,
+     * so repeated analysis of an identical failure is served from cache.
+     */
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    public Duration getResultCacheTtl() {
+        return Duration.ofMinutes(15);
+    }
+
+    @Override
+    public CacheScope getResultCacheScope() {
+        return CacheScope.GLOBAL;
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         if (parameters == null || !parameters.containsKey("stabilityResult")) {
@@ -9,6 +9,7 @@ import com.company.qa.model.enums.AgentActionType;
 import com.company.qa.repository.TestRepository;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
+import com.company.qa.service.agent.tool.ToolBudget;
 import com.company.qa.service.execution.PlaywrightFactory;
 import com.company.qa.service.execution.PlaywrightTestExecutor;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -33,6 +34,7 @@ import java.util.*;
  * Output:
  * - success: true/false
  * - stabilityResult: StabilityAnalysisResult JSON string
+ * - budgetExhausted: true if fewer runs were made because of the execution deadline or a stop
  * - error: error message if failed
  *
  * Browser lifecycle:
@@ -79,6 +81,15 @@ public class AnalyzeTestStabilityTool implements AgentTool {
 
     @Override
     public Map<String, Object> execute(Map<String, Object> parameters) {
+        return execute(parameters, ToolBudget.UNLIMITED);
+    }
+
+    /**
+     * Runs as many of the requested runs as the execution's budget allows;
+     * Playwright timeouts are capped to the time left.
+     */
+    @Override
+    public Map<String, Object> execute(Map<String, Object> parameters, ToolBudget budget) {
         log.info("🔍 Analyzing test stability: {}", parameters);
 
         try {
@@ -103,14 +114,23 @@ public class AnalyzeTestStabilityTool implements AgentTool {
             //   - Apple Silicon: --disable-gpu, --no-sandbox
             //   - macOS general: --disable-dev-shm-usage
             // Do NOT call Playwright.create() here — that bypasses those fixes.
+            boolean budgetExhausted = false;
+            long runsStartedAt = System.currentTimeMillis();
             Browser browser = playwrightFactory.createBrowser();
             try {
                 for (int i = 0; i < runCount; i++) {
-                    // Cooperative cancellation: check interrupt flag before every run.
-                    // AgentOrchestrator.stopAgent() calls future.cancel(true) which sets this flag.
-                    if (Thread.currentThread().isInterrupted()) {
-                        log.info("🛑 Stop requested — aborting run loop at run {}/{}", i + 1, runCount);
-                        Thread.currentThread().interrupt(); // restore for BaseAgent
+                    // Cooperative cancellation before every run: AgentOrchestrator.stopAgent()
+                    // sets the stop flag and interrupts; the deadline comes from ToolBudget.
+                    if (budget.shouldAbort()) {
+                        log.info("🛑 Stop requested or deadline reached — aborting run loop at run {}/{}",
+                                i + 1, runCount);
+                        budgetExhausted = true;
+                        break;
+                    }
+                    if (i > 0 && budget.hasDeadline()
+                            && (System.currentTimeMillis() - runsStartedAt) / i > budget.remainingMillis()) {
+                        log.info("⏱️ Not enough time left for run {}/{} — stopping", i + 1, runCount);
+                        budgetExhausted = true;
                         break;
                     }
 
@@ -119,6 +139,9 @@ public class AnalyzeTestStabilityTool implements AgentTool {
                     // Fresh context + page per run = full isolation (separate cookies, auth state)
                     BrowserContext browserContext = browser.newContext();
                     Page page = browserContext.newPage();
+                    int timeoutMs = budget.capTimeoutMs(playwrightFactory.getDefaultTimeoutMs());
+                    page.setDefaultTimeout(timeoutMs);
+                    page.setDefaultNavigationTimeout(timeoutMs);
 
                     try {
                         List<TestStep> steps = parseTestSteps(test.getContent());
@@ -180,14 +203,14 @@ public class AnalyzeTestStabilityTool implements AgentTool {
 
             double flakinessScore = 0.0;
             if (isFlaky) {
-                double failureRate = (double) failedRuns / runCount;
+                double failureRate = (double) failedRuns / results.size();
                 flakinessScore = 4 * failureRate * (1 - failureRate); // peaks at 50% failure rate
             }
 
             StabilityAnalysisResult analysisResult = StabilityAnalysisResult.builder()
                     .testId(testId.toString())
                     .testName(test.getName())
-                    .totalRuns(runCount)
+                    .totalRuns(results.size())
                     .passedRuns((int) passedRuns)
                     .failedRuns((int) failedRuns)
                     .pattern(pattern.toString())
@@ -207,6 +230,7 @@ public class AnalyzeTestStabilityTool implements AgentTool {
             result.put("isFlaky",         isFlaky);
             result.put("passedRuns",      passedRuns);
             result.put("failedRuns",      failedRuns);
+            result.put("budgetExhausted", budgetExhausted);
             return result;
 
         } catch (Exception e) {
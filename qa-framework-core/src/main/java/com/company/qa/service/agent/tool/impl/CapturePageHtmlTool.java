@@ -4,6 +4,7 @@ import com.company.qa.model.enums.AgentActionType;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
 import com.company.qa.service.execution.PlaywrightFactory;
+import com.company.qa.service.playwright.DomDistiller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.LoadState;
@@ -12,24 +13,29 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Tool to capture page HTML for AI analysis.
  *
- * Navigates to the page where failure occurred and captures full HTML.
- * Returns relevant HTML section for locator discovery.
+ * Navigates to the page where failure occurred and captures its HTML.
+ * By default the DOM is distilled in the page (DomDistiller) down to
+ * visible, interactive elements and their locator-relevant attributes,
+ * instead of sending raw markup truncated at 50KB.
  *
  * Input parameters:
  * - pageUrl: URL of the page
  * - selectorContext: Optional CSS selector to limit HTML to relevant section
+ * - distill: Optional, false to return raw HTML (default: true)
  *
  * Output:
  * - success: true/false
- * - fullHtml: Complete page HTML
- * - relevantHtml: Filtered HTML (if selectorContext provided)
- * - htmlLength: Size of HTML captured
+ * - relevantHtml: Distilled (or raw) HTML of the selected section
+ * - htmlLength: Size of relevantHtml
+ * - rawHtmlLength: Size of the raw HTML of the selected section
+ * - compressionRatio: rawHtmlLength / htmlLength
  * - error: Error message if failed
  *
  * @author QA Framework
@@ -43,6 +49,9 @@ public class CapturePageHtmlTool implements AgentTool {
     private final PlaywrightFactory playwrightFactory;
     private final ObjectMapper objectMapper;
     private final AgentToolRegistry toolRegistry;
+    private final DomDistiller domDistiller;
+
+    private static final int MAX_HTML_LENGTH = 50000;
 
     @PostConstruct
     public void register() {
@@ -76,6 +85,7 @@ public class CapturePageHtmlTool implements AgentTool {
         try {
             String pageUrl = (String) parameters.get("pageUrl");
             String selectorContext = (String) parameters.getOrDefault("selectorContext", "body");
+            boolean distill = !"false".equalsIgnoreCase(String.valueOf(parameters.get("distill")));
 
             log.info("Navigating to: {}", pageUrl);
 
@@ -88,35 +98,53 @@ public class CapturePageHtmlTool implements AgentTool {
             page.navigate(pageUrl);
             page.waitForLoadState(LoadState.NETWORKIDLE);
 
-            // Capture full HTML
-            String fullHtml = page.content();
-
-            // Capture relevant section if selector provided
-            String relevantHtml = fullHtml;
+            // Capture raw HTML of the relevant section
+            String rawHtml = page.content();
             if (selectorContext != null && !selectorContext.equals("body")) {
                 try {
                     ElementHandle element = page.querySelector(selectorContext);
                     if (element != null) {
-                        relevantHtml = (String) element.evaluate("el => el.outerHTML");
+                        rawHtml = (String) element.evaluate("el => el.outerHTML");
                     }
                 } catch (Exception e) {
                     log.warn("Could not extract section {}, using full HTML", selectorContext);
                 }
             }
 
+            String relevantHtml = rawHtml;
+            boolean distilled = false;
+            if (distill) {
+                try {
+                    String distilledHtml = domDistiller.distill(page, selectorContext);
+                    if (!distilledHtml.isBlank()) {
+                        relevantHtml = distilledHtml;
+                        distilled = true;
+                    }
+                } catch (Exception e) {
+                    log.warn("DOM distillation failed, falling back to raw HTML: {}", e.getMessage());
+                }
+            }
+
             // Limit HTML size for AI (max 50KB to keep token cost down)
-            if (relevantHtml.length() > 50000) {
+            if (relevantHtml.length() > MAX_HTML_LENGTH) {
                 log.warn("HTML too large ({} chars), truncating to 50KB", relevantHtml.length());
-                relevantHtml = relevantHtml.substring(0, 50000);
+                relevantHtml = relevantHtml.substring(0, MAX_HTML_LENGTH);
             }
 
-            log.info("✅ Captured {} chars of HTML", relevantHtml.length());
+            double compressionRatio = relevantHtml.isEmpty()
+                    ? 0.0
+                    : Math.round(rawHtml.length() * 100.0 / relevantHtml.length()) / 100.0;
+
+            log.info("✅ Captured {} chars of HTML (raw {} chars, {}x smaller)",
+                    relevantHtml.length(), rawHtml.length(), compressionRatio);
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("fullHtml", fullHtml);
             result.put("relevantHtml", relevantHtml);
             result.put("htmlLength", relevantHtml.length());
+            result.put("rawHtmlLength", rawHtml.length());
+            result.put("compressionRatio", compressionRatio);
+            result.put("distilled", distilled);
             result.put("pageUrl", pageUrl);
 
             return result;
@@ -139,6 +167,33 @@ public class CapturePageHtmlTool implements AgentTool {
         }
     }
 
+    /**
+     * Same URL and selector produce the same DOM within a short window,
+     * so captures are shared across executions.
+     */
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    public Duration getResultCacheTtl() {
+        return Duration.ofMinutes(2);
+    }
+
+    @Override
+    public CacheScope getResultCacheScope() {
+        return CacheScope.GLOBAL;
+    }
+
+    /**
+     * Page loads that take longer than this won't yield usable HTML anyway.
+     */
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofSeconds(60);
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null && parameters.containsKey("pageUrl");
@@ -149,6 +204,7 @@ public class CapturePageHtmlTool implements AgentTool {
         Map<String, String> schema = new HashMap<>();
         schema.put("pageUrl", "string (required) - URL of the page to capture");
         schema.put("selectorContext", "string (optional) - CSS selector to limit HTML (default: body)");
+        schema.put("distill", "boolean (optional) - Distil DOM to locator-relevant elements (default: true)");
         return schema;
     }
 }
\ No newline at end of file
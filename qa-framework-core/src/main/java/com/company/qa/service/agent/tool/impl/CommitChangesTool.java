@@ -2,16 +2,26 @@ package com.company.qa.service.agent.tool.impl;
 
 import com.company.qa.model.dto.GitOperationRequest;
 import com.company.qa.model.dto.GitOperationResult;
+import com.company.qa.model.entity.GitCommitHistory;
 import com.company.qa.model.entity.GitConfiguration;
 import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.model.enums.GitOperationStatus;
+import com.company.qa.model.enums.GitOperationType;
+import com.company.qa.repository.GitCommitHistoryRepository;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
 import com.company.qa.service.git.GitService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +33,9 @@ import java.util.Map;
  * - Commits specified files to branch
  * - Tracks operation in database
  * - Returns commit SHA
+ *
+ * Has external side effects: a resumed execution never commits the same
+ * file contents twice (see SideEffectLedger).
  */
 @Component
 @Slf4j
@@ -31,6 +44,7 @@ public class CommitChangesTool implements AgentTool {
 
     private final GitService gitService;
     private final AgentToolRegistry toolRegistry;
+    private final GitCommitHistoryRepository commitHistoryRepository;
 
     @PostConstruct
     public void register() {
@@ -125,6 +139,72 @@ public class CommitChangesTool implements AgentTool {
         }
     }
 
+    @Override
+    public boolean hasExternalSideEffects() {
+        return true;
+    }
+
+    /**
+     * The same paths with different contents are a different commit.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public String sideEffectFingerprint(Map<String, Object> parameters) {
+        List<String> filePaths = (List<String>) parameters.get("filePaths");
+        if (filePaths == null) {
+            return null;
+        }
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (String filePath : filePaths) {
+            DigestUtils.updateDigest(digest, filePath + "\0");
+            try {
+                DigestUtils.updateDigest(digest, Files.readAllBytes(Path.of(filePath)));
+            } catch (Exception e) {
+                // GitService fails the commit for a missing file; it still needs a stable key
+                DigestUtils.updateDigest(digest, "<unreadable>");
+            }
+            DigestUtils.updateDigest(digest, "\0");
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * An interrupted commit went through if the branch has a successful
+     * commit of the same files with the same message, recorded after the
+     * interrupted call started.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> findAppliedResult(Map<String, Object> parameters, Instant startedAt) {
+        String branchName = (String) parameters.get("branchName");
+        String commitMessage = (String) parameters.get("commitMessage");
+        List<String> filePaths = (List<String>) parameters.get("filePaths");
+
+        return commitHistoryRepository.findByBranchNameOrderByCreatedAtDesc(branchName).stream()
+                .filter(history -> history.getOperationType() == GitOperationType.COMMIT)
+                .filter(history -> history.getOperationStatus() == GitOperationStatus.SUCCESS)
+                .filter(history -> history.getCommitSha() != null)
+                .filter(history -> history.getCreatedAt() != null && !history.getCreatedAt().isBefore(startedAt))
+                .filter(history -> commitMessage != null && commitMessage.equals(history.getCommitMessage()))
+                .filter(history -> filePaths != null && filePaths.equals(history.getFilesCommitted()))
+                .findFirst()
+                .map(history -> toResult(history, commitMessage))
+                .orElse(null);
+    }
+
+    private Map<String, Object> toResult(GitCommitHistory history, String commitMessage) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("commitSha", history.getCommitSha());
+        result.put("branchName", history.getBranchName());
+        result.put("commitMessage", commitMessage);
+        result.put("filesCommitted", history.getFilesCommitted() != null ? history.getFilesCommitted().size() : 0);
+        result.put("commitHistoryId", history.getId());
+        result.put("operationType", history.getOperationType());
+        return result;
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null &&
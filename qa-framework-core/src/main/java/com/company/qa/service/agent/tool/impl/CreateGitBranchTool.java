@@ -110,6 +110,11 @@ public class CreateGitBranchTool implements AgentTool {
         }
     }
 
+    @Override
+    public boolean hasExternalSideEffects() {
+        return true;
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null &&
@@ -4,6 +4,7 @@ import com.company.qa.model.dto.GitOperationRequest;
 import com.company.qa.model.dto.PullRequestInfo;
 import com.company.qa.model.entity.GitConfiguration;
 import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.repository.GitCommitHistoryRepository;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
 import com.company.qa.service.git.GitService;
@@ -12,6 +13,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +25,9 @@ import java.util.Map;
  * - Creates PR against base branch (configured in GitConfiguration)
  * - Sets title and description
  * - Returns PR number and URL
+ *
+ * Has external side effects: a resumed execution never opens a second PR
+ * for the same branch (see SideEffectLedger).
  */
 @Component
 @Slf4j
@@ -31,6 +36,7 @@ public class CreatePullRequestTool implements AgentTool {
 
     private final GitService gitService;
     private final AgentToolRegistry toolRegistry;
+    private final GitCommitHistoryRepository commitHistoryRepository;
 
     @PostConstruct
     public void register() {
@@ -125,6 +131,38 @@ public class CreatePullRequestTool implements AgentTool {
         }
     }
 
+    @Override
+    public boolean hasExternalSideEffects() {
+        return true;
+    }
+
+    /**
+     * An interrupted PR creation went through if GitService recorded a PR
+     * number on the branch's latest commit history entry (where it records
+     * them) after the interrupted call started. PRs recorded earlier, or on
+     * older entries, belong to other calls.
+     */
+    @Override
+    public Map<String, Object> findAppliedResult(Map<String, Object> parameters, Instant startedAt) {
+        String branchName = (String) parameters.get("branchName");
+
+        return commitHistoryRepository.findByBranchNameOrderByCreatedAtDesc(branchName).stream()
+                .findFirst()
+                .filter(history -> history.getPrNumber() != null)
+                .filter(history -> history.getUpdatedAt() != null && !history.getUpdatedAt().isBefore(startedAt))
+                .map(history -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", true);
+                    result.put("pullRequestUrl", history.getPrUrl());
+                    result.put("pullRequestNumber", history.getPrNumber());
+                    result.put("title", parameters.get("title"));
+                    result.put("branchName", branchName);
+                    result.put("storyKey", parameters.get("storyKey"));
+                    return result;
+                })
+                .orElse(null);
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null &&
@@ -4,15 +4,25 @@ import com.company.qa.model.dto.SecureAIRequest;
 import com.company.qa.model.dto.SecureAIResponse;
 import com.company.qa.model.enums.AgentActionType;
 import com.company.qa.model.enums.UserRole;
+import com.company.qa.service.agent.AgentContextCompactor;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
+import com.company.qa.service.agent.tool.ToolBudget;
 import com.company.qa.service.ai.AIGatewayService;
+import com.company.qa.service.execution.PlaywrightFactory;
+import com.company.qa.service.playwright.LocatorCandidateEngine;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.options.LoadState;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -20,20 +30,25 @@ import java.util.*;
  *
  * When registry has no alternatives, this tool:
  * 1. Takes page HTML
- * 2. Asks AI to find the element
- * 3. Returns suggested locators in priority order
+ * 2. Scores its elements against the broken locator locally
+ *    (LocatorCandidateEngine) and checks the best candidates on the live
+ *    page with locator.count()
+ * 3. Only if no candidate passes, asks AI to find the element
+ * 4. Returns suggested locators in priority order
  *
  * Input parameters:
  * - pageHtml: HTML content of the page
  * - brokenLocator: The locator that failed
  * - elementPurpose: What the element does
  * - pageName: Name of the page
+ * - pageUrl: Optional, page to validate heuristic candidates against
  *
  * Output:
  * - success: true/false
  * - suggestions: List of suggested locators
  * - primarySuggestion: Best suggestion
  * - aiReasoning: Why AI chose these locators
+ * - source: "heuristic" or "ai"
  * - error: Error message if failed
  *
  * @author QA Framework
@@ -47,6 +62,20 @@ public class DiscoverLocatorTool implements AgentTool {
     private final AIGatewayService aiGateway;
     private final ObjectMapper objectMapper;
     private final AgentToolRegistry toolRegistry;
+    private final LocatorCandidateEngine candidateEngine;
+    private final PlaywrightFactory playwrightFactory;
+    private final AgentContextCompactor contextCompactor;
+
+    @Value("${agent.self-healing.heuristic.enabled:true}")
+    private boolean heuristicEnabled = true;
+
+    @Value("${agent.self-healing.heuristic.min-score:0.55}")
+    private double heuristicMinScore = 0.55;
+
+    @Value("${agent.self-healing.heuristic.live-validation:true}")
+    private boolean liveValidation = true;
+
+    private static final int MAX_HEURISTIC_CANDIDATES = 3;
 
     @PostConstruct
     public void register() {
@@ -72,6 +101,15 @@ public class DiscoverLocatorTool implements AgentTool {
 
     @Override
     public Map<String, Object> execute(Map<String, Object> parameters) {
+        return execute(parameters, ToolBudget.UNLIMITED);
+    }
+
+    /**
+     * The AI response is capped to the tokens the execution's remaining
+     * AI budget can pay for.
+     */
+    @Override
+    public Map<String, Object> execute(Map<String, Object> parameters, ToolBudget budget) {
         log.info("🤖 Using AI to discover new locator");
 
         try {
@@ -82,6 +120,32 @@ public class DiscoverLocatorTool implements AgentTool {
             String actionType = parameters.get("actionType") == null ? "unknown" : (String) parameters.get("actionType");
             String stepLocator = parameters.get("stepLocator") == null ? "unknown" : (String) parameters.get("stepLocator");
 
+            // Try local candidates first - renames don't need the AI
+            if (heuristicEnabled) {
+                // Extraction may not have identified the locator - fall back to the failing step's
+                String locatorToMatch = brokenLocator;
+                if ((locatorToMatch == null || locatorToMatch.isBlank() || "UNKNOWN".equalsIgnoreCase(locatorToMatch))
+                        && parameters.get("originalLocator") instanceof String original) {
+                    locatorToMatch = original;
+                }
+                List<Map<String, Object>> heuristic = discoverHeuristically(
+                        pageHtml, locatorToMatch, elementPurpose, actionType, (String) parameters.get("pageUrl"));
+                if (!heuristic.isEmpty()) {
+                    log.info("✅ Heuristic discovery found {} locator(s) - skipping AI", heuristic.size());
+
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", true);
+                    result.put("suggestions", heuristic);
+                    result.put("primarySuggestion", heuristic.get(0));
+                    result.put("aiReasoning", "Matched locally against page HTML");
+                    result.put("totalSuggestions", heuristic.size());
+                    result.put("source", "heuristic");
+                    result.put("tokensUsed", 0);
+                    return result;
+                }
+                log.info("No heuristic candidate passed validation, falling back to AI");
+            }
+
             // Build discovery prompt
             String prompt = buildDiscoveryPrompt(pageHtml, brokenLocator, elementPurpose, pageName, actionType, stepLocator);
 
@@ -93,6 +157,7 @@ public class DiscoverLocatorTool implements AgentTool {
                     .operationType(SecureAIRequest.OperationType.LOCATOR_DISCOVERY)
                     .userId(UUID.randomUUID())
                     .userRole(UserRole.QA_ENGINEER)
+                    .maxTokens(budget.maxAffordableTokens(AIGatewayService.BLENDED_COST_PER_1K_TOKENS))
                     .testName(pageName + " - " + elementPurpose)
                     .build();
 
@@ -132,6 +197,8 @@ public class DiscoverLocatorTool implements AgentTool {
             result.put("primarySuggestion", suggestions.isEmpty() ? null : suggestions.get(0));
             result.put("aiReasoning", discoveryResult.get("reasoning"));
             result.put("totalSuggestions", suggestions.size());
+            result.put("source", "ai");
+            result.put("tokensUsed", aiResponse.getTokensUsed());
 
             return result;
 
@@ -149,6 +216,85 @@ public class DiscoverLocatorTool implements AgentTool {
         }
     }
 
+    /**
+     * Score page elements against the broken locator and keep the
+     * candidates that pass validation.
+     *
+     * Candidates above the minimum score are checked on the live page
+     * (exactly one match via locator.count()) when a pageUrl is given and
+     * live validation is enabled; otherwise uniqueness within the captured
+     * HTML, enforced by the engine, is the only check.
+     */
+    private List<Map<String, Object>> discoverHeuristically(String pageHtml, String brokenLocator,
+                                                           String elementPurpose, String actionType,
+                                                           String pageUrl) {
+        List<LocatorCandidateEngine.Candidate> candidates = candidateEngine
+                .generate(pageHtml, brokenLocator, elementPurpose, actionType, MAX_HEURISTIC_CANDIDATES)
+                .stream()
+                .filter(candidate -> candidate.score() >= heuristicMinScore)
+                .toList();
+
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        if (liveValidation && pageUrl != null && !pageUrl.isBlank()) {
+            candidates = validateOnPage(pageUrl, candidates);
+        }
+
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (LocatorCandidateEngine.Candidate candidate : candidates) {
+            Map<String, Object> suggestion = new HashMap<>();
+            suggestion.put("locator", candidate.locator());
+            suggestion.put("strategy", candidate.strategy());
+            suggestion.put("confidence", candidate.score());
+            suggestion.put("reasoning", candidate.reasoning());
+            suggestions.add(suggestion);
+        }
+        return suggestions;
+    }
+
+    private List<LocatorCandidateEngine.Candidate> validateOnPage(
+            String pageUrl, List<LocatorCandidateEngine.Candidate> candidates) {
+
+        Browser browser = null;
+        BrowserContext context = null;
+        try {
+            browser = playwrightFactory.createBrowser();
+            context = playwrightFactory.createContext(browser, "locator-validation");
+            Page page = playwrightFactory.createPage(context);
+            page.navigate(pageUrl);
+            page.waitForLoadState(LoadState.DOMCONTENTLOADED);
+
+            List<LocatorCandidateEngine.Candidate> valid = new ArrayList<>();
+            for (LocatorCandidateEngine.Candidate candidate : candidates) {
+                try {
+                    int count = page.locator(candidate.locator()).count();
+                    if (count == 1) {
+                        valid.add(candidate);
+                    } else {
+                        log.debug("Candidate {} matched {} elements on live page", candidate.locator(), count);
+                    }
+                } catch (Exception e) {
+                    log.debug("Candidate {} is not a valid selector: {}", candidate.locator(), e.getMessage());
+                }
+            }
+            return valid;
+
+        } catch (Exception e) {
+            log.warn("Live locator validation failed for {}: {}", pageUrl, e.getMessage());
+            return List.of();
+
+        } finally {
+            if (context != null) {
+                playwrightFactory.closeContext(context);
+            }
+            if (browser != null) {
+                playwrightFactory.closeBrowser(browser);
+            }
+        }
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null &&
@@ -157,6 +303,14 @@ public class DiscoverLocatorTool implements AgentTool {
                 parameters.containsKey("elementPurpose");
     }
 
+    /**
+     * A model call taking longer than this means the AI provider is struggling.
+     */
+    @Override
+    public Duration getSlowCallThreshold() {
+        return Duration.ofSeconds(45);
+    }
+
     @Override
     public Map<String, String> getParameterSchema() {
         Map<String, String> schema = new HashMap<>();
@@ -164,6 +318,7 @@ public class DiscoverLocatorTool implements AgentTool {
         schema.put("brokenLocator", "string (required) - Broken locator");
         schema.put("elementPurpose", "string (required) - Element purpose");
         schema.put("pageName", "string (optional) - Page name");
+        schema.put("pageUrl", "string (optional) - Page URL for validating heuristic candidates");
         return schema;
     }
 
@@ -187,8 +342,9 @@ public class DiscoverLocatorTool implements AgentTool {
         return """
         You are analyzing a broken test locator and need to suggest alternatives.
         
-        BROKEN LOCATOR: %s
+        %s
         ELEMENT PURPOSE: %s
+        %s
         PAGE: %s
         
         PAGE HTML:
@@ -252,7 +408,7 @@ public class DiscoverLocatorTool implements AgentTool {
         - Playwright API calls
         - getByRole, getByLabel, getByPlaceholder
         - Any code with parentheses or method calls
-        """.formatted(locatorContext, purpose, actionContext, pageName, html);
+        """.formatted(locatorContext, purpose, actionContext, pageName, contextCompactor.fitSection(html));
     }
 
     /**
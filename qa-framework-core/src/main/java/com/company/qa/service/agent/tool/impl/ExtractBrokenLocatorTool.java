@@ -6,6 +6,7 @@ import com.company.qa.model.intent.IntentTestStep;
 import com.company.qa.service.agent.TestContentResolver;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
+import com.company.qa.service.playwright.HealedLocatorService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +29,7 @@ import java.util.regex.Pattern;
  * - errorMessage: Failure error message
  * - testContent: Test code content (JSON steps)
  * - failedStepIndex: Which step failed (optional)
+ * - pageUrl: URL of the page the test fails on (optional, narrows the healed-locator memo lookup)
  *
  * Output:
  * - success: true/false
@@ -36,6 +38,8 @@ import java.util.regex.Pattern;
  * - locatorValue: Value part of locator
  * - pageName: Inferred page name
  * - elementPurpose: What the element does (e.g., "submit button")
+ * - healedLocator: Verified replacement from the healed-locator memo (if another test was already healed)
+ * - healedConfidence: Confidence of that replacement
  * - error: Error message if failed
  *
  * @author QA Framework
@@ -49,6 +53,7 @@ public class ExtractBrokenLocatorTool implements AgentTool {
     private final ObjectMapper objectMapper;
     private final AgentToolRegistry toolRegistry;
     private final TestContentResolver contentResolver;
+    private final HealedLocatorService healedLocatorService;
 
 
     // ─── AFTER ───────────────────────────────────────────────────────────────────
@@ -168,6 +173,15 @@ public class ExtractBrokenLocatorTool implements AgentTool {
             result.put("extractedFromContent", extractedFromContent);
             result.put("originalErrorMessage", errorMessage);
 
+            // Another test may already have healed this locator on this page
+            String pageUrl = (String) parameters.get("pageUrl");
+            healedLocatorService.lookup(pageUrl, brokenLocator).ifPresent(healed -> {
+                result.put("healedLocator", healed.getHealedLocator());
+                result.put("healedConfidence", healed.getConfidence().doubleValue());
+                log.info("🧠 Healed-locator memo hit: {} → {}",
+                        healed.getBrokenLocator(), healed.getHealedLocator());
+            });
+
             log.info("✅ Extracted broken locator: {} (from {}) on page: {}",
                     brokenLocator,
                     extractedFromContent ? "test content" : "error message",
@@ -260,6 +274,14 @@ public class ExtractBrokenLocatorTool implements AgentTool {
         return null;
     }
 
+    /**
+     * Pure parsing of the error message and test content.
+     */
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null &&
@@ -273,6 +295,7 @@ public class ExtractBrokenLocatorTool implements AgentTool {
         schema.put("errorMessage", "string (required) - Test failure error message");
         schema.put("testContent", "string (required) - Test code content (JSON)");
         schema.put("failedStepIndex", "integer (optional) - Index of failed step");
+        schema.put("pageUrl", "string (optional) - URL of the page the test fails on");
         return schema;
     }
 
@@ -6,8 +6,10 @@ import com.company.qa.model.dto.SecureAIResponse;
 import com.company.qa.model.enums.AgentActionType;
 import com.company.qa.model.enums.FlakyRootCause;
 import com.company.qa.model.enums.UserRole;
+import com.company.qa.service.agent.AgentContextCompactor;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
+import com.company.qa.service.agent.tool.ToolBudget;
 import com.company.qa.service.ai.AIGatewayService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -15,6 +17,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -43,6 +46,7 @@ public class GenerateFixTool implements AgentTool {
     private final AIGatewayService aiGateway;
     private final ObjectMapper objectMapper;
     private final AgentToolRegistry toolRegistry;
+    private final AgentContextCompactor contextCompactor;
 
     @PostConstruct
     public void register() {
@@ -68,6 +72,15 @@ public class GenerateFixTool implements AgentTool {
 
     @Override
     public Map<String, Object> execute(Map<String, Object> parameters) {
+        return execute(parameters, ToolBudget.UNLIMITED);
+    }
+
+    /**
+     * The AI response is capped to the tokens the execution's remaining
+     * AI budget can pay for.
+     */
+    @Override
+    public Map<String, Object> execute(Map<String, Object> parameters, ToolBudget budget) {
         log.info("🔧 Generating fix for flaky test: {}", parameters.keySet());
 
         try {
@@ -94,6 +107,7 @@ public class GenerateFixTool implements AgentTool {
                     .operationType(SecureAIRequest.OperationType.FIX_SUGGESTION)
                     .userId(UUID.randomUUID())
                     .userRole(UserRole.QA_ENGINEER)
+                    .maxTokens(budget.maxAffordableTokens(AIGatewayService.BLENDED_COST_PER_1K_TOKENS))
                     .testName(result.getTestName())
                     .build();
 
@@ -118,6 +132,7 @@ public class GenerateFixTool implements AgentTool {
             successResult.put("fixStrategy", fixResult.get("fixStrategy"));
             successResult.put("confidence", fixResult.get("confidence"));
             successResult.put("attemptNumber", attemptNumber);
+            successResult.put("tokensUsed", aiResponse.getTokensUsed());
 
             return successResult;
 
@@ -138,6 +153,14 @@ public class GenerateFixTool implements AgentTool {
                 parameters.containsKey("testCode");
     }
 
+    /**
+     * A model call taking longer than this means the AI provider is struggling.
+     */
+    @Override
+    public Duration getSlowCallThreshold() {
+        return Duration.ofSeconds(45);
+    }
+
     @Override
     public Map<String, String> getParameterSchema() {
         Map<String, String> schema = new HashMap<>();
@@ -216,7 +239,7 @@ public class GenerateFixTool implements AgentTool {
                 result.getTotalRuns(),
                 attemptNumber,
                 testCode,
-                String.join("\n", result.getErrorMessages()),
+                contextCompactor.fitSection(String.join("\n", result.getErrorMessages())),
                 strategyGuidance,
                 rootCause.getDisplayName(),
                 attemptNumber
@@ -142,6 +142,15 @@ public class QueryElementRegistryTool implements AgentTool {
         }
     }
 
+    /**
+     * Registry lookups are read-only; memoised per execution.
+     * UpdateElementRegistryTool invalidates them when it changes the registry.
+     */
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null &&
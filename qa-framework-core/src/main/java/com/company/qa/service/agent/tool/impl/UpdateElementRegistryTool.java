@@ -5,6 +5,7 @@ import com.company.qa.model.enums.AgentActionType;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
 import com.company.qa.service.playwright.ElementRegistryService;
+import com.company.qa.service.playwright.HealedLocatorService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -24,6 +25,7 @@ import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Tool to update Element Registry with discovered locators.
@@ -34,6 +36,8 @@ import java.util.Map;
  * - Marks old locator as deprecated
  * - Saves back to file
  * - Reloads ElementRegistryService
+ * - Records the verified fix in the healed-locator memo (HealedLocatorService)
+ *   so other tests using the broken locator on the page are healed too
  *
  * Input parameters:
  * - pageName: Page where element is located
@@ -41,12 +45,16 @@ import java.util.Map;
  * - workingLocator: The locator that now works
  * - brokenLocator: The locator that was broken (mark as deprecated)
  * - strategy: Locator strategy (role, testid, css, etc.)
- * - discoveredBy: "registry" or "ai"
+ * - discoveredBy: "registry", "memo", "heuristic" or "ai"
+ * - pageUrl: URL of the page the fix was verified on (optional, memo key)
+ * - confidence: Confidence of the working locator, 0-1 (optional)
+ * - testId / agentExecutionId: Provenance for the memo entry (optional)
  *
  * Output:
  * - success: true/false
  * - updated: true if registry was updated
  * - message: Description of what was updated
+ * - memoised: true if the fix was recorded in the healed-locator memo
  * - error: Error message if failed
  *
  * @author QA Framework
@@ -61,6 +69,7 @@ public class UpdateElementRegistryTool implements AgentTool {
     private final AgentToolRegistry toolRegistry;
     private final ElementRegistryService registryService;
     private final PlaywrightProperties playwrightProperties;  // already a Spring bean
+    private final HealedLocatorService healedLocatorService;
 
 
     @PostConstruct
@@ -106,6 +115,8 @@ public class UpdateElementRegistryTool implements AgentTool {
             log.info("  Working Locator: {}", workingLocator);
             log.info("  Broken Locator: {}", brokenLocator);
 
+            boolean memoised = recordHealedLocator(parameters, brokenLocator, workingLocator, discoveredBy);
+
             // Load current registry
             Path registryPath = getRegistryFilePath();
             JsonNode root = loadRegistry(registryPath);
@@ -120,11 +131,15 @@ public class UpdateElementRegistryTool implements AgentTool {
             // Reload service to pick up changes
             registryService.loadRegistry();
 
+            // Memoised registry lookups are now stale
+            toolRegistry.invalidateCachedResults(AgentActionType.QUERY_ELEMENT_REGISTRY);
+
             log.info("✅ Registry updated and reloaded successfully");
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("updated", true);
+            result.put("memoised", memoised);
             result.put("message", String.format("Added %s locator for %s on %s page",
                     strategy, elementName, pageName));
 
@@ -140,6 +155,37 @@ public class UpdateElementRegistryTool implements AgentTool {
         }
     }
 
+    /**
+     * Memo write is independent of the registry file: a registry I/O error
+     * must not lose the fix for other tests, and vice versa.
+     */
+    private boolean recordHealedLocator(Map<String, Object> parameters, String brokenLocator,
+                                        String workingLocator, String discoveredBy) {
+        try {
+            Object confidence = parameters.get("confidence");
+            return healedLocatorService.record(
+                    (String) parameters.get("pageUrl"),
+                    brokenLocator,
+                    workingLocator,
+                    confidence instanceof Number n ? n.doubleValue() : 1.0,
+                    discoveredBy,
+                    toUuid(parameters.get("testId")),
+                    toUuid(parameters.get("agentExecutionId"))).isPresent();
+        } catch (Exception e) {
+            log.warn("⚠️ Could not record healed locator memo: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private UUID toUuid(Object value) {
+        if (value == null) return null;
+        try {
+            return UUID.fromString(value.toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @Override
     public boolean validateParameters(Map<String, Object> parameters) {
         return parameters != null &&
@@ -157,6 +203,10 @@ public class UpdateElementRegistryTool implements AgentTool {
         schema.put("brokenLocator", "string (optional) - Broken locator to deprecate");
         schema.put("strategy", "string (optional) - Locator strategy");
         schema.put("discoveredBy", "string (optional) - Discovery method");
+        schema.put("pageUrl", "string (optional) - URL of the page the fix was verified on");
+        schema.put("confidence", "number (optional) - Confidence of the working locator (0-1)");
+        schema.put("testId", "string (optional) - Test that was healed");
+        schema.put("agentExecutionId", "string (optional) - Agent execution that verified the fix");
         return schema;
     }
 
@@ -8,6 +8,7 @@ import com.company.qa.model.enums.AgentActionType;
 import com.company.qa.repository.TestRepository;
 import com.company.qa.service.agent.tool.AgentTool;
 import com.company.qa.service.agent.tool.AgentToolRegistry;
+import com.company.qa.service.agent.tool.ToolBudget;
 import com.company.qa.service.execution.PlaywrightFactory;
 import com.company.qa.service.execution.PlaywrightTestExecutor;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -41,8 +42,14 @@ import java.util.*;
  * - passedRuns: Number that passed
  * - failedRuns: Number that failed
  * - pattern: Pass/fail pattern (e.g., "PPPPP" = all pass)
+ * - budgetExhausted: true if runs were cut short by the execution deadline or a stop
  * - error: Error message if failed
  *
+ * Budget (ToolBudget):
+ *   Playwright timeouts are capped to the time left, and no run is started
+ *   that the remaining time can't fit (estimated from the runs so far).
+ *   A verification cut short is never reported as stable.
+ *
  * Browser lifecycle:
  *   Browser is created once via PlaywrightFactory (which handles Apple Silicon
  *   --disable-gpu / --no-sandbox args automatically). A fresh BrowserContext+Page
@@ -87,6 +94,11 @@ public class VerifyFixTool implements AgentTool {
 
     @Override
     public Map<String, Object> execute(Map<String, Object> parameters) {
+        return execute(parameters, ToolBudget.UNLIMITED);
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> parameters, ToolBudget budget) {
         log.info("🔍 Verifying fix for test: {}", parameters.get("testId"));
 
         try {
@@ -113,13 +125,22 @@ public class VerifyFixTool implements AgentTool {
             //   - Apple Silicon: --disable-gpu, --no-sandbox
             //   - macOS general: --disable-dev-shm-usage
             // Do NOT call Playwright.create() here — that bypasses those fixes.
+            boolean budgetExhausted = false;
+            long runsStartedAt = System.currentTimeMillis();
             Browser browser = playwrightFactory.createBrowser();
             try {
                 for (int i = 0; i < runCount; i++) {
-                    // Cooperative cancellation: check interrupt flag before every run.
-                    if (Thread.currentThread().isInterrupted()) {
-                        log.info("🛑 Stop requested — aborting verification loop at run {}/{}", i + 1, runCount);
-                        Thread.currentThread().interrupt();
+                    // Cooperative cancellation: stop request, interrupt or execution deadline
+                    if (budget.shouldAbort()) {
+                        log.info("🛑 Stop requested or deadline reached — aborting verification loop at run {}/{}",
+                                i + 1, runCount);
+                        budgetExhausted = true;
+                        break;
+                    }
+                    if (i > 0 && budget.hasDeadline()
+                            && (System.currentTimeMillis() - runsStartedAt) / i > budget.remainingMillis()) {
+                        log.info("⏱️ Not enough time left for run {}/{} — stopping verification", i + 1, runCount);
+                        budgetExhausted = true;
                         break;
                     }
 
@@ -128,6 +149,9 @@ public class VerifyFixTool implements AgentTool {
                     // Fresh context + page per run = full isolation
                     BrowserContext browserContext = browser.newContext();
                     Page page = browserContext.newPage();
+                    int timeoutMs = budget.capTimeoutMs(playwrightFactory.getDefaultTimeoutMs());
+                    page.setDefaultTimeout(timeoutMs);
+                    page.setDefaultNavigationTimeout(timeoutMs);
 
                     try {
                         List<TestStep> steps = parseTestSteps(test.getContent());
@@ -198,8 +222,8 @@ public class VerifyFixTool implements AgentTool {
             long passedRuns = results.stream().filter(r -> r).count();
             long failedRuns  = results.stream().filter(r -> !r).count();
 
-            // Stable ONLY if every single run passed
-            boolean isStable = failedRuns == 0;
+            // Stable ONLY if every requested run was made and passed
+            boolean isStable = failedRuns == 0 && !budgetExhausted && results.size() == runCount;
 
             log.info("{} - Verification complete: {} ({} P, {} F)",
                     isStable ? "✅ STABLE" : "❌ STILL FLAKY",
@@ -208,7 +232,9 @@ public class VerifyFixTool implements AgentTool {
             Map<String, Object> result = new HashMap<>();
             result.put("success",       true);
             result.put("isStable",      isStable);
-            result.put("totalRuns",     runCount);
+            result.put("totalRuns",     results.size());
+            result.put("requestedRuns", runCount);
+            result.put("budgetExhausted", budgetExhausted);
             result.put("passedRuns",    (int) passedRuns);
             result.put("failedRuns",    (int) failedRuns);
             result.put("pattern",       pattern.toString());
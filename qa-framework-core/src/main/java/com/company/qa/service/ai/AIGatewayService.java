@@ -18,7 +18,10 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import com.company.qa.service.ai.AIUsageTrackingService.AIUsageRequest;
 
 /**
@@ -29,6 +32,8 @@ import com.company.qa.service.ai.AIUsageTrackingService.AIUsageRequest;
  * - Data sanitization (PII/secret removal)
  * - Response validation
  * - Complete audit logging
+ * - Response caching (identical sanitised requests are answered from AIResponseCache)
+ * - Single-flight calls (identical concurrent requests share one model call, see AIRequestCoalescer)
  *
  * CRITICAL: All AI requests MUST go through this gateway.
  */
@@ -45,6 +50,8 @@ public class AIGatewayService {
     // Add this field to AIGatewayService
     private final ApprovalRequestService approvalRequestService;
     private final AIUsageTrackingService usageTrackingService;
+    private final AIResponseCache responseCache;
+    private final AIRequestCoalescer requestCoalescer;
 
     /**
      * Generate a test through the secure gateway.
@@ -93,9 +100,27 @@ public class AIGatewayService {
                     .framework(request.getFramework())
                     .language(request.getLanguage())
                     .targetUrl(request.getTargetUrl())
+                    .cacheablePrefix(request.getCacheablePrefix())
+                    .temperature(request.getTemperature())
                     .build();
 
-            AIResponse aiResponse = aiService.generateTest(aiRequest);
+            String cacheKey = request.isCacheable()
+                    ? responseCache.buildKey(determineAIProvider(), AITaskType.TEST_GENERATION,
+                            aiRequest.getDescription(), aiRequest.getFramework(),
+                            aiRequest.getLanguage(), aiRequest.getTargetUrl())
+                    : null;
+            Optional<AIResponseCache.Hit> cacheHit = responseCache.get(cacheKey, AITaskType.TEST_GENERATION);
+            AIStreamConsumer streamConsumer = request.getStreamConsumer();
+            AIResponse aiResponse = cacheHit
+                    .map(hit -> fromCache(hit, AITaskType.TEST_GENERATION))
+                    .orElseGet(() -> streamConsumer != null
+                            // The consumer may stop this generation early - never share it
+                            ? aiService.generateTest(aiRequest, streamConsumer)
+                            : requestCoalescer.execute(cacheKey, () -> await(aiService.generateTestAsync(aiRequest))));
+
+            if (AIStreamAccumulator.isAborted(aiResponse)) {
+                return createStreamAbortedResponse(requestId, request, aiResponse, startTime, "test_generation");
+            }
 
             // Step 4: Validate response
             ValidationResult validationResult = responseValidator.validate(
@@ -107,6 +132,10 @@ public class AIGatewayService {
                         "test_generation", validationResult);
                 return createValidationFailedResponse(requestId, validationResult);
             }
+            if (cacheHit.isEmpty() && !AIRequestCoalescer.isSharedFollower(aiResponse)) {
+                responseCache.put(cacheKey, AITaskType.TEST_GENERATION, aiResponse.getProvider(),
+                        aiResponse.getContent(), aiResponse.getTokensUsed());
+            }
 
             // Step 5: Record usage (existing rate limiter tracking)
             rateLimiterService.recordTokenUsage(request.getUserId(), aiResponse.getTokensUsed());
@@ -115,7 +144,9 @@ public class AIGatewayService {
 
             // ⭐ NEW Step 5.5: Track AI usage for cost analytics
             long processingTime = System.currentTimeMillis() - startTime;
-            trackAIUsage(request, aiResponse, processingTime, true, null);
+            if (cacheHit.isEmpty()) {
+                trackAIUsage(request, aiResponse, processingTime, true, null);
+            }
 
             // Step 6: Log success
             long duration = System.currentTimeMillis() - startTime;
@@ -123,7 +154,7 @@ public class AIGatewayService {
                     "test_generation", sanitizationResult, aiResponse, duration);
 
             // Step 7: Return secure response
-            return SecureAIResponse.builder()
+            return withCacheMetadata(SecureAIResponse.builder()
                     .requestId(requestId)
                     .success(true)
                     .content(aiResponse.getContent())
@@ -134,7 +165,7 @@ public class AIGatewayService {
                     .validationPassed(true)
                     .processingTimeMs(duration)
                     .timestamp(Instant.now())
-                    .build();
+                    .build(), cacheKey, cacheHit, aiResponse);
 
         } catch (Exception e) {
             log.error("Error in AI Gateway for user {}: {}", request.getUserId(), e.getMessage(), e);
@@ -187,9 +218,22 @@ public class AIGatewayService {
                     .errorMessage(sanitizationResult.getSanitizedContent())
                     .stackTrace(request.getStackTrace())
                     .executionId(request.getExecutionId())
+                    .maxTokens(request.getMaxTokens())
                     .build();
 
-            AIResponse aiResponse = aiService.analyzeFailure(aiRequest);
+            String cacheKey = request.isCacheable()
+                    ? responseCache.buildKey(determineAIProvider(), AITaskType.FAILURE_ANALYSIS,
+                            aiRequest.getTestName(), aiRequest.getErrorMessage(), aiRequest.getStackTrace())
+                    : null;
+            Optional<AIResponseCache.Hit> cacheHit = responseCache.get(cacheKey, AITaskType.FAILURE_ANALYSIS);
+            // Only calls with the same token ceiling may share one answer
+            String coalesceKey = cacheKey != null && aiRequest.getMaxTokens() != null
+                    ? cacheKey + "|maxTokens=" + aiRequest.getMaxTokens()
+                    : cacheKey;
+            AIResponse aiResponse = cacheHit
+                    .map(hit -> fromCache(hit, AITaskType.FAILURE_ANALYSIS))
+                    .orElseGet(() -> requestCoalescer.execute(coalesceKey,
+                            () -> await(aiService.analyzeFailureAsync(aiRequest))));
 
             // Step 4: Validate response
             ValidationResult validationResult = responseValidator.validate(
@@ -200,6 +244,12 @@ public class AIGatewayService {
                         "failure_analysis", validationResult);
                 return createValidationFailedResponse(requestId, validationResult);
             }
+            // A response cut short by a token ceiling is not stored for uncapped callers
+            if (cacheHit.isEmpty() && aiRequest.getMaxTokens() == null
+                    && !AIRequestCoalescer.isSharedFollower(aiResponse)) {
+                responseCache.put(cacheKey, AITaskType.FAILURE_ANALYSIS, aiResponse.getProvider(),
+                        aiResponse.getContent(), aiResponse.getTokensUsed());
+            }
 
             // Step 5: Record usage and log
             rateLimiterService.recordTokenUsage(request.getUserId(), aiResponse.getTokensUsed());
@@ -210,7 +260,7 @@ public class AIGatewayService {
             auditLogService.logSuccessfulRequest(requestId, request.getUserId(),
                     "failure_analysis", sanitizationResult, aiResponse, duration);
 
-            return SecureAIResponse.builder()
+            return withCacheMetadata(SecureAIResponse.builder()
                     .requestId(requestId)
                     .success(true)
                     .content(aiResponse.getContent())
@@ -221,7 +271,7 @@ public class AIGatewayService {
                     .validationPassed(true)
                     .processingTimeMs(duration)
                     .timestamp(Instant.now())
-                    .build();
+                    .build(), cacheKey, cacheHit, aiResponse);
 
         } catch (Exception e) {
             log.error("Error in AI Gateway: {}", e.getMessage(), e);
@@ -230,6 +280,12 @@ public class AIGatewayService {
         }
     }
 
+    /**
+     * Blended price of 1K tokens under calculateCost's 30/70 input/output split.
+     * Used to turn a remaining USD budget into a token ceiling.
+     */
+    public static final double BLENDED_COST_PER_1K_TOKENS = 0.3 * 0.003 + 0.7 * 0.015;
+
     /**
      * Calculate estimated cost based on tokens used.
      *
@@ -249,6 +305,55 @@ public class AIGatewayService {
         return inputCost + outputCost;
     }
 
+    /**
+     * Wait for a call started through an AIService async variant. Bedrock's
+     * async client and the router's hedged calls then hold no thread of their
+     * own while the model answers; only this caller waits. An interrupted
+     * caller stops waiting (the in-flight slot is released when the call ends).
+     */
+    private static AIResponse await(CompletableFuture<AIResponse> call) {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the AI provider", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("AI provider call failed", e.getCause());
+        }
+    }
+
+    /**
+     * Turn a cached response into the AIResponse the model call would have returned.
+     * Nothing is spent again, so tokensUsed is 0 (the original count is in the hit).
+     */
+    private AIResponse fromCache(AIResponseCache.Hit hit, AITaskType taskType) {
+        AIResponse response = AIResponse.success(hit.content(),
+                hit.provider() != null ? hit.provider() : determineAIProvider(), taskType);
+        response.setTokensUsed(0);
+        response.addMetadata("cacheHit", true);
+        response.addMetadata("cacheTier", hit.tier().name());
+        return response;
+    }
+
+    /**
+     * Add cache and call-sharing metadata to a successful response.
+     */
+    private SecureAIResponse withCacheMetadata(SecureAIResponse response, String cacheKey,
+                                               Optional<AIResponseCache.Hit> cacheHit, AIResponse aiResponse) {
+        response.setCacheKey(cacheKey);
+        response.setSharedWith(AIRequestCoalescer.sharedWith(aiResponse));
+        cacheHit.ifPresent(hit -> {
+            response.setCacheHit(true);
+            response.setCacheTier(hit.tier().name());
+            response.setTokensSaved(hit.tokensSaved());
+        });
+        return response;
+    }
+
     /**
      * Create rate limit exceeded response.
      */
@@ -298,6 +403,34 @@ public class AIGatewayService {
         return response;
     }
 
+    /**
+     * Create response for a generation its stream consumer aborted.
+     * The tokens generated until then were spent, so usage is still recorded.
+     */
+    private SecureAIResponse createStreamAbortedResponse(UUID requestId, SecureAIRequest request,
+                                                         AIResponse aiResponse, long startTime, String operation) {
+        log.warn("AI generation aborted by stream consumer for user {}", request.getUserId());
+
+        int tokensUsed = aiResponse.getTokensUsed() != null ? aiResponse.getTokensUsed() : 0;
+        double estimatedCost = calculateCost(tokensUsed);
+        rateLimiterService.recordTokenUsage(request.getUserId(), tokensUsed);
+        rateLimiterService.recordCost(request.getUserId(), estimatedCost);
+
+        long processingTime = System.currentTimeMillis() - startTime;
+        trackAIUsage(request, aiResponse, processingTime, false, aiResponse.getErrorMessage());
+        auditLogService.logError(requestId, request.getUserId(), operation, aiResponse.getErrorMessage());
+
+        return SecureAIResponse.builder()
+                .requestId(requestId)
+                .success(false)
+                .errorMessage(aiResponse.getErrorMessage())
+                .tokensUsed(tokensUsed)
+                .estimatedCost(estimatedCost)
+                .processingTimeMs(processingTime)
+                .timestamp(Instant.now())
+                .build();
+    }
+
     /**
      * Create generic error response.
      */
@@ -359,9 +492,28 @@ public class AIGatewayService {
                     .framework(request.getFramework())
                     .language(request.getLanguage())
                     .targetUrl(request.getTargetUrl())
+                    .cacheablePrefix(request.getCacheablePrefix())
+                    .temperature(request.getTemperature())
                     .build();
 
-            AIResponse aiResponse = aiService.generateTest(aiRequest);
+            String cacheKey = request.isCacheable()
+                    ? responseCache.buildKey(determineAIProvider(), AITaskType.TEST_GENERATION,
+                            aiRequest.getDescription(), aiRequest.getFramework(),
+                            aiRequest.getLanguage(), aiRequest.getTargetUrl())
+                    : null;
+            Optional<AIResponseCache.Hit> cacheHit = responseCache.get(cacheKey, AITaskType.TEST_GENERATION);
+            AIStreamConsumer streamConsumer = request.getStreamConsumer();
+            AIResponse aiResponse = cacheHit
+                    .map(hit -> fromCache(hit, AITaskType.TEST_GENERATION))
+                    .orElseGet(() -> streamConsumer != null
+                            // The consumer may stop this generation early - never share it
+                            ? aiService.generateTest(aiRequest, streamConsumer)
+                            : requestCoalescer.execute(cacheKey, () -> await(aiService.generateTestAsync(aiRequest))));
+
+            if (AIStreamAccumulator.isAborted(aiResponse)) {
+                return createStreamAbortedResponse(requestId, request, aiResponse, startTime,
+                        "test_generation_approval");
+            }
 
             // Step 4: Validate response
             ValidationResult validationResult = responseValidator.validate(
@@ -373,6 +525,10 @@ public class AIGatewayService {
                         "test_generation_approval", validationResult);
                 return createValidationFailedResponse(requestId, validationResult);
             }
+            if (cacheHit.isEmpty() && !AIRequestCoalescer.isSharedFollower(aiResponse)) {
+                responseCache.put(cacheKey, AITaskType.TEST_GENERATION, aiResponse.getProvider(),
+                        aiResponse.getContent(), aiResponse.getTokensUsed());
+            }
 
             // Step 5: Record usage
             rateLimiterService.recordTokenUsage(request.getUserId(), aiResponse.getTokensUsed());
@@ -410,7 +566,7 @@ public class AIGatewayService {
                     "test_generation_approval", sanitizationResult, aiResponse, duration);
 
             // Step 8: Return response indicating approval required
-            return SecureAIResponse.builder()
+            return withCacheMetadata(SecureAIResponse.builder()
                     .requestId(requestId)
                     .success(true)
                     .content("Test generated successfully. Awaiting approval. Approval Request ID: " +
@@ -422,7 +578,7 @@ public class AIGatewayService {
                     .validationPassed(true)
                     .processingTimeMs(duration)
                     .timestamp(Instant.now())
-                    .build();
+                    .build(), cacheKey, cacheHit, aiResponse);
 
         } catch (Exception e) {
             log.error("Error in AI Gateway: {}", e.getMessage(), e);
@@ -447,6 +603,13 @@ public class AIGatewayService {
             // Extract token counts from AI response
             Integer promptTokens = null;
             Integer completionTokens = null;
+            Integer cacheReadTokens = null;
+            Integer cacheWriteTokens = null;
+
+            if (aiResponse != null && aiResponse.getMetadata() != null) {
+                cacheReadTokens = extractTokenCount(aiResponse.getMetadata(), "cacheReadTokens", "cache_read_input_tokens");
+                cacheWriteTokens = extractTokenCount(aiResponse.getMetadata(), "cacheWriteTokens", "cache_creation_input_tokens");
+            }
 
             if (aiResponse != null && aiResponse.getTokensUsed() != null) {
                 // Try to extract detailed token breakdown
@@ -467,8 +630,10 @@ public class AIGatewayService {
                 completionTokens = aiResponse != null ? estimateTokens(aiResponse.getContent()) : 0;
             }
 
-            // Determine AI provider (from configuration or aiService)
-            AIProvider provider = determineAIProvider();
+            // Determine AI provider (the one that answered, when routing across providers)
+            AIProvider provider = aiResponse != null && aiResponse.getProvider() != null
+                    ? aiResponse.getProvider()
+                    : determineAIProvider();
 
             // Build usage request
             AIUsageRequest usageRequest = AIUsageRequest.builder()
@@ -483,11 +648,14 @@ public class AIGatewayService {
                     .promptTokens(promptTokens)
                     .completionTokens(completionTokens)
                     .totalTokens(promptTokens + completionTokens)
+                    .cacheReadTokens(cacheReadTokens)
+                    .cacheWriteTokens(cacheWriteTokens)
                     .requestContentLength(request.getContent() != null ? request.getContent().length() : 0)
                     .responseContentLength(aiResponse != null && aiResponse.getContent() != null
                             ? aiResponse.getContent().length()
                             : 0)
                     .processingTimeMs(processingTimeMs)
+                    .promptBreakdown(request.getPromptBreakdown())
                     .success(success)
                     .errorMessage(errorMessage)
                     .build();
@@ -548,9 +716,14 @@ public class AIGatewayService {
 
     /**
      * Determine which AI provider is being used.
-     * This should be configurable or detected from the AI service.
+     * With AIProviderRouter this is the default provider (ai.provider).
      */
     private AIProvider determineAIProvider() {
+        AIProvider provider = aiService.getProvider();
+        if (provider != null) {
+            return provider;
+        }
+
         // Check which AI service implementation is active
         String aiServiceClass = aiService.getClass().getSimpleName();
 
@@ -13,6 +13,10 @@ import java.math.RoundingMode;
  * Pricing as of January 2025:
  * - AWS Bedrock (Amazon Nova Micro): $0.000035/1K input tokens, $0.00014/1K output tokens
  * - Ollama: Free (self-hosted)
+ *
+ * Prompt caching (Bedrock): cached input tokens are billed relative to the
+ * input rate - Claude reads at 10% and writes at 125%, Nova reads at 25%
+ * and writes at the input rate.
  */
 @Service
 @Slf4j
@@ -22,6 +26,12 @@ public class AIPricingService {
     private static final BigDecimal BEDROCK_INPUT_COST_PER_1K = new BigDecimal("0.000035");
     private static final BigDecimal BEDROCK_OUTPUT_COST_PER_1K = new BigDecimal("0.00014");
 
+    // Prompt cache multipliers on the input rate
+    private static final BigDecimal CLAUDE_CACHE_READ_MULTIPLIER = new BigDecimal("0.10");
+    private static final BigDecimal CLAUDE_CACHE_WRITE_MULTIPLIER = new BigDecimal("1.25");
+    private static final BigDecimal NOVA_CACHE_READ_MULTIPLIER = new BigDecimal("0.25");
+    private static final BigDecimal NOVA_CACHE_WRITE_MULTIPLIER = BigDecimal.ONE;
+
     // Ollama Pricing (Free)
     private static final BigDecimal OLLAMA_COST = BigDecimal.ZERO;
 
@@ -60,6 +70,34 @@ public class AIPricingService {
         return promptCost.add(completionCost).setScale(4, RoundingMode.HALF_UP);
     }
 
+    /**
+     * Calculate total cost for a request that used the provider's prompt cache.
+     *
+     * @param promptTokens All input tokens, including cacheReadTokens and cacheWriteTokens
+     * @param modelName Model the request ran on (cache rates differ per model family)
+     */
+    public BigDecimal calculateCost(AIProvider provider, String modelName, int promptTokens,
+                                    int completionTokens, int cacheReadTokens, int cacheWriteTokens) {
+        if (cacheReadTokens <= 0 && cacheWriteTokens <= 0) {
+            return calculateCost(provider, promptTokens, completionTokens);
+        }
+
+        boolean claude = modelName != null && modelName.contains("anthropic");
+        BigDecimal inputRate = getPromptCostPerToken(provider);
+        int uncachedTokens = Math.max(0, promptTokens - cacheReadTokens - cacheWriteTokens);
+
+        BigDecimal promptCost = inputRate.multiply(BigDecimal.valueOf(uncachedTokens))
+                .add(inputRate.multiply(claude ? CLAUDE_CACHE_READ_MULTIPLIER : NOVA_CACHE_READ_MULTIPLIER)
+                        .multiply(BigDecimal.valueOf(cacheReadTokens)))
+                .add(inputRate.multiply(claude ? CLAUDE_CACHE_WRITE_MULTIPLIER : NOVA_CACHE_WRITE_MULTIPLIER)
+                        .multiply(BigDecimal.valueOf(cacheWriteTokens)));
+
+        BigDecimal completionCost = getCompletionCostPerToken(provider)
+                .multiply(BigDecimal.valueOf(completionTokens));
+
+        return promptCost.add(completionCost).setScale(4, RoundingMode.HALF_UP);
+    }
+
     /**
      * Estimate cost for a given number of total tokens.
      * Assumes 60% input, 40% output ratio.
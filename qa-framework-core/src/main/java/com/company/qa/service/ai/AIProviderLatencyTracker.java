@@ -0,0 +1,239 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AITaskType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live latency and error rate of model calls, per provider, model and task
+ * type - the input for AIProviderRouter's routing and hedging decisions.
+ *
+ * Each key keeps a window of the last ai.routing.window-size calls. Latency
+ * percentiles are taken over the successful calls in the window (a fast
+ * throttling error says nothing about how long an answer takes); the error
+ * rate over all of them. Calls older than ai.routing.window-max-age-seconds
+ * no longer count, so a provider demoted for errors or slowness is tried
+ * again once its bad spell has aged out.
+ *
+ * Metrics (Micrometer, per provider/model/task):
+ * - ai.provider.calls{outcome} timer with p50/p95
+ * - ai.provider.error.rate
+ */
+@Component
+public class AIProviderLatencyTracker {
+
+    private final AIConfig aiConfig;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AIProviderLatencyTracker(AIConfig aiConfig, MeterRegistry meterRegistry) {
+        this(aiConfig, meterRegistry, Clock.systemUTC());
+    }
+
+    /**
+     * Standalone tracker with in-memory metrics (tests).
+     */
+    public AIProviderLatencyTracker(AIConfig aiConfig) {
+        this(aiConfig, new SimpleMeterRegistry());
+    }
+
+    AIProviderLatencyTracker(AIConfig aiConfig, MeterRegistry meterRegistry, Clock clock) {
+        this.aiConfig = aiConfig;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * Point-in-time view of one provider/model/task window.
+     * Latencies are -1 until minSamples successful calls are in the window.
+     */
+    public record Snapshot(
+            AIProvider provider,
+            String model,
+            AITaskType taskType,
+            int calls,
+            double errorRate,
+            long p50LatencyMs,
+            long p95LatencyMs) {
+    }
+
+    private record Key(AIProvider provider, String model, AITaskType taskType) {
+    }
+
+    private final class Window {
+        final Key key;
+        final long[] latencies;
+        final boolean[] failed;
+        final long[] recordedAtMs;
+        int cursor;
+        int size;
+
+        final Timer successTimer;
+        final Timer failureTimer;
+
+        Window(Key key) {
+            this.key = key;
+            int windowSize = Math.max(1, aiConfig.getRouting().getWindowSize());
+            this.latencies = new long[windowSize];
+            this.failed = new boolean[windowSize];
+            this.recordedAtMs = new long[windowSize];
+            this.successTimer = callTimer(key, "success");
+            this.failureTimer = callTimer(key, "failure");
+
+            Gauge.builder("ai.provider.error.rate", this, Window::errorRate)
+                    .tag("provider", key.provider().name())
+                    .tag("model", key.model())
+                    .tag("task", key.taskType().name())
+                    .register(meterRegistry);
+        }
+
+        synchronized void record(long latencyMs, boolean success) {
+            latencies[cursor] = Math.max(0, latencyMs);
+            failed[cursor] = !success;
+            recordedAtMs[cursor] = clock.millis();
+            cursor = (cursor + 1) % latencies.length;
+            size = Math.min(size + 1, latencies.length);
+        }
+
+        synchronized int calls() {
+            long oldest = oldestCountedMs();
+            int calls = 0;
+            for (int i = 0; i < size; i++) {
+                if (recordedAtMs[i] >= oldest) {
+                    calls++;
+                }
+            }
+            return calls;
+        }
+
+        synchronized double errorRate() {
+            long oldest = oldestCountedMs();
+            int calls = 0;
+            int failures = 0;
+            for (int i = 0; i < size; i++) {
+                if (recordedAtMs[i] >= oldest) {
+                    calls++;
+                    if (failed[i]) {
+                        failures++;
+                    }
+                }
+            }
+            return calls == 0 ? 0.0 : (double) failures / calls;
+        }
+
+        synchronized long percentile(double percentile) {
+            long oldest = oldestCountedMs();
+            long[] values = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!failed[i] && recordedAtMs[i] >= oldest) {
+                    values[count++] = latencies[i];
+                }
+            }
+            if (count == 0 || count < aiConfig.getRouting().getMinSamples()) {
+                return -1;
+            }
+            Arrays.sort(values, 0, count);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return values[Math.max(0, Math.min(count - 1, index))];
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(key.provider(), key.model(), key.taskType(), calls(),
+                    errorRate(), percentile(0.50), percentile(0.95));
+        }
+
+        /**
+         * Calls recorded before this no longer count (Long.MIN_VALUE = no age limit).
+         */
+        private long oldestCountedMs() {
+            long maxAgeSeconds = aiConfig.getRouting().getWindowMaxAgeSeconds();
+            return maxAgeSeconds > 0 ? clock.millis() - maxAgeSeconds * 1000 : Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Record one finished call.
+     *
+     * @param success The call returned a valid (successful) response
+     */
+    public void record(AIProvider provider, String model, AITaskType taskType, long latencyMs, boolean success) {
+        Window window = window(provider, model, taskType);
+        window.record(latencyMs, success);
+        (success ? window.successTimer : window.failureTimer).record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Latency percentile (0..1) of recent successful calls, or -1 with
+     * fewer than ai.routing.min-samples of them.
+     */
+    public long percentile(AIProvider provider, String model, AITaskType taskType, double percentile) {
+        Window window = windows.get(new Key(provider, String.valueOf(model), taskType));
+        return window != null ? window.percentile(percentile) : -1;
+    }
+
+    /**
+     * Error rate of recent calls (0 with no calls recorded).
+     */
+    public double errorRate(AIProvider provider, String model, AITaskType taskType) {
+        Window window = windows.get(new Key(provider, String.valueOf(model), taskType));
+        return window != null ? window.errorRate() : 0.0;
+    }
+
+    /**
+     * Number of calls in the window not yet aged out.
+     */
+    public int calls(AIProvider provider, String model, AITaskType taskType) {
+        Window window = windows.get(new Key(provider, String.valueOf(model), taskType));
+        return window != null ? window.calls() : 0;
+    }
+
+    public Optional<Snapshot> getSnapshot(AIProvider provider, String model, AITaskType taskType) {
+        return Optional.ofNullable(windows.get(new Key(provider, String.valueOf(model), taskType)))
+                .map(Window::snapshot);
+    }
+
+    /**
+     * Current view of every window, by provider, model and task type.
+     */
+    public List<Snapshot> getSnapshots() {
+        return windows.values().stream()
+                .map(Window::snapshot)
+                .sorted(Comparator.comparing((Snapshot snapshot) -> snapshot.provider().name())
+                        .thenComparing(Snapshot::model)
+                        .thenComparing(snapshot -> snapshot.taskType().name()))
+                .toList();
+    }
+
+    private Window window(AIProvider provider, String model, AITaskType taskType) {
+        return windows.computeIfAbsent(new Key(provider, String.valueOf(model), taskType), Window::new);
+    }
+
+    private Timer callTimer(Key key, String outcome) {
+        return Timer.builder("ai.provider.calls")
+                .description("Model call latency per provider")
+                .tag("provider", key.provider().name())
+                .tag("model", key.model())
+                .tag("task", key.taskType().name())
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+    }
+}
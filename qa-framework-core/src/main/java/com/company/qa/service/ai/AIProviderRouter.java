@@ -0,0 +1,383 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.model.dto.AIRequest;
+import com.company.qa.model.dto.AIResponse;
+import com.company.qa.model.dto.FailureAnalysisRequest;
+import com.company.qa.model.dto.TestGenerationRequest;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AIRoutingPolicy;
+import com.company.qa.model.enums.AITaskType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Routes AI calls across every enabled provider (ai.routing.enabled=true).
+ *
+ * Sits between AIGatewayService and the providers: it is the primary
+ * AIService bean, so the gateway's security layers, cache and coalescing
+ * stay in front of it unchanged.
+ *
+ * Per request:
+ * 1. Rank the providers for the task type by its policy (ai.routing.policies,
+ *    see AIRoutingPolicy). Providers whose recent error rate reaches
+ *    ai.routing.max-error-rate, and the mock provider, go last.
+ * 2. Call the first one. For task types in ai.routing.hedged-tasks, if it has
+ *    not answered within its recent hedge-percentile latency (clamped to
+ *    hedge-min/max-delay-ms), or answers with an error, the next-ranked
+ *    provider is asked too (never with only one provider). The first valid
+ *    response wins.
+ * 3. Every finished call is recorded in AIProviderLatencyTracker.
+ *
+ * The losing call of a hedge is left to finish, not cancelled: its latency
+ * is recorded, so slow providers are not hidden from the percentiles, and
+ * the tokens it spent are recorded in AIUsageTrackingService, since the
+ * gateway only sees the winning response.
+ * Streaming calls are routed but never hedged - a stream consumer belongs
+ * to one generation.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "ai.routing.enabled", havingValue = "true")
+public class AIProviderRouter implements AIService {
+
+    private final List<AIService> providers;
+    private final AIConfig aiConfig;
+    private final AIProviderLatencyTracker latencyTracker;
+    private final AIPricingService pricingService;
+    private final AIUsageTrackingService usageTrackingService;
+    private final Executor executor;
+
+    public AIProviderRouter(List<AIService> providers,
+                            AIConfig aiConfig,
+                            AIProviderLatencyTracker latencyTracker,
+                            AIPricingService pricingService,
+                            AIUsageTrackingService usageTrackingService,
+                            @Qualifier("aiRoutingExecutor") Executor executor) {
+        this.providers = providers.stream()
+                .filter(provider -> !(provider instanceof AIProviderRouter))
+                .toList();
+        this.aiConfig = aiConfig;
+        this.latencyTracker = latencyTracker;
+        this.pricingService = pricingService;
+        this.usageTrackingService = usageTrackingService;
+        this.executor = executor;
+
+        if (this.providers.isEmpty()) {
+            throw new IllegalStateException("AI routing is enabled but no AI provider is enabled");
+        }
+        log.info("🔀 AI routing across {}", this.providers.stream().map(AIService::getProvider).toList());
+    }
+
+    /**
+     * The configured default provider (ai.provider), if enabled; else the
+     * first provider for general tasks.
+     */
+    @Override
+    public AIProvider getProvider() {
+        return providers.stream()
+                .map(AIService::getProvider)
+                .filter(provider -> provider.name().equalsIgnoreCase(aiConfig.getProvider()))
+                .findFirst()
+                .orElseGet(() -> rank(AITaskType.GENERAL).get(0).getProvider());
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return providers.stream().anyMatch(AIService::isAvailable);
+    }
+
+    @Override
+    public AIResponse generateTest(TestGenerationRequest request) {
+        return route(AITaskType.TEST_GENERATION, provider -> provider.generateTest(request));
+    }
+
+    @Override
+    public AIResponse generateTest(TestGenerationRequest request, AIStreamConsumer consumer) {
+        if (consumer == null) {
+            return generateTest(request);
+        }
+        AIService provider = rank(AITaskType.TEST_GENERATION).get(0);
+        return attempt(provider, AITaskType.TEST_GENERATION,
+                p -> CompletableFuture.completedFuture(p.generateTest(request, consumer))).join();
+    }
+
+    @Override
+    public AIResponse analyzeFailure(FailureAnalysisRequest request) {
+        return route(AITaskType.FAILURE_ANALYSIS, provider -> provider.analyzeFailure(request));
+    }
+
+    @Override
+    public AIResponse suggestFix(String testCode, String errorMessage) {
+        return route(AITaskType.FIX_SUGGESTION, provider -> provider.suggestFix(testCode, errorMessage));
+    }
+
+    @Override
+    public AIResponse execute(AIRequest request) {
+        return route(taskTypeOf(request), provider -> provider.execute(request));
+    }
+
+    @Override
+    public AIResponse execute(AIRequest request, AIStreamConsumer consumer) {
+        if (consumer == null) {
+            return execute(request);
+        }
+        AITaskType taskType = taskTypeOf(request);
+        return attempt(rank(taskType).get(0), taskType,
+                p -> CompletableFuture.completedFuture(p.execute(request, consumer))).join();
+    }
+
+    @Override
+    public CompletableFuture<AIResponse> generateTestAsync(TestGenerationRequest request) {
+        return routeAsync(AITaskType.TEST_GENERATION, provider -> provider.generateTestAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<AIResponse> analyzeFailureAsync(FailureAnalysisRequest request) {
+        return routeAsync(AITaskType.FAILURE_ANALYSIS, provider -> provider.analyzeFailureAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<AIResponse> executeAsync(AIRequest request) {
+        return routeAsync(taskTypeOf(request), provider -> provider.executeAsync(request));
+    }
+
+    // ========== Routing ==========
+
+    /**
+     * Providers for a task type, best first.
+     */
+    List<AIService> rank(AITaskType taskType) {
+        AIRoutingPolicy policy = aiConfig.getRouting().policyFor(taskType);
+
+        Comparator<AIService> byCost = Comparator.comparing(this::tokenCost);
+        Comparator<AIService> bySpeed = Comparator.comparingLong(provider -> Math.max(0,
+                latencyTracker.percentile(provider.getProvider(), modelOf(provider), taskType, 0.50)));
+
+        Comparator<AIService> byPolicy = switch (policy) {
+            case CHEAPEST -> byCost.thenComparing(bySpeed);
+            case FASTEST -> bySpeed.thenComparing(byCost);
+            case LOCAL_FIRST -> Comparator.comparing((AIService provider) -> provider.getProvider() != AIProvider.OLLAMA)
+                    .thenComparing(byCost)
+                    .thenComparing(bySpeed);
+        };
+
+        return providers.stream()
+                .sorted(Comparator.comparing((AIService provider) -> provider.getProvider() == AIProvider.MOCK)
+                        .thenComparing(provider -> isUnhealthy(provider, taskType))
+                        .thenComparing(byPolicy))
+                .toList();
+    }
+
+    private AIResponse route(AITaskType taskType, Function<AIService, AIResponse> call) {
+        if (!isHedged(taskType)) {
+            return attempt(rank(taskType).get(0), taskType,
+                    provider -> CompletableFuture.completedFuture(call.apply(provider))).join();
+        }
+        return hedged(taskType, provider -> CompletableFuture.supplyAsync(() -> call.apply(provider), executor))
+                .join();
+    }
+
+    private CompletableFuture<AIResponse> routeAsync(AITaskType taskType,
+                                                     Function<AIService, CompletableFuture<AIResponse>> call) {
+        if (!isHedged(taskType)) {
+            return attempt(rank(taskType).get(0), taskType, call);
+        }
+        // Providers without a non-blocking client run the call on the calling thread
+        return hedged(taskType, provider -> CompletableFuture.supplyAsync(() -> call.apply(provider), executor)
+                .thenCompose(Function.identity()));
+    }
+
+    /**
+     * Call the first-ranked provider; ask the next one too if the first is
+     * slow or fails. Completes with the first valid response, or the first
+     * failure if neither call succeeds.
+     */
+    private CompletableFuture<AIResponse> hedged(AITaskType taskType,
+                                                 Function<AIService, CompletableFuture<AIResponse>> launch) {
+        List<AIService> ranked = rank(taskType);
+        AIService primary = ranked.get(0);
+        if (ranked.size() == 1) {
+            // Asking the same provider twice doubles its load for no new information
+            return attempt(primary, taskType, launch);
+        }
+        AIService backup = ranked.get(1);
+        long delayMs = hedgeDelayMs(primary, taskType);
+
+        FirstValid first = new FirstValid();
+        CompletableFuture<Void> primaryDone = attempt(primary, taskType, launch)
+                .thenAccept(response -> offer(first, response, primary, taskType));
+        CompletableFuture<Void> hedgeDue = CompletableFuture.runAsync(() -> { },
+                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+
+        CompletableFuture.anyOf(primaryDone, hedgeDue).thenRun(() -> {
+            if (first.result.isDone()) {
+                return;
+            }
+            log.info("⏱️ Hedging {} request: no valid answer from {} (hedge delay {}ms), also asking {}",
+                    taskType, primary.getProvider(), delayMs, backup.getProvider());
+            attempt(backup, taskType, launch).thenAccept(response -> offer(first, response, backup, taskType));
+        });
+
+        return first.result;
+    }
+
+    /**
+     * Hand a hedged call's response to the collector; a valid answer that
+     * arrives after the winner still cost tokens, so its usage is recorded.
+     */
+    private void offer(FirstValid first, AIResponse response, AIService provider, AITaskType taskType) {
+        if (first.offer(response) || !isValid(response)) {
+            return;
+        }
+        int tokens = response.getTokensUsed() != null ? response.getTokensUsed() : 0;
+        if (tokens <= 0) {
+            return;
+        }
+        log.info("💸 Losing hedged {} call to {} used {} tokens", taskType, provider.getProvider(), tokens);
+        try {
+            Integer promptTokens = tokenCount(response, "promptTokens", "input_tokens");
+            Integer completionTokens = tokenCount(response, "completionTokens", "output_tokens");
+            if (promptTokens == null || completionTokens == null) {
+                // Same 60/40 estimate as the gateway's usage tracking
+                promptTokens = (int) (tokens * 0.6);
+                completionTokens = tokens - promptTokens;
+            }
+            usageTrackingService.recordUsage(AIUsageTrackingService.AIUsageRequest.builder()
+                    .requestId(UUID.randomUUID().toString())
+                    .userName("hedged-request")
+                    .provider(provider.getProvider())
+                    .modelName(modelOf(provider))
+                    .taskType(taskType)
+                    .promptTokens(promptTokens)
+                    .completionTokens(completionTokens)
+                    .totalTokens(promptTokens + completionTokens)
+                    .responseContentLength(response.getContent() != null ? response.getContent().length() : 0)
+                    .processingTimeMs(response.getDurationMs())
+                    .success(true)
+                    .build());
+        } catch (Exception e) {
+            log.error("Failed to record losing hedged call usage: {}", e.getMessage());
+        }
+    }
+
+    private static Integer tokenCount(AIResponse response, String... keys) {
+        for (String key : keys) {
+            if (response.getMetadata(key) instanceof Number number) {
+                return number.intValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One provider call, timed and recorded. Errors become failed responses.
+     */
+    private CompletableFuture<AIResponse> attempt(AIService provider, AITaskType taskType,
+                                                  Function<AIService, CompletableFuture<AIResponse>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<AIResponse> future;
+        try {
+            future = call.apply(provider);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future.handle((response, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            AIResponse result = cause == null && response != null
+                    ? response
+                    : AIResponse.error("AI call failed: " + (cause != null ? cause.getMessage() : "no response"),
+                            provider.getProvider(), taskType);
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            latencyTracker.record(provider.getProvider(), modelOf(provider), taskType, latencyMs, isValid(result));
+            return result;
+        });
+    }
+
+    private long hedgeDelayMs(AIService provider, AITaskType taskType) {
+        AIConfig.RoutingConfig routing = aiConfig.getRouting();
+        long percentile = latencyTracker.percentile(provider.getProvider(), modelOf(provider), taskType,
+                routing.getHedgePercentile() / 100.0);
+        if (percentile < 0) {
+            return routing.getHedgeMaxDelayMs();
+        }
+        return Math.max(routing.getHedgeMinDelayMs(), Math.min(routing.getHedgeMaxDelayMs(), percentile));
+    }
+
+    private boolean isHedged(AITaskType taskType) {
+        return aiConfig.getRouting().getHedgedTasks().contains(taskType);
+    }
+
+    private boolean isUnhealthy(AIService provider, AITaskType taskType) {
+        AIConfig.RoutingConfig routing = aiConfig.getRouting();
+        String model = modelOf(provider);
+        return latencyTracker.calls(provider.getProvider(), model, taskType) >= routing.getMinSamples()
+                && latencyTracker.errorRate(provider.getProvider(), model, taskType) >= routing.getMaxErrorRate();
+    }
+
+    private BigDecimal tokenCost(AIService provider) {
+        return pricingService.getPromptCostPerToken(provider.getProvider())
+                .add(pricingService.getCompletionCostPerToken(provider.getProvider()));
+    }
+
+    private String modelOf(AIService provider) {
+        return switch (provider.getProvider()) {
+            case BEDROCK -> aiConfig.getBedrock().getModel();
+            case OLLAMA -> aiConfig.getOllama().getModel();
+            case MOCK -> "mock";
+        };
+    }
+
+    private static AITaskType taskTypeOf(AIRequest request) {
+        return request.getTaskType() != null ? request.getTaskType() : AITaskType.GENERAL;
+    }
+
+    private static boolean isValid(AIResponse response) {
+        return response != null && response.isSuccess();
+    }
+
+    /**
+     * Collects the responses of a hedged request: the first valid one wins;
+     * if both calls fail, the first failure is returned.
+     */
+    private static final class FirstValid {
+
+        final CompletableFuture<AIResponse> result = new CompletableFuture<>();
+        // The primary call and the (possible) hedge
+        final AtomicInteger outstanding = new AtomicInteger(2);
+        final AtomicReference<AIResponse> firstFailure = new AtomicReference<>();
+
+        /**
+         * @return Whether this response is the one returned
+         */
+        boolean offer(AIResponse response) {
+            if (isValid(response)) {
+                return result.complete(response);
+            }
+            firstFailure.compareAndSet(null, response);
+            if (outstanding.decrementAndGet() == 0) {
+                return result.complete(firstFailure.get());
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.model.dto.AIResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of identical AI requests for AIGatewayService.
+ *
+ * Problem: when a suite run fails widely, many executions and auto-heal
+ * agents analyse the same error at the same moment. AIResponseCache only
+ * helps once the first answer is back; until then every request became its
+ * own model call.
+ *
+ * Requests with the same key (AIResponseCache.buildKey) that arrive while a
+ * call for that key is in flight wait for it and share its response instead
+ * of calling the model again. Non-cacheable requests have no key and always
+ * make their own call.
+ *
+ * Cost attribution: the shared call's tokens are split evenly between all
+ * requests that shared it (the caller that made the call also takes the
+ * remainder), so per-user token/cost tracking adds up to what was actually
+ * spent. Shared responses carry "sharedWith" (number of requests) and
+ * "sharedCallLeader" in their metadata.
+ *
+ * A failure of the shared call is a failure for every request sharing it.
+ * A waiter that times out (ai.coalescing.wait-timeout-seconds) leaves the
+ * group and makes its own call.
+ */
+@Slf4j
+@Component
+public class AIRequestCoalescer {
+
+    static final String SHARED_WITH = "sharedWith";
+    static final String SHARED_CALL_LEADER = "sharedCallLeader";
+
+    private static final String[] TOKEN_METADATA_KEYS = {
+            "promptTokens", "completionTokens", "totalTokens", "input_tokens", "output_tokens"
+    };
+
+    @Value("${ai.coalescing.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${ai.coalescing.wait-timeout-seconds:180}")
+    private long waitTimeoutSeconds = 180;
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run a model call, or share the result of an identical one already in flight.
+     *
+     * @param key Request key (null = not shareable, call runs on its own)
+     * @param call The model call
+     * @return The response, with tokens set to this request's share if shared
+     */
+    public AIResponse execute(String key, Supplier<AIResponse> call) {
+        if (!enabled || key == null) {
+            return call.get();
+        }
+
+        while (true) {
+            Flight flight = new Flight();
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, call);
+            }
+            if (existing.join()) {
+                return follow(existing, call);
+            }
+            // The existing call finished (and unregistered) between lookup and join - try again
+        }
+    }
+
+    /**
+     * Did this response come from a call made on behalf of another request?
+     */
+    public static boolean isSharedFollower(AIResponse response) {
+        return response != null && Boolean.FALSE.equals(response.getMetadata(SHARED_CALL_LEADER));
+    }
+
+    /**
+     * Number of requests that shared the model call behind this response (1 = not shared).
+     */
+    public static int sharedWith(AIResponse response) {
+        Object value = response != null ? response.getMetadata(SHARED_WITH) : null;
+        return value instanceof Number number ? number.intValue() : 1;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Requests currently sharing the in-flight call for a key (0 = none in flight).
+     */
+    int getParticipants(String key) {
+        Flight flight = inFlight.get(key);
+        return flight != null ? flight.participants() : 0;
+    }
+
+    private AIResponse lead(String key, Flight flight, Supplier<AIResponse> call) {
+        AIResponse response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            flight.close(() -> inFlight.remove(key, flight));
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+
+        int participants = flight.close(() -> inFlight.remove(key, flight));
+        flight.result.complete(response);
+        if (participants > 1) {
+            log.info("🔗 Shared one AI call between {} identical requests", participants);
+        }
+        return attribute(response, participants, true);
+    }
+
+    private AIResponse follow(Flight flight, Supplier<AIResponse> call) {
+        try {
+            AIResponse response = flight.result.get(waitTimeoutSeconds, TimeUnit.SECONDS);
+            return attribute(response, flight.participants(), false);
+        } catch (TimeoutException e) {
+            if (flight.leave()) {
+                log.warn("Shared AI call still running after {}s - making own call", waitTimeoutSeconds);
+                return call.get();
+            }
+            // Completed while timing out - the result is there
+            return attribute(flight.result.join(), flight.participants(), false);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException("Shared AI call failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shared AI call", e);
+        }
+    }
+
+    /**
+     * Copy of a shared response carrying this request's share of the tokens.
+     */
+    private static AIResponse attribute(AIResponse response, int participants, boolean leader) {
+        if (response == null || participants <= 1) {
+            return response;
+        }
+
+        Map<String, Object> metadata = response.getMetadata() != null
+                ? new HashMap<>(response.getMetadata())
+                : new HashMap<>();
+        for (String key : TOKEN_METADATA_KEYS) {
+            if (metadata.get(key) instanceof Number tokens) {
+                metadata.put(key, share(tokens.intValue(), participants, leader));
+            }
+        }
+        metadata.put(SHARED_WITH, participants);
+        metadata.put(SHARED_CALL_LEADER, leader);
+
+        return AIResponse.builder()
+                .success(response.isSuccess())
+                .content(response.getContent())
+                .taskType(response.getTaskType())
+                .provider(response.getProvider())
+                .tokensUsed(response.getTokensUsed() != null
+                        ? share(response.getTokensUsed(), participants, leader)
+                        : null)
+                .durationMs(response.getDurationMs())
+                .errorMessage(response.getErrorMessage())
+                .metadata(metadata)
+                .generatedAt(response.getGeneratedAt())
+                .build();
+    }
+
+    /**
+     * Even split; the caller that made the call takes the remainder so shares add up.
+     */
+    static int share(int total, int participants, boolean leader) {
+        return total / participants + (leader ? total % participants : 0);
+    }
+
+    /**
+     * One in-flight call and the requests waiting for it.
+     */
+    private static class Flight {
+
+        final CompletableFuture<AIResponse> result = new CompletableFuture<>();
+        private int participants = 1;
+        private boolean closed;
+
+        /**
+         * Join as a waiter. Fails once the call has finished.
+         */
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            participants++;
+            return true;
+        }
+
+        /**
+         * Leave before the call finished (waiter timed out).
+         *
+         * @return false if the call already finished and counted this waiter
+         */
+        synchronized boolean leave() {
+            if (closed) {
+                return false;
+            }
+            participants--;
+            return true;
+        }
+
+        /**
+         * Stop accepting waiters and unregister; fixes the participant count.
+         */
+        synchronized int close(Runnable unregister) {
+            closed = true;
+            unregister.run();
+            return participants;
+        }
+
+        synchronized int participants() {
+            return participants;
+        }
+    }
+}
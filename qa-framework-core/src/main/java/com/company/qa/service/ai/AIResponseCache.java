@@ -0,0 +1,314 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.config.AIConfig.ResponseCacheConfig;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AITaskType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Content-addressed cache of AI responses for AIGatewayService.
+ *
+ * Problem: the gateway called the model for every request, even when the
+ * sanitised prompt was identical to one answered minutes earlier
+ * (re-generating the same Jira story, analysing the same stack trace again,
+ * retrying after a downstream parse error).
+ *
+ * Key: SHA-256 of provider, model, task type, temperature and the sanitised
+ * prompt fields - anything that changes what the model would answer. The
+ * prompt itself is never stored in the key. With routing (ai.routing.enabled)
+ * the caller can't know which provider will answer, so the key leaves the
+ * provider, model and temperature out and an answer from any provider
+ * serves the request.
+ *
+ * Two tiers:
+ * - In-process: one LRU segment per task type, bounded by the characters of
+ *   cached content (ai.cache.max-memory-chars), so a few large generated
+ *   tests cannot push out all cached failure analyses
+ * - Redis (ai.cache.redis-enabled): shared across instances and restarts;
+ *   a Redis hit is copied into the in-process tier
+ *
+ * Both tiers use the task type's TTL (ai.cache.ttl). Only responses that
+ * passed validation are stored; callers opt out per request
+ * (SecureAIRequest.cacheable) when they want a fresh answer.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AIResponseCache {
+
+    private static final String KEY_PREFIX = "ai:response:";
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final AIConfig aiConfig;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final Map<AITaskType, Segment> segments = new EnumMap<>(AITaskType.class);
+
+    /**
+     * Build the cache key for a request.
+     *
+     * @param provider Provider that would answer the request (ignored with routing)
+     * @param taskType Task type (selects the prompt template)
+     * @param promptParts Sanitised fields the provider builds its prompt from
+     * @return Cache key (also identifies identical in-flight requests, see AIRequestCoalescer)
+     */
+    public String buildKey(AIProvider provider, AITaskType taskType, String... promptParts) {
+        StringBuilder sb = new StringBuilder();
+        if (aiConfig.getRouting().isEnabled()) {
+            // Any enabled provider may answer
+            sb.append("routed|").append(taskType);
+        } else {
+            sb.append(provider).append('|')
+                    .append(modelFor(provider)).append('|')
+                    .append(taskType).append('|')
+                    .append(temperatureFor(provider));
+        }
+        for (String part : promptParts) {
+            // Length prefix keeps ("ab", "c") and ("a", "bc") apart
+            String value = part != null ? part.trim() : "";
+            sb.append('|').append(value.length()).append(':').append(value);
+        }
+        return DigestUtils.sha256Hex(sb.toString());
+    }
+
+    /**
+     * Look up a cached response, in-process tier first.
+     *
+     * @param key Key from buildKey (null = not cacheable, always a miss)
+     */
+    public Optional<Hit> get(String key, AITaskType taskType) {
+        if (key == null || !config().isEnabled()) {
+            return Optional.empty();
+        }
+
+        CachedResponse cached = segment(taskType).get(key);
+        if (cached != null) {
+            log.debug("♻️  AI response cache hit (memory): {} {}", taskType, abbreviate(key));
+            return Optional.of(cached.toHit(key, Tier.MEMORY));
+        }
+
+        cached = readRedis(key);
+        if (cached != null) {
+            segment(taskType).put(key, cached);
+            log.debug("♻️  AI response cache hit (redis): {} {}", taskType, abbreviate(key));
+            return Optional.of(cached.toHit(key, Tier.REDIS));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Store a validated response in both tiers.
+     *
+     * @param key Key from buildKey (null = not cacheable, ignored)
+     */
+    public void put(String key, AITaskType taskType, AIProvider provider, String content, Integer tokensUsed) {
+        if (key == null || !config().isEnabled() || content == null || content.isBlank()) {
+            return;
+        }
+
+        Duration ttl = ttlFor(taskType);
+        CachedResponse cached = new CachedResponse(content, tokensUsed != null ? tokensUsed : 0, provider,
+                System.currentTimeMillis() + ttl.toMillis());
+        segment(taskType).put(key, cached);
+        writeRedis(key, cached, ttl);
+    }
+
+    /**
+     * Drop the in-process tier. Redis entries expire by their TTL.
+     */
+    public void clearMemory() {
+        synchronized (segments) {
+            segments.clear();
+        }
+    }
+
+    /**
+     * Characters of content currently held in-process for a task type.
+     */
+    public long getMemoryChars(AITaskType taskType) {
+        return segment(taskType).totalChars();
+    }
+
+    // ========== CONFIGURATION ==========
+
+    private ResponseCacheConfig config() {
+        return aiConfig.getCache();
+    }
+
+    private Duration ttlFor(AITaskType taskType) {
+        Duration ttl = config().getTtl() != null ? config().getTtl().get(taskType) : null;
+        return ttl != null ? ttl : config().getDefaultTtl();
+    }
+
+    private long maxCharsFor(AITaskType taskType) {
+        Long max = config().getMaxMemoryChars() != null ? config().getMaxMemoryChars().get(taskType) : null;
+        return max != null ? max : config().getDefaultMaxMemoryChars();
+    }
+
+    private String modelFor(AIProvider provider) {
+        if (provider == AIProvider.BEDROCK) {
+            return aiConfig.getBedrock().getModel();
+        }
+        if (provider == AIProvider.OLLAMA) {
+            return aiConfig.getOllama().getModel();
+        }
+        return "default";
+    }
+
+    private Double temperatureFor(AIProvider provider) {
+        if (provider == AIProvider.BEDROCK) {
+            return aiConfig.getBedrock().getTemperature();
+        }
+        if (provider == AIProvider.OLLAMA) {
+            return aiConfig.getOllama().getTemperature();
+        }
+        return null;
+    }
+
+    private Segment segment(AITaskType taskType) {
+        AITaskType type = taskType != null ? taskType : AITaskType.GENERAL;
+        synchronized (segments) {
+            return segments.computeIfAbsent(type, t -> new Segment(maxCharsFor(t)));
+        }
+    }
+
+    // ========== REDIS TIER ==========
+
+    private CachedResponse readRedis(String key) {
+        if (!config().isRedisEnabled()) {
+            return null;
+        }
+        try {
+            Object json = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+            if (json == null) {
+                return null;
+            }
+            Map<String, Object> entry = objectMapper.readValue(json.toString(), MAP_TYPE);
+            if (!(entry.get("content") instanceof String)) {
+                return null;
+            }
+            Object provider = entry.get("provider");
+            return new CachedResponse(
+                    (String) entry.get("content"),
+                    entry.get("tokensUsed") instanceof Number n ? n.intValue() : 0,
+                    provider != null ? AIProvider.valueOf(provider.toString()) : null,
+                    entry.get("expiresAt") instanceof Number n ? n.longValue() : Long.MAX_VALUE);
+        } catch (Exception e) {
+            // A cache read must never fail the request - fall through to the model
+            log.warn("Failed to read cached AI response {}: {}", abbreviate(key), e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, CachedResponse cached, Duration ttl) {
+        if (!config().isRedisEnabled()) {
+            return;
+        }
+        try {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("content", cached.content());
+            entry.put("tokensUsed", cached.tokensUsed());
+            entry.put("provider", cached.provider() != null ? cached.provider().name() : null);
+            entry.put("expiresAt", cached.expiresAt());
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, objectMapper.writeValueAsString(entry), ttl);
+        } catch (Exception e) {
+            log.warn("Failed to write cached AI response {}: {}", abbreviate(key), e.getMessage());
+        }
+    }
+
+    private static String abbreviate(String key) {
+        return key.length() > 12 ? key.substring(0, 12) : key;
+    }
+
+    // ========== IN-PROCESS TIER ==========
+
+    /**
+     * LRU map for one task type, bounded by total content characters.
+     */
+    static class Segment {
+
+        private final long maxChars;
+        private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long totalChars;
+
+        Segment(long maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        synchronized CachedResponse get(String key) {
+            CachedResponse cached = entries.get(key);
+            if (cached != null && cached.isExpired()) {
+                remove(key);
+                return null;
+            }
+            return cached;
+        }
+
+        synchronized void put(String key, CachedResponse cached) {
+            long size = cached.content().length();
+            if (size > maxChars) {
+                // Would evict everything else - leave it to the Redis tier
+                return;
+            }
+            remove(key);
+            entries.put(key, cached);
+            totalChars += size;
+
+            Iterator<Map.Entry<String, CachedResponse>> eldestFirst = entries.entrySet().iterator();
+            while (totalChars > maxChars && eldestFirst.hasNext()) {
+                Map.Entry<String, CachedResponse> eldest = eldestFirst.next();
+                totalChars -= eldest.getValue().content().length();
+                eldestFirst.remove();
+            }
+        }
+
+        synchronized long totalChars() {
+            return totalChars;
+        }
+
+        private void remove(String key) {
+            CachedResponse removed = entries.remove(key);
+            if (removed != null) {
+                totalChars -= removed.content().length();
+            }
+        }
+    }
+
+    record CachedResponse(String content, int tokensUsed, AIProvider provider, long expiresAt) {
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+
+        Hit toHit(String key, Tier tier) {
+            return new Hit(key, tier, content, tokensUsed, provider);
+        }
+    }
+
+    /**
+     * Tier a cached response was served from.
+     */
+    public enum Tier {
+        MEMORY,
+        REDIS
+    }
+
+    /**
+     * A cached response.
+     *
+     * @param tokensSaved Tokens the original call used (not spent again)
+     */
+    public record Hit(String key, Tier tier, String content, int tokensSaved, AIProvider provider) {
+    }
+}
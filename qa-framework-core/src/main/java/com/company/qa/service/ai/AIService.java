@@ -3,6 +3,8 @@ package com.company.qa.service.ai;
 import com.company.qa.model.dto.*;
 import com.company.qa.model.enums.AIProvider;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AIService {
 
     /**
@@ -43,4 +45,55 @@ public interface AIService {
      * @return AI response
      */
     AIResponse execute(AIRequest request);
-}
\ No newline at end of file
+
+    /**
+     * Generate a test, delivering the generated text as it arrives.
+     * The consumer can stop the generation early (see AIStreamConsumer).
+     * Providers that cannot stream deliver the whole text at once.
+     * @param request Test generation request
+     * @param consumer Incremental consumer (null = same as generateTest(request))
+     * @return AI response with the text generated until the stream ended or was stopped
+     */
+    default AIResponse generateTest(TestGenerationRequest request, AIStreamConsumer consumer) {
+        return AIStreamConsumer.replay(generateTest(request), consumer);
+    }
+
+    /**
+     * Generic AI request, delivering the generated text as it arrives.
+     * @param request Generic AI request
+     * @param consumer Incremental consumer (null = same as execute(request))
+     * @return AI response with the text generated until the stream ended or was stopped
+     */
+    default AIResponse execute(AIRequest request, AIStreamConsumer consumer) {
+        return AIStreamConsumer.replay(execute(request), consumer);
+    }
+
+    /**
+     * Generate a test without holding the calling thread for the model call.
+     * Providers without a non-blocking client run the call on the calling
+     * thread and return a completed future.
+     * @param request Test generation request
+     * @return Future of the AI response (errors are returned as failed responses, as in generateTest)
+     */
+    default CompletableFuture<AIResponse> generateTestAsync(TestGenerationRequest request) {
+        return CompletableFuture.completedFuture(generateTest(request));
+    }
+
+    /**
+     * Analyze a test failure without holding the calling thread for the model call.
+     * @param request Failure analysis request
+     * @return Future of the AI response
+     */
+    default CompletableFuture<AIResponse> analyzeFailureAsync(FailureAnalysisRequest request) {
+        return CompletableFuture.completedFuture(analyzeFailure(request));
+    }
+
+    /**
+     * Generic AI request without holding the calling thread for the model call.
+     * @param request Generic AI request
+     * @return Future of the AI response
+     */
+    default CompletableFuture<AIResponse> executeAsync(AIRequest request) {
+        return CompletableFuture.completedFuture(execute(request));
+    }
+}
@@ -0,0 +1,159 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.model.dto.AIResponse;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AITaskType;
+import com.company.qa.service.ai.AIStreamConsumer.StreamDecision;
+
+import java.time.Instant;
+
+/**
+ * Collects a streamed generation for BedrockAIService and OllamaAIService.
+ *
+ * Appends text chunks, passes them to the caller's AIStreamConsumer, records
+ * whether the consumer stopped the stream, and builds the final AIResponse.
+ *
+ * Token accounting: providers report usage in their final stream event,
+ * which never arrives when the stream is stopped early. Counts reported by
+ * the provider are used where present; missing ones are estimated (prompt
+ * and output at ~4 characters per token, as in AIGatewayService) and the
+ * response is marked "tokensEstimated". Prompt-cache reads and writes
+ * reported separately are added to the prompt tokens and recorded as
+ * "cacheReadTokens" / "cacheWriteTokens".
+ */
+public class AIStreamAccumulator {
+
+    static final String STREAMED = "streamed";
+    static final String STREAM_STOPPED = "streamStopped";
+    static final String STREAM_ABORTED = "streamAborted";
+    static final String TOKENS_ESTIMATED = "tokensEstimated";
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final AIStreamConsumer consumer;
+    private final StringBuilder text = new StringBuilder();
+
+    private int chunks;
+    private Integer promptTokens;
+    private Integer completionTokens;
+    private int cacheReadTokens;
+    private int cacheWriteTokens;
+    private StreamDecision stoppedWith;
+
+    public AIStreamAccumulator(AIStreamConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Add a chunk of generated text.
+     *
+     * @return true to keep streaming, false once the consumer has stopped the generation
+     */
+    public synchronized boolean append(String delta) {
+        if (stoppedWith != null) {
+            return false;
+        }
+        if (delta == null || delta.isEmpty()) {
+            return true;
+        }
+
+        text.append(delta);
+        chunks++;
+        StreamDecision decision = consumer != null ? consumer.onText(delta, text) : StreamDecision.CONTINUE;
+        if (decision != null && decision != StreamDecision.CONTINUE) {
+            stoppedWith = decision;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record token counts reported by the provider (null = not reported, keep previous).
+     */
+    public synchronized void reportUsage(Integer prompt, Integer completion) {
+        if (prompt != null) {
+            promptTokens = prompt;
+        }
+        if (completion != null) {
+            completionTokens = completion;
+        }
+    }
+
+    /**
+     * Record prompt-cache token counts reported by the provider, in addition
+     * to the (uncached) prompt tokens of reportUsage.
+     */
+    public synchronized void reportCacheUsage(Integer read, Integer write) {
+        if (read != null) {
+            cacheReadTokens = read;
+        }
+        if (write != null) {
+            cacheWriteTokens = write;
+        }
+    }
+
+    public synchronized boolean isStopped() {
+        return stoppedWith != null;
+    }
+
+    public synchronized int getChunkCount() {
+        return chunks;
+    }
+
+    public synchronized String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Build the response for the streamed generation.
+     *
+     * @param prompt Prompt sent (for the prompt token estimate)
+     */
+    public synchronized AIResponse toResponse(AIProvider provider, AITaskType taskType, String prompt) {
+        boolean estimated = promptTokens == null || completionTokens == null;
+        int prompted = promptTokens != null
+                ? promptTokens + cacheReadTokens + cacheWriteTokens
+                : estimateTokens(prompt);
+        int completed = completionTokens != null ? completionTokens : estimateTokens(text);
+
+        AIResponse response = AIResponse.builder()
+                .success(stoppedWith != StreamDecision.ABORT)
+                .content(text.toString())
+                .provider(provider)
+                .taskType(taskType)
+                .tokensUsed(prompted + completed)
+                .generatedAt(Instant.now())
+                .build();
+
+        response.addMetadata("promptTokens", prompted);
+        response.addMetadata("completionTokens", completed);
+        response.addMetadata("totalTokens", prompted + completed);
+        if (cacheReadTokens > 0 || cacheWriteTokens > 0) {
+            response.addMetadata("cacheReadTokens", cacheReadTokens);
+            response.addMetadata("cacheWriteTokens", cacheWriteTokens);
+        }
+        response.addMetadata(TOKENS_ESTIMATED, estimated);
+        response.addMetadata(STREAMED, true);
+        if (stoppedWith == StreamDecision.COMPLETE) {
+            response.addMetadata(STREAM_STOPPED, true);
+        } else if (stoppedWith == StreamDecision.ABORT) {
+            response.addMetadata(STREAM_ABORTED, true);
+            response.setErrorMessage("Generation aborted by stream consumer after " + text.length() + " characters");
+        }
+        return response;
+    }
+
+    /**
+     * Was this response's generation aborted by its stream consumer?
+     */
+    public static boolean isAborted(AIResponse response) {
+        return response != null && Boolean.TRUE.equals(response.getMetadata(STREAM_ABORTED));
+    }
+
+    private static int estimateTokens(CharSequence value) {
+        if (value == null || value.length() == 0) {
+            return 0;
+        }
+        return Math.max(1, value.length() / CHARS_PER_TOKEN);
+    }
+}
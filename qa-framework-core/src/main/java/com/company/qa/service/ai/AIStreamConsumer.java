@@ -0,0 +1,52 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.model.dto.AIResponse;
+
+/**
+ * Incremental consumer of generated text (see the streaming variants on AIService).
+ *
+ * Called on the streaming thread with each piece of text as it arrives.
+ * The return value decides whether the provider keeps generating:
+ * - CONTINUE: keep going
+ * - COMPLETE: the caller has what it needs (e.g. the JSON object closed);
+ *   generation stops and the response is successful
+ * - ABORT: the generation is useless (runaway, wrong format); generation
+ *   stops and the response is a failure marked "streamAborted"
+ *
+ * Stopping early saves the output tokens not yet generated. Tokens spent up
+ * to that point are still reported on the response.
+ */
+@FunctionalInterface
+public interface AIStreamConsumer {
+
+    /**
+     * @param delta Text that just arrived
+     * @param textSoFar All text generated so far, including delta
+     * @return Whether to keep generating
+     */
+    StreamDecision onText(String delta, CharSequence textSoFar);
+
+    enum StreamDecision {
+        CONTINUE,
+        COMPLETE,
+        ABORT
+    }
+
+    /**
+     * Deliver a complete (non-streamed) response to a consumer in one piece.
+     * Used by providers and models that cannot stream.
+     *
+     * @return The response, marked aborted if the consumer rejects it
+     */
+    static AIResponse replay(AIResponse response, AIStreamConsumer consumer) {
+        if (consumer == null || response == null || !response.isSuccess() || response.getContent() == null) {
+            return response;
+        }
+        if (consumer.onText(response.getContent(), response.getContent()) == StreamDecision.ABORT) {
+            response.setSuccess(false);
+            response.setErrorMessage("Generation rejected by stream consumer");
+            response.addMetadata(AIStreamAccumulator.STREAM_ABORTED, true);
+        }
+        return response;
+    }
+}
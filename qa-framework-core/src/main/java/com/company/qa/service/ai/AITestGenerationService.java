@@ -18,9 +18,12 @@ import com.company.qa.ai.service.AiRecommendationService;
 import com.company.qa.service.TestFileWriterService;
 import com.company.qa.service.context.JiraContextBuilder;
 import com.company.qa.service.context.PlaywrightContextBuilder;
+import com.company.qa.service.context.PromptBudgeter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,11 +36,17 @@ import com.company.qa.service.playwright.ValidationResult;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Core service for AI-powered test generation from JIRA stories.
@@ -107,6 +116,40 @@ public class AITestGenerationService {
     @Value("${ai.test-generation.retry.max-attempts:3}")
     private int maxRetryAttempts;
 
+    /**
+     * Stream the generation and stop it as soon as the JSON answer is complete,
+     * or abort it if it is not JSON / runs away (see JsonResponseStreamGuard).
+     */
+    @Value("${ai.test-generation.stream.enabled:true}")
+    private boolean streamEnabled = true;
+
+    @Value("${ai.test-generation.stream.max-response-chars:60000}")
+    private int streamMaxResponseChars = 60000;
+
+    @Value("${ai.test-generation.stream.max-preamble-chars:2000}")
+    private int streamMaxPreambleChars = 2000;
+
+    /**
+     * Best-of-N generation: sample this many candidates concurrently (at
+     * candidates.temperatures) instead of retrying serially. 1 = off.
+     */
+    @Value("${ai.test-generation.candidates.count:1}")
+    private int candidateCount = 1;
+
+    @Value("${ai.test-generation.candidates.temperatures:0.3,0.7,1.0}")
+    private double[] candidateTemperatures = {0.3, 0.7, 1.0};
+
+    /**
+     * Cost cap for all candidates of one story: at most
+     * max-cost-usd / cost.max-per-test-usd candidates are sampled.
+     */
+    @Value("${ai.test-generation.candidates.max-cost-usd:1.50}")
+    private BigDecimal candidateMaxCost = new BigDecimal("1.50");
+
+    @Autowired
+    @Qualifier("testCandidateExecutor")
+    private Executor candidateExecutor;
+
     /**
      * Generate test from JIRA story with retry logic.
      */
@@ -118,6 +161,12 @@ public class AITestGenerationService {
         JiraStory story = jiraStoryRepository.findByJiraKey(request.getJiraStoryKey())
                 .orElseGet(() -> jiraStoryService.fetchAndSaveFromJira(request.getJiraStoryKey()));
 
+        // 2a. Best-of-N: concurrent candidates instead of serial retries
+        int candidates = candidatesWithinCostCap();
+        if (candidates > 1) {
+            return generateBestCandidate(story, request, candidates);
+        }
+
         // 2. Attempt generation with retry
         for (int attempt = 1; attempt <= maxRetryAttempts; attempt++) {
             try {
@@ -162,8 +211,8 @@ public class AITestGenerationService {
 
         try {
 
-            String prompt = buildGenerationPrompt(story, request);
-            attempt.setPromptContext(prompt);
+            PromptBudgeter.BudgetedPrompt prompt = buildBudgetedGenerationPrompt(story, request);
+            attempt.setPromptContext(prompt.text());
 
             // Step 2: Call AI via AIGatewayService (Week 5)
             // UPDATED: Now returns SecureAIResponse instead of String
@@ -221,6 +270,153 @@ public class AITestGenerationService {
         }
     }
 
+    /**
+     * Best-of-N generation: sample candidates concurrently from one prompt,
+     * each at its own temperature, and keep the best.
+     *
+     * Each candidate goes through the same parsing, validation (including
+     * the intent pipeline) and quality assessment as a serial attempt, and is
+     * logged as an attempt. The first valid candidate scoring at least
+     * minimumQualityScore wins at once and the others are stopped (their
+     * streams are aborted, so they stop spending tokens). Otherwise, once all
+     * are done, the valid candidate with the highest score wins.
+     *
+     * Candidates are never served from the response cache or shared with
+     * other in-flight requests - each must be a fresh sample.
+     *
+     * Candidate threads do no JPA work: the story may have been inserted by
+     * this transaction and not be visible to them, so every attempt (and the
+     * winning test) is saved here, on the caller's thread, once all are done.
+     */
+    private TestGenerationResponse generateBestCandidate(
+            JiraStory story, TestGenerationRequest request, int count) {
+
+        log.info("Generating {} candidates concurrently for {}", count, story.getJiraKey());
+        PromptBudgeter.BudgetedPrompt prompt = buildBudgetedGenerationPrompt(story, request);
+        AtomicBoolean stopped = new AtomicBoolean();
+        CompletableFuture<Candidate> clearing = new CompletableFuture<>();
+
+        List<CompletableFuture<Candidate>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int number = i + 1;
+            double temperature = candidateTemperatures[i % candidateTemperatures.length];
+            futures.add(CompletableFuture
+                    .supplyAsync(() -> generateCandidate(story, request, prompt, number, temperature, stopped),
+                            candidateExecutor)
+                    .whenComplete((candidate, error) -> {
+                        if (candidate != null && candidate.clears(minimumQualityScore, request.isSkipQualityCheck())) {
+                            clearing.complete(candidate);
+                        }
+                    }));
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        CompletableFuture.anyOf(clearing, all).join();
+        // The others stop at their next chunk; wait for them so their attempts are logged too
+        stopped.set(true);
+        all.join();
+
+        List<Candidate> candidates = futures.stream().map(CompletableFuture::join).toList();
+        Candidate best = clearing.isDone()
+                ? clearing.join()
+                : candidates.stream()
+                        .filter(Candidate::isValid)
+                        .max(Comparator.comparing(Candidate::score))
+                        .orElse(null);
+
+        if (best == null) {
+            candidates.forEach(candidate -> attemptRepository.save(candidate.attempt()));
+            throw new TestGenerationException(
+                    "Test generation failed: none of " + count + " candidates was valid",
+                    candidates.get(0).error());
+        }
+
+        AIGeneratedTest generatedTest = aiGeneratedTestRepository.save(best.test());
+        best.attempt().setGeneratedTestId(generatedTest.getId());
+        candidates.forEach(candidate -> attemptRepository.save(candidate.attempt()));
+
+        log.info("Candidate {} of {} (temperature {}) chosen for {}: quality {}",
+                best.number(), count, best.temperature(), story.getJiraKey(), generatedTest.getQualityScore());
+
+        return TestGenerationResponse.fromEntity(generatedTest);
+    }
+
+    /**
+     * One candidate: call, parse, validate and score. Runs on a candidate
+     * thread, so nothing is saved - the caller saves the test and attempt.
+     */
+    private Candidate generateCandidate(JiraStory story, TestGenerationRequest request,
+                                        PromptBudgeter.BudgetedPrompt prompt, int number, double temperature,
+                                        AtomicBoolean stopped) {
+        long startTime = System.currentTimeMillis();
+        AITestGenerationAttempt attempt = createAttemptRecord(story, request, number);
+        attempt.setPromptContext(prompt.text());
+
+        try {
+            SecureAIResponse aiResponse = callAI(prompt, request, attempt, temperature, stopped);
+            if (!aiResponse.isSuccess()) {
+                throw new TestGenerationException(stopped.get()
+                        ? "Stopped: another candidate was chosen"
+                        : "AI generation failed: " + aiResponse.getErrorMessage());
+            }
+            attempt.setRawResponse(aiResponse.getContent());
+
+            Map<String, Object> testCode = parseAIResponse(
+                    aiResponse.getContent(), request.getTestType(), request.getTestFramework());
+            AIGeneratedTest generatedTest = createGeneratedTestEntity(story, request, testCode, attempt);
+            if (!request.isSkipQualityCheck()) {
+                assessQuality(generatedTest, testCode);
+            }
+
+            attempt.setSuccess(true);
+            return new Candidate(number, temperature, generatedTest, attempt, null);
+
+        } catch (Exception e) {
+            log.warn("Candidate {} for {} failed: {}", number, story.getJiraKey(), e.getMessage());
+            attempt.setSuccess(false);
+            attempt.setErrorMessage(e.getMessage());
+            attempt.setErrorType(categorizeError(e));
+            return new Candidate(number, temperature, null, attempt, e);
+
+        } finally {
+            attempt.setDurationMs((int) (System.currentTimeMillis() - startTime));
+        }
+    }
+
+    /**
+     * Candidates to sample for a story: candidates.count, limited so that
+     * every candidate costing max-per-test-usd stays within the cost cap.
+     */
+    private int candidatesWithinCostCap() {
+        if (candidateCount <= 1 || candidateExecutor == null) {
+            return 1;
+        }
+        if (maxCostPerTest == null || maxCostPerTest.signum() <= 0 || candidateMaxCost == null) {
+            return candidateCount;
+        }
+        int affordable = candidateMaxCost.divide(maxCostPerTest, 0, RoundingMode.FLOOR).intValue();
+        return Math.max(1, Math.min(candidateCount, affordable));
+    }
+
+    /**
+     * A sampled candidate; test is null when it failed (see error).
+     */
+    private record Candidate(int number, double temperature, AIGeneratedTest test,
+                             AITestGenerationAttempt attempt, Exception error) {
+
+        boolean isValid() {
+            return test != null;
+        }
+
+        BigDecimal score() {
+            return test.getQualityScore() != null ? test.getQualityScore() : BigDecimal.ZERO;
+        }
+
+        boolean clears(BigDecimal minimumScore, boolean skipQualityCheck) {
+            return isValid() && (skipQualityCheck || minimumScore == null || score().compareTo(minimumScore) >= 0);
+        }
+    }
+
     /**
      * Build AI prompt using JiraContextBuilder (Week 9 Day 2).
      */
@@ -298,17 +494,27 @@ public class AITestGenerationService {
      * @return Framework-optimized AI prompt
      */
     private String buildGenerationPrompt(JiraStory story, TestGenerationRequest request) {
+        return buildBudgetedGenerationPrompt(story, request).text();
+    }
+
+    /**
+     * buildGenerationPrompt with the prompt's per-section token breakdown.
+     * Only the Playwright context is budgeted (PromptBudgeter); other
+     * frameworks' prompts come without a breakdown.
+     */
+    private PromptBudgeter.BudgetedPrompt buildBudgetedGenerationPrompt(
+            JiraStory story, TestGenerationRequest request) {
         log.debug("Building generation prompt for {} with framework {}",
                 story.getJiraKey(),
                 request.getTestFramework());
 
-        String basePrompt;
+        PromptBudgeter.BudgetedPrompt basePrompt;
 
         // Framework decision - use appropriate context builder
         switch (request.getTestFramework()) {
             case PLAYWRIGHT:
                 // NEW: Use PlaywrightContextBuilder for Playwright tests
-                basePrompt = playwrightContextBuilder.buildContext(
+                basePrompt = playwrightContextBuilder.buildBudgetedContext(
                         story,
                         request.getUserPrompt()
                 );
@@ -317,16 +523,16 @@ public class AITestGenerationService {
 
             case CUCUMBER:
                 // EXISTING: Use JiraContextBuilder for Cucumber tests
-                basePrompt = jiraContextBuilder.buildStoryTestPrompt(
+                basePrompt = PromptBudgeter.BudgetedPrompt.unbudgeted(jiraContextBuilder.buildStoryTestPrompt(
                         story,
                         request.getUserPrompt()
-                );
+                ));
                 log.debug("Using JiraContextBuilder for Cucumber framework");
                 break;
 
             case TESTNG:
                 // Use JiraContextBuilder as base, add TestNG-specific instructions
-                basePrompt = buildTestNGPrompt(story, request);
+                basePrompt = PromptBudgeter.BudgetedPrompt.unbudgeted(buildTestNGPrompt(story, request));
                 log.debug("Using custom builder for TestNG framework");
                 break;
 
@@ -337,7 +543,7 @@ public class AITestGenerationService {
 
         // Add enhanced scenario guidance if enabled (Week 12 Day 3 enhancement)
         if (shouldEnhanceScenarios(story, request)) {
-            basePrompt = buildEnhancedScenarioPrompt(basePrompt, story, request);
+            basePrompt = basePrompt.withText(buildEnhancedScenarioPrompt(basePrompt.text(), story, request));
             log.debug("Enhanced prompt with additional scenario coverage guidance");
         }
 
@@ -509,19 +715,46 @@ public class AITestGenerationService {
      * - Cost tracking via CostTracker (Week 7)
      * - Approval request creation (Week 6)
      */
-    private SecureAIResponse callAI(String prompt, TestGenerationRequest request, AITestGenerationAttempt attempt) {
+    private SecureAIResponse callAI(PromptBudgeter.BudgetedPrompt prompt, TestGenerationRequest request,
+                                    AITestGenerationAttempt attempt) {
+        return callAI(prompt, request, attempt, null, null);
+    }
+
+    /**
+     * @param temperature Sampling temperature of a best-of-N candidate (null = serial attempt)
+     * @param stopped Set when the candidate is no longer needed; aborts its stream
+     */
+    private SecureAIResponse callAI(PromptBudgeter.BudgetedPrompt prompt, TestGenerationRequest request,
+                                    AITestGenerationAttempt attempt, Double temperature, AtomicBoolean stopped) {
         log.debug("Calling AI gateway for test generation");
+        boolean candidate = temperature != null;
+        AIStreamConsumer guard = streamEnabled
+                ? new JsonResponseStreamGuard(streamMaxResponseChars, streamMaxPreambleChars)
+                : null;
+        AIStreamConsumer streamConsumer = stopped == null ? guard : (delta, textSoFar) -> {
+            if (stopped.get()) {
+                return AIStreamConsumer.StreamDecision.ABORT;
+            }
+            return guard != null ? guard.onText(delta, textSoFar) : AIStreamConsumer.StreamDecision.CONTINUE;
+        };
 
         // Build SecureAIRequest (required by AIGatewayService)
         SecureAIRequest aiRequest = SecureAIRequest.builder()
                 .userId(getCurrentUserId())  // Get from security context or use system user
                 .userRole(getCurrentUserRole())  // Get from security context or use default
-                .content(prompt)
+                .content(prompt.text())
+                .promptBreakdown(prompt.breakdown())
+                .cacheablePrefix(prompt.stablePrefix())
                 .framework(request.getTestFramework().name())
                 .language("Java")  // Default language
                 .targetUrl(null)  // Not applicable for JIRA-based generation
                 .strictMode(true)  // Enable strict sanitization
                 .operationType(SecureAIRequest.OperationType.TEST_GENERATION)
+                // A retry needs a different answer than the one that just failed,
+                // and every candidate a fresh sample
+                .cacheable(!candidate && (attempt.getAttemptNumber() == null || attempt.getAttemptNumber() == 1))
+                .temperature(temperature)
+                .streamConsumer(streamConsumer)
                 .build();
 
         // Call AIGatewayService (Week 5)
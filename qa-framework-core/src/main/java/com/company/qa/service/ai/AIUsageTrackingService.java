@@ -42,8 +42,11 @@ public class AIUsageTrackingService {
             BigDecimal completionCostPerToken = pricingService.getCompletionCostPerToken(request.getProvider());
             BigDecimal totalCost = pricingService.calculateCost(
                     request.getProvider(),
+                    request.getModelName(),
                     request.getPromptTokens(),
-                    request.getCompletionTokens());
+                    request.getCompletionTokens(),
+                    request.getCacheReadTokens() != null ? request.getCacheReadTokens() : 0,
+                    request.getCacheWriteTokens() != null ? request.getCacheWriteTokens() : 0);
 
             // Create usage log
             AIUsageLog usageLog = AIUsageLog.builder()
@@ -57,6 +60,8 @@ public class AIUsageTrackingService {
                     .promptTokens(request.getPromptTokens())
                     .completionTokens(request.getCompletionTokens())
                     .totalTokens(request.getTotalTokens())
+                    .cacheReadTokens(request.getCacheReadTokens())
+                    .cacheWriteTokens(request.getCacheWriteTokens())
                     .promptCostPerToken(promptCostPerToken)
                     .completionCostPerToken(completionCostPerToken)
                     .totalCost(totalCost)
@@ -64,6 +69,7 @@ public class AIUsageTrackingService {
                     .requestContentLength(request.getRequestContentLength())
                     .responseContentLength(request.getResponseContentLength())
                     .processingTimeMs(request.getProcessingTimeMs())
+                    .promptBreakdown(request.getPromptBreakdown())
                     .success(request.getSuccess() != null ? request.getSuccess() : true)
                     .errorMessage(request.getErrorMessage())
                     .approvalRequestId(request.getApprovalRequestId())
@@ -128,10 +134,14 @@ public class AIUsageTrackingService {
         private Integer promptTokens;
         private Integer completionTokens;
         private Integer totalTokens;
+        // Share of promptTokens served from / written to the prompt cache
+        private Integer cacheReadTokens;
+        private Integer cacheWriteTokens;
 
         private Integer requestContentLength;
         private Integer responseContentLength;
         private Long processingTimeMs;
+        private String promptBreakdown;
 
         private Boolean success;
         private String errorMessage;
@@ -0,0 +1,193 @@
+package com.company.qa.service.ai;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounds the number of model calls in flight, adapting the bound to
+ * provider throttling (AIMD - additive increase, multiplicative decrease).
+ *
+ * - Each call takes a Permit and releases it with its outcome
+ * - SUCCESS raises the limit by 1/limit (about +1 per limit's worth of
+ *   successful calls), up to maxLimit
+ * - THROTTLED multiplies the limit by backoffRatio, down to minLimit. Only
+ *   calls that started after the previous decrease can lower it again, so a
+ *   burst of throttles from one congested window counts once
+ * - DROPPED (other failures) releases without changing the limit
+ *
+ * Permits are handed out in request order. acquire() never blocks: it
+ * returns a future that completes when a permit is free, so async callers
+ * wait without holding a thread. acquireBlocking() is for synchronous calls.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Outcome {
+        SUCCESS,
+        THROTTLED,
+        DROPPED
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long epoch;
+
+    /**
+     * @param name Name for log messages
+     * @param initialLimit Starting limit (also the ceiling)
+     * @param minLimit Floor the limit never drops below
+     * @param backoffRatio Multiplier applied on throttling (e.g. 0.5)
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, double backoffRatio) {
+        if (initialLimit < 1 || minLimit < 1 || minLimit > initialLimit) {
+            throw new IllegalArgumentException("Invalid limits: initial=" + initialLimit + ", min=" + minLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1: " + backoffRatio);
+        }
+        this.name = name;
+        this.maxLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Request a permit. The future completes once one is free; a caller that
+     * gives up (e.g. orTimeout) is skipped when its turn comes.
+     */
+    public CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        Permit permit = null;
+
+        synchronized (this) {
+            if (waiters.isEmpty() && inFlight < currentLimit()) {
+                inFlight++;
+                permit = new Permit(epoch);
+            } else {
+                waiters.addLast(future);
+            }
+        }
+
+        if (permit != null) {
+            future.complete(permit);
+        } else {
+            // Waiters ahead of us may have given up
+            dispatch();
+        }
+        return future;
+    }
+
+    /**
+     * Wait for a permit on the calling thread.
+     *
+     * @throws TimeoutException No permit became free within the timeout
+     */
+    public Permit acquireBlocking(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        CompletableFuture<Permit> future = acquire();
+        try {
+            return future.get(timeout, unit);
+        } catch (TimeoutException | InterruptedException e) {
+            // Give up our place; if a permit was granted meanwhile, hand it back
+            if (!future.cancel(false)) {
+                future.join().release(Outcome.DROPPED);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Permit acquisition failed", e.getCause());
+        }
+    }
+
+    public synchronized int getLimit() {
+        return currentLimit();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiters.size();
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    private void release(Permit permit, Outcome outcome) {
+        synchronized (this) {
+            inFlight--;
+            if (outcome == Outcome.SUCCESS) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            } else if (outcome == Outcome.THROTTLED && permit.epoch == epoch) {
+                int previous = currentLimit();
+                limit = Math.max(minLimit, limit * backoffRatio);
+                epoch++;
+                if (currentLimit() < previous) {
+                    log.warn("⚠️ {} throttled: concurrency limit {} -> {}", name, previous, currentLimit());
+                }
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Hand free permits to waiters. Futures are completed outside the lock,
+     * because completing one runs the waiter's continuation.
+     */
+    private void dispatch() {
+        while (true) {
+            CompletableFuture<Permit> next;
+            Permit permit;
+            synchronized (this) {
+                if (waiters.isEmpty() || inFlight >= currentLimit()) {
+                    return;
+                }
+                next = waiters.pollFirst();
+                inFlight++;
+                permit = new Permit(epoch);
+            }
+            if (!next.complete(permit)) {
+                // Waiter gave up (timed out or cancelled) - permit goes to the next one
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    /**
+     * One in-flight call. Release exactly once, with the call's outcome.
+     */
+    public final class Permit {
+
+        private final long epoch;
+        private boolean released;
+
+        private Permit(long epoch) {
+            this.epoch = epoch;
+        }
+
+        public void release(Outcome outcome) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            AdaptiveConcurrencyLimiter.this.release(this, outcome);
+        }
+    }
+}
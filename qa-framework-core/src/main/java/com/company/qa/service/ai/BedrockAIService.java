@@ -4,6 +4,8 @@ import com.company.qa.config.AIConfig;
 import com.company.qa.model.dto.*;
 import com.company.qa.model.enums.AIProvider;
 import com.company.qa.model.enums.AITaskType;
+import com.company.qa.service.ai.AdaptiveConcurrencyLimiter.Outcome;
+import com.company.qa.service.ai.AdaptiveConcurrencyLimiter.Permit;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -12,19 +14,33 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamResponseHandler;
+import software.amazon.awssdk.services.bedrockruntime.model.ResponseStream;
 
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * AWS Bedrock AI Service with multi-model support.
@@ -35,17 +51,31 @@ import java.util.HashMap;
  * - Anthropic Claude (3 Haiku, 3 Sonnet, 3.5 Sonnet)
  * - AI21 Jurassic
  * - Meta Llama
+ *
+ * Streaming (generateTest/execute with an AIStreamConsumer) uses
+ * InvokeModelWithResponseStream on the async client, for every family but
+ * AI21 Jurassic, which cannot stream.
+ *
+ * Concurrency: the async client runs on a Netty connection pool
+ * (ai.bedrock.max-connections), and every model call - sync, async or
+ * streaming - holds a slot of an AdaptiveConcurrencyLimiter
+ * (ai.bedrock.max-in-flight) that shrinks on throttling and grows back on
+ * success. The *Async methods wait for their slot and for Bedrock without
+ * holding a thread, so AI latency does not tie up taskExecutor or
+ * agentExecutor threads.
  */
 @Service
 @Slf4j
 @RequiredArgsConstructor
-@ConditionalOnProperty(name = "ai.provider", havingValue = "bedrock")
+@ConditionalOnExpression("'${ai.provider:mock}' == 'bedrock' or (${ai.routing.enabled:false} and ${ai.bedrock.enabled:false})")
 public class BedrockAIService implements AIService {
 
     private final AIConfig aiConfig;
     private final ObjectMapper objectMapper;
 
     private BedrockRuntimeClient bedrockClient;
+    private BedrockRuntimeAsyncClient bedrockAsyncClient;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
     private ModelType modelType;
 
     @PostConstruct
@@ -65,12 +95,21 @@ public class BedrockAIService implements AIService {
         try {
             AIConfig.BedrockConfig config = aiConfig.getBedrock();
 
+            concurrencyLimiter = new AdaptiveConcurrencyLimiter("Bedrock",
+                    config.getMaxInFlight(), config.getMinInFlight(), config.getThrottleBackoffRatio());
+            log.info("In-flight limit: {} (min {}), connection pool: {}",
+                    config.getMaxInFlight(), config.getMinInFlight(), config.getMaxConnections());
+
             // Initialize client
             if (config.getAccessKeyId() == null || config.getAccessKeyId().isEmpty()) {
                 log.warn("AWS credentials not provided. Using default credential chain.");
                 bedrockClient = BedrockRuntimeClient.builder()
                         .region(Region.of(config.getRegion()))
                         .build();
+                bedrockAsyncClient = BedrockRuntimeAsyncClient.builder()
+                        .region(Region.of(config.getRegion()))
+                        .httpClientBuilder(asyncHttpClient(config))
+                        .build();
             } else {
                 AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(
                         config.getAccessKeyId(),
@@ -81,6 +120,11 @@ public class BedrockAIService implements AIService {
                         .region(Region.of(config.getRegion()))
                         .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                         .build();
+                bedrockAsyncClient = BedrockRuntimeAsyncClient.builder()
+                        .region(Region.of(config.getRegion()))
+                        .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                        .httpClientBuilder(asyncHttpClient(config))
+                        .build();
             }
 
             log.info("Bedrock client initialized successfully for {}", modelType);
@@ -95,6 +139,7 @@ public class BedrockAIService implements AIService {
         } catch (Exception e) {
             log.error("Failed to initialize Bedrock client: {}", e.getMessage(), e);
             bedrockClient = null;
+            bedrockAsyncClient = null;
         }
     }
 
@@ -108,6 +153,27 @@ public class BedrockAIService implements AIService {
                 log.warn("Error closing Bedrock client", e);
             }
         }
+        if (bedrockAsyncClient != null) {
+            try {
+                bedrockAsyncClient.close();
+                log.info("Closed Bedrock async client");
+            } catch (Exception e) {
+                log.warn("Error closing Bedrock async client", e);
+            }
+        }
+    }
+
+    /**
+     * Netty pool for the async client. Sized above the in-flight limit so a
+     * slot holder never waits for a connection.
+     */
+    private static NettyNioAsyncHttpClient.Builder asyncHttpClient(AIConfig.BedrockConfig config) {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(Math.max(config.getMaxConnections(), config.getMaxInFlight()))
+                .connectionAcquisitionTimeout(Duration.ofSeconds(config.getConnectionAcquireTimeout()))
+                .readTimeout(Duration.ofSeconds(config.getTimeout()))
+                .connectionMaxIdleTime(Duration.ofSeconds(60))
+                .tcpKeepAlive(true);
     }
 
     /**
@@ -172,12 +238,13 @@ public class BedrockAIService implements AIService {
         try {
             String prompt = buildTestGenerationPrompt(request);
 
-            // TestGenerationRequest doesn't have maxTokens/temperature, use config defaults
+            // TestGenerationRequest doesn't have maxTokens, use config default
             AIResponse response = invokeModel(
                     prompt,
+                    request.getCacheablePrefix(),
                     AITaskType.TEST_GENERATION,
                     aiConfig.getBedrock().getMaxTokens(),
-                    aiConfig.getBedrock().getTemperature()
+                    temperatureFor(request)
             );
 
             // ✅ NEW: Extract token breakdown from response metadata
@@ -221,6 +288,43 @@ public class BedrockAIService implements AIService {
             );
         }
     }
+
+    @Override
+    public AIResponse generateTest(TestGenerationRequest request, AIStreamConsumer consumer) {
+        if (consumer == null) {
+            return generateTest(request);
+        }
+        log.info("Bedrock AI [{}]: Streaming test generation for: {}", modelType, request.getDescription());
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            AIResponse response = invokeModelStreaming(
+                    buildTestGenerationPrompt(request),
+                    request.getCacheablePrefix(),
+                    AITaskType.TEST_GENERATION,
+                    aiConfig.getBedrock().getMaxTokens(),
+                    temperatureFor(request),
+                    consumer
+            );
+
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+            response.addMetadata("framework", request.getFramework());
+            response.addMetadata("language", request.getLanguage());
+            response.addMetadata("targetUrl", request.getTargetUrl());
+
+            return response;
+
+        } catch (Exception e) {
+            log.error("Failed to generate test: {}", e.getMessage(), e);
+            return AIResponse.error(
+                    "Failed to generate test: " + e.getMessage(),
+                    AIProvider.BEDROCK,
+                    AITaskType.TEST_GENERATION
+            );
+        }
+    }
+
     @Override
     public AIResponse analyzeFailure(FailureAnalysisRequest request) {
         log.info("Bedrock AI [{}]: Analyzing failure for test: {}", modelType, request.getTestName());
@@ -230,11 +334,11 @@ public class BedrockAIService implements AIService {
         try {
             String prompt = buildFailureAnalysisPrompt(request);
 
-            // FailureAnalysisRequest doesn't have maxTokens/temperature, use config defaults
+            // Config defaults, with the caller's token ceiling (agent budget) applied
             AIResponse response = invokeModel(
                     prompt,
                     AITaskType.FAILURE_ANALYSIS,
-                    aiConfig.getBedrock().getMaxTokens(),
+                    capMaxTokens(aiConfig.getBedrock().getMaxTokens(), request.getMaxTokens()),
                     aiConfig.getBedrock().getTemperature()
             );
 
@@ -322,16 +426,144 @@ public class BedrockAIService implements AIService {
         }
     }
 
+    @Override
+    public AIResponse execute(AIRequest request, AIStreamConsumer consumer) {
+        if (consumer == null) {
+            return execute(request);
+        }
+        log.info("Bedrock AI [{}]: Streaming custom task: {}", modelType, request.getTaskType());
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            AIResponse response = invokeModelStreaming(
+                    request.getPrompt(),
+                    request.getTaskType(),
+                    request.getMaxTokens() != null ? request.getMaxTokens() : aiConfig.getBedrock().getMaxTokens(),
+                    request.getTemperature() != null ? request.getTemperature() : aiConfig.getBedrock().getTemperature(),
+                    consumer
+            );
+
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+
+            if (request.getContext() != null) {
+                request.getContext().forEach(response::addMetadata);
+            }
+
+            return response;
+
+        } catch (Exception e) {
+            log.error("Failed to execute custom task: {}", e.getMessage(), e);
+            return AIResponse.error(
+                    "Failed to execute task: " + e.getMessage(),
+                    AIProvider.BEDROCK,
+                    request.getTaskType()
+            );
+        }
+    }
+
+    // ========== Async Variants ==========
+
+    @Override
+    public CompletableFuture<AIResponse> generateTestAsync(TestGenerationRequest request) {
+        log.info("Bedrock AI [{}]: Generating test (async) for: {}", modelType, request.getDescription());
+
+        long startTime = System.currentTimeMillis();
+
+        return invokeModelAsync(
+                buildTestGenerationPrompt(request),
+                request.getCacheablePrefix(),
+                AITaskType.TEST_GENERATION,
+                aiConfig.getBedrock().getMaxTokens(),
+                temperatureFor(request)
+        ).thenApply(response -> {
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+            response.addMetadata("framework", request.getFramework());
+            response.addMetadata("language", request.getLanguage());
+            response.addMetadata("targetUrl", request.getTargetUrl());
+            return response;
+        }).exceptionally(e -> {
+            log.error("Failed to generate test: {}", rootMessage(e));
+            return AIResponse.error(
+                    "Failed to generate test: " + rootMessage(e),
+                    AIProvider.BEDROCK,
+                    AITaskType.TEST_GENERATION
+            );
+        });
+    }
+
+    @Override
+    public CompletableFuture<AIResponse> analyzeFailureAsync(FailureAnalysisRequest request) {
+        log.info("Bedrock AI [{}]: Analyzing failure (async) for test: {}", modelType, request.getTestName());
+
+        long startTime = System.currentTimeMillis();
+
+        return invokeModelAsync(
+                buildFailureAnalysisPrompt(request),
+                AITaskType.FAILURE_ANALYSIS,
+                capMaxTokens(aiConfig.getBedrock().getMaxTokens(), request.getMaxTokens()),
+                aiConfig.getBedrock().getTemperature()
+        ).thenApply(response -> {
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+            response.addMetadata("testName", request.getTestName());
+            response.addMetadata("executionId", request.getExecutionId());
+            return response;
+        }).exceptionally(e -> {
+            log.error("Failed to analyze failure: {}", rootMessage(e));
+            return AIResponse.error(
+                    "Failed to analyze failure: " + rootMessage(e),
+                    AIProvider.BEDROCK,
+                    AITaskType.FAILURE_ANALYSIS
+            );
+        });
+    }
+
+    @Override
+    public CompletableFuture<AIResponse> executeAsync(AIRequest request) {
+        log.info("Bedrock AI [{}]: Executing custom task (async): {}", modelType, request.getTaskType());
+
+        long startTime = System.currentTimeMillis();
+
+        return invokeModelAsync(
+                request.getPrompt(),
+                request.getTaskType(),
+                request.getMaxTokens() != null ? request.getMaxTokens() : aiConfig.getBedrock().getMaxTokens(),
+                request.getTemperature() != null ? request.getTemperature() : aiConfig.getBedrock().getTemperature()
+        ).thenApply(response -> {
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+            if (request.getContext() != null) {
+                request.getContext().forEach(response::addMetadata);
+            }
+            return response;
+        }).exceptionally(e -> {
+            log.error("Failed to execute custom task: {}", rootMessage(e));
+            return AIResponse.error(
+                    "Failed to execute task: " + rootMessage(e),
+                    AIProvider.BEDROCK,
+                    request.getTaskType()
+            );
+        });
+    }
+
     // ========== Model Invocation ==========
 
     // 1. UPDATE invokeModel()
     private AIResponse invokeModel(String prompt, AITaskType taskType,
                                    Integer maxTokens, Double temperature) throws Exception {
+        return invokeModel(prompt, null, taskType, maxTokens, temperature);
+    }
+
+    /**
+     * @param cachePrefix Stable leading part of the prompt to mark for
+     *                    prompt caching (null = no caching)
+     */
+    private AIResponse invokeModel(String prompt, String cachePrefix, AITaskType taskType,
+                                   Integer maxTokens, Double temperature) throws Exception {
         if (bedrockClient == null) {
             throw new IllegalStateException("Bedrock client not initialized");
         }
 
-        String requestBody = buildRequestBody(prompt, maxTokens, temperature);
+        String requestBody = buildRequestBody(prompt, cachePrefix, maxTokens, temperature);
 
         log.debug("Invoking model: {} with request: {}", aiConfig.getBedrock().getModel(),
                 requestBody.substring(0, Math.min(200, requestBody.length())) + "...");
@@ -343,7 +575,15 @@ public class BedrockAIService implements AIService {
                 .body(SdkBytes.fromUtf8String(requestBody))
                 .build();
 
-        InvokeModelResponse invokeResponse = bedrockClient.invokeModel(invokeRequest);
+        Permit permit = acquirePermit();
+        InvokeModelResponse invokeResponse;
+        try {
+            invokeResponse = bedrockClient.invokeModel(invokeRequest);
+            permit.release(Outcome.SUCCESS);
+        } catch (RuntimeException e) {
+            permit.release(outcomeOf(e));
+            throw e;
+        }
 
         String responseBody = invokeResponse.body().asUtf8String();
         log.debug("Response: {}", responseBody.substring(0, Math.min(500, responseBody.length())) + "...");
@@ -367,14 +607,28 @@ public class BedrockAIService implements AIService {
 
             int promptTokens = 0;
             int completionTokens = 0;
+            int cacheReadTokens = 0;
+            int cacheWriteTokens = 0;
 
-            // Amazon Nova response structure
             if (jsonResponse.has("usage")) {
                 JsonNode usage = jsonResponse.get("usage");
-                promptTokens = usage.has("inputTokens") ? usage.get("inputTokens").asInt() : 0;
-                completionTokens = usage.has("outputTokens") ? usage.get("outputTokens").asInt() : 0;
+                if (modelType == ModelType.ANTHROPIC_CLAUDE) {
+                    // Claude Messages API: input_tokens excludes cached tokens
+                    promptTokens = usage.path("input_tokens").asInt(0);
+                    completionTokens = usage.path("output_tokens").asInt(0);
+                    cacheReadTokens = usage.path("cache_read_input_tokens").asInt(0);
+                    cacheWriteTokens = usage.path("cache_creation_input_tokens").asInt(0);
+                } else {
+                    // Amazon Nova response structure
+                    promptTokens = usage.path("inputTokens").asInt(0);
+                    completionTokens = usage.path("outputTokens").asInt(0);
+                    cacheReadTokens = usage.path("cacheReadInputTokenCount").asInt(0);
+                    cacheWriteTokens = usage.path("cacheWriteInputTokenCount").asInt(0);
+                }
             }
 
+            // promptTokens counts every input token; the cached share is priced separately
+            promptTokens += cacheReadTokens + cacheWriteTokens;
             int totalTokens = promptTokens + completionTokens;
 
             // Add to response metadata
@@ -385,20 +639,290 @@ public class BedrockAIService implements AIService {
             response.addMetadata("promptTokens", promptTokens);
             response.addMetadata("completionTokens", completionTokens);
             response.addMetadata("totalTokens", totalTokens);
+            addCacheUsage(response, cacheReadTokens, cacheWriteTokens);
 
             // Also set tokensUsed field
             if (response.getTokensUsed() == null || response.getTokensUsed() == 0) {
                 response.setTokensUsed(totalTokens);
             }
 
-            log.debug("Token usage - Input: {}, Output: {}, Total: {}",
-                    promptTokens, completionTokens, totalTokens);
+            log.debug("Token usage - Input: {} (cache read {}, write {}), Output: {}, Total: {}",
+                    promptTokens, cacheReadTokens, cacheWriteTokens, completionTokens, totalTokens);
 
         } catch (Exception e) {
             log.warn("Could not extract token usage: {}", e.getMessage());
             // Don't fail - tracking service will estimate if needed
         }
     }
+
+    /**
+     * Record prompt-cache usage and the model (for cache pricing) in the metadata.
+     */
+    private void addCacheUsage(AIResponse response, int cacheReadTokens, int cacheWriteTokens) {
+        response.addMetadata("modelId", aiConfig.getBedrock().getModel());
+        if (cacheReadTokens > 0 || cacheWriteTokens > 0) {
+            response.addMetadata("cacheReadTokens", cacheReadTokens);
+            response.addMetadata("cacheWriteTokens", cacheWriteTokens);
+        }
+    }
+
+    /**
+     * Non-blocking invokeModel: waits for an in-flight slot and for Bedrock
+     * without holding a thread. The response is parsed on the SDK's
+     * completion thread.
+     */
+    private CompletableFuture<AIResponse> invokeModelAsync(String prompt, AITaskType taskType,
+                                                           Integer maxTokens, Double temperature) {
+        return invokeModelAsync(prompt, null, taskType, maxTokens, temperature);
+    }
+
+    private CompletableFuture<AIResponse> invokeModelAsync(String prompt, String cachePrefix, AITaskType taskType,
+                                                           Integer maxTokens, Double temperature) {
+        if (bedrockAsyncClient == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Bedrock client not initialized"));
+        }
+
+        InvokeModelRequest invokeRequest;
+        try {
+            invokeRequest = InvokeModelRequest.builder()
+                    .modelId(aiConfig.getBedrock().getModel())
+                    .contentType("application/json")
+                    .accept("application/json")
+                    .body(SdkBytes.fromUtf8String(buildRequestBody(prompt, cachePrefix, maxTokens, temperature)))
+                    .build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return concurrencyLimiter.acquire()
+                .orTimeout(aiConfig.getBedrock().getInFlightWaitTimeout(), TimeUnit.SECONDS)
+                .thenCompose(permit -> bedrockAsyncClient.invokeModel(invokeRequest)
+                        .whenComplete((invokeResponse, error) -> permit.release(outcomeOf(error))))
+                .thenApply(invokeResponse -> {
+                    String responseBody = invokeResponse.body().asUtf8String();
+                    try {
+                        AIResponse response = parseResponse(responseBody, taskType);
+                        extractAndAddTokenUsage(responseBody, response);
+                        return response;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Wait (on this thread) for an in-flight slot.
+     */
+    private Permit acquirePermit() throws InterruptedException {
+        int timeout = aiConfig.getBedrock().getInFlightWaitTimeout();
+        try {
+            return concurrencyLimiter.acquireBlocking(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("No Bedrock in-flight slot free within " + timeout
+                    + "s (limit " + concurrencyLimiter.getLimit() + ")");
+        }
+    }
+
+    /**
+     * How a finished call affects the adaptive in-flight limit.
+     */
+    private static Outcome outcomeOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        if (cause == null) {
+            return Outcome.SUCCESS;
+        }
+        return cause instanceof SdkServiceException service && service.isThrottlingException()
+                ? Outcome.THROTTLED
+                : Outcome.DROPPED;
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && (cause instanceof CompletionException || cause instanceof ExecutionException)) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    // ========== Streaming Invocation ==========
+
+    /**
+     * Invoke the model with InvokeModelWithResponseStream, passing text to the
+     * consumer as chunks arrive. Stops reading (and cancels the call) as soon
+     * as the consumer stops the generation.
+     */
+    private AIResponse invokeModelStreaming(String prompt, AITaskType taskType, Integer maxTokens,
+                                            Double temperature, AIStreamConsumer consumer) throws Exception {
+        return invokeModelStreaming(prompt, null, taskType, maxTokens, temperature, consumer);
+    }
+
+    private AIResponse invokeModelStreaming(String prompt, String cachePrefix, AITaskType taskType,
+                                            Integer maxTokens, Double temperature,
+                                            AIStreamConsumer consumer) throws Exception {
+        if (modelType == ModelType.AI21_JURASSIC || bedrockAsyncClient == null) {
+            // Jurassic has no streaming API - deliver the complete response in one piece
+            AIResponse response = invokeModel(prompt, cachePrefix, taskType, maxTokens, temperature);
+            return AIStreamConsumer.replay(response, consumer);
+        }
+
+        InvokeModelWithResponseStreamRequest streamRequest = InvokeModelWithResponseStreamRequest.builder()
+                .modelId(aiConfig.getBedrock().getModel())
+                .contentType("application/json")
+                .accept("application/json")
+                .body(SdkBytes.fromUtf8String(buildRequestBody(prompt, cachePrefix, maxTokens, temperature)))
+                .build();
+
+        AIStreamAccumulator accumulator = new AIStreamAccumulator(consumer);
+        ChunkSubscriber subscriber = new ChunkSubscriber(accumulator);
+
+        Permit permit = acquirePermit();
+        Outcome outcome = Outcome.DROPPED;
+        CompletableFuture<Void> call = null;
+
+        try {
+            call = bedrockAsyncClient.invokeModelWithResponseStream(streamRequest,
+                    InvokeModelWithResponseStreamResponseHandler.builder()
+                            .onEventStream(publisher -> publisher.subscribe(subscriber))
+                            .build());
+
+            // Ends when the stream completes, fails, or the consumer stops it
+            CompletableFuture.anyOf(call, subscriber.done)
+                    .get(aiConfig.getBedrock().getTimeout(), TimeUnit.SECONDS);
+            outcome = Outcome.SUCCESS;
+        } catch (ExecutionException e) {
+            if (accumulator.isStopped()) {
+                outcome = Outcome.SUCCESS;
+            } else {
+                outcome = outcomeOf(e.getCause());
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        } finally {
+            // Stopped by the consumer, or timed out: release the connection
+            if (call != null && !call.isDone()) {
+                call.cancel(true);
+            }
+            permit.release(outcome);
+        }
+
+        if (accumulator.isStopped()) {
+            log.info("Bedrock stream stopped by consumer after {} chunks", accumulator.getChunkCount());
+        }
+        AIResponse response = accumulator.toResponse(AIProvider.BEDROCK, taskType, prompt);
+        response.addMetadata("modelId", aiConfig.getBedrock().getModel());
+        return response;
+    }
+
+    /**
+     * Read one stream chunk: append its text and record any usage it reports.
+     *
+     * Every family reports final counts in "amazon-bedrock-invocationMetrics"
+     * on the last chunk; the family-specific usage fields cover the rest.
+     */
+    private boolean handleStreamChunk(String chunkJson, AIStreamAccumulator accumulator) throws Exception {
+        JsonNode chunk = objectMapper.readTree(chunkJson);
+        String text;
+
+        switch (modelType) {
+            case AMAZON_TITAN:
+                text = chunk.path("outputText").asText("");
+                accumulator.reportUsage(intOrNull(chunk, "inputTextTokenCount"),
+                        intOrNull(chunk, "totalOutputTextTokenCount"));
+                break;
+
+            case ANTHROPIC_CLAUDE:
+                text = chunk.path("delta").path("text").asText("");
+                JsonNode startUsage = chunk.path("message").path("usage");
+                accumulator.reportUsage(intOrNull(startUsage, "input_tokens"),
+                        intOrNull(chunk.path("usage"), "output_tokens"));
+                accumulator.reportCacheUsage(intOrNull(startUsage, "cache_read_input_tokens"),
+                        intOrNull(startUsage, "cache_creation_input_tokens"));
+                break;
+
+            case META_LLAMA:
+                text = chunk.path("generation").asText("");
+                accumulator.reportUsage(intOrNull(chunk, "prompt_token_count"),
+                        intOrNull(chunk, "generation_token_count"));
+                break;
+
+            default:
+                // Amazon Nova (and unknown models, as elsewhere)
+                text = chunk.path("contentBlockDelta").path("delta").path("text").asText("");
+                JsonNode usage = chunk.path("metadata").path("usage");
+                accumulator.reportUsage(intOrNull(usage, "inputTokens"), intOrNull(usage, "outputTokens"));
+                accumulator.reportCacheUsage(intOrNull(usage, "cacheReadInputTokenCount"),
+                        intOrNull(usage, "cacheWriteInputTokenCount"));
+        }
+
+        JsonNode metrics = chunk.path("amazon-bedrock-invocationMetrics");
+        accumulator.reportUsage(intOrNull(metrics, "inputTokenCount"), intOrNull(metrics, "outputTokenCount"));
+
+        return accumulator.append(text);
+    }
+
+    private static Integer intOrNull(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isNumber() ? value.asInt() : null;
+    }
+
+    /**
+     * Pulls stream events one at a time, so a stopped stream reads no further.
+     */
+    private class ChunkSubscriber implements Subscriber<ResponseStream> {
+
+        private final AIStreamAccumulator accumulator;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final InvokeModelWithResponseStreamResponseHandler.Visitor visitor;
+        private Subscription subscription;
+        private boolean keepReading = true;
+
+        ChunkSubscriber(AIStreamAccumulator accumulator) {
+            this.accumulator = accumulator;
+            this.visitor = InvokeModelWithResponseStreamResponseHandler.Visitor.builder()
+                    .onChunk(part -> {
+                        try {
+                            keepReading = handleStreamChunk(part.bytes().asUtf8String(), accumulator);
+                        } catch (Exception e) {
+                            throw new IllegalStateException("Unreadable stream chunk: " + e.getMessage(), e);
+                        }
+                    })
+                    .build();
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ResponseStream event) {
+            try {
+                event.accept(visitor);
+            } catch (RuntimeException e) {
+                subscription.cancel();
+                done.completeExceptionally(e);
+                return;
+            }
+            if (keepReading) {
+                subscription.request(1);
+            } else {
+                subscription.cancel();
+                done.complete(null);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            done.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
     // ========== Request Building (Model-Specific) ==========
 
     /**
@@ -406,9 +930,19 @@ public class BedrockAIService implements AIService {
      * Each model family has different request format.
      */
     private String buildRequestBody(String prompt, Integer maxTokens, Double temperature) throws Exception {
+        return buildRequestBody(prompt, null, maxTokens, temperature);
+    }
+
+    /**
+     * Build request body, marking cachePrefix for prompt caching where the
+     * model supports it (Claude, Nova).
+     */
+    private String buildRequestBody(String prompt, String cachePrefix,
+                                    Integer maxTokens, Double temperature) throws Exception {
+        int cacheEnd = cachePointIndex(prompt, cachePrefix);
         switch (modelType) {
             case AMAZON_NOVA:
-                return buildNovaRequest(prompt, maxTokens, temperature);
+                return buildNovaRequest(prompt, cacheEnd, maxTokens, temperature);
 
             case AMAZON_TITAN:
                 return buildTitanRequest(prompt, maxTokens, temperature);
@@ -417,21 +951,41 @@ public class BedrockAIService implements AIService {
                 return buildAI21Request(prompt, maxTokens, temperature);
 
             case ANTHROPIC_CLAUDE:
-                return buildClaudeRequest(prompt, maxTokens, temperature);
+                return buildClaudeRequest(prompt, cacheEnd, maxTokens, temperature);
 
             case META_LLAMA:
                 return buildLlamaRequest(prompt, maxTokens, temperature);
 
             default:
-                return buildNovaRequest(prompt, maxTokens, temperature);
+                return buildNovaRequest(prompt, cacheEnd, maxTokens, temperature);
+        }
+    }
+
+    /**
+     * Where the cacheable part of the prompt ends: the end of cachePrefix
+     * within the prompt (the prompt template may put text before it).
+     * -1 when caching is off, the prefix is not in the prompt, or it is too
+     * short for the model to cache.
+     */
+    private int cachePointIndex(String prompt, String cachePrefix) {
+        if (!aiConfig.getBedrock().isPromptCaching() || cachePrefix == null || cachePrefix.isEmpty()) {
+            return -1;
+        }
+        int start = prompt.indexOf(cachePrefix);
+        if (start < 0) {
+            return -1;
         }
+        int end = start + cachePrefix.length();
+        // ~4 characters per token, as in AIGatewayService
+        boolean worthCaching = end / 4 >= aiConfig.getBedrock().getPromptCacheMinTokens();
+        return worthCaching && end < prompt.length() ? end : -1;
     }
 
     /**
      * Amazon Nova Request Format (Converse API)
      * Used by: amazon.nova-2-lite-v1:0, nova-2-sonic, nova-pro, nova-premier
      */
-    private String buildNovaRequest(String prompt, Integer maxTokens, Double temperature) throws Exception {
+    private String buildNovaRequest(String prompt, int cacheEnd, Integer maxTokens, Double temperature) throws Exception {
         ObjectNode requestNode = objectMapper.createObjectNode();
 
         // Messages array with user message
@@ -440,8 +994,15 @@ public class BedrockAIService implements AIService {
         messageNode.put("role", "user");
 
         ArrayNode contentNode = messageNode.putArray("content");
-        ObjectNode textNode = contentNode.addObject();
-        textNode.put("text", prompt);
+        if (cacheEnd > 0) {
+            // Cache everything up to the cache point
+            contentNode.addObject().put("text", prompt.substring(0, cacheEnd));
+            contentNode.addObject().putObject("cachePoint").put("type", "default");
+            contentNode.addObject().put("text", prompt.substring(cacheEnd));
+        } else {
+            ObjectNode textNode = contentNode.addObject();
+            textNode.put("text", prompt);
+        }
 
         // Inference configuration
         ObjectNode inferenceConfig = requestNode.putObject("inferenceConfig");
@@ -485,7 +1046,7 @@ public class BedrockAIService implements AIService {
     /**
      * Anthropic Claude Request Format (Messages API)
      */
-    private String buildClaudeRequest(String prompt, Integer maxTokens, Double temperature) throws Exception {
+    private String buildClaudeRequest(String prompt, int cacheEnd, Integer maxTokens, Double temperature) throws Exception {
         ObjectNode requestNode = objectMapper.createObjectNode();
         requestNode.put("anthropic_version", "bedrock-2023-05-31");
         requestNode.put("max_tokens", maxTokens);
@@ -494,7 +1055,19 @@ public class BedrockAIService implements AIService {
         ArrayNode messagesNode = requestNode.putArray("messages");
         ObjectNode messageNode = messagesNode.addObject();
         messageNode.put("role", "user");
-        messageNode.put("content", prompt);
+        if (cacheEnd > 0) {
+            // Content blocks: the first one (the stable prefix) is cached
+            ArrayNode contentNode = messageNode.putArray("content");
+            ObjectNode cachedNode = contentNode.addObject();
+            cachedNode.put("type", "text");
+            cachedNode.put("text", prompt.substring(0, cacheEnd));
+            cachedNode.putObject("cache_control").put("type", "ephemeral");
+            ObjectNode textNode = contentNode.addObject();
+            textNode.put("type", "text");
+            textNode.put("text", prompt.substring(cacheEnd));
+        } else {
+            messageNode.put("content", prompt);
+        }
 
         return objectMapper.writeValueAsString(requestNode);
     }
@@ -637,6 +1210,13 @@ public class BedrockAIService implements AIService {
                 rootNode.path("generation_token_count").asInt(0);
     }
 
+    /**
+     * Temperature requested for this generation, else the configured one.
+     */
+    private Double temperatureFor(TestGenerationRequest request) {
+        return request.getTemperature() != null ? request.getTemperature() : aiConfig.getBedrock().getTemperature();
+    }
+
     // ========== Prompt Building ==========
 
     private String buildTestGenerationPrompt(TestGenerationRequest request) {
@@ -710,4 +1290,14 @@ public class BedrockAIService implements AIService {
                 testCode
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Configured max tokens, lowered to the request's ceiling if it has one.
+     */
+    private static Integer capMaxTokens(Integer configured, Integer ceiling) {
+        if (ceiling == null || ceiling <= 0) {
+            return configured;
+        }
+        return configured != null ? Math.min(configured, ceiling) : ceiling;
+    }
+}
@@ -0,0 +1,70 @@
+package com.company.qa.service.ai;
+
+/**
+ * Stream consumer for generations that must answer with one JSON object
+ * (AITestGenerationService prompts "Return a JSON object ...").
+ *
+ * Tracks brace depth (outside string literals) as text arrives:
+ * - COMPLETE once the top-level object closes - anything after it is
+ *   commentary or a closing code fence that the parser strips anyway
+ * - ABORT if no '{' has appeared within maxPreambleChars (the model is
+ *   answering in prose) or the output passes maxChars (runaway generation,
+ *   e.g. a repeated literal that never closes)
+ *
+ * Stateful: use one instance per generation.
+ */
+public class JsonResponseStreamGuard implements AIStreamConsumer {
+
+    private final int maxChars;
+    private final int maxPreambleChars;
+
+    private int depth;
+    private boolean started;
+    private boolean inString;
+    private boolean escaped;
+    private int seen;
+
+    public JsonResponseStreamGuard(int maxChars, int maxPreambleChars) {
+        this.maxChars = maxChars;
+        this.maxPreambleChars = maxPreambleChars;
+    }
+
+    @Override
+    public StreamDecision onText(String delta, CharSequence textSoFar) {
+        for (int i = 0; i < delta.length(); i++) {
+            char c = delta.charAt(i);
+            seen++;
+
+            if (!started) {
+                if (c == '{') {
+                    started = true;
+                    depth = 1;
+                } else if (seen > maxPreambleChars) {
+                    return StreamDecision.ABORT;
+                }
+                continue;
+            }
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return StreamDecision.COMPLETE;
+            }
+        }
+
+        if (maxChars > 0 && textSoFar.length() > maxChars) {
+            return StreamDecision.ABORT;
+        }
+        return StreamDecision.CONTINUE;
+    }
+}
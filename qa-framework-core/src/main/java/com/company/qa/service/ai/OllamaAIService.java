@@ -4,32 +4,124 @@ import com.company.qa.config.AIConfig;
 import com.company.qa.model.dto.*;
 import com.company.qa.model.enums.AIProvider;
 import com.company.qa.model.enums.AITaskType;
+import com.company.qa.service.agent.resilience.AgentCircuitBreaker;
+import com.company.qa.service.ai.AdaptiveConcurrencyLimiter.Outcome;
+import com.company.qa.service.ai.AdaptiveConcurrencyLimiter.Permit;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Ollama AI Service - Local, free AI integration
  *
  * Supports local models like CodeLlama, Llama 3, etc.
  * Runs entirely on your machine - no cloud costs!
+ *
+ * Streaming (generateTest/execute with an AIStreamConsumer) reads Ollama's
+ * NDJSON stream (stream=true) line by line. It uses the JDK HttpClient:
+ * closing its body stream drops the connection, which stops the generation,
+ * whereas RestTemplate drains the rest of the body on close.
+ *
+ * Connections: every call - health check, plain or streaming - goes through
+ * one JDK HttpClient, which keeps connections alive and reuses them
+ * (ai.ollama.http2 negotiates HTTP/2 with a TLS proxy in front of Ollama).
+ * Connecting is bounded by ai.ollama.connect-timeout; a plain call must
+ * answer within ai.ollama.timeout, a streaming one must start within it.
+ *
+ * Concurrency: model calls hold a slot of an AdaptiveConcurrencyLimiter
+ * sized to the server's parallelism (ai.ollama.max-parallel, i.e.
+ * OLLAMA_NUM_PARALLEL). Extra calls queue here rather than in Ollama, and a
+ * "server busy" answer (503/429) halves the limit. Calls report to the
+ * "ollama" circuit of AgentCircuitBreaker: while it is open they fail at
+ * once, and isAvailable() is false.
+ *
+ * Metrics (Micrometer):
+ * - ai.ollama.in.flight / ai.ollama.queue.size / ai.ollama.concurrency.limit
+ * - ai.ollama.queue.wait timer with p50/p95/p99
+ * - ai.ollama.rejections{reason} (circuit_open, queue_timeout)
+ * - agent.tool.calls{tool=ollama} and agent.tool.circuit.* from the breaker
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
-@ConditionalOnProperty(name = "ai.provider", havingValue = "ollama")
+@ConditionalOnExpression("'${ai.provider:mock}' == 'ollama' or (${ai.routing.enabled:false} and ${ai.ollama.enabled:false})")
 public class OllamaAIService implements AIService {
 
+    /**
+     * Circuit name in AgentCircuitBreaker.
+     */
+    static final String CIRCUIT = "ollama";
+
     private final AIConfig aiConfig;
     private final ObjectMapper objectMapper;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final MeterRegistry meterRegistry;
+    private final AgentCircuitBreaker circuitBreaker;
+    private final HttpClient httpClient;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Timer queueWaitTimer;
+
+    @Autowired
+    public OllamaAIService(AIConfig aiConfig, ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry, AgentCircuitBreaker circuitBreaker) {
+        this.aiConfig = aiConfig;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = circuitBreaker;
+
+        AIConfig.OllamaConfig config = aiConfig.getOllama();
+        this.httpClient = HttpClient.newBuilder()
+                .version(config.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(config.getConnectTimeout()))
+                .build();
+        this.concurrencyLimiter = new AdaptiveConcurrencyLimiter("Ollama",
+                config.getMaxParallel(), config.getMinParallel(), config.getBusyBackoffRatio());
+
+        Gauge.builder("ai.ollama.in.flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Ollama model calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("ai.ollama.queue.size", concurrencyLimiter, AdaptiveConcurrencyLimiter::getWaiting)
+                .description("Ollama model calls waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("ai.ollama.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("ai.ollama.queue.wait")
+                .description("Time Ollama model calls waited for a slot")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Standalone service with in-memory metrics and its own breaker (tests).
+     */
+    public OllamaAIService(AIConfig aiConfig, ObjectMapper objectMapper) {
+        this(aiConfig, objectMapper, new SimpleMeterRegistry(), new AgentCircuitBreaker());
+    }
 
     @PostConstruct
     public void init() {
@@ -41,6 +133,7 @@ public class OllamaAIService implements AIService {
         log.info("Initializing Ollama AI Service");
         log.info("Base URL: {}", aiConfig.getOllama().getBaseUrl());
         log.info("Model: {}", aiConfig.getOllama().getModel());
+        log.info("Max parallel: {}, HTTP/2: {}", aiConfig.getOllama().getMaxParallel(), aiConfig.getOllama().isHttp2());
 
         // Verify Ollama is accessible
         if (isAvailable()) {
@@ -56,12 +149,22 @@ public class OllamaAIService implements AIService {
         return AIProvider.OLLAMA;
     }
 
+    /**
+     * False while the circuit is open; otherwise asks Ollama (/api/tags),
+     * bypassing the queue of model calls.
+     */
     @Override
     public boolean isAvailable() {
+        if (circuitBreaker.getState(CIRCUIT) == AgentCircuitBreaker.State.OPEN) {
+            return false;
+        }
         try {
-            String url = aiConfig.getOllama().getBaseUrl() + "/api/tags";
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-            return response.getStatusCode() == HttpStatus.OK;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(aiConfig.getOllama().getBaseUrl() + "/api/tags"))
+                    .timeout(Duration.ofSeconds(aiConfig.getOllama().getConnectTimeout()))
+                    .GET()
+                    .build();
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == HttpStatus.OK.value();
         } catch (Exception e) {
             log.debug("Ollama health check failed: {}", e.getMessage());
             return false;
@@ -83,7 +186,42 @@ public class OllamaAIService implements AIService {
                     prompt,
                     AITaskType.TEST_GENERATION,
                     aiConfig.getOllama().getMaxTokens(),
-                    aiConfig.getOllama().getTemperature()
+                    temperatureFor(request)
+            );
+
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+            response.addMetadata("framework", request.getFramework());
+            response.addMetadata("language", request.getLanguage());
+            response.addMetadata("targetUrl", request.getTargetUrl());
+
+            return response;
+
+        } catch (Exception e) {
+            log.error("Failed to generate test: {}", e.getMessage(), e);
+            return AIResponse.error(
+                    "Failed to generate test: " + e.getMessage(),
+                    AIProvider.OLLAMA,
+                    AITaskType.TEST_GENERATION
+            );
+        }
+    }
+
+    @Override
+    public AIResponse generateTest(TestGenerationRequest request, AIStreamConsumer consumer) {
+        if (consumer == null) {
+            return generateTest(request);
+        }
+        log.info("Ollama AI: Streaming test generation for: {}", request.getDescription());
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            AIResponse response = invokeModelStreaming(
+                    buildTestGenerationPrompt(request),
+                    AITaskType.TEST_GENERATION,
+                    aiConfig.getOllama().getMaxTokens(),
+                    temperatureFor(request),
+                    consumer
             );
 
             response.setDurationMs(System.currentTimeMillis() - startTime);
@@ -115,7 +253,7 @@ public class OllamaAIService implements AIService {
             AIResponse response = invokeModel(
                     prompt,
                     AITaskType.FAILURE_ANALYSIS,
-                    aiConfig.getOllama().getMaxTokens(),
+                    capMaxTokens(aiConfig.getOllama().getMaxTokens(), request.getMaxTokens()),
                     aiConfig.getOllama().getTemperature()
             );
 
@@ -203,6 +341,42 @@ public class OllamaAIService implements AIService {
         }
     }
 
+    @Override
+    public AIResponse execute(AIRequest request, AIStreamConsumer consumer) {
+        if (consumer == null) {
+            return execute(request);
+        }
+        log.info("Ollama AI: Streaming custom task: {}", request.getTaskType());
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            AIResponse response = invokeModelStreaming(
+                    request.getPrompt(),
+                    request.getTaskType(),
+                    request.getMaxTokens() != null ? request.getMaxTokens() : aiConfig.getOllama().getMaxTokens(),
+                    request.getTemperature() != null ? request.getTemperature() : aiConfig.getOllama().getTemperature(),
+                    consumer
+            );
+
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+
+            if (request.getContext() != null) {
+                request.getContext().forEach(response::addMetadata);
+            }
+
+            return response;
+
+        } catch (Exception e) {
+            log.error("Failed to execute custom task: {}", e.getMessage(), e);
+            return AIResponse.error(
+                    "Failed to execute task: " + e.getMessage(),
+                    AIProvider.OLLAMA,
+                    request.getTaskType()
+            );
+        }
+    }
+
     // ========== Ollama API Integration ==========
 
     private AIResponse invokeModel(String prompt, AITaskType taskType,
@@ -219,29 +393,17 @@ public class OllamaAIService implements AIService {
         String requestJson = objectMapper.writeValueAsString(ollamaRequest);
         log.debug("Ollama request: {}", requestJson.substring(0, Math.min(200, requestJson.length())));
 
-        // Set up HTTP request
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        HttpEntity<String> entity = new HttpEntity<>(requestJson, headers);
-
         // Call Ollama API
-        String url = aiConfig.getOllama().getBaseUrl() + "/api/generate";
-
-        ResponseEntity<String> responseEntity = restTemplate.exchange(
-                url,
-                HttpMethod.POST,
-                entity,
-                String.class
-        );
-
-        if (responseEntity.getStatusCode() != HttpStatus.OK) {
-            throw new RuntimeException("Ollama API returned: " + responseEntity.getStatusCode());
-        }
+        HttpRequest httpRequest = generateRequest(requestJson);
+        String responseBody = call(() -> {
+            HttpResponse<String> response = send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            checkStatus(response.statusCode());
+            return response.body();
+        });
 
         // Parse response
         OllamaResponse ollamaResponse = objectMapper.readValue(
-                responseEntity.getBody(),
+                responseBody,
                 OllamaResponse.class
         );
 
@@ -259,6 +421,261 @@ public class OllamaAIService implements AIService {
                 .build();
     }
 
+    /**
+     * Call /api/generate with stream=true. Each NDJSON line carries the next
+     * piece of text; the last one ("done": true) carries the token counts.
+     * Closing the body early drops the connection, which makes Ollama stop
+     * generating.
+     */
+    private AIResponse invokeModelStreaming(String prompt, AITaskType taskType, Integer maxTokens,
+                                            Double temperature, AIStreamConsumer consumer) throws Exception {
+        OllamaRequest ollamaRequest = OllamaRequest.createStreaming(
+                aiConfig.getOllama().getModel(),
+                prompt,
+                maxTokens,
+                temperature
+        );
+
+        HttpRequest httpRequest = generateRequest(objectMapper.writeValueAsString(ollamaRequest));
+        AIStreamAccumulator accumulator = new AIStreamAccumulator(consumer);
+
+        // The slot is held until the stream is read (or dropped)
+        call(() -> {
+            HttpResponse<InputStream> response = send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+            int idleTimeout = aiConfig.getOllama().getStreamIdleTimeout();
+            try (StreamWatchdog watchdog = new StreamWatchdog(response.body(), TimeUnit.SECONDS.toMillis(idleTimeout));
+                 BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                checkStatus(response.statusCode());
+                try {
+                    readStream(reader, accumulator, watchdog);
+                } catch (IOException e) {
+                    if (!watchdog.isExpired()) {
+                        throw e;
+                    }
+                }
+                if (watchdog.isExpired()) {
+                    throw new TimeoutException("Ollama stream stalled: nothing received for " + idleTimeout + "s");
+                }
+            }
+            return null;
+        });
+
+        if (accumulator.isStopped()) {
+            // No final line: Ollama sends one line per generated token, so count lines
+            accumulator.reportUsage(null, accumulator.getChunkCount());
+            log.info("Ollama stream stopped by consumer after {} chunks", accumulator.getChunkCount());
+        }
+        return accumulator.toResponse(AIProvider.OLLAMA, taskType, prompt);
+    }
+
+    private void readStream(BufferedReader reader, AIStreamAccumulator accumulator,
+                            StreamWatchdog watchdog) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            watchdog.touch();
+            if (line.isBlank()) {
+                continue;
+            }
+            OllamaResponse chunk = objectMapper.readValue(line, OllamaResponse.class);
+            if (Boolean.TRUE.equals(chunk.getDone())) {
+                accumulator.reportUsage(chunk.getPrompt_eval_count(), chunk.getEval_count());
+            }
+            if (!accumulator.append(chunk.getResponse())) {
+                return;
+            }
+        }
+    }
+
+    // ========== Connection Handling ==========
+
+    /**
+     * One Ollama call, or several steps that must share one slot.
+     */
+    @FunctionalInterface
+    private interface OllamaCall<T> {
+        T execute() throws Exception;
+    }
+
+    /**
+     * Run a model call: fail at once while the circuit is open, wait for an
+     * in-flight slot, then report the outcome to the limiter and the breaker.
+     * A busy answer (503/429) lowers the in-flight limit but is a success for
+     * the breaker: the server is up, just full, and the limiter already backs off.
+     */
+    private <T> T call(OllamaCall<T> call) throws Exception {
+        if (!circuitBreaker.allowRequest(CIRCUIT)) {
+            rejections("circuit_open").increment();
+            throw new IllegalStateException("Ollama circuit is open, not calling " + aiConfig.getOllama().getBaseUrl());
+        }
+
+        long startTime = System.currentTimeMillis();
+        Permit permit = acquirePermit(startTime);
+        long callStart = System.currentTimeMillis();
+        Outcome outcome = Outcome.DROPPED;
+        try {
+            T result = call.execute();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (OllamaStatusException e) {
+            outcome = e.isBusy() ? Outcome.THROTTLED : Outcome.DROPPED;
+            throw e;
+        } finally {
+            permit.release(outcome);
+            circuitBreaker.recordCall(CIRCUIT, outcome != Outcome.DROPPED, System.currentTimeMillis() - callStart,
+                    TimeUnit.SECONDS.toMillis(aiConfig.getOllama().getSlowCallThreshold()));
+        }
+    }
+
+    /**
+     * Wait (on this thread) for an in-flight slot. Not getting one counts as
+     * a failed call: every slot stayed busy for the whole wait. So does an
+     * interrupted wait - allowRequest may have handed this call the
+     * HALF_OPEN probe, which only a recorded outcome gives back.
+     */
+    private Permit acquirePermit(long startTime) throws InterruptedException {
+        int timeout = aiConfig.getOllama().getQueueTimeout();
+        try {
+            return concurrencyLimiter.acquireBlocking(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            rejections("queue_timeout").increment();
+            circuitBreaker.recordCall(CIRCUIT, false, System.currentTimeMillis() - startTime,
+                    TimeUnit.SECONDS.toMillis(aiConfig.getOllama().getSlowCallThreshold()));
+            throw new IllegalStateException("No Ollama slot free within " + timeout
+                    + "s (limit " + concurrencyLimiter.getLimit() + ")");
+        } catch (InterruptedException e) {
+            circuitBreaker.recordCall(CIRCUIT, false, System.currentTimeMillis() - startTime,
+                    TimeUnit.SECONDS.toMillis(aiConfig.getOllama().getSlowCallThreshold()));
+            throw e;
+        } finally {
+            queueWaitTimer.record(System.currentTimeMillis() - startTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Send a request; the response (for a stream: its headers) must arrive
+     * within ai.ollama.timeout, otherwise the exchange is cancelled.
+     */
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws Exception {
+        int timeout = aiConfig.getOllama().getTimeout();
+        CompletableFuture<HttpResponse<T>> future = httpClient.sendAsync(request, bodyHandler);
+        try {
+            return future.get(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TimeoutException("Ollama did not answer within " + timeout + "s");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private HttpRequest generateRequest(String requestJson) {
+        return HttpRequest.newBuilder(URI.create(aiConfig.getOllama().getBaseUrl() + "/api/generate"))
+                .timeout(Duration.ofSeconds(aiConfig.getOllama().getTimeout()))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(requestJson))
+                .build();
+    }
+
+    private static void checkStatus(int statusCode) {
+        if (statusCode != HttpStatus.OK.value()) {
+            throw new OllamaStatusException(statusCode);
+        }
+    }
+
+    private Counter rejections(String reason) {
+        return Counter.builder("ai.ollama.rejections")
+                .description("Ollama model calls rejected before reaching the server")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Closes a streamed body that has gone quiet for longer than the idle
+     * timeout, which unblocks the reader. ai.ollama.timeout only bounds the
+     * wait for the headers, so without this a stalled generation would hold
+     * its in-flight slot forever.
+     */
+    private static final class StreamWatchdog implements AutoCloseable {
+
+        private final InputStream body;
+        private final long idleTimeoutMs;
+        private volatile long lastReadMs = System.currentTimeMillis();
+        private volatile boolean closed;
+        private volatile boolean expired;
+
+        StreamWatchdog(InputStream body, long idleTimeoutMs) {
+            this.body = body;
+            this.idleTimeoutMs = idleTimeoutMs;
+            if (idleTimeoutMs > 0) {
+                checkAfter(idleTimeoutMs);
+            }
+        }
+
+        void touch() {
+            lastReadMs = System.currentTimeMillis();
+        }
+
+        boolean isExpired() {
+            return expired;
+        }
+
+        private void checkAfter(long delayMs) {
+            CompletableFuture.runAsync(this::check, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+        }
+
+        private void check() {
+            if (closed) {
+                return;
+            }
+            long idleMs = System.currentTimeMillis() - lastReadMs;
+            if (idleMs < idleTimeoutMs) {
+                checkAfter(idleTimeoutMs - idleMs);
+                return;
+            }
+            expired = true;
+            try {
+                body.close();
+            } catch (IOException e) {
+                log.debug("Closing stalled Ollama stream failed: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Non-200 answer from Ollama. 503 (queue full, OLLAMA_MAX_QUEUE) and 429
+     * mean the server is busy rather than broken.
+     */
+    private static class OllamaStatusException extends RuntimeException {
+
+        private final int statusCode;
+
+        OllamaStatusException(int statusCode) {
+            super("Ollama API returned: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        boolean isBusy() {
+            return statusCode == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || statusCode == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+    }
+
+    /**
+     * Temperature requested for this generation, else the configured one.
+     */
+    private Double temperatureFor(TestGenerationRequest request) {
+        return request.getTemperature() != null ? request.getTemperature() : aiConfig.getOllama().getTemperature();
+    }
+
     // ========== Prompt Building ==========
 
     private String buildTestGenerationPrompt(TestGenerationRequest request) {
@@ -332,4 +749,14 @@ public class OllamaAIService implements AIService {
                 testCode
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Configured max tokens, lowered to the request's ceiling if it has one.
+     */
+    private static Integer capMaxTokens(Integer configured, Integer ceiling) {
+        if (ceiling == null || ceiling <= 0) {
+            return configured;
+        }
+        return configured != null ? Math.min(configured, ceiling) : ceiling;
+    }
+}
@@ -0,0 +1,497 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.exception.ResourceNotFoundException;
+import com.company.qa.exception.TestGenerationException;
+import com.company.qa.integration.jira.JiraStoryService;
+import com.company.qa.model.dto.request.TestGenerationBatchRequest;
+import com.company.qa.model.dto.request.TestGenerationRequest;
+import com.company.qa.model.dto.response.TestGenerationBatchResponse;
+import com.company.qa.model.dto.response.TestGenerationResponse;
+import com.company.qa.model.entity.JiraStory;
+import com.company.qa.model.entity.TestGenerationBatch;
+import com.company.qa.model.entity.TestGenerationBatch.BatchStatus;
+import com.company.qa.model.entity.TestGenerationBatchItem;
+import com.company.qa.model.entity.TestGenerationBatchItem.ItemStatus;
+import com.company.qa.repository.AIGeneratedTestRepository;
+import com.company.qa.repository.JiraStoryRepository;
+import com.company.qa.repository.TestGenerationBatchItemRepository;
+import com.company.qa.repository.TestGenerationBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk test generation for many JIRA stories (e.g. a whole sprint).
+ *
+ * A batch is a TestGenerationBatch row plus one TestGenerationBatchItem per
+ * story. Up to the batch's parallelism stories are generated at the same
+ * time on testGenerationExecutor, each through
+ * AITestGenerationService.generateTestFromStory (with its own retries).
+ *
+ * Per story:
+ * 1. Load the story (fetched from JIRA if not stored yet)
+ * 2. Hash its summary, description, acceptance criteria and the generation
+ *    settings. If an earlier batch generated the same hash and that test
+ *    still exists, the story is SKIPPED (unless forceRegenerate)
+ * 3. Otherwise generate it; the item records the outcome, test ID and cost
+ *
+ * Cost ceiling (maxCostUsd): before a story starts, its expected cost is
+ * reserved against the ceiling - the average cost of the stories generated
+ * so far, or ai.test-generation.cost.max-per-test-usd before the first one.
+ * When a reservation does not fit, no further stories are started and the
+ * batch ends BUDGET_EXHAUSTED. A failed story is charged its reservation,
+ * as the cost of its failed attempts is not reported back.
+ *
+ * Restarts: items are persisted as they progress. On startup, QUEUED and
+ * RUNNING batches put their RUNNING items back to PENDING and continue;
+ * finished stories are not repeated. Stopped batches (cancelled, or out of
+ * budget) can be resumed the same way.
+ */
+@Service
+@Slf4j
+public class TestGenerationBatchService {
+
+    private final TestGenerationBatchRepository batchRepository;
+    private final TestGenerationBatchItemRepository itemRepository;
+    private final JiraStoryRepository jiraStoryRepository;
+    private final JiraStoryService jiraStoryService;
+    private final AIGeneratedTestRepository generatedTestRepository;
+    private final AITestGenerationService generationService;
+    private final Executor executor;
+
+    @Value("${ai.test-generation.batch.default-parallelism:4}")
+    private int defaultParallelism = 4;
+
+    @Value("${ai.test-generation.batch.max-parallelism:8}")
+    private int maxParallelism = 8;
+
+    @Value("${ai.test-generation.batch.resume-on-startup:true}")
+    private boolean resumeOnStartup = true;
+
+    @Value("${ai.test-generation.cost.max-per-test-usd:0.50}")
+    private BigDecimal maxCostPerTest = new BigDecimal("0.50");
+
+    /**
+     * Batches with workers on this node.
+     */
+    private final Map<UUID, BatchRun> runs = new ConcurrentHashMap<>();
+
+    public TestGenerationBatchService(TestGenerationBatchRepository batchRepository,
+                                      TestGenerationBatchItemRepository itemRepository,
+                                      JiraStoryRepository jiraStoryRepository,
+                                      JiraStoryService jiraStoryService,
+                                      AIGeneratedTestRepository generatedTestRepository,
+                                      AITestGenerationService generationService,
+                                      @Qualifier("testGenerationExecutor") Executor executor) {
+        this.batchRepository = batchRepository;
+        this.itemRepository = itemRepository;
+        this.jiraStoryRepository = jiraStoryRepository;
+        this.jiraStoryService = jiraStoryService;
+        this.generatedTestRepository = generatedTestRepository;
+        this.generationService = generationService;
+        this.executor = executor;
+    }
+
+    /**
+     * Create a batch and start generating in the background.
+     * Without story keys, every story ready for test generation is included.
+     */
+    public TestGenerationBatchResponse startBatch(TestGenerationBatchRequest request) {
+        List<String> storyKeys = resolveStoryKeys(request);
+        if (storyKeys.isEmpty()) {
+            throw new TestGenerationException("No JIRA stories to generate tests for");
+        }
+
+        int parallelism = request.getParallelism() != null ? request.getParallelism() : defaultParallelism;
+        TestGenerationBatch batch = batchRepository.save(TestGenerationBatch.builder()
+                .status(BatchStatus.QUEUED)
+                .testType(request.getTestType())
+                .testFramework(request.getTestFramework())
+                .skipQualityCheck(request.isSkipQualityCheck())
+                .forceRegenerate(request.isForceRegenerate())
+                .parallelism(Math.max(1, Math.min(parallelism, maxParallelism)))
+                .maxCostUsd(request.getMaxCostUsd())
+                .totalStories(storyKeys.size())
+                .requestedBy(request.getRequestedBy())
+                .build());
+
+        List<TestGenerationBatchItem> items = storyKeys.stream()
+                .map(key -> TestGenerationBatchItem.builder()
+                        .batchId(batch.getId())
+                        .jiraStoryKey(key)
+                        .status(ItemStatus.PENDING)
+                        .build())
+                .toList();
+        itemRepository.saveAll(items);
+
+        log.info("📦 Test generation batch {} created: {} stories, parallelism {}, cost ceiling {}",
+                batch.getId(), storyKeys.size(), batch.getParallelism(),
+                batch.getMaxCostUsd() != null ? "$" + batch.getMaxCostUsd() : "none");
+
+        launch(batch);
+        return getBatch(batch.getId());
+    }
+
+    /**
+     * Continue a cancelled or budget-exhausted batch with its remaining stories.
+     *
+     * @param maxCostUsd New cost ceiling for the whole batch (null = keep)
+     */
+    public TestGenerationBatchResponse resumeBatch(UUID batchId, BigDecimal maxCostUsd) {
+        TestGenerationBatch batch = findBatch(batchId);
+        if (batch.isActive()) {
+            return getBatch(batchId);
+        }
+        if (runs.containsKey(batchId)) {
+            throw new TestGenerationException("Batch " + batchId + " is still finishing its running stories");
+        }
+        if (maxCostUsd != null) {
+            batch.setMaxCostUsd(maxCostUsd);
+        }
+        batch.setStatus(BatchStatus.QUEUED);
+        batch.setErrorMessage(null);
+        batch.setCompletedAt(null);
+        batchRepository.save(batch);
+
+        log.info("▶️ Resuming test generation batch {}", batchId);
+        itemRepository.resetRunning(batchId);
+        launch(batch);
+        return getBatch(batchId);
+    }
+
+    /**
+     * Stop starting new stories. Stories already generating finish; the rest
+     * stay PENDING (see resumeBatch).
+     */
+    public TestGenerationBatchResponse cancelBatch(UUID batchId) {
+        TestGenerationBatch batch = findBatch(batchId);
+        if (!batch.isActive()) {
+            return getBatch(batchId);
+        }
+
+        BatchRun run = runs.get(batchId);
+        if (run != null) {
+            run.cancelled = true;
+        }
+        batch.setStatus(BatchStatus.CANCELLED);
+        batch.setCompletedAt(Instant.now());
+        batchRepository.save(batch);
+
+        log.info("⏹️ Test generation batch {} cancelled", batchId);
+        return getBatch(batchId);
+    }
+
+    /**
+     * Batch status with per-story progress.
+     */
+    public TestGenerationBatchResponse getBatch(UUID batchId) {
+        TestGenerationBatchResponse response = toResponse(findBatch(batchId));
+        response.setStories(itemRepository.findByBatchIdOrderByCreatedAtAsc(batchId).stream()
+                .map(TestGenerationBatchResponse.StoryProgress::fromEntity)
+                .toList());
+        return response;
+    }
+
+    /**
+     * Most recent batches, without per-story progress.
+     */
+    public List<TestGenerationBatchResponse> getRecentBatches() {
+        return batchRepository.findTop20ByOrderByCreatedAtDesc().stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    /**
+     * Continue batches interrupted by a restart. Stories that were being
+     * generated when the server stopped are generated again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedBatches() {
+        if (!resumeOnStartup) {
+            return;
+        }
+
+        List<TestGenerationBatch> interrupted = batchRepository.findByStatusIn(
+                List.of(BatchStatus.QUEUED, BatchStatus.RUNNING));
+        if (interrupted.isEmpty()) {
+            return;
+        }
+
+        log.warn("⚠️ Resuming {} interrupted test generation batch(es)", interrupted.size());
+        for (TestGenerationBatch batch : interrupted) {
+            try {
+                int requeued = itemRepository.resetRunning(batch.getId());
+                log.info("  → Batch {}: {} interrupted stories re-queued", batch.getId(), requeued);
+                launch(batch);
+            } catch (Exception e) {
+                log.error("  → Could not resume batch {}: {}", batch.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    // ========== Workers ==========
+
+    private void launch(TestGenerationBatch batch) {
+        if (runs.containsKey(batch.getId())) {
+            return;
+        }
+
+        List<TestGenerationBatchItem> pending =
+                itemRepository.findByBatchIdAndStatusOrderByCreatedAtAsc(batch.getId(), ItemStatus.PENDING);
+        BatchRun run = new BatchRun(batch, pending, itemRepository.sumCost(batch.getId()));
+        runs.put(batch.getId(), run);
+
+        batch.setStatus(BatchStatus.RUNNING);
+        if (batch.getStartedAt() == null) {
+            batch.setStartedAt(Instant.now());
+        }
+        batchRepository.save(batch);
+
+        int workers = Math.max(1, Math.min(batch.getParallelism(), pending.size()));
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> work(run), executor);
+        }
+        CompletableFuture.allOf(futures).whenComplete((ignored, error) -> finish(run, error));
+    }
+
+    /**
+     * One worker: generate stories from the batch queue until it is empty,
+     * the batch is cancelled or the cost ceiling is reached.
+     */
+    private void work(BatchRun run) {
+        TestGenerationBatchItem item;
+        while (!run.cancelled && (item = run.queue.poll()) != null) {
+            BigDecimal reservation = run.expectedCost(maxCostPerTest);
+            if (!run.reserve(reservation)) {
+                log.warn("💰 Batch {}: cost ceiling ${} reached (${} spent) - no further stories started",
+                        run.batch.getId(), run.batch.getMaxCostUsd(), run.spent());
+                run.budgetExhausted = true;
+                run.queue.clear();
+                return;
+            }
+            generate(run, item, reservation);
+        }
+    }
+
+    private void generate(BatchRun run, TestGenerationBatchItem item, BigDecimal reservation) {
+        TestGenerationBatch batch = run.batch;
+        long start = System.currentTimeMillis();
+        item.setStatus(ItemStatus.RUNNING);
+        item.setStartedAt(Instant.now());
+        item.setErrorMessage(null);
+        itemRepository.save(item);
+
+        BigDecimal cost = BigDecimal.ZERO;
+        try {
+            JiraStory story = jiraStoryRepository.findByJiraKey(item.getJiraStoryKey())
+                    .orElseGet(() -> jiraStoryService.fetchAndSaveFromJira(item.getJiraStoryKey()));
+            item.setContentHash(contentHash(story, batch));
+
+            if (!Boolean.TRUE.equals(batch.getForceRegenerate()) && isUnchanged(item)) {
+                item.setStatus(ItemStatus.SKIPPED);
+            } else {
+                TestGenerationResponse response = generationService.generateTestFromStory(
+                        TestGenerationRequest.builder()
+                                .jiraStoryKey(item.getJiraStoryKey())
+                                .testType(batch.getTestType())
+                                .testFramework(batch.getTestFramework())
+                                .skipQualityCheck(Boolean.TRUE.equals(batch.getSkipQualityCheck()))
+                                .build());
+                cost = response.getTotalCostUsd() != null ? response.getTotalCostUsd() : BigDecimal.ZERO;
+                item.setStatus(ItemStatus.SUCCEEDED);
+                item.setGeneratedTestId(response.getTestId());
+                run.recordGenerated(cost);
+            }
+        } catch (Exception e) {
+            cost = reservation;
+            item.setStatus(ItemStatus.FAILED);
+            item.setErrorMessage(e.getMessage());
+        } finally {
+            run.settle(reservation, cost);
+        }
+
+        item.setCostUsd(cost);
+        item.setCompletedAt(Instant.now());
+        item.setDurationMs(System.currentTimeMillis() - start);
+        itemRepository.save(item);
+
+        log.info("📦 Batch {} [{}/{}]: {} {} in {}ms (${} spent)",
+                batch.getId(), run.done.incrementAndGet(), batch.getTotalStories(),
+                item.getJiraStoryKey(), item.getStatus(), item.getDurationMs(), run.spent());
+    }
+
+    /**
+     * The story was generated before with the same content and settings,
+     * and that test still exists.
+     */
+    private boolean isUnchanged(TestGenerationBatchItem item) {
+        return itemRepository.findFirstByJiraStoryKeyAndContentHashAndStatusOrderByCompletedAtDesc(
+                        item.getJiraStoryKey(), item.getContentHash(), ItemStatus.SUCCEEDED)
+                .map(previous -> previous.getGeneratedTestId() != null
+                        && generatedTestRepository.existsById(previous.getGeneratedTestId()))
+                .orElse(false);
+    }
+
+    private void finish(BatchRun run, Throwable error) {
+        runs.remove(run.batch.getId());
+        TestGenerationBatch batch = batchRepository.findById(run.batch.getId()).orElse(run.batch);
+
+        if (batch.getStatus() != BatchStatus.CANCELLED) {
+            if (run.budgetExhausted) {
+                batch.setStatus(BatchStatus.BUDGET_EXHAUSTED);
+                batch.setErrorMessage("Cost ceiling of $" + batch.getMaxCostUsd() + " reached");
+            } else if (run.cancelled) {
+                batch.setStatus(BatchStatus.CANCELLED);
+            } else {
+                batch.setStatus(BatchStatus.COMPLETED);
+                if (error != null) {
+                    batch.setErrorMessage(error.getMessage());
+                }
+            }
+            batch.setCompletedAt(Instant.now());
+            batchRepository.save(batch);
+        }
+
+        log.info("✅ Test generation batch {} finished: {} (${} spent)",
+                batch.getId(), batch.getStatus(), run.spent());
+    }
+
+    // ========== Helpers ==========
+
+    private List<String> resolveStoryKeys(TestGenerationBatchRequest request) {
+        List<String> keys = request.getJiraStoryKeys() != null && !request.getJiraStoryKeys().isEmpty()
+                ? request.getJiraStoryKeys()
+                : jiraStoryService.getStoriesReadyForTestGeneration().stream().map(JiraStory::getJiraKey).toList();
+
+        LinkedHashSet<String> distinct = new LinkedHashSet<>();
+        for (String key : keys) {
+            if (key != null && !key.isBlank()) {
+                distinct.add(key.trim());
+            }
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    /**
+     * SHA-256 of what the generated test depends on: the story content and
+     * the generation settings.
+     */
+    static String contentHash(JiraStory story, TestGenerationBatch batch) {
+        StringBuilder sb = new StringBuilder()
+                .append(batch.getTestType()).append('|')
+                .append(batch.getTestFramework());
+        for (String part : new String[]{story.getSummary(), story.getDescription(), story.getAcceptanceCriteria()}) {
+            // Length prefix keeps ("ab", "c") and ("a", "bc") apart
+            String value = part != null ? part.trim() : "";
+            sb.append('|').append(value.length()).append(':').append(value);
+        }
+        return DigestUtils.sha256Hex(sb.toString());
+    }
+
+    private TestGenerationBatch findBatch(UUID batchId) {
+        return batchRepository.findById(batchId)
+                .orElseThrow(() -> new ResourceNotFoundException("Test generation batch", batchId.toString()));
+    }
+
+    private TestGenerationBatchResponse toResponse(TestGenerationBatch batch) {
+        Map<ItemStatus, Integer> counts = new EnumMap<>(ItemStatus.class);
+        for (Object[] row : itemRepository.countByStatus(batch.getId())) {
+            counts.put((ItemStatus) row[0], ((Number) row[1]).intValue());
+        }
+
+        return TestGenerationBatchResponse.builder()
+                .batchId(batch.getId())
+                .status(batch.getStatus())
+                .testType(batch.getTestType())
+                .testFramework(batch.getTestFramework())
+                .parallelism(batch.getParallelism())
+                .totalStories(batch.getTotalStories())
+                .pending(counts.getOrDefault(ItemStatus.PENDING, 0))
+                .running(counts.getOrDefault(ItemStatus.RUNNING, 0))
+                .succeeded(counts.getOrDefault(ItemStatus.SUCCEEDED, 0))
+                .skipped(counts.getOrDefault(ItemStatus.SKIPPED, 0))
+                .failed(counts.getOrDefault(ItemStatus.FAILED, 0))
+                .maxCostUsd(batch.getMaxCostUsd())
+                .spentCostUsd(itemRepository.sumCost(batch.getId()))
+                .errorMessage(batch.getErrorMessage())
+                .createdAt(batch.getCreatedAt())
+                .startedAt(batch.getStartedAt())
+                .completedAt(batch.getCompletedAt())
+                .build();
+    }
+
+    /**
+     * In-memory state of a batch with workers on this node: the story queue
+     * and the cost ceiling shared by its workers.
+     */
+    private static final class BatchRun {
+
+        final TestGenerationBatch batch;
+        final Queue<TestGenerationBatchItem> queue;
+        final AtomicInteger done;
+        volatile boolean cancelled;
+        volatile boolean budgetExhausted;
+
+        private BigDecimal spent;
+        private BigDecimal reserved = BigDecimal.ZERO;
+        private BigDecimal generatedCost = BigDecimal.ZERO;
+        private int generated;
+
+        BatchRun(TestGenerationBatch batch, List<TestGenerationBatchItem> pending, BigDecimal spent) {
+            this.batch = batch;
+            this.queue = new ConcurrentLinkedQueue<>(pending);
+            this.done = new AtomicInteger(batch.getTotalStories() - pending.size());
+            this.spent = spent != null ? spent : BigDecimal.ZERO;
+        }
+
+        synchronized BigDecimal expectedCost(BigDecimal fallback) {
+            return generated > 0
+                    ? generatedCost.divide(BigDecimal.valueOf(generated), 6, RoundingMode.HALF_UP)
+                    : fallback;
+        }
+
+        synchronized boolean reserve(BigDecimal amount) {
+            BigDecimal ceiling = batch.getMaxCostUsd();
+            if (ceiling != null && spent.add(reserved).add(amount).compareTo(ceiling) > 0) {
+                return false;
+            }
+            reserved = reserved.add(amount);
+            return true;
+        }
+
+        synchronized void settle(BigDecimal reservation, BigDecimal actual) {
+            reserved = reserved.subtract(reservation);
+            spent = spent.add(actual);
+        }
+
+        synchronized void recordGenerated(BigDecimal cost) {
+            generatedCost = generatedCost.add(cost);
+            generated++;
+        }
+
+        synchronized BigDecimal spent() {
+            return spent;
+        }
+    }
+}
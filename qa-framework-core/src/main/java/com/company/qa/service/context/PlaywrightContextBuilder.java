@@ -14,11 +14,15 @@ import org.springframework.beans.factory.annotation.Value;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.core.io.ClassPathResource;
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -66,6 +70,7 @@ public class PlaywrightContextBuilder {
     private final PageObjectRegistryService pageObjectRegistryService;
 
     private final FrameworkCapabilityService frameworkCapabilityService;
+    private final PromptBudgeter promptBudgeter;
 
     /**
      * Feature flag for Zero-Hallucination intent mode.
@@ -76,6 +81,17 @@ public class PlaywrightContextBuilder {
     @Value("${playwright.intent.enabled:false}")
     private boolean intentEnabled;
 
+    /**
+     * Prompt segments that do not depend on the story (locator guide,
+     * framework context, output formats), built once on first use.
+     */
+    private final Map<String, String> staticSegments = new ConcurrentHashMap<>();
+
+    /**
+     * Sauce Demo element registry (classpath resource), parsed once.
+     */
+    private volatile JsonNode sauceDemoPages;
+
     // ═══════════════════════════════════════════════════════════════════
     // MAIN CONTEXT BUILDING METHODS
     // ═══════════════════════════════════════════════════════════════════
@@ -104,92 +120,116 @@ public class PlaywrightContextBuilder {
             JiraStory story,
             String userPrompt,
             AIGeneratedTest.TestType testType) {
+        return buildBudgetedPlaywrightTestPrompt(story, userPrompt, testType).text();
+    }
+
+    /**
+     * buildPlaywrightTestPrompt, fitted to the model's prompt budget
+     * (see PromptBudgeter), with its per-section token breakdown.
+     *
+     * Story, acceptance criteria, instructions and output format are always
+     * kept; description, additional context, locator guide and framework
+     * context are trimmed in that order of relevance.
+     */
+    public PromptBudgeter.BudgetedPrompt buildBudgetedPlaywrightTestPrompt(
+            JiraStory story,
+            String userPrompt,
+            AIGeneratedTest.TestType testType) {
 
         log.debug("Building Playwright test prompt for JIRA story: {}", story.getJiraKey());
 
-        StringBuilder prompt = new StringBuilder();
+        List<PromptBudgeter.Section> sections = new ArrayList<>();
 
         // ───────────────────────────────────────────────────────────────
         // 1. User's Custom Request (if provided)
         // ───────────────────────────────────────────────────────────────
         if (userPrompt != null && !userPrompt.trim().isEmpty()) {
-            prompt.append(userPrompt).append("\n\n");
+            sections.add(PromptBudgeter.Section.required("userPrompt", userPrompt + "\n\n"));
         }
 
         // ───────────────────────────────────────────────────────────────
         // 2. Story Context Header
         // ───────────────────────────────────────────────────────────────
-        prompt.append("=== JIRA Story Context ===\n");
-        prompt.append("Story Key: ").append(story.getJiraKey()).append("\n");
-        prompt.append("Type: ").append(story.getStoryType()).append("\n");
-        prompt.append("Status: ").append(story.getStatus()).append("\n");
-        prompt.append("Priority: ").append(story.getPriority()).append("\n");
-        prompt.append("\n");
+        StringBuilder header = new StringBuilder();
+        header.append("=== JIRA Story Context ===\n");
+        header.append("Story Key: ").append(story.getJiraKey()).append("\n");
+        header.append("Type: ").append(story.getStoryType()).append("\n");
+        header.append("Status: ").append(story.getStatus()).append("\n");
+        header.append("Priority: ").append(story.getPriority()).append("\n");
+        header.append("\n");
 
         // ───────────────────────────────────────────────────────────────
         // 3. Summary (Most Important Field)
         // ───────────────────────────────────────────────────────────────
-        prompt.append("=== Story Summary ===\n");
-        prompt.append(cleanJiraHtml(story.getSummary())).append("\n\n");
+        header.append("=== Story Summary ===\n");
+        header.append(cleanJiraHtml(story.getSummary())).append("\n\n");
+        sections.add(PromptBudgeter.Section.required("storyContext", header.toString()));
 
         // ───────────────────────────────────────────────────────────────
         // 4. Description (if present)
         // ───────────────────────────────────────────────────────────────
         if (story.getDescription() != null && !story.getDescription().trim().isEmpty()) {
-            prompt.append("=== Description ===\n");
-            prompt.append(cleanJiraHtml(story.getDescription())).append("\n\n");
+            sections.add(PromptBudgeter.Section.optional("description",
+                    "=== Description ===\n" + cleanJiraHtml(story.getDescription()) + "\n\n",
+                    PromptBudgeter.Priority.HIGH));
         }
 
         // ───────────────────────────────────────────────────────────────
         // 5. Acceptance Criteria (Parsed and Structured)
         // ───────────────────────────────────────────────────────────────
-        if (story.hasAcceptanceCriteria()) {
-            ParsedAcceptanceCriteria parsedAC = acParser.parse(story.getAcceptanceCriteria());
-            prompt.append(buildAcceptanceCriteriaSection(parsedAC));
+        ParsedAcceptanceCriteria parsedAC = story.hasAcceptanceCriteria()
+                ? acParser.parse(story.getAcceptanceCriteria())
+                : null;
+        if (parsedAC != null) {
+            sections.add(PromptBudgeter.Section.required("acceptanceCriteria",
+                    buildAcceptanceCriteriaSection(parsedAC)));
         }
 
         // ───────────────────────────────────────────────────────────────
         // 6. Additional Context (Labels, Components, etc.)
         // ───────────────────────────────────────────────────────────────
-        prompt.append(buildAdditionalContext(story));
+        sections.add(PromptBudgeter.Section.optional("additionalContext",
+                buildAdditionalContext(story), PromptBudgeter.Priority.MEDIUM));
 
         // ───────────────────────────────────────────────────────────────
         // 7. Playwright-Specific Test Generation Instructions
         // ───────────────────────────────────────────────────────────────
-        ParsedAcceptanceCriteria.ACFormat acFormat = story.hasAcceptanceCriteria()
-                ? acParser.parse(story.getAcceptanceCriteria()).getFormat()
+        ParsedAcceptanceCriteria.ACFormat acFormat = parsedAC != null
+                ? parsedAC.getFormat()
                 : ParsedAcceptanceCriteria.ACFormat.EMPTY;
 
         if (intentEnabled) {
-            prompt.append(buildIntentTestInstructions(testType, acFormat));
-            prompt.append(frameworkCapabilityService.getCapabilitiesForPrompt());
-            prompt.append("\n\n");
+            sections.add(PromptBudgeter.Section.required("instructions",
+                    buildIntentTestInstructions(testType, acFormat)
+                            + frameworkCapabilityService.getCapabilitiesForPrompt()
+                            + "\n\n"));
         } else {
-            prompt.append(buildPlaywrightTestInstructions(testType, acFormat));
+            sections.add(PromptBudgeter.Section.required("instructions",
+                    buildPlaywrightTestInstructions(testType, acFormat)));
         }
         // ───────────────────────────────────────────────────────────────
         // 8. Locator Strategy Guidance (CRITICAL for 70-80% usability)
         // ───────────────────────────────────────────────────────────────
-        prompt.append(buildLocatorStrategyGuide());
+        sections.add(PromptBudgeter.Section.optional("locatorGuide",
+                staticSegment("locatorGuide", this::buildLocatorStrategyGuide), PromptBudgeter.Priority.HIGH));
 
         // ───────────────────────────────────────────────────────────────
         // 9. Framework Context
         // ───────────────────────────────────────────────────────────────
-        prompt.append(buildFrameworkContext());
+        sections.add(PromptBudgeter.Section.optional("frameworkContext",
+                staticSegment("frameworkContext", this::buildFrameworkContext), PromptBudgeter.Priority.LOW));
 
         // ───────────────────────────────────────────────────────────────
         // 10. Output Format Instructions
         // ───────────────────────────────────────────────────────────────
-        if (intentEnabled) {
-            prompt.append(buildIntentOutputFormatInstructions(story.getJiraKey()));
+        sections.add(PromptBudgeter.Section.required("outputFormat", intentEnabled
+                ? getIntentOutputFormatInstructions(story.getJiraKey())
+                : staticSegment("outputFormat", this::buildOutputFormatInstructions)));
 
-        } else {
-            prompt.append(buildOutputFormatInstructions());
-        }
-        String result = prompt.toString();
+        PromptBudgeter.BudgetedPrompt result = promptBudgeter.fit(story.getJiraKey(), sections);
         log.debug("Built Playwright prompt: {} characters, {} sections",
-                result.length(),
-                countSections(result));
+                result.text().length(),
+                countSections(result.text()));
 
         return result;
     }
@@ -264,70 +304,105 @@ public class PlaywrightContextBuilder {
      * Build complete AI context with registry integration.
      */
     public String buildContext(JiraStory story, String openApiContext) {
+        return buildBudgetedContext(story, openApiContext).text();
+    }
+
+    /**
+     * buildContext, fitted to the model's prompt budget (see PromptBudgeter),
+     * with its per-section token breakdown.
+     *
+     * Sections that are the same for every story (guidance or framework
+     * constraints, output format) come first and form the prompt's stable
+     * prefix, which providers with prompt caching reuse across stories.
+     * The story and its registry context follow.
+     *
+     * Story context, framework constraints and output format are always
+     * kept. Registry context is ranked by relevance to the story: elements
+     * and Page Objects of the pages the story mentions (extractRelevantPages)
+     * rank HIGH; the full registries, used when no page is recognised, rank
+     * LOW and are the first to be trimmed.
+     */
+    public PromptBudgeter.BudgetedPrompt buildBudgetedContext(JiraStory story, String openApiContext) {
         log.info("Building enhanced Playwright context for story: {}", story.getJiraKey());
 
-        StringBuilder context = new StringBuilder();
+        List<PromptBudgeter.Section> sections = new ArrayList<>();
 
-        // 1. JIRA Story Context
-        context.append("=== JIRA Story Context ===\n");
-        context.append(jiraContextBuilder.buildMinimalPrompt(story));
-        context.append("\n\n");
+        // ── Stable prefix ──────────────────────────────────────────────
+        // 1a. Framework Capabilities (intent mode only — tells AI the exact JSON schema)
+        if (intentEnabled) {
+            sections.add(PromptBudgeter.Section.required("frameworkConstraints",
+                    "=== Zero-Hallucination Pipeline: Framework Constraints ===\n"
+                            + frameworkCapabilityService.getCapabilitiesForPrompt() + "\n\n").asStable());
+        }
+
+        // 1b. Playwright Best Practices (legacy mode only — intent mode uses capabilities above)
+        if (!intentEnabled) {
+            sections.add(PromptBudgeter.Section.optional("guidance",
+                    getPlaywrightGuidance() + "\n\n", PromptBudgeter.Priority.MEDIUM).asStable());
+        }
+
+        // 2. Output Format Instructions — switches based on intent mode flag
+        sections.add(PromptBudgeter.Section.required("outputFormat", intentEnabled
+                ? staticSegment("intentOutputFormat", this::buildIntentOutputFormatInstructions)
+                : getOutputFormatInstructions() + "\n").asStable());
+
+        // ── Story-specific ─────────────────────────────────────────────
+        // 3. JIRA Story Context
+        sections.add(PromptBudgeter.Section.required("storyContext",
+                "=== JIRA Story Context ===\n" + jiraContextBuilder.buildMinimalPrompt(story) + "\n\n"));
+
+        if (intentEnabled) {
+            sections.add(PromptBudgeter.Section.required("testClassName",
+                    buildTestClassNameSection(story.getJiraKey())));
+        }
 
-        // 2. OpenAPI Context (if available)
+        // 4. OpenAPI Context (if available)
         if (openApiContext != null && !openApiContext.trim().isEmpty()) {
-            context.append("=== API Context ===\n");
-            context.append(openApiContext);
-            context.append("\n\n");
+            sections.add(PromptBudgeter.Section.optional("apiContext",
+                    "=== API Context ===\n" + openApiContext + "\n\n", PromptBudgeter.Priority.MEDIUM));
         }
 
         if (isSauceDemoStory(story)) {
-            context.append("=== Sauce Demo Application Context ===\n");
-            context.append("Base URL: https://www.saucedemo.com\n");
-            context.append("Test Credentials: standard_user / secret_sauce\n");
-            context.append("Framework: Playwright Java\n");
-            context.append("Base Class: extends BasePlaywrightTest\n");
-            context.append("\n");
+            StringBuilder sauceDemo = new StringBuilder();
+            sauceDemo.append("=== Sauce Demo Application Context ===\n");
+            sauceDemo.append("Base URL: https://www.saucedemo.com\n");
+            sauceDemo.append("Test Credentials: standard_user / secret_sauce\n");
+            sauceDemo.append("Framework: Playwright Java\n");
+            sauceDemo.append("Base Class: extends BasePlaywrightTest\n");
+            sauceDemo.append("\n");
 
             // Load Sauce Demo specific element registry
-            context.append(getSauceDemoElementContext(story));
-            context.append("\n");
-
-
+            sauceDemo.append(getSauceDemoElementContext(story));
+            sauceDemo.append("\n");
+            sections.add(PromptBudgeter.Section.optional("sauceDemoContext",
+                    sauceDemo.toString(), PromptBudgeter.Priority.HIGH));
         }
 
-        if(!isSauceDemoStory(story)) { // 3. Element Registry Context (NEW - Week 13)
+        if(!isSauceDemoStory(story)) { // 5. Element Registry Context (NEW - Week 13)
             List<String> relevantPages = extractRelevantPages(story);
-            String elementContext = elementRegistryService.getContextForAIPrompt(relevantPages);
-            context.append(elementContext);
-            context.append("\n");
+            PromptBudgeter.Priority registryPriority = relevantPages.isEmpty()
+                    ? PromptBudgeter.Priority.LOW
+                    : PromptBudgeter.Priority.HIGH;
 
-            // 4. Page Object Registry Context (NEW - Week 13)
-            String pageObjectContext = pageObjectRegistryService.getContextForAIPrompt();
-            context.append(pageObjectContext);
-            context.append("\n");
-        }
-        // 5a. Framework Capabilities (intent mode only — tells AI the exact JSON schema)
-        if (intentEnabled) {
-            context.append("=== Zero-Hallucination Pipeline: Framework Constraints ===\n");
-            context.append(frameworkCapabilityService.getCapabilitiesForPrompt());
-            context.append("\n\n");
-        }
+            String elementContext = elementRegistryService.getContextForAIPrompt(relevantPages);
+            sections.add(PromptBudgeter.Section.optional("elementRegistry",
+                    elementContext + "\n", registryPriority));
 
-        // 5b. Playwright Best Practices (legacy mode only — intent mode uses capabilities above)
-        if (!intentEnabled) {
-            context.append(getPlaywrightGuidance());
-            context.append("\n\n");
+            // 6. Page Object Registry Context (NEW - Week 13)
+            String pageObjectContext = pageObjectRegistryService.getContextForAIPrompt(relevantPages);
+            sections.add(PromptBudgeter.Section.optional("pageObjects",
+                    pageObjectContext + "\n", registryPriority));
         }
 
-        // 6. Output Format Instructions — switches based on intent mode flag
-        if (intentEnabled) {
-            context.append(getIntentOutputFormatInstructions(story.getJiraKey()));
-        } else {
-            context.append(getOutputFormatInstructions());
-        }
+        // 7. Closing instruction - the output format is far above the story now
+        sections.add(PromptBudgeter.Section.required("task",
+                "=== Task ===\nGenerate the test for the story above, following the output format"
+                        + " given at the start. Return ONLY the JSON object.\n"));
 
-        log.debug("Built context: {} characters", context.length());
-        return context.toString();
+        PromptBudgeter.BudgetedPrompt context = promptBudgeter.fit(story.getJiraKey(), sections);
+        log.debug("Built context: {} characters ({} in stable prefix)", context.text().length(),
+                context.stablePrefix() != null ? context.stablePrefix().length() : 0);
+        return context;
     }
 
     /**
@@ -393,7 +468,7 @@ Use locators in this priority order:
 
 === IMPORTANT INSTRUCTIONS ===
 
-1. **CHECK ELEMENT REGISTRY FIRST**: If an element is listed in the Element Registry above, 
+1. **CHECK ELEMENT REGISTRY FIRST**: If an element is listed in the Element Registry section, 
    USE THE EXACT locator code provided. Do NOT create your own locator for that element.
 
 2. **CHECK PAGE OBJECT REGISTRY**: If a Page Object exists for the page you're testing,
@@ -901,10 +976,13 @@ CRITICAL:
      * Any field the AI returns that is not in this schema is silently ignored
      * (JsonIgnoreProperties on the model classes).
      *
+     * Story-independent, so it can be cached and shared as a prompt prefix;
+     * the class name to use comes separately (buildTestClassNameSection).
+     *
      * @since Zero-Hallucination Pipeline
      */
-    private String buildIntentOutputFormatInstructions(String jiraKey) {
-        String exampleClassName = generateClassName(jiraKey);
+    private String buildIntentOutputFormatInstructions() {
+        String exampleClassName = "Proj123Test";
         return "=== Required Output Format (TestIntent JSON) ===\n\n"
                 + "Return ONLY a valid JSON object with this EXACT structure (no markdown, no code blocks):\n\n"
                 + "{\n"
@@ -939,7 +1017,7 @@ CRITICAL:
                 + "  ]\n"
                 + "}\n\n"
                 + "Field Rules:\n"
-                + "- testClassName: Valid Java identifier ending with \"Test\" — use exactly: " + exampleClassName + "\n"
+                + "- testClassName: Valid Java identifier ending with \"Test\" — use exactly the name given under Test Class Name\n"
                 + "- baseUrl: Optional. Application base URL for context only.\n"
                 + "- scenarios: Array of test scenarios. At least one required.\n"
                 + "- scenario.name: camelCase Java method name (e.g., \"testSuccessfulLogin\"). No spaces.\n"
@@ -966,6 +1044,14 @@ CRITICAL:
                 + "- Use EXACT action type names from the Supported Actions list\n";
     }
 
+    /**
+     * The story-specific part of the intent output format, kept out of the
+     * cached format template.
+     */
+    private String buildTestClassNameSection(String jiraKey) {
+        return "=== Test Class Name ===\nUse exactly: " + generateClassName(jiraKey) + "\n\n";
+    }
+
     private String generateClassName(String jiraKey) {
         String[] parts = jiraKey.split("-");
         StringBuilder className = new StringBuilder();
@@ -984,7 +1070,15 @@ CRITICAL:
      */
     private String getIntentOutputFormatInstructions(String jiraKey) {
         // Delegates to intent-specific method to keep naming consistent
-        return buildIntentOutputFormatInstructions(jiraKey);
+        return staticSegment("intentOutputFormat", this::buildIntentOutputFormatInstructions)
+                + buildTestClassNameSection(jiraKey);
+    }
+
+    /**
+     * A story-independent prompt segment, built on first use.
+     */
+    private String staticSegment(String name, Supplier<String> builder) {
+        return staticSegments.computeIfAbsent(name, key -> builder.get());
     }
 
     // ═══════════════════════════════════════════════════════════════════
@@ -1065,25 +1159,17 @@ CRITICAL:
     private String getSauceDemoElementContext(JiraStory story) {
         StringBuilder context = new StringBuilder();
 
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            // Load Sauce Demo element registry
-            ClassPathResource resource = new ClassPathResource(
-                    "playwright/element-registry-saucedemo.json");
-
-            try (InputStream is = resource.getInputStream()) {
-                JsonNode registry = objectMapper.readTree(is);
-                JsonNode pages = registry.get("pages");
+            JsonNode pages = getSauceDemoPages();
 
-                // Identify relevant Sauce Demo pages
-                List<String> relevantPages = identifySauceDemoPages(story);
+            // Identify relevant Sauce Demo pages
+            List<String> relevantPages = identifySauceDemoPages(story);
 
-                if (!relevantPages.isEmpty()) {
-                    context.append("Available Sauce Demo Page Elements:\n\n");
+            if (!relevantPages.isEmpty()) {
+                context.append("Available Sauce Demo Page Elements:\n\n");
 
-                    for (String pageName : relevantPages) {
-                        context.append(buildSauceDemoPageContext(pages, pageName));
-                    }
+                for (String pageName : relevantPages) {
+                    context.append(buildSauceDemoPageContext(pages, pageName));
                 }
             }
         } catch (Exception e) {
@@ -1093,6 +1179,22 @@ CRITICAL:
         return context.toString();
     }
 
+    /**
+     * Sauce Demo registry pages, read from the classpath on first use.
+     */
+    private JsonNode getSauceDemoPages() throws IOException {
+        JsonNode pages = sauceDemoPages;
+        if (pages == null) {
+            ClassPathResource resource = new ClassPathResource(
+                    "playwright/element-registry-saucedemo.json");
+            try (InputStream is = resource.getInputStream()) {
+                pages = new ObjectMapper().readTree(is).get("pages");
+            }
+            sauceDemoPages = pages;
+        }
+        return pages;
+    }
+
     /**
      * Identify relevant Sauce Demo pages from story
      */
@@ -0,0 +1,243 @@
+package com.company.qa.service.context;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.service.agent.AgentContextCompactor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Fits generated prompts into a per-model token budget.
+ *
+ * Context builders describe a prompt as ordered sections, each with a
+ * priority reflecting how relevant it is to the story:
+ * - REQUIRED: story, instructions, output format - always kept in full
+ * - HIGH / MEDIUM / LOW: optional context (registries, guidance, examples)
+ *
+ * Tokens are estimated per section (~4 characters per token, as in
+ * AIGatewayService). If the prompt is over budget, optional sections get the
+ * remaining room by priority (document order within a priority); a section
+ * that does not fit is cut to the room left (head and tail, as
+ * AgentContextCompactor.fitSection), or dropped if less than
+ * ai.prompt-budget.min-section-tokens is left. Sections keep their original
+ * order in the prompt.
+ *
+ * The budget is ai.prompt-budget.max-tokens for the configured model
+ * (longest matching key), else ai.prompt-budget.default-max-tokens.
+ *
+ * Stable sections (text that does not change between stories: guidance,
+ * output format, full registries) are meant to be placed first. The
+ * leading run of stable sections is reported as the prompt's stablePrefix,
+ * which providers can cache (see BedrockAIService prompt caching).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PromptBudgeter {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final AIConfig aiConfig;
+
+    public enum Priority {
+        REQUIRED,
+        HIGH,
+        MEDIUM,
+        LOW
+    }
+
+    /**
+     * One named part of a prompt.
+     *
+     * @param stable Text is the same for every story (part of the cacheable prefix)
+     */
+    public record Section(String name, String text, Priority priority, boolean stable) {
+
+        public static Section required(String name, String text) {
+            return new Section(name, text, Priority.REQUIRED, false);
+        }
+
+        public static Section optional(String name, String text, Priority priority) {
+            return new Section(name, text, priority, false);
+        }
+
+        public Section asStable() {
+            return new Section(name, text, priority, true);
+        }
+    }
+
+    /**
+     * What happened to a section: estimated tokens before and after budgeting.
+     */
+    public record SectionUsage(String name, Priority priority, int tokens, int keptTokens) {
+
+        public boolean isTrimmed() {
+            return keptTokens > 0 && keptTokens < tokens;
+        }
+
+        public boolean isDropped() {
+            return keptTokens == 0 && tokens > 0;
+        }
+    }
+
+    /**
+     * A budgeted prompt and its per-section token breakdown.
+     *
+     * @param stablePrefix Leading text shared by every prompt built the same
+     *                     way (null = none); a prefix of text
+     */
+    public record BudgetedPrompt(String text, int budgetTokens, List<SectionUsage> sections, String stablePrefix) {
+
+        /**
+         * Prompt without a budget breakdown (builders that do not budget).
+         */
+        public static BudgetedPrompt unbudgeted(String text) {
+            return new BudgetedPrompt(text, 0, List.of(), null);
+        }
+
+        /**
+         * Same breakdown for a modified prompt. The stable prefix is kept
+         * only if the new text still starts with it.
+         */
+        public BudgetedPrompt withText(String newText) {
+            boolean prefixKept = stablePrefix != null && newText != null && newText.startsWith(stablePrefix);
+            return new BudgetedPrompt(newText, budgetTokens, sections, prefixKept ? stablePrefix : null);
+        }
+
+        public int estimatedTokens() {
+            return estimateTokens(text);
+        }
+
+        /**
+         * Compact breakdown for logs and AIUsageLog.promptBreakdown, e.g.
+         * "storyContext=310, elementRegistry=900/2400(trimmed), pageObjects=0/800(dropped)".
+         * Null when the prompt was not budgeted.
+         */
+        public String breakdown() {
+            if (sections.isEmpty()) {
+                return null;
+            }
+            return sections.stream()
+                    .filter(section -> section.tokens() > 0)
+                    .map(section -> section.keptTokens() == section.tokens()
+                            ? section.name() + "=" + section.tokens()
+                            : section.name() + "=" + section.keptTokens() + "/" + section.tokens()
+                                    + (section.isDropped() ? "(dropped)" : "(trimmed)"))
+                    .collect(Collectors.joining(", "));
+        }
+    }
+
+    /**
+     * Assemble sections into a prompt that fits the active model's budget.
+     *
+     * @param label What the prompt is for (log messages), e.g. the story key
+     */
+    public BudgetedPrompt fit(String label, List<Section> sections) {
+        return fit(label, sections, resolveBudget());
+    }
+
+    /**
+     * Assemble sections into a prompt of at most budgetTokens (estimated),
+     * as far as the required sections allow.
+     */
+    public BudgetedPrompt fit(String label, List<Section> sections, int budgetTokens) {
+        List<Section> present = sections.stream()
+                .filter(section -> section.text() != null && !section.text().isEmpty())
+                .toList();
+
+        String[] kept = new String[present.size()];
+        int[] tokens = new int[present.size()];
+        int total = 0;
+        int remaining = budgetTokens;
+
+        for (int i = 0; i < present.size(); i++) {
+            tokens[i] = estimateTokens(present.get(i).text());
+            total += tokens[i];
+            if (present.get(i).priority() == Priority.REQUIRED) {
+                kept[i] = present.get(i).text();
+                remaining -= tokens[i];
+            }
+        }
+
+        boolean unlimited = !aiConfig.getPromptBudget().isEnabled() || budgetTokens <= 0;
+        List<Integer> optional = new ArrayList<>();
+        for (int i = 0; i < present.size(); i++) {
+            if (present.get(i).priority() != Priority.REQUIRED) {
+                optional.add(i);
+            }
+        }
+        optional.sort(Comparator.comparing((Integer i) -> present.get(i).priority()).thenComparing(i -> i));
+
+        int minSectionTokens = aiConfig.getPromptBudget().getMinSectionTokens();
+        for (int i : optional) {
+            String text = present.get(i).text();
+            if (unlimited || tokens[i] <= remaining) {
+                kept[i] = text;
+                remaining -= tokens[i];
+            } else if (remaining >= minSectionTokens) {
+                kept[i] = AgentContextCompactor.fitSection(text, remaining);
+                remaining = 0;
+            }
+        }
+
+        StringBuilder prompt = new StringBuilder();
+        List<SectionUsage> usage = new ArrayList<>();
+        int stablePrefixChars = 0;
+        boolean inStablePrefix = true;
+        for (int i = 0; i < present.size(); i++) {
+            Section section = present.get(i);
+            if (kept[i] != null) {
+                prompt.append(kept[i]);
+            }
+            inStablePrefix = inStablePrefix && section.stable();
+            if (inStablePrefix) {
+                stablePrefixChars = prompt.length();
+            }
+            usage.add(new SectionUsage(section.name(), section.priority(), tokens[i],
+                    kept[i] != null ? estimateTokens(kept[i]) : 0));
+        }
+
+        String text = prompt.toString();
+        BudgetedPrompt result = new BudgetedPrompt(text, unlimited ? 0 : budgetTokens, usage,
+                stablePrefixChars > 0 ? text.substring(0, stablePrefixChars) : null);
+        if (!unlimited && total > budgetTokens) {
+            log.info("📏 Prompt for {} cut from ~{} to ~{} tokens (budget {}): {}",
+                    label, total, result.estimatedTokens(), budgetTokens, result.breakdown());
+        } else {
+            log.info("📏 Prompt for {}: ~{} tokens (budget {}): {}",
+                    label, total, unlimited ? "none" : budgetTokens, result.breakdown());
+        }
+        return result;
+    }
+
+    /**
+     * Prompt budget for the configured provider's model.
+     */
+    public int resolveBudget() {
+        AIConfig.PromptBudgetConfig config = aiConfig.getPromptBudget();
+        String model = switch (String.valueOf(aiConfig.getProvider()).toLowerCase()) {
+            case "bedrock" -> aiConfig.getBedrock().getModel();
+            case "ollama" -> aiConfig.getOllama().getModel();
+            default -> null;
+        };
+
+        if (model != null && config.getMaxTokens() != null) {
+            return config.getMaxTokens().entrySet().stream()
+                    .filter(entry -> model.contains(entry.getKey()))
+                    .max(Comparator.comparingInt(entry -> entry.getKey().length()))
+                    .map(Map.Entry::getValue)
+                    .orElse(config.getDefaultMaxTokens());
+        }
+        return config.getDefaultMaxTokens();
+    }
+
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
@@ -12,12 +12,21 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Factory for creating and managing Playwright browser instances.
  *
  * Thread-safe. Uses browser contexts for test isolation.
  *
+ * When playwright.max-concurrent-browsers is set, browsers are leased from a
+ * shared pool of slots: createBrowser waits for a free slot and closeBrowser
+ * returns it, so concurrent agents (e.g. flaky sweep children) cannot launch
+ * more browsers than the host can run.
+ *
  * Usage:
  * <pre>
  * Browser browser = factory.createBrowser();
@@ -43,6 +52,10 @@ public class PlaywrightFactory {
     // Singleton Playwright instance (expensive to create)
     private volatile Playwright playwright;
 
+    // Browser slots shared by all callers (null = unlimited)
+    private volatile Semaphore browserSlots;
+    private final Set<Browser> leasedBrowsers = ConcurrentHashMap.newKeySet();
+
     /**
      * Get or create Playwright instance.
      * Thread-safe singleton pattern.
@@ -77,6 +90,20 @@ public class PlaywrightFactory {
         log.info("Creating {} browser (headless: {}, slowMo: {})",
                 browserType, properties.isHeadless(), properties.getSlowMo());
 
+        acquireBrowserSlot();
+        try {
+            Browser browser = launchBrowser(browserType);
+            if (browserSlots != null) {
+                leasedBrowsers.add(browser);
+            }
+            return browser;
+        } catch (RuntimeException e) {
+            releaseBrowserSlot();
+            throw e;
+        }
+    }
+
+    private Browser launchBrowser(PlaywrightProperties.BrowserType browserType) {
         Playwright pw = getPlaywright();
 
         BrowserType.LaunchOptions options = new BrowserType.LaunchOptions()
@@ -116,6 +143,55 @@ public class PlaywrightFactory {
         log.info("Browser created: {}", browser.browserType().name());
         return browser;
     }
+
+    /**
+     * Wait for a free browser slot when a limit is configured.
+     */
+    private void acquireBrowserSlot() {
+        Semaphore slots = browserSlots();
+        if (slots == null) {
+            return;
+        }
+        try {
+            if (!slots.tryAcquire()) {
+                log.info("⏳ Waiting for a browser slot ({} max)", properties.getMaxConcurrentBrowsers());
+                if (!slots.tryAcquire(properties.getBrowserSlotTimeoutSeconds(), TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("No browser slot free after "
+                            + properties.getBrowserSlotTimeoutSeconds() + "s ("
+                            + properties.getMaxConcurrentBrowsers() + " browsers max)");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a browser slot", e);
+        }
+    }
+
+    private void releaseBrowserSlot() {
+        Semaphore slots = browserSlots;
+        if (slots != null) {
+            slots.release();
+        }
+    }
+
+    private Semaphore browserSlots() {
+        if (browserSlots == null && properties.getMaxConcurrentBrowsers() > 0) {
+            synchronized (this) {
+                if (browserSlots == null) {
+                    browserSlots = new Semaphore(properties.getMaxConcurrentBrowsers(), true);
+                }
+            }
+        }
+        return browserSlots;
+    }
+
+    /**
+     * Browser slots currently free, or -1 when browsers are not limited.
+     */
+    public int getAvailableBrowserSlots() {
+        Semaphore slots = browserSlots();
+        return slots != null ? slots.availablePermits() : -1;
+    }
     /**
      * Create browser context with default settings.
      *
@@ -310,6 +386,10 @@ public class PlaywrightFactory {
                 log.info("Browser closed");
             } catch (Exception e) {
                 log.error("Error closing browser: {}", e.getMessage());
+            } finally {
+                if (leasedBrowsers.remove(browser)) {
+                    releaseBrowserSlot();
+                }
             }
         }
     }
@@ -332,6 +412,13 @@ public class PlaywrightFactory {
         }
     }
 
+    /**
+     * Configured default timeout for Playwright operations (ms).
+     */
+    public int getDefaultTimeoutMs() {
+        return properties.getTimeout();
+    }
+
     /**
      * Check if Playwright is enabled in configuration.
      *
@@ -3,7 +3,9 @@ package com.company.qa.service.execution;
 import com.company.qa.config.PlaywrightProperties;
 import com.company.qa.execution.engine.ExecutionResult;
 import com.company.qa.model.dto.TestStep;
+import com.company.qa.model.entity.HealedLocator;
 import com.company.qa.model.enums.LocatorStrategy;
+import com.company.qa.service.playwright.HealedLocatorService;
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.AriaRole;
 import com.microsoft.playwright.options.WaitForSelectorState;
@@ -17,6 +19,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Executes test steps using Playwright.
@@ -32,6 +35,7 @@ public class PlaywrightTestExecutor {
 
     private final PlaywrightFactory playwrightFactory;
     private final PlaywrightProperties properties;
+    private final HealedLocatorService healedLocatorService;
 
     /**
      * Execute a single test step.
@@ -402,6 +406,57 @@ public class PlaywrightTestExecutor {
             throw new IllegalArgumentException("Locator cannot be null or empty");
         }
 
+        Locator locator = applyHealedLocator(page, locatorString, toLocator(page, locatorString));
+
+        // Set custom timeout if specified (convert seconds to ms)
+        if (step.getTimeout() != null && step.getTimeout() > 0) {
+            int timeoutMs = step.getTimeout() * 1000;
+            locator.waitFor(new Locator.WaitForOptions()
+                    .setTimeout(timeoutMs));
+        }
+
+        return locator;
+    }
+
+    /**
+     * Transparent fallback to the healed-locator memo.
+     *
+     * Only when the memo knows this locator: if it matches nothing on the
+     * current page and the memoised replacement does, the replacement is
+     * used, so one verified heal fixes every test sharing the locator.
+     * If neither matches yet (page still loading), the original is kept.
+     */
+    private Locator applyHealedLocator(Page page, String locatorString, Locator locator) {
+        if (!healedLocatorService.hasEntry(locatorString)) {
+            return locator;
+        }
+
+        try {
+            Optional<HealedLocator> healed = healedLocatorService.lookup(page.url(), locatorString);
+            if (healed.isEmpty() || locator.count() > 0) {
+                return locator;
+            }
+
+            Locator replacement = toLocator(page, healed.get().getHealedLocator());
+            if (replacement.count() == 0) {
+                return locator;
+            }
+
+            log.warn("🩹 Locator '{}' matched nothing — using healed locator '{}' (update the test source)",
+                    locatorString, healed.get().getHealedLocator());
+            healedLocatorService.recordHit(healed.get());
+            return replacement;
+
+        } catch (Exception e) {
+            log.debug("Healed locator fallback skipped for '{}': {}", locatorString, e.getMessage());
+            return locator;
+        }
+    }
+
+    /**
+     * Parse a "strategy=value" locator string into a Playwright Locator.
+     */
+    private Locator toLocator(Page page, String locatorString) {
         // Parse locator type and value
         LocatorStrategy strategy;
         String value;
@@ -429,7 +484,7 @@ public class PlaywrightTestExecutor {
 
         log.debug("Resolving locator: strategy={}, value={}", strategy, value);
 
-        Locator locator = switch (strategy) {
+        return switch (strategy) {
             case ROLE -> resolveRoleLocator(page, value);
             case LABEL -> page.getByLabel(value);
             case TEXT -> page.getByText(value);
@@ -442,15 +497,6 @@ public class PlaywrightTestExecutor {
             case NAME -> page.locator("[name='" + value + "']");
             case CLASS -> page.locator("." + value);
         };
-
-        // Set custom timeout if specified (convert seconds to ms)
-        if (step.getTimeout() != null && step.getTimeout() > 0) {
-            int timeoutMs = step.getTimeout() * 1000;
-            locator.waitFor(new Locator.WaitForOptions()
-                    .setTimeout(timeoutMs));
-        }
-
-        return locator;
     }
 
     /**
@@ -18,6 +18,7 @@ import com.company.qa.model.dto.RetryConfig;
 import com.company.qa.model.dto.TestScript;
 import com.company.qa.model.entity.Test;
 import com.company.qa.model.entity.TestExecution;
+import com.company.qa.model.enums.AgentPriority;
 import com.company.qa.model.enums.AgentType;
 import com.company.qa.model.enums.TestFramework;
 import com.company.qa.model.enums.TestStatus;
@@ -303,6 +304,7 @@ public class TestExecutionService {
                     AgentConfig config = AgentConfig.builder()
                             .maxIterations(25)
                             .maxAICost(3.0)
+                            .priority(AgentPriority.BACKGROUND)
                             .build();
 
                     agentOrchestrator.startAgent(
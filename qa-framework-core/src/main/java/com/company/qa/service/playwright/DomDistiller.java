@@ -0,0 +1,124 @@
+package com.company.qa.service.playwright;
+
+import com.microsoft.playwright.Page;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reduces a live page's DOM to what matters for locator discovery.
+ *
+ * Runs in the page (one DOM walk) and keeps:
+ * - Interactive elements (links, buttons, form controls, [role], [tabindex], ...)
+ * - Headings, and elements with an id or test attribute
+ * - Visible text (collapsed whitespace, capped per element)
+ * - Locator-relevant attributes: id, data-testid/test/qa/cy, role, aria-label,
+ *   name, placeholder, type, for, title, alt, href, class (first 3), button values
+ *
+ * Drops scripts, styles, SVG, media, iframes, hidden nodes (display:none,
+ * visibility:hidden, [hidden], aria-hidden, type=hidden) and every other
+ * attribute. Wrappers with a single kept child are collapsed into it, so
+ * nesting is preserved only where it carries structure.
+ *
+ * Used by CapturePageHtmlTool to shrink the HTML sent to the AI.
+ */
+@Slf4j
+@Component
+public class DomDistiller {
+
+    static final String DISTILL_SCRIPT = """
+            (args) => {
+              const root = (args.selector && document.querySelector(args.selector))
+                  || document.body || document.documentElement;
+              const maxText = args.maxText;
+
+              const DROP = new Set(['SCRIPT', 'STYLE', 'NOSCRIPT', 'TEMPLATE', 'SVG', 'CANVAS', 'IFRAME',
+                  'OBJECT', 'EMBED', 'LINK', 'META', 'HEAD', 'VIDEO', 'AUDIO', 'SOURCE', 'PICTURE']);
+              const INTERACTIVE = new Set(['A', 'BUTTON', 'INPUT', 'SELECT', 'TEXTAREA', 'LABEL',
+                  'OPTION', 'FORM', 'DETAILS', 'SUMMARY']);
+              const HEADINGS = new Set(['H1', 'H2', 'H3', 'H4', 'H5', 'H6']);
+              const ATTRS = ['id', 'data-testid', 'data-test', 'data-test-id', 'data-qa', 'data-cy', 'role',
+                  'aria-label', 'name', 'placeholder', 'type', 'for', 'title', 'alt', 'href', 'class', 'value'];
+
+              const esc = s => s.replace(/&/g, '&amp;').replace(/</g, '&lt;')
+                  .replace(/>/g, '&gt;').replace(/"/g, '&quot;');
+
+              const isHidden = (el, tag) => {
+                if (el.hidden || el.getAttribute('aria-hidden') === 'true') return true;
+                if (tag === 'INPUT' && (el.getAttribute('type') || '').toLowerCase() === 'hidden') return true;
+                const style = getComputedStyle(el);
+                return style.display === 'none' || style.visibility === 'hidden';
+              };
+
+              const isAnchor = (el, tag) => INTERACTIVE.has(tag) || HEADINGS.has(tag)
+                  || el.id || el.hasAttribute('role') || el.hasAttribute('tabindex')
+                  || el.hasAttribute('onclick') || el.isContentEditable
+                  || el.hasAttribute('data-testid') || el.hasAttribute('data-test')
+                  || el.hasAttribute('data-qa') || el.hasAttribute('data-cy');
+
+              const attrs = (el, tag) => {
+                let out = '';
+                for (const name of ATTRS) {
+                  let value = el.getAttribute(name);
+                  if (value === null || value === '') continue;
+                  if (name === 'class') value = value.trim().split(/\\s+/).slice(0, 3).join(' ');
+                  if (name === 'href' && value.length > 100) value = value.slice(0, 100);
+                  if (name === 'value' && !(tag === 'INPUT'
+                      && ['button', 'submit', 'reset'].includes((el.getAttribute('type') || '').toLowerCase()))) continue;
+                  out += ' ' + name + '="' + esc(value) + '"';
+                }
+                return out;
+              };
+
+              const walk = el => {
+                const tag = el.tagName.toUpperCase();
+                if (DROP.has(tag) || isHidden(el, tag)) return '';
+
+                let text = '';
+                const children = [];
+                for (const child of el.childNodes) {
+                  if (child.nodeType === Node.TEXT_NODE) {
+                    const t = child.textContent.replace(/\\s+/g, ' ').trim();
+                    if (t) text += (text ? ' ' : '') + t;
+                  } else if (child.nodeType === Node.ELEMENT_NODE) {
+                    const out = walk(child);
+                    if (out) children.push(out);
+                  }
+                }
+                if (text.length > maxText) text = text.slice(0, maxText) + '…';
+
+                const anchor = isAnchor(el, tag);
+                if (!anchor && !text) {
+                  if (children.length === 0) return '';
+                  if (children.length === 1) return children[0];
+                }
+                const name = tag.toLowerCase();
+                return '<' + name + attrs(el, tag) + '>' + esc(text) + children.join('') + '</' + name + '>';
+              };
+
+              return walk(root);
+            }
+            """;
+
+    @Value("${agent.self-healing.distiller.max-text-length:80}")
+    private int maxTextLength = 80;
+
+    /**
+     * Distil the DOM under a selector (or the whole body).
+     *
+     * @param page Loaded page
+     * @param selector CSS selector for the root element; falls back to body if null or unmatched
+     * @return Distilled HTML
+     */
+    public String distill(Page page, String selector) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("selector", selector);
+        args.put("maxText", maxTextLength);
+
+        Object html = page.evaluate(DISTILL_SCRIPT, args);
+        return html != null ? html.toString() : "";
+    }
+}
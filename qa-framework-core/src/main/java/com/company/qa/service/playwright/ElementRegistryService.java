@@ -46,6 +46,10 @@ public class ElementRegistryService {
     private String lastUpdated;
     private String defaultStrategy;
 
+    /**
+     * Formatted prompt context for all pages - built once per load.
+     */
+    private volatile String fullRegistryContext;
 
     private final PlaywrightProperties playwrightProperties;
 
@@ -58,6 +62,7 @@ public class ElementRegistryService {
      * Load element registry from JSON file.
      */
     public void loadRegistry() {
+        fullRegistryContext = null;
 
         Path path = Paths.get(playwrightProperties.getRegistryPath());
         if (!Files.exists(path)) {
@@ -100,6 +105,7 @@ public class ElementRegistryService {
 
                 log.info("Element Registry loaded: {} pages, {} total elements",
                         registry.size(), getTotalElementCount());
+                fullRegistryContext = null;
 
 
     } catch (IOException e) {
@@ -244,7 +250,10 @@ public class ElementRegistryService {
         if (relevantPages == null || relevantPages.isEmpty()) {
             return getFullRegistryContext();
         }
+        return formatForAIPrompt(relevantPages);
+    }
 
+    private String formatForAIPrompt(List<String> relevantPages) {
         StringBuilder context = new StringBuilder();
         context.append("=== Available Elements (from Element Registry) ===\n\n");
 
@@ -279,7 +288,12 @@ public class ElementRegistryService {
      * Get full registry context (all pages).
      */
     private String getFullRegistryContext() {
-        return getContextForAIPrompt(new ArrayList<>(registry.keySet()));
+        String context = fullRegistryContext;
+        if (context == null) {
+            context = formatForAIPrompt(new ArrayList<>(registry.keySet()));
+            fullRegistryContext = context;
+        }
+        return context;
     }
 
     /**
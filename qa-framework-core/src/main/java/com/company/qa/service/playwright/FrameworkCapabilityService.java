@@ -24,11 +24,23 @@ public class FrameworkCapabilityService {
     @Value("${playwright.renderer.base-package:com.company.qa.playwright.generated}")
     private String basePackage;
 
+    /** Built on first use - depends only on configuration. */
+    private volatile String capabilitiesForPrompt;
+
     /**
      * Build capability context string for AI prompt injection.
      * Called by PlaywrightContextBuilder.buildContext() when intent mode is enabled.
      */
     public String getCapabilitiesForPrompt() {
+        String capabilities = capabilitiesForPrompt;
+        if (capabilities == null) {
+            capabilities = buildCapabilitiesForPrompt();
+            capabilitiesForPrompt = capabilities;
+        }
+        return capabilities;
+    }
+
+    private String buildCapabilitiesForPrompt() {
         StringBuilder sb = new StringBuilder();
 
         sb.append("=== Framework Capabilities ===\n\n");
@@ -0,0 +1,222 @@
+package com.company.qa.service.playwright;
+
+import com.company.qa.model.entity.HealedLocator;
+import com.company.qa.repository.HealedLocatorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Memo of verified locator fixes, keyed by page + broken locator.
+ *
+ * When SelfHealingAgent verifies a replacement, it is recorded here.
+ * Other tests still using the broken locator on that page then resolve
+ * to the replacement at runtime (PlaywrightTestExecutor) or get it as
+ * the first candidate when they are healed (ExtractBrokenLocatorTool),
+ * instead of each paying for its own capture + discovery loop.
+ *
+ * Lookups are served from an in-memory snapshot of the table, reloaded
+ * every agent.self-healing.memo.refresh-seconds and after each write,
+ * so the executor can consult it on every step without a DB round trip.
+ *
+ * Matching:
+ * - Page: host + path of the URL (scheme, query and fragment ignored)
+ * - Locator: redundant css=/xpath= prefix stripped ("css=#x" and "#x" match);
+ *   other strategies keep their prefix so "text=Login" never matches "testid=Login"
+ * - Exact page first, then other pages on the same host (or entries recorded
+ *   without a page), by confidence
+ */
+@Slf4j
+@Service
+public class HealedLocatorService {
+
+    private final HealedLocatorRepository repository;
+
+    @Value("${agent.self-healing.memo.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${agent.self-healing.memo.min-confidence:0.5}")
+    private double minConfidence = 0.5;
+
+    @Value("${agent.self-healing.memo.refresh-seconds:60}")
+    private long refreshSeconds = 60;
+
+    private volatile Map<String, List<HealedLocator>> byLocatorKey;
+    private volatile Instant loadedAt = Instant.EPOCH;
+
+    public HealedLocatorService(HealedLocatorRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Find the verified replacement for a broken locator.
+     *
+     * @param pageUrl URL of the page the locator is used on (null matches any page)
+     * @param brokenLocator Locator as written in the test
+     * @return Best memo entry at or above the minimum confidence
+     */
+    public Optional<HealedLocator> lookup(String pageUrl, String brokenLocator) {
+        if (!enabled || brokenLocator == null || brokenLocator.isBlank()) {
+            return Optional.empty();
+        }
+
+        List<HealedLocator> entries = snapshot().getOrDefault(locatorKey(brokenLocator), List.of());
+        if (entries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String pageKey = pageKey(pageUrl);
+        String host = hostOf(pageKey);
+
+        return entries.stream()
+                .filter(e -> e.getConfidence().doubleValue() >= minConfidence)
+                .filter(e -> pageKey.isEmpty() || e.getPageKey().isEmpty()
+                        || hostOf(e.getPageKey()).equals(host))
+                .min(Comparator
+                        .comparing((HealedLocator e) -> !e.getPageKey().equals(pageKey))
+                        .thenComparing(HealedLocator::getConfidence, Comparator.reverseOrder()));
+    }
+
+    /**
+     * Cheap check used before doing any DOM work for a locator.
+     */
+    public boolean hasEntry(String brokenLocator) {
+        return enabled && brokenLocator != null
+                && snapshot().containsKey(locatorKey(brokenLocator));
+    }
+
+    /**
+     * Record (or replace) the verified fix for a broken locator on a page.
+     * The most recent verification wins over older entries for the same key.
+     *
+     * @return Saved entry, or empty when the input is unusable
+     */
+    public Optional<HealedLocator> record(String pageUrl, String brokenLocator, String healedLocator,
+                                          double confidence, String discoveredBy,
+                                          UUID sourceTestId, UUID agentExecutionId) {
+        if (brokenLocator == null || brokenLocator.isBlank() || "UNKNOWN".equals(brokenLocator)
+                || healedLocator == null || healedLocator.isBlank()
+                || locatorKey(brokenLocator).equals(locatorKey(healedLocator))) {
+            return Optional.empty();
+        }
+
+        String pageKey = pageKey(pageUrl);
+        String locatorKey = locatorKey(brokenLocator);
+
+        HealedLocator entry = repository.findByPageKeyAndLocatorKey(pageKey, locatorKey)
+                .orElseGet(() -> HealedLocator.builder()
+                        .pageKey(pageKey)
+                        .locatorKey(locatorKey)
+                        .build());
+
+        entry.setBrokenLocator(brokenLocator.trim());
+        entry.setHealedLocator(healedLocator.trim());
+        entry.setConfidence(BigDecimal.valueOf(Math.max(0.0, Math.min(1.0, confidence)))
+                .setScale(3, RoundingMode.HALF_UP));
+        entry.setDiscoveredBy(discoveredBy);
+        entry.setSourceTestId(sourceTestId);
+        entry.setAgentExecutionId(agentExecutionId);
+        entry.setHitCount(0);
+        entry.setLastHitAt(null);
+
+        HealedLocator saved = repository.save(entry);
+        invalidate();
+
+        log.info("🧠 Memoised healed locator on {}: {} → {} (confidence {})",
+                pageKey.isEmpty() ? "any page" : pageKey, brokenLocator, healedLocator, saved.getConfidence());
+        return Optional.of(saved);
+    }
+
+    /**
+     * Count a use of a memo entry. Failures are logged, never thrown.
+     */
+    public void recordHit(HealedLocator entry) {
+        try {
+            repository.recordHit(entry.getId(), Instant.now());
+        } catch (Exception e) {
+            log.debug("Could not record healed locator hit: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Force the next lookup to reload from the database.
+     */
+    public void invalidate() {
+        loadedAt = Instant.EPOCH;
+    }
+
+    private Map<String, List<HealedLocator>> snapshot() {
+        Map<String, List<HealedLocator>> current = byLocatorKey;
+        if (current != null && loadedAt.plus(Duration.ofSeconds(refreshSeconds)).isAfter(Instant.now())) {
+            return current;
+        }
+        synchronized (this) {
+            if (byLocatorKey != null && loadedAt.plus(Duration.ofSeconds(refreshSeconds)).isAfter(Instant.now())) {
+                return byLocatorKey;
+            }
+            try {
+                byLocatorKey = repository.findAll().stream()
+                        .collect(Collectors.groupingBy(HealedLocator::getLocatorKey));
+                loadedAt = Instant.now();
+            } catch (Exception e) {
+                // Keep serving the previous snapshot; retry on the next refresh
+                log.warn("⚠️ Could not load healed locator memo: {}", e.getMessage());
+                if (byLocatorKey == null) {
+                    byLocatorKey = Map.of();
+                }
+                loadedAt = Instant.now();
+            }
+            return byLocatorKey;
+        }
+    }
+
+    /**
+     * Host + path of a URL, lower-cased host, no trailing slash.
+     * Returns "" for null/blank or unparseable input.
+     */
+    static String pageKey(String pageUrl) {
+        if (pageUrl == null || pageUrl.isBlank()) {
+            return "";
+        }
+        try {
+            URI uri = URI.create(pageUrl.trim());
+            String host = uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+            String path = uri.getPath() != null ? uri.getPath() : "";
+            while (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            return host + path;
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Locator in the form the executor would resolve it: "css=#x" → "#x",
+     * "xpath=//a" → "//a"; everything else unchanged.
+     */
+    static String locatorKey(String locator) {
+        String trimmed = locator.trim();
+        String lower = trimmed.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("css=")) {
+            return trimmed.substring(4).trim();
+        }
+        if (lower.startsWith("xpath=")) {
+            return trimmed.substring(6).trim();
+        }
+        return trimmed;
+    }
+
+    private static String hostOf(String pageKey) {
+        int slash = pageKey.indexOf('/');
+        return slash >= 0 ? pageKey.substring(0, slash) : pageKey;
+    }
+}
@@ -0,0 +1,451 @@
+package com.company.qa.service.playwright;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local locator candidate generator for self-healing.
+ *
+ * Most broken locators are renames (#login-button → [data-test="login-button"],
+ * a changed class, a reworded button). Instead of asking the AI, this scores
+ * every element of the captured HTML against the broken locator:
+ *
+ * - Identity (60%): best string similarity between the broken locator's id,
+ *   attribute values, classes and text and the element's id, test attributes,
+ *   name, aria-label, placeholder, classes and text (max of normalised
+ *   Levenshtein ratio and token overlap)
+ * - Purpose (15%): token overlap between the element purpose and the element
+ * - Tag (15%): same tag as the broken locator, or a tag compatible with the
+ *   step's action (CLICK → button/a, FILL → input/textarea, ...)
+ * - Interactivity (10%): element is a control or has a role
+ *
+ * Controls without own text inherit their content's text, so a button
+ * wrapping a span still matches on its label.
+ *
+ * For each of the best elements a stable selector is built (test attribute,
+ * id, name, aria-label, placeholder, then text XPath) that is unique within
+ * the captured HTML. Callers validate the result against the live page.
+ *
+ * Parses the HTML in one regex pass - tolerant of the distilled HTML from
+ * DomDistiller as well as raw page markup.
+ */
+@Slf4j
+@Component
+public class LocatorCandidateEngine {
+
+    private static final Pattern TAG_PATTERN = Pattern.compile(
+            "<(/?)([a-zA-Z][a-zA-Z0-9-]*)((?:\\s[^>]*?)?)(/?)>", Pattern.DOTALL);
+    private static final Pattern ATTR_PATTERN = Pattern.compile(
+            "([a-zA-Z_:][-a-zA-Z0-9_:.]*)\\s*(?:=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+)))?");
+
+    private static final Pattern LOCATOR_ATTR = Pattern.compile(
+            "\\[@?([\\w:-]+)\\s*[*^$~|]?=\\s*['\"]?([^'\"\\]]+)['\"]?\\s*]");
+    private static final Pattern LOCATOR_ID = Pattern.compile("#([\\w-]+)");
+    private static final Pattern LOCATOR_CLASS = Pattern.compile("\\.([a-zA-Z_][\\w-]*)");
+    private static final Pattern LOCATOR_TAG = Pattern.compile("^(?:/{1,2})?([a-zA-Z][a-zA-Z0-9-]*)");
+    private static final Pattern LOCATOR_TEXT = Pattern.compile(
+            "(?:text\\s*=\\s*|has-text\\(\\s*|text\\(\\)\\s*[,=]\\s*|normalize-space\\(\\)\\s*=\\s*)['\"]([^'\"]+)['\"]");
+    private static final Pattern LOCATOR_BARE_TEXT = Pattern.compile("^text=([^'\"]+)$");
+    private static final Pattern CSS_IDENT = Pattern.compile("^[A-Za-z][\\w-]*$");
+
+    private static final Set<String> VOID_TAGS = Set.of(
+            "input", "br", "img", "hr", "meta", "link", "area", "base", "col", "embed", "source", "track", "wbr");
+    private static final Set<String> SKIP_CONTENT_TAGS = Set.of("script", "style", "noscript", "template", "svg");
+    private static final Set<String> INTERACTIVE_TAGS = Set.of(
+            "a", "button", "input", "select", "textarea", "label", "option", "summary");
+    private static final List<String> TEST_ATTRS = List.of(
+            "data-testid", "data-test", "data-test-id", "data-qa", "data-cy");
+    private static final List<String> IDENTITY_ATTRS = List.of(
+            "id", "data-testid", "data-test", "data-test-id", "data-qa", "data-cy",
+            "name", "aria-label", "placeholder", "title", "alt", "value");
+
+    private static final int MAX_TEXT_SELECTOR_LENGTH = 50;
+    private static final int MAX_INNER_TEXT_LENGTH = 100;
+    private static final Set<String> ENGINE_PREFIXES = Set.of("xpath", "css", "role", "text", "id");
+
+    /**
+     * Generate locator candidates for a broken locator.
+     *
+     * @param html Captured page HTML
+     * @param brokenLocator Locator that no longer matches
+     * @param elementPurpose What the element does (may be null)
+     * @param actionType Step action, e.g. CLICK or FILL (may be null)
+     * @param limit Maximum number of candidates
+     * @return Candidates ordered by score (best first)
+     */
+    public List<Candidate> generate(String html, String brokenLocator, String elementPurpose,
+                                    String actionType, int limit) {
+        if (html == null || html.isBlank() || brokenLocator == null || brokenLocator.isBlank()) {
+            return List.of();
+        }
+
+        Target target = parseLocator(brokenLocator);
+        Set<String> purposeTokens = tokens(elementPurpose);
+        List<Element> elements = parseHtml(html);
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Element element : elements) {
+            double identity = identityScore(target, element);
+            if (identity == 0.0 && purposeTokens.isEmpty()) {
+                continue;
+            }
+
+            double score = 0.6 * identity
+                    + 0.15 * jaccard(purposeTokens, element.tokens())
+                    + 0.15 * tagScore(target, element, actionType)
+                    + 0.1 * (element.isInteractive() ? 1.0 : 0.0);
+
+            Optional<Selector> selector = buildSelector(element, elements);
+            if (selector.isEmpty() || selector.get().locator().equals(brokenLocator.trim())) {
+                continue;
+            }
+
+            candidates.add(new Candidate(
+                    selector.get().locator(),
+                    selector.get().strategy(),
+                    Math.round(score * 100.0) / 100.0,
+                    String.format("Heuristic match on <%s> (identity %.2f)", element.tag(), identity)));
+        }
+
+        return candidates.stream()
+                .sorted(Comparator.comparingDouble(Candidate::score).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    // ========== BROKEN LOCATOR ==========
+
+    static Target parseLocator(String locator) {
+        String trimmed = locator.trim();
+        Map<String, String> attrs = new LinkedHashMap<>();
+
+        Matcher attrMatcher = LOCATOR_ATTR.matcher(trimmed);
+        while (attrMatcher.find()) {
+            attrs.put(attrMatcher.group(1).toLowerCase(), attrMatcher.group(2).trim());
+        }
+
+        // Strip bracketed/quoted parts so ids and classes inside values aren't picked up
+        String structural = trimmed.replaceAll("\\[[^\\]]*]", "").replaceAll("'[^']*'|\"[^\"]*\"", "");
+
+        Matcher idMatcher = LOCATOR_ID.matcher(structural);
+        if (idMatcher.find()) {
+            attrs.putIfAbsent("id", idMatcher.group(1));
+        }
+
+        Set<String> classes = new LinkedHashSet<>();
+        Matcher classMatcher = LOCATOR_CLASS.matcher(structural);
+        while (classMatcher.find()) {
+            classes.add(classMatcher.group(1));
+        }
+
+        String tag = null;
+        Matcher tagMatcher = LOCATOR_TAG.matcher(trimmed);
+        if (tagMatcher.find() && !ENGINE_PREFIXES.contains(tagMatcher.group(1).toLowerCase())) {
+            tag = tagMatcher.group(1).toLowerCase();
+        }
+
+        String text = null;
+        Matcher textMatcher = LOCATOR_TEXT.matcher(trimmed);
+        if (textMatcher.find()) {
+            text = textMatcher.group(1);
+        } else {
+            Matcher bareText = LOCATOR_BARE_TEXT.matcher(trimmed);
+            if (bareText.find()) {
+                text = bareText.group(1).trim();
+            }
+        }
+
+        return new Target(tag, attrs, classes, text);
+    }
+
+    // ========== HTML ==========
+
+    static List<Element> parseHtml(String html) {
+        List<Element> elements = new ArrayList<>();
+        Deque<OpenTag> openTags = new ArrayDeque<>();
+        String lowerHtml = html.toLowerCase(Locale.ROOT);
+        Matcher matcher = TAG_PATTERN.matcher(html);
+        int position = 0;
+
+        while (matcher.find(position)) {
+            boolean closing = !matcher.group(1).isEmpty();
+            String tag = matcher.group(2).toLowerCase(Locale.ROOT);
+            position = matcher.end();
+
+            if (closing) {
+                // Pop back to the matching open tag (tolerates unclosed elements)
+                if (openTags.stream().anyMatch(open -> open.tag().equals(tag))) {
+                    OpenTag open;
+                    do {
+                        open = openTags.pop();
+                    } while (!open.tag().equals(tag));
+                    fillInnerText(html, elements, open, matcher.start());
+                }
+                continue;
+            }
+
+            if (SKIP_CONTENT_TAGS.contains(tag)) {
+                int end = lowerHtml.indexOf("</" + tag, position);
+                position = end < 0 ? html.length() : end;
+                continue;
+            }
+
+            Map<String, String> attrs = parseAttributes(matcher.group(3));
+            int textEnd = html.indexOf('<', position);
+            String text = cleanText(html.substring(position, textEnd < 0 ? html.length() : textEnd));
+
+            elements.add(new Element(tag, attrs, text));
+
+            boolean selfClosing = !matcher.group(4).isEmpty() || VOID_TAGS.contains(tag);
+            if (!selfClosing) {
+                openTags.push(new OpenTag(tag, elements.size() - 1, position));
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Interactive elements without own text (e.g. a button wrapping a span)
+     * take the text of their content, which is what text locators match on.
+     */
+    private static void fillInnerText(String html, List<Element> elements, OpenTag open, int closeStart) {
+        Element element = elements.get(open.elementIndex());
+        if (!element.isInteractive() || !element.text().isEmpty() || closeStart <= open.contentStart()) {
+            return;
+        }
+        String inner = cleanText(html.substring(open.contentStart(), closeStart).replaceAll("<[^>]*>", " "));
+        if (!inner.isEmpty() && inner.length() <= MAX_INNER_TEXT_LENGTH) {
+            elements.set(open.elementIndex(), new Element(element.tag(), element.attrs(), inner));
+        }
+    }
+
+    private static String cleanText(String raw) {
+        return unescape(raw).replaceAll("\\s+", " ").trim();
+    }
+
+    private static Map<String, String> parseAttributes(String raw) {
+        Map<String, String> attrs = new LinkedHashMap<>();
+        if (raw == null || raw.isBlank()) {
+            return attrs;
+        }
+        Matcher matcher = ATTR_PATTERN.matcher(raw);
+        while (matcher.find()) {
+            String value = matcher.group(2) != null ? matcher.group(2)
+                    : matcher.group(3) != null ? matcher.group(3)
+                    : matcher.group(4) != null ? matcher.group(4)
+                    : "";
+            attrs.putIfAbsent(matcher.group(1).toLowerCase(), unescape(value));
+        }
+        return attrs;
+    }
+
+    private static String unescape(String text) {
+        return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&#39;", "'").replace("&nbsp;", " ").replace("&amp;", "&");
+    }
+
+    // ========== SCORING ==========
+
+    private double identityScore(Target target, Element element) {
+        List<String> targetValues = new ArrayList<>(target.attrs().values());
+        targetValues.addAll(target.classes());
+        if (target.text() != null) {
+            targetValues.add(target.text());
+        }
+
+        List<String> elementValues = new ArrayList<>();
+        for (String attr : IDENTITY_ATTRS) {
+            String value = element.attrs().get(attr);
+            if (value != null && !value.isBlank()) {
+                elementValues.add(value);
+            }
+        }
+        String classAttr = element.attrs().get("class");
+        if (classAttr != null) {
+            elementValues.addAll(Arrays.asList(classAttr.trim().split("\\s+")));
+        }
+        if (!element.text().isEmpty()) {
+            elementValues.add(element.text());
+        }
+
+        double best = 0.0;
+        for (String wanted : targetValues) {
+            for (String candidate : elementValues) {
+                best = Math.max(best, similarity(wanted, candidate));
+            }
+        }
+        return best;
+    }
+
+    private double tagScore(Target target, Element element, String actionType) {
+        if (target.tag() != null) {
+            return target.tag().equals(element.tag()) ? 1.0 : 0.0;
+        }
+        if (actionType == null) {
+            return 0.0;
+        }
+        String tag = element.tag();
+        return switch (actionType.toUpperCase()) {
+            case "CLICK" -> tag.equals("button") || tag.equals("a")
+                    || (tag.equals("input") && Set.of("submit", "button").contains(element.attrs().getOrDefault("type", "")))
+                    || "button".equals(element.attrs().get("role")) ? 1.0 : 0.0;
+            case "FILL", "TYPE" -> tag.equals("input") || tag.equals("textarea") ? 1.0 : 0.0;
+            case "SELECT", "SELECT_OPTION" -> tag.equals("select") ? 1.0 : 0.0;
+            case "CHECK", "UNCHECK" -> tag.equals("input") ? 1.0 : 0.0;
+            default -> 0.0;
+        };
+    }
+
+    static double similarity(String a, String b) {
+        String left = normalise(a);
+        String right = normalise(b);
+        if (left.isEmpty() || right.isEmpty()) {
+            return 0.0;
+        }
+        if (left.equals(right)) {
+            return 1.0;
+        }
+        int distance = levenshtein(left, right);
+        double ratio = 1.0 - (double) distance / Math.max(left.length(), right.length());
+        return Math.max(ratio, jaccard(tokens(a), tokens(b)));
+    }
+
+    private static String normalise(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    static Set<String> tokens(String value) {
+        if (value == null || value.isBlank()) {
+            return Set.of();
+        }
+        String spaced = value.replaceAll("([a-z0-9])([A-Z])", "$1 $2").toLowerCase(Locale.ROOT);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : spaced.split("[^a-z0-9]+")) {
+            if (token.length() > 1) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        return (double) intersection.size() / union.size();
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // ========== SELECTORS ==========
+
+    private Optional<Selector> buildSelector(Element element, List<Element> all) {
+        for (String attr : TEST_ATTRS) {
+            String value = element.attrs().get(attr);
+            if (isUsable(value) && countWithAttr(all, null, attr, value) == 1) {
+                return Optional.of(new Selector("[" + attr + "='" + value + "']", "attribute"));
+            }
+        }
+
+        String id = element.attrs().get("id");
+        if (isUsable(id) && countWithAttr(all, null, "id", id) == 1) {
+            return Optional.of(CSS_IDENT.matcher(id).matches()
+                    ? new Selector("#" + id, "id")
+                    : new Selector("[id='" + id + "']", "attribute"));
+        }
+
+        for (String attr : List.of("name", "aria-label", "placeholder")) {
+            String value = element.attrs().get(attr);
+            if (isUsable(value) && countWithAttr(all, element.tag(), attr, value) == 1) {
+                return Optional.of(new Selector(element.tag() + "[" + attr + "='" + value + "']", "attribute"));
+            }
+        }
+
+        String text = element.text();
+        if (isUsable(text) && text.length() <= MAX_TEXT_SELECTOR_LENGTH) {
+            long sameText = all.stream()
+                    .filter(e -> e.tag().equals(element.tag()) && e.text().equals(text))
+                    .count();
+            if (sameText == 1) {
+                return Optional.of(new Selector(
+                        "//" + element.tag() + "[normalize-space()='" + text + "']", "text"));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static boolean isUsable(String value) {
+        return value != null && !value.isBlank() && !value.contains("'");
+    }
+
+    private static long countWithAttr(List<Element> all, String tag, String attr, String value) {
+        return all.stream()
+                .filter(e -> tag == null || e.tag().equals(tag))
+                .filter(e -> value.equals(e.attrs().get(attr)))
+                .count();
+    }
+
+    // ========== TYPES ==========
+
+    record Target(String tag, Map<String, String> attrs, Set<String> classes, String text) {
+    }
+
+    record Element(String tag, Map<String, String> attrs, String text) {
+
+        boolean isInteractive() {
+            return INTERACTIVE_TAGS.contains(tag) || attrs.containsKey("role") || attrs.containsKey("tabindex");
+        }
+
+        Set<String> tokens() {
+            Set<String> tokens = new LinkedHashSet<>(LocatorCandidateEngine.tokens(text));
+            for (String attr : IDENTITY_ATTRS) {
+                tokens.addAll(LocatorCandidateEngine.tokens(attrs.get(attr)));
+            }
+            return tokens;
+        }
+    }
+
+    private record Selector(String locator, String strategy) {
+    }
+
+    private record OpenTag(String tag, int elementIndex, int contentStart) {
+    }
+
+    /**
+     * A scored locator candidate.
+     *
+     * @param locator CSS or XPath selector
+     * @param strategy attribute, id or text
+     * @param score 0.0 - 1.0
+     * @param reasoning Why the element matched
+     */
+    public record Candidate(String locator, String strategy, double score, String reasoning) {
+    }
+}
@@ -35,11 +35,18 @@ public class PageObjectRegistryService {
 
     private Map<String, PageObjectInfo> registry = new HashMap<>();
 
+    /**
+     * Formatted prompt context for all Page Objects - built once per scan,
+     * as it is part of every generation prompt's stable prefix.
+     */
+    private volatile String promptContext;
+
     /**
      * Scan for Page Objects and build registry.
      */
     public void scanPageObjects() {
         log.info("Scanning for Page Objects in: {}", scanPath);
+        promptContext = null;
 
         try {
             Path basePath = Paths.get(scanPath);
@@ -62,6 +69,7 @@ public class PageObjectRegistryService {
             }
 
             log.info("Page Object Registry built: {} Page Objects found", registry.size());
+            promptContext = null;
 
         } catch (IOException e) {
             log.error("Failed to scan Page Objects: {}", e.getMessage(), e);
@@ -319,14 +327,39 @@ public class PageObjectRegistryService {
      * Returns formatted list of available Page Objects and their methods.
      */
     public String getContextForAIPrompt() {
-        if (registry.isEmpty()) {
+        String context = promptContext;
+        if (context == null) {
+            context = formatForAIPrompt(registry.values());
+            promptContext = context;
+        }
+        return context;
+    }
+
+    /**
+     * Get AI context for the Page Objects of the given pages only
+     * (matched by name or URL, as searchPageObjects).
+     * Falls back to all Page Objects when no page is given or none match.
+     */
+    public String getContextForAIPrompt(List<String> relevantPages) {
+        if (relevantPages == null || relevantPages.isEmpty()) {
+            return getContextForAIPrompt();
+        }
+
+        Set<PageObjectInfo> matching = new LinkedHashSet<>();
+        relevantPages.forEach(page -> matching.addAll(searchPageObjects(page)));
+
+        return matching.isEmpty() ? getContextForAIPrompt() : formatForAIPrompt(matching);
+    }
+
+    private String formatForAIPrompt(Collection<PageObjectInfo> pageObjects) {
+        if (pageObjects.isEmpty()) {
             return "=== Available Page Objects ===\n\nNo Page Objects found.\n";
         }
 
         StringBuilder context = new StringBuilder();
         context.append("=== Available Page Objects ===\n\n");
 
-        registry.values().forEach(pageObject -> {
+        pageObjects.forEach(pageObject -> {
             context.append(String.format("- %s", pageObject.getSimpleName()));
 
             if (pageObject.getPageUrl() != null) {
@@ -371,6 +404,7 @@ public class PageObjectRegistryService {
     public void reload() {
         log.info("Reloading Page Object Registry...");
         registry.clear();
+        promptContext = null;
         scanPageObjects();
     }
 }
\ No newline at end of file
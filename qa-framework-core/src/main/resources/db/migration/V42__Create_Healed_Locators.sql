@@ -0,0 +1,42 @@
+-- =====================================================
+-- Migration V42: Healed Locator Memo
+-- Purpose: Share verified locator fixes across tests so one
+--          self-healing run repairs every test using the locator
+-- Dependencies: V39 (agent tables)
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS healed_locators (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+
+    -- Page the fix was verified on (host + path, no query/fragment)
+    page_key VARCHAR(500) NOT NULL,
+
+    -- Broken locator as written in tests, and its prefix-free form used for matching
+    broken_locator VARCHAR(1000) NOT NULL,
+    locator_key VARCHAR(1000) NOT NULL,
+
+    -- Verified replacement
+    healed_locator VARCHAR(1000) NOT NULL,
+    confidence DECIMAL(4,3) NOT NULL DEFAULT 0,
+    discovered_by VARCHAR(50),
+
+    -- Provenance
+    source_test_id UUID,
+    agent_execution_id UUID,
+
+    -- Usage
+    hit_count INTEGER NOT NULL DEFAULT 0,
+    last_hit_at TIMESTAMP WITH TIME ZONE,
+
+    -- Audit fields
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uq_healed_locators_page_locator UNIQUE (page_key, locator_key),
+    CONSTRAINT valid_confidence CHECK (confidence >= 0 AND confidence <= 1)
+);
+
+CREATE INDEX IF NOT EXISTS idx_healed_locators_locator_key
+    ON healed_locators(locator_key);
+
+COMMENT ON TABLE healed_locators IS 'Verified broken → working locator replacements, consulted at runtime and by the self-healing agent';
@@ -0,0 +1,21 @@
+-- Agent scheduling (AgentScheduler): executions can wait for a slot (QUEUED)
+-- or yield theirs to an interactive run (PAUSED)
+
+-- Step 1: Drop the old check constraint
+ALTER TABLE agent_executions
+    DROP CONSTRAINT valid_agent_status;
+
+-- Step 2: Add new constraint with QUEUED and PAUSED
+ALTER TABLE agent_executions
+    ADD CONSTRAINT valid_agent_status
+    CHECK (status IN (
+        'QUEUED',
+        'RUNNING',
+        'WAITING_FOR_APPROVAL',
+        'PAUSED',
+        'SUCCEEDED',
+        'FAILED',
+        'STOPPED',
+        'TIMEOUT',
+        'BUDGET_EXCEEDED'
+    ));
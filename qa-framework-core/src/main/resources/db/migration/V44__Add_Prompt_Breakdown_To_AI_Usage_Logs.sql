@@ -0,0 +1,3 @@
+-- Per-section token breakdown of budgeted prompts (PromptBudgeter)
+ALTER TABLE ai_usage_logs
+    ADD COLUMN IF NOT EXISTS prompt_breakdown TEXT;
@@ -0,0 +1,4 @@
+-- Prompt-cache token counts (included in prompt_tokens, billed at cache rates)
+ALTER TABLE ai_usage_logs
+    ADD COLUMN IF NOT EXISTS cache_read_tokens INTEGER,
+    ADD COLUMN IF NOT EXISTS cache_write_tokens INTEGER;
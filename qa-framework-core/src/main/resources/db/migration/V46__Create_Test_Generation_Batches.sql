@@ -0,0 +1,72 @@
+-- =====================================================
+-- Migration V46: Test Generation Batches
+-- Purpose: Bulk test generation for many JIRA stories with bounded
+--          parallelism, a shared cost ceiling and per-story progress
+--          that survives a restart (TestGenerationBatchService)
+-- Dependencies: V32 (ai_generated_tests)
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS test_generation_batches (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+
+    status VARCHAR(30) NOT NULL,
+
+    -- Generation settings shared by every story of the batch
+    test_type VARCHAR(20) NOT NULL,
+    test_framework VARCHAR(20) NOT NULL,
+    skip_quality_check BOOLEAN NOT NULL DEFAULT FALSE,
+    force_regenerate BOOLEAN NOT NULL DEFAULT FALSE,
+
+    -- Limits
+    parallelism INTEGER NOT NULL,
+    max_cost_usd DECIMAL(10,6),
+
+    total_stories INTEGER NOT NULL DEFAULT 0,
+    requested_by VARCHAR(255),
+    error_message TEXT,
+
+    started_at TIMESTAMP WITH TIME ZONE,
+    completed_at TIMESTAMP WITH TIME ZONE,
+
+    -- Audit fields
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_test_generation_batches_status
+    ON test_generation_batches(status);
+
+CREATE TABLE IF NOT EXISTS test_generation_batch_items (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    batch_id UUID NOT NULL REFERENCES test_generation_batches(id) ON DELETE CASCADE,
+
+    jira_story_key VARCHAR(50) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+
+    -- SHA-256 of the story content and generation settings; a story whose
+    -- hash matches an earlier successful item is skipped
+    content_hash VARCHAR(64),
+
+    generated_test_id UUID,
+    cost_usd DECIMAL(10,6),
+    error_message TEXT,
+
+    started_at TIMESTAMP WITH TIME ZONE,
+    completed_at TIMESTAMP WITH TIME ZONE,
+    duration_ms BIGINT,
+
+    -- Audit fields
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uq_test_generation_batch_items_story UNIQUE (batch_id, jira_story_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_test_generation_batch_items_batch_status
+    ON test_generation_batch_items(batch_id, status);
+
+CREATE INDEX IF NOT EXISTS idx_test_generation_batch_items_story_hash
+    ON test_generation_batch_items(jira_story_key, content_hash);
+
+COMMENT ON TABLE test_generation_batches IS 'Bulk test generation jobs over many JIRA stories';
+COMMENT ON TABLE test_generation_batch_items IS 'Per-story progress of a test generation batch';
@@ -6,7 +6,9 @@ import com.company.qa.model.agent.entity.AgentActionHistory;
 import com.company.qa.model.enums.AgentStatus;
 import com.company.qa.model.enums.AgentType;
 import com.company.qa.service.agent.AgentExecutionService;
+import com.company.qa.service.agent.AgentMemoryService;
 import com.company.qa.service.agent.AgentOrchestrator;
+import com.company.qa.service.agent.AgentSweepService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -61,12 +63,18 @@ class AgentControllerTest {
     @MockBean
     private AgentOrchestrator orchestrator;
 
+    @MockBean
+    private AgentSweepService sweepService;
+
     @MockBean
     private AgentExecutionService executionService;
 
     @MockBean
     private ApprovalRequestService approvalRequestService;
 
+    @MockBean
+    private AgentMemoryService memoryService;
+
     // ─── Shared test data ───────────────────────────────────────────────────────
 
     private static final UUID EXECUTION_ID = UUID.fromString("aaaaaaaa-bbbb-cccc-dddd-eeeeeeeeeeee");
@@ -14,6 +14,7 @@ import com.company.qa.security.ApiKeyAuthenticationFilter;
 import com.company.qa.service.ApiKeyService;
 import com.company.qa.service.agent.AgentExecutionService;
 import com.company.qa.service.agent.AgentOrchestrator;
+import com.company.qa.service.agent.AgentSweepService;
 import com.company.qa.service.approval.ApprovalRequestService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -66,6 +67,7 @@ class PlaywrightAgentScrum15FlowTest {
     @Autowired ObjectMapper objectMapper;
 
     @MockBean AgentOrchestrator orchestrator;
+    @MockBean AgentSweepService sweepService;
     @MockBean AgentExecutionService executionService;
     @MockBean ApprovalRequestService approvalRequestService;
     @MockBean ApiKeyService apiKeyService;
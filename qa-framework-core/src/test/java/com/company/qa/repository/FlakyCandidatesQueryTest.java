@@ -0,0 +1,156 @@
+package com.company.qa.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the native TestExecutionRepository.findFlakyCandidates query against
+ * PostgreSQL on the two tables it reads (the H2 test profile can't run it).
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class FlakyCandidatesQueryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static NamedParameterJdbcTemplate jdbc;
+    private static String query;
+
+    private final Instant now = Instant.now();
+
+    @BeforeAll
+    static void createSchema() throws NoSuchMethodException {
+        jdbc = new NamedParameterJdbcTemplate(new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbc.getJdbcTemplate().execute("""
+                CREATE TABLE tests (
+                    id UUID PRIMARY KEY,
+                    is_active BOOLEAN DEFAULT true
+                );
+                CREATE TABLE test_executions (
+                    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+                    test_id UUID REFERENCES tests(id),
+                    status VARCHAR(50) NOT NULL,
+                    created_at TIMESTAMP NOT NULL
+                );
+                """);
+        query = TestExecutionRepository.class
+                .getMethod("findFlakyCandidates", Instant.class, int.class, BigDecimal.class, String.class, int.class)
+                .getAnnotation(Query.class)
+                .value();
+    }
+
+    @BeforeEach
+    void clearTables() {
+        jdbc.getJdbcTemplate().execute("DELETE FROM test_executions; DELETE FROM tests;");
+    }
+
+    @Test
+    void testCandidatesAreRankedByFlipRate() {
+        UUID alternating = test(true, "PASSED", "FAILED", "PASSED", "FAILED", "PASSED");
+        UUID onceBroken = test(true, "PASSED", "PASSED", "PASSED", "FAILED", "FAILED");
+        UUID twoFlips = test(true, "PASSED", "FAILED", "FAILED", "FAILED", "PASSED");
+
+        List<Object[]> rows = candidates(3, new BigDecimal("2"), "", 10);
+
+        assertThat(rows).extracting(row -> row[0]).containsExactly(
+                alternating.toString(), twoFlips.toString(), onceBroken.toString());
+        // [testId, score, runCount, flipCount, failureCount]
+        assertThat((BigDecimal) rows.get(0)[1]).isEqualByComparingTo("1.0000");
+        assertThat((BigDecimal) rows.get(1)[1]).isEqualByComparingTo("0.5000");
+        assertThat((BigDecimal) rows.get(2)[1]).isEqualByComparingTo("0.2500");
+        assertThat(((Number) rows.get(1)[2]).intValue()).isEqualTo(5);
+        assertThat(((Number) rows.get(1)[3]).intValue()).isEqualTo(2);
+        assertThat(((Number) rows.get(1)[4]).intValue()).isEqualTo(3);
+    }
+
+    @Test
+    void testStableInactiveAndRarelyRunTestsAreNotCandidates() {
+        test(true, "PASSED", "PASSED", "PASSED");
+        test(true, "FAILED", "FAILED", "FAILED");
+        test(false, "PASSED", "FAILED", "PASSED");
+        test(true, "PASSED", "FAILED");
+        UUID flaky = test(true, "FAILED", "PASSED", "FAILED");
+
+        List<Object[]> rows = candidates(3, new BigDecimal("2"), "", 10);
+
+        assertThat(rows).extracting(row -> row[0]).containsExactly(flaky.toString());
+    }
+
+    @Test
+    void testRunsBeforeLookbackAndUnfinishedRunsAreIgnored() {
+        UUID test = test(true, "PASSED", "PASSED", "PASSED");
+        execution(test, "FAILED", now.minus(Duration.ofDays(30)));
+        execution(test, "RUNNING", now);
+        execution(test, "SKIPPED", now);
+
+        assertThat(candidates(2, new BigDecimal("2"), "", 10)).isEmpty();
+    }
+
+    @Test
+    void testKeysetCursorWalksEqualScoresByTestId() {
+        List<String> tied = List.of(
+                test(true, "PASSED", "FAILED", "PASSED").toString(),
+                test(true, "FAILED", "PASSED", "FAILED").toString(),
+                test(true, "PASSED", "FAILED", "PASSED").toString())
+                .stream().sorted().toList();
+        UUID lower = test(true, "PASSED", "PASSED", "FAILED");
+
+        List<Object[]> first = candidates(3, new BigDecimal("2"), "", 2);
+        Object[] last = first.get(1);
+        List<Object[]> second = candidates(3, (BigDecimal) last[1], (String) last[0], 2);
+
+        assertThat(first).extracting(row -> row[0]).containsExactly(tied.get(0), tied.get(1));
+        assertThat(second).extracting(row -> row[0]).containsExactly(tied.get(2), lower.toString());
+        assertThat(candidates(3, (BigDecimal) second.get(1)[1], (String) second.get(1)[0], 2)).isEmpty();
+    }
+
+    private List<Object[]> candidates(int minRuns, BigDecimal afterScore, String afterTestId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("since", Timestamp.from(now.minus(Duration.ofDays(14))))
+                .addValue("minRuns", minRuns)
+                .addValue("afterScore", afterScore)
+                .addValue("afterTestId", afterTestId)
+                .addValue("limit", limit);
+        return jdbc.query(query, params, (rs, rowNum) -> new Object[]{
+                rs.getString(1), rs.getBigDecimal(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)});
+    }
+
+    /**
+     * An active or inactive test with one execution per status, oldest first.
+     */
+    private UUID test(boolean active, String... statuses) {
+        UUID id = UUID.randomUUID();
+        jdbc.update("INSERT INTO tests (id, is_active) VALUES (:id, :active)",
+                new MapSqlParameterSource().addValue("id", id).addValue("active", active));
+        for (int i = 0; i < statuses.length; i++) {
+            execution(id, statuses[i], now.minus(Duration.ofHours(statuses.length - i)));
+        }
+        return id;
+    }
+
+    private void execution(UUID testId, String status, Instant createdAt) {
+        jdbc.update("INSERT INTO test_executions (test_id, status, created_at) VALUES (:testId, :status, :createdAt)",
+                new MapSqlParameterSource()
+                        .addValue("testId", testId)
+                        .addValue("status", status)
+                        .addValue("createdAt", Timestamp.from(createdAt)));
+    }
+}
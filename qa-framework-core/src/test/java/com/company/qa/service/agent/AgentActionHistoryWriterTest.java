@@ -0,0 +1,130 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.model.agent.AgentContext;
+import com.company.qa.model.agent.AgentHistoryEntry;
+import com.company.qa.model.enums.AgentActionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AgentActionHistoryWriterTest {
+
+    @Mock
+    private AgentExecutionService executionService;
+
+    private AgentActionHistoryWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        // Direct executor keeps background flushes on the test thread
+        writer = new AgentActionHistoryWriter(executionService, Runnable::run);
+        ReflectionTestUtils.setField(writer, "finalFlushRetryMs", 0L);
+    }
+
+    @Test
+    void testAppendBuffersUntilComplete() {
+        UUID executionId = UUID.randomUUID();
+
+        writer.append(executionId, entry(0));
+        writer.append(executionId, entry(1));
+
+        verifyNoInteractions(executionService);
+        assertEquals(2, writer.getPendingCount(executionId));
+
+        assertTrue(writer.complete(executionId));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AgentHistoryEntry>> batch = ArgumentCaptor.forClass(List.class);
+        verify(executionService).saveActions(eq(executionId), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertEquals(0, writer.getPendingCount(executionId));
+    }
+
+    @Test
+    void testFullBatchFlushesInBackground() {
+        UUID executionId = UUID.randomUUID();
+
+        for (int i = 0; i < 20; i++) {
+            writer.append(executionId, entry(i));
+        }
+
+        verify(executionService, times(1)).saveActions(eq(executionId), any());
+        assertEquals(0, writer.getPendingCount(executionId));
+    }
+
+    @Test
+    void testFinalFlushIsRetried() {
+        UUID executionId = UUID.randomUUID();
+        doThrow(new RuntimeException("db down")).doNothing()
+                .when(executionService).saveActions(eq(executionId), any());
+
+        writer.append(executionId, entry(0));
+
+        assertTrue(writer.complete(executionId));
+        verify(executionService, times(2)).saveActions(eq(executionId), any());
+        assertEquals(0, writer.getPendingCount(executionId));
+    }
+
+    @Test
+    void testFailedFinalFlushReleasesBuffer() {
+        UUID executionId = UUID.randomUUID();
+        doThrow(new RuntimeException("db down"))
+                .when(executionService).saveActions(eq(executionId), any());
+
+        writer.append(executionId, entry(0));
+
+        assertFalse(writer.complete(executionId));
+        verify(executionService, times(3)).saveActions(eq(executionId), any());
+        // Left to the context journal; nothing stays buffered in memory
+        assertEquals(0, writer.getPendingCount(executionId));
+    }
+
+    @Test
+    void testRecoverWritesOnlyMissingJournalTail() {
+        UUID executionId = UUID.randomUUID();
+        List<AgentHistoryEntry> journal = new ArrayList<>(List.of(entry(0), entry(1), entry(2)));
+        AgentContext context = AgentContext.builder().actionHistory(journal).build();
+        when(executionService.countActions(executionId)).thenReturn(1L);
+
+        int recovered = writer.recover(executionId, context);
+
+        assertEquals(2, recovered);
+        verify(executionService).saveActions(executionId, journal.subList(1, 3));
+    }
+
+    @Test
+    void testRecoverNothingWhenFullyPersisted() {
+        UUID executionId = UUID.randomUUID();
+        AgentContext context = AgentContext.builder()
+                .actionHistory(new ArrayList<>(List.of(entry(0))))
+                .build();
+        when(executionService.countActions(executionId)).thenReturn(1L);
+
+        assertEquals(0, writer.recover(executionId, context));
+        verify(executionService, never()).saveActions(any(), any());
+    }
+
+    private AgentHistoryEntry entry(int iteration) {
+        return AgentHistoryEntry.builder()
+                .iteration(iteration)
+                .actionType(AgentActionType.QUERY_ELEMENT_REGISTRY)
+                .success(true)
+                .timestamp(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.model.agent.AgentContext;
+import com.company.qa.model.agent.AgentHistoryEntry;
+import com.company.qa.model.dto.FileMetadata;
+import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.service.storage.FileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AgentContextCompactorTest {
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private AgentContextCompactor compactor;
+    private final UUID executionId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        compactor = new AgentContextCompactor(fileStorageService);
+    }
+
+    private AgentHistoryEntry entry(int iteration, Map<String, Object> output) {
+        return AgentHistoryEntry.builder()
+                .iteration(iteration)
+                .actionType(AgentActionType.READ_FILE)
+                .actionInput(Map.of("url", "https://example.com"))
+                .actionOutput(output)
+                .success(true)
+                .build();
+    }
+
+    private AgentContext contextAt(int iteration, List<AgentHistoryEntry> history) {
+        return AgentContext.builder()
+                .currentIteration(iteration)
+                .actionHistory(new ArrayList<>(history))
+                .build();
+    }
+
+    @Test
+    void testRecentEntriesAreKeptInFull() {
+        String html = "<div>".repeat(2000);
+        AgentContext context = contextAt(3, List.of(entry(1, Map.of("pageHtml", html))));
+
+        assertThat(compactor.compact(executionId, context)).isZero();
+        assertThat(context.getActionHistory().get(0).getActionOutput()).containsEntry("pageHtml", html);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOldBlobsAreOffloadedAndReferenced() {
+        when(fileStorageService.saveLog(anyString(), anyString(), anyString()))
+                .thenReturn(FileMetadata.builder().filename("pageHtml.log").build());
+        String html = "<div>".repeat(2000);
+        AgentHistoryEntry original = entry(1, Map.of("pageHtml", html, "success", true));
+        AgentContext context = contextAt(6, List.of(original));
+
+        assertThat(compactor.compact(executionId, context)).isEqualTo(1);
+
+        AgentHistoryEntry compacted = context.getActionHistory().get(0);
+        Map<String, Object> summary = (Map<String, Object>) compacted.getActionOutput().get("pageHtml");
+        assertThat(summary).containsEntry("artifactRef", "pageHtml.log").containsEntry("chars", html.length());
+        assertThat((String) summary.get("preview")).hasSize(200);
+        assertThat(compacted.getActionOutput()).containsEntry("success", true);
+        assertThat(compacted.getIteration()).isEqualTo(1);
+        assertThat(compacted.isSuccess()).isTrue();
+        verify(fileStorageService).saveLog(eq(executionId.toString()), eq(html), contains("pageHtml"));
+
+        // The original entry (still queued for persistence) is untouched
+        assertThat(original.getActionOutput()).containsEntry("pageHtml", html);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMediumTextIsPreviewedWithoutArtifact() {
+        String trace = "at com.example.Step.run(Step.java:1)\n".repeat(20);
+        AgentContext context = contextAt(6, List.of(entry(1, Map.of("stackTrace", trace))));
+
+        compactor.compact(executionId, context);
+
+        Map<String, Object> summary = (Map<String, Object>) context.getActionHistory().get(0)
+                .getActionOutput().get("stackTrace");
+        assertThat(summary).containsKey("preview").doesNotContainKey("artifactRef");
+        verifyNoInteractions(fileStorageService);
+    }
+
+    @Test
+    void testEntriesAreCompactedOnlyOnce() {
+        Map<String, Object> output = new HashMap<>();
+        output.put("log", "x".repeat(500));
+        AgentContext context = contextAt(6, List.of(entry(1, output)));
+
+        assertThat(compactor.compact(executionId, context)).isEqualTo(1);
+        context.setCurrentIteration(7);
+        assertThat(compactor.compact(executionId, context)).isZero();
+    }
+
+    @Test
+    void testOffloadFailureKeepsPreview() {
+        when(fileStorageService.saveLog(anyString(), anyString(), anyString()))
+                .thenThrow(new RuntimeException("disk full"));
+        AgentContext context = contextAt(6, List.of(entry(1, Map.of("pageHtml", "y".repeat(10_000)))));
+
+        assertThat(compactor.compact(executionId, context)).isEqualTo(1);
+        assertThat(context.getActionHistory().get(0).getActionOutput().get("pageHtml")).isInstanceOf(Map.class);
+    }
+
+    @Test
+    void testFitSectionKeepsHeadAndTailWithinCeiling() {
+        String section = "HEAD" + "m".repeat(10_000) + "CAUSE";
+
+        String fitted = AgentContextCompactor.fitSection(section, 100);
+
+        assertThat(fitted).startsWith("HEAD").endsWith("CAUSE").contains("characters omitted");
+        assertThat(fitted.length()).isLessThan(100 * AgentContextCompactor.CHARS_PER_TOKEN + 50);
+        assertThat(AgentContextCompactor.fitSection("short", 100)).isEqualTo("short");
+    }
+}
@@ -1,5 +1,6 @@
 package com.company.qa.service.agent;
 
+import com.company.qa.model.agent.ActiveExecutionPage;
 import com.company.qa.model.agent.AgentContext;
 import com.company.qa.model.agent.AgentGoal;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,11 +13,15 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,6 +38,9 @@ class AgentMemoryServiceTest {
     @Mock
     private ValueOperations<String, Object> valueOps;
 
+    @Mock
+    private ZSetOperations<String, Object> zSetOps;
+
     private AgentMemoryService memoryService;
     private ObjectMapper objectMapper;
 
@@ -43,6 +51,7 @@ class AgentMemoryServiceTest {
         memoryService = new AgentMemoryService(redisTemplate, objectMapper);
 
         when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
     }
 
     @Test
@@ -60,6 +69,16 @@ class AgentMemoryServiceTest {
                 anyString(),
                 eq(Duration.ofHours(24))
         );
+        verify(zSetOps).add(eq("agent:active-executions"), eq(executionId.toString()), anyDouble());
+    }
+
+    @Test
+    void testSaveContextSurvivesIndexFailure() {
+        UUID executionId = UUID.randomUUID();
+        when(zSetOps.add(anyString(), any(), anyDouble())).thenThrow(new RuntimeException("index down"));
+
+        assertDoesNotThrow(() -> memoryService.saveContext(executionId, createTestContext()));
+        verify(valueOps).set(eq("agent:context:" + executionId), anyString(), any(Duration.class));
     }
 
     @Test
@@ -95,6 +114,62 @@ class AgentMemoryServiceTest {
         memoryService.clearContext(executionId);
 
         verify(redisTemplate).delete("agent:context:" + executionId);
+        verify(zSetOps).remove("agent:active-executions", executionId.toString());
+    }
+
+    @Test
+    void testGetActiveExecutionsPage() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        Set<Object> members = new LinkedHashSet<>(List.of(first.toString(), second.toString()));
+
+        when(zSetOps.rangeByScore(eq("agent:active-executions"), anyDouble(), eq(Double.POSITIVE_INFINITY), eq(0L), eq(2L)))
+                .thenReturn(members);
+        when(zSetOps.count(eq("agent:active-executions"), anyDouble(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(3L);
+
+        ActiveExecutionPage page = memoryService.getActiveExecutions(0, 2);
+
+        assertEquals(List.of(first, second), page.getExecutionIds());
+        assertEquals(2L, page.getNextCursor());
+        assertEquals(3L, page.getTotalActive());
+        verify(redisTemplate, never()).keys(anyString());
+    }
+
+    @Test
+    void testGetActiveExecutionsCursorSkipsMalformedEntries() {
+        UUID executionId = UUID.randomUUID();
+        Set<Object> members = new LinkedHashSet<>(List.of("not-a-uuid", executionId.toString()));
+
+        when(zSetOps.rangeByScore(eq("agent:active-executions"), anyDouble(), eq(Double.POSITIVE_INFINITY), eq(0L), eq(2L)))
+                .thenReturn(members);
+        when(zSetOps.count(eq("agent:active-executions"), anyDouble(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(3L);
+
+        ActiveExecutionPage page = memoryService.getActiveExecutions(0, 2);
+
+        assertEquals(List.of(executionId), page.getExecutionIds());
+        assertEquals(2L, page.getNextCursor());
+    }
+
+    @Test
+    void testGetActiveExecutionsWalksAllPages() {
+        UUID executionId = UUID.randomUUID();
+        when(zSetOps.rangeByScore(anyString(), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(new LinkedHashSet<>(List.of(executionId.toString())));
+        when(zSetOps.count(anyString(), anyDouble(), anyDouble())).thenReturn(1L);
+
+        List<UUID> active = memoryService.getActiveExecutions();
+
+        assertEquals(List.of(executionId), active);
+    }
+
+    @Test
+    void testPruneExpiredExecutions() {
+        when(zSetOps.removeRangeByScore(eq("agent:active-executions"), eq(Double.NEGATIVE_INFINITY), anyDouble()))
+                .thenReturn(4L);
+
+        assertEquals(4L, memoryService.pruneExpiredExecutions());
     }
 
     @Test
@@ -27,6 +27,9 @@ class AgentOrchestratorTest {
     @Mock
     private AgentExecutionService executionService;
 
+    @Mock
+    private AgentMemoryService memoryService;
+
     @Mock
     private BaseAgent mockAgent;
 
@@ -34,7 +37,7 @@ class AgentOrchestratorTest {
 
     @BeforeEach
     void setUp() {
-        orchestrator = new AgentOrchestrator(executionService);
+        orchestrator = new AgentOrchestrator(executionService, new AgentScheduler(), memoryService);
     }
 
     @Test
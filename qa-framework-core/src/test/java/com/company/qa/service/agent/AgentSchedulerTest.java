@@ -0,0 +1,126 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.model.enums.AgentPriority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgentSchedulerTest {
+
+    private AgentScheduler scheduler;
+    private List<UUID> launched;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new AgentScheduler();
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", 3);
+        ReflectionTestUtils.setField(scheduler, "reservedInteractive", 1);
+        launched = new ArrayList<>();
+    }
+
+    private boolean submit(UUID id, AgentPriority priority) {
+        return scheduler.submit(id, priority, () -> launched.add(id), null);
+    }
+
+    @Test
+    void testBackgroundRunsCannotUseReservedInteractiveSlots() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        assertThat(submit(first, AgentPriority.BACKGROUND)).isTrue();
+        assertThat(submit(second, AgentPriority.SCHEDULED)).isTrue();
+        assertThat(submit(third, AgentPriority.BACKGROUND)).isFalse();
+
+        UUID interactive = UUID.randomUUID();
+        assertThat(submit(interactive, AgentPriority.INTERACTIVE)).isTrue();
+        assertThat(launched).containsExactly(first, second, interactive);
+        assertThat(scheduler.isQueued(third)).isTrue();
+    }
+
+    @Test
+    void testQueuedInteractiveAsksNewestBackgroundRunToYield() {
+        UUID scheduled = UUID.randomUUID();
+        UUID background = UUID.randomUUID();
+        UUID interactive = UUID.randomUUID();
+        submit(scheduled, AgentPriority.SCHEDULED);
+        submit(background, AgentPriority.BACKGROUND);
+        submit(interactive, AgentPriority.INTERACTIVE);
+
+        UUID waiting = UUID.randomUUID();
+        assertThat(submit(waiting, AgentPriority.INTERACTIVE)).isFalse();
+
+        assertThat(scheduler.shouldYield(background)).isTrue();
+        assertThat(scheduler.shouldYield(scheduled)).isFalse();
+        assertThat(scheduler.shouldYield(interactive)).isFalse();
+    }
+
+    @Test
+    void testPausedRunFreesSlotForInteractiveAndResumesBeforeNewBackgroundRuns() {
+        UUID first = UUID.randomUUID();
+        UUID paused = UUID.randomUUID();
+        submit(first, AgentPriority.BACKGROUND);
+        submit(paused, AgentPriority.BACKGROUND);
+        submit(UUID.randomUUID(), AgentPriority.INTERACTIVE);
+        UUID interactive = UUID.randomUUID();
+        submit(interactive, AgentPriority.INTERACTIVE);
+        UUID newer = UUID.randomUUID();
+        submit(newer, AgentPriority.BACKGROUND);
+
+        List<UUID> resumed = new ArrayList<>();
+        scheduler.pause(paused, () -> resumed.add(paused));
+
+        assertThat(launched).endsWith(interactive);
+        assertThat(scheduler.shouldYield(paused)).isFalse();
+
+        // A background slot opens: the paused run goes before the newer one
+        scheduler.release(first);
+
+        assertThat(resumed).containsExactly(paused);
+        assertThat(scheduler.isQueued(newer)).isTrue();
+    }
+
+    @Test
+    void testNoPreemptionWhenDisabled() {
+        ReflectionTestUtils.setField(scheduler, "preemptionEnabled", false);
+        UUID background = UUID.randomUUID();
+        submit(background, AgentPriority.BACKGROUND);
+        submit(UUID.randomUUID(), AgentPriority.BACKGROUND);
+        submit(UUID.randomUUID(), AgentPriority.INTERACTIVE);
+
+        assertThat(submit(UUID.randomUUID(), AgentPriority.INTERACTIVE)).isFalse();
+
+        assertThat(scheduler.shouldYield(background)).isFalse();
+    }
+
+    @Test
+    void testCancelRemovesWaitingRunOnly() {
+        UUID running = UUID.randomUUID();
+        submit(running, AgentPriority.BACKGROUND);
+        submit(UUID.randomUUID(), AgentPriority.BACKGROUND);
+        UUID queued = UUID.randomUUID();
+        submit(queued, AgentPriority.BACKGROUND);
+
+        assertThat(scheduler.cancel(queued)).isTrue();
+        assertThat(scheduler.cancel(running)).isFalse();
+        assertThat(scheduler.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void testOnQueuedCallbackRunsOnlyForWaitingRuns() {
+        List<UUID> queuedCallbacks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UUID id = UUID.randomUUID();
+            scheduler.submit(id, AgentPriority.BACKGROUND, () -> launched.add(id), () -> queuedCallbacks.add(id));
+        }
+
+        assertThat(launched).hasSize(2);
+        assertThat(queuedCallbacks).hasSize(1);
+    }
+}
@@ -0,0 +1,127 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.config.FlakyTestConfig;
+import com.company.qa.model.agent.AgentConfig;
+import com.company.qa.model.agent.AgentGoal;
+import com.company.qa.model.agent.AgentResult;
+import com.company.qa.model.agent.entity.AgentExecution;
+import com.company.qa.model.enums.AgentStatus;
+import com.company.qa.model.enums.AgentType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AgentSweepServiceTest {
+
+    private AgentOrchestrator orchestrator;
+    private AgentExecutionService executionService;
+    private FlakyCandidateService candidateService;
+    private AgentSweepService service;
+    private final UUID parentId = UUID.randomUUID();
+    private final AgentGoal goal = AgentGoal.builder().goalType(FlakyTestAgent.SWEEP_GOAL_TYPE).build();
+    private final AgentConfig config = AgentConfig.builder().maxIterations(20).maxAICost(5.0).build();
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = mock(AgentOrchestrator.class);
+        executionService = mock(AgentExecutionService.class);
+        candidateService = mock(FlakyCandidateService.class);
+        // Runs the sweep coordinator on the calling thread
+        service = new AgentSweepService(orchestrator, executionService, candidateService,
+                new FlakyTestConfig(), Runnable::run);
+
+        when(executionService.createExecution(eq(AgentType.FLAKY_TEST_FIXER), any(), any(), any(), any()))
+                .thenReturn(AgentExecution.builder().id(parentId).agentType(AgentType.FLAKY_TEST_FIXER).build());
+        // 10 candidates = two children of 5 tests
+        when(candidateService.nextPage(any())).thenReturn(page(10), List.of());
+    }
+
+    @Test
+    void testSweepFailsWhenNoChildSucceeded() {
+        childrenEndWith(AgentStatus.FAILED, AgentStatus.FAILED);
+
+        service.startFlakySweep(goal, config, null, "system");
+
+        assertThat(recordedResult().getStatus()).isEqualTo(AgentStatus.FAILED);
+        verify(executionService).updateExecution(parentId, null, AgentStatus.FAILED);
+    }
+
+    @Test
+    void testSweepSucceedsWhenAnyChildSucceeded() {
+        childrenEndWith(AgentStatus.FAILED, AgentStatus.SUCCEEDED);
+
+        service.startFlakySweep(goal, config, null, "system");
+
+        assertThat(recordedResult().getStatus()).isEqualTo(AgentStatus.SUCCEEDED);
+    }
+
+    @Test
+    void testSweepWithoutCandidatesSucceeds() {
+        when(candidateService.nextPage(any())).thenReturn(List.of());
+
+        service.startFlakySweep(goal, config, null, "system");
+
+        assertThat(recordedResult().getStatus()).isEqualTo(AgentStatus.SUCCEEDED);
+    }
+
+    @Test
+    void testRejectedSweepIsNotLeftTracked() {
+        Executor full = task -> {
+            throw new RejectedExecutionException("full");
+        };
+        service = new AgentSweepService(orchestrator, executionService, candidateService,
+                new FlakyTestConfig(), full);
+
+        assertThatThrownBy(() -> service.startFlakySweep(goal, config, null, "system"))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        ArgumentCaptor<CompletableFuture<AgentResult>> future = ArgumentCaptor.forClass(CompletableFuture.class);
+        verify(orchestrator).trackExecution(eq(parentId), future.capture());
+        assertThat(future.getValue()).isCompletedExceptionally();
+        verify(orchestrator).executionFinished(parentId);
+    }
+
+    private void childrenEndWith(AgentStatus first, AgentStatus second) {
+        when(orchestrator.createAndStartChildAgent(eq(AgentType.FLAKY_TEST_FIXER), any(), any(), any(), any(), any()))
+                .thenReturn(child(first), child(second));
+    }
+
+    private AgentResult recordedResult() {
+        ArgumentCaptor<AgentResult> result = ArgumentCaptor.forClass(AgentResult.class);
+        verify(executionService).recordResult(eq(parentId), result.capture());
+        return result.getValue();
+    }
+
+    private static AgentOrchestrator.ChildExecution child(AgentStatus status) {
+        UUID childId = UUID.randomUUID();
+        return new AgentOrchestrator.ChildExecution(
+                AgentExecution.builder().id(childId).agentType(AgentType.FLAKY_TEST_FIXER).build(),
+                CompletableFuture.completedFuture(AgentResult.builder()
+                        .executionId(childId)
+                        .status(status)
+                        .build()));
+    }
+
+    private static List<FlakyCandidateService.Candidate> page(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> new FlakyCandidateService.Candidate(
+                        String.format("test-%02d", i), new BigDecimal("0.5000"), 5, 2, 1))
+                .toList();
+    }
+}
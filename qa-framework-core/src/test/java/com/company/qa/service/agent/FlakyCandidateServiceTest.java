@@ -0,0 +1,79 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.config.FlakyTestConfig;
+import com.company.qa.repository.TestExecutionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlakyCandidateServiceTest {
+
+    private TestExecutionRepository executionRepository;
+    private FlakyTestConfig config;
+    private FlakyCandidateService service;
+
+    @BeforeEach
+    void setUp() {
+        executionRepository = mock(TestExecutionRepository.class);
+        config = new FlakyTestConfig();
+        config.setCandidateLookbackDays(7);
+        config.setCandidateMinRuns(4);
+        config.setCandidatePageSize(2);
+        service = new FlakyCandidateService(executionRepository, config);
+    }
+
+    @Test
+    void testRowsAreMappedInQueryOrder() {
+        when(executionRepository.findFlakyCandidates(any(), anyInt(), any(), anyString(), anyInt()))
+                .thenReturn(List.of(
+                        new Object[]{"test-b", new BigDecimal("0.7500"), 5L, 3L, 2L},
+                        new Object[]{"test-a", new BigDecimal("0.2500"), 5L, 1L, 4L}));
+
+        List<FlakyCandidateService.Candidate> page = service.nextPage(FlakyCandidateService.START);
+
+        assertThat(page).extracting(FlakyCandidateService.Candidate::testId).containsExactly("test-b", "test-a");
+        assertThat(page.get(0).score()).isEqualByComparingTo("0.75");
+        assertThat(page.get(0).runCount()).isEqualTo(5);
+        assertThat(page.get(0).flipCount()).isEqualTo(3);
+        assertThat(page.get(0).failureCount()).isEqualTo(2);
+        assertThat(page.get(1).cursor()).isEqualTo(
+                new FlakyCandidateService.Cursor(new BigDecimal("0.2500"), "test-a"));
+    }
+
+    @Test
+    void testQueryUsesConfiguredWindowAndCursor() {
+        FlakyCandidateService.Cursor after = new FlakyCandidateService.Cursor(new BigDecimal("0.5000"), "test-x");
+
+        service.nextPage(after);
+
+        ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+        verify(executionRepository).findFlakyCandidates(
+                since.capture(), eq(4), eq(new BigDecimal("0.5000")), eq("test-x"), eq(2));
+        assertThat(since.getValue()).isBetween(
+                Instant.now().minus(Duration.ofDays(7)).minusSeconds(5), Instant.now().minus(Duration.ofDays(7)));
+    }
+
+    @Test
+    void testAtLeastTwoRunsAreRequiredToSeeAFlip() {
+        config.setCandidateMinRuns(1);
+
+        service.nextPage(FlakyCandidateService.START);
+
+        verify(executionRepository).findFlakyCandidates(
+                any(), eq(2), eq(new BigDecimal("2")), eq(""), eq(2));
+    }
+}
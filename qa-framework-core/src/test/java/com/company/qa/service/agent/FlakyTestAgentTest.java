@@ -0,0 +1,99 @@
+package com.company.qa.service.agent;
+
+import com.company.qa.config.FlakyTestConfig;
+import com.company.qa.model.agent.AgentContext;
+import com.company.qa.repository.TestRepository;
+import com.company.qa.service.agent.tool.AgentToolRegistry;
+import com.company.qa.service.ai.AIBudgetService;
+import com.company.qa.service.ai.AIGatewayService;
+import com.company.qa.service.approval.ApprovalRequestService;
+import com.company.qa.service.audit.AuditLogService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlakyTestAgentTest {
+
+    private FlakyTestConfig config;
+    private FlakyCandidateService candidateService;
+    private FlakyTestAgent agent;
+
+    @BeforeEach
+    void setUp() {
+        config = new FlakyTestConfig();
+        config.setCandidatePageSize(25);
+        candidateService = mock(FlakyCandidateService.class);
+        agent = new FlakyTestAgent(mock(AIGatewayService.class), mock(AuditLogService.class),
+                mock(ApprovalRequestService.class), mock(AIBudgetService.class), mock(AgentMemoryService.class),
+                mock(AgentToolRegistry.class), mock(TestRepository.class), config, new ObjectMapper(),
+                mock(AgentOrchestrator.class), candidateService);
+        when(candidateService.nextPage(any())).thenReturn(page(25));
+    }
+
+    @Test
+    void testPageIsTrimmedToMaxCandidatesPerRun() {
+        config.setMaxCandidatesPerRun(10);
+        AgentContext context = rankedRun();
+
+        assertThat(agent.currentTestId(context)).isEqualTo("test-00");
+        assertThat(context.getState(FlakyTestAgent.State.CANDIDATE_PAGE, List.class)).hasSize(10);
+
+        // All ten processed: no further page is fetched
+        context.putState(FlakyTestAgent.State.CURRENT_TEST_INDEX, 10);
+        context.putState(FlakyTestAgent.State.PROCESSED_COUNT, 10);
+
+        assertThat(agent.currentTestId(context)).isNull();
+        verify(candidateService, times(1)).nextPage(any());
+    }
+
+    @Test
+    void testLaterPageIsTrimmedToWhatIsLeftOfTheLimit() {
+        config.setMaxCandidatesPerRun(30);
+        AgentContext context = rankedRun();
+        context.putState(FlakyTestAgent.State.PROCESSED_COUNT, 25);
+
+        agent.currentTestId(context);
+
+        assertThat(context.getState(FlakyTestAgent.State.CANDIDATE_PAGE, List.class)).hasSize(5);
+    }
+
+    @Test
+    void testWholePageIsKeptWithoutLimit() {
+        AgentContext context = rankedRun();
+
+        agent.currentTestId(context);
+
+        assertThat(context.getState(FlakyTestAgent.State.CANDIDATE_PAGE, List.class)).hasSize(25);
+    }
+
+    /**
+     * Context of a run walking ranked candidates, before its first page.
+     */
+    private static AgentContext rankedRun() {
+        AgentContext context = AgentContext.builder().build();
+        context.putState(FlakyTestAgent.State.CANDIDATE_PAGE, new ArrayList<String>());
+        context.putState(FlakyTestAgent.State.CANDIDATES_EXHAUSTED, false);
+        context.putState(FlakyTestAgent.State.PROCESSED_COUNT, 0);
+        context.putState(FlakyTestAgent.State.CURRENT_TEST_INDEX, 0);
+        return context;
+    }
+
+    private static List<FlakyCandidateService.Candidate> page(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> new FlakyCandidateService.Candidate(
+                        String.format("test-%02d", i), new BigDecimal("0.5000"), 5, 2, 1))
+                .toList();
+    }
+}
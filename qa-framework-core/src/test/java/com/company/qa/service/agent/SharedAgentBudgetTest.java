@@ -0,0 +1,47 @@
+package com.company.qa.service.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SharedAgentBudgetTest {
+
+    @Test
+    void testChargeReportsExhaustionOnlyAfterLimitIsExceeded() {
+        SharedAgentBudget budget = new SharedAgentBudget(1.0);
+
+        assertThat(budget.charge(0.6)).isTrue();
+        assertThat(budget.charge(0.4)).isTrue();
+        assertThat(budget.isExhausted()).isFalse();
+        assertThat(budget.charge(0.01)).isFalse();
+        assertThat(budget.isExhausted()).isTrue();
+    }
+
+    @Test
+    void testNegativeCostsAreIgnored() {
+        SharedAgentBudget budget = new SharedAgentBudget(1.0);
+
+        budget.charge(-5.0);
+
+        assertThat(budget.getSpent()).isZero();
+    }
+
+    @Test
+    void testConcurrentChargesFromChildrenAreAllCounted() throws Exception {
+        SharedAgentBudget budget = new SharedAgentBudget(100.0);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        for (int i = 0; i < 1000; i++) {
+            pool.submit(() -> budget.charge(0.01));
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(budget.getSpent()).isCloseTo(10.0, within(1e-6));
+    }
+}
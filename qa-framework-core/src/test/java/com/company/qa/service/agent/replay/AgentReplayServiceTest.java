@@ -0,0 +1,107 @@
+package com.company.qa.service.agent.replay;
+
+import com.company.qa.model.agent.AgentConfig;
+import com.company.qa.model.agent.AgentGoal;
+import com.company.qa.model.agent.AgentReplayRecording;
+import com.company.qa.model.agent.AgentResult;
+import com.company.qa.model.agent.entity.AgentExecution;
+import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.model.enums.AgentStatus;
+import com.company.qa.model.enums.AgentType;
+import com.company.qa.service.agent.AgentExecutionService;
+import com.company.qa.service.agent.AgentOrchestrator;
+import com.company.qa.service.agent.BaseAgent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AgentReplayServiceTest {
+
+    @TempDir
+    Path replayDirectory;
+
+    private AgentOrchestrator orchestrator;
+    private AgentRunRecorder runRecorder;
+    private AgentReplayService service;
+    private AgentExecution execution;
+    private final CompletableFuture<AgentResult> run = new CompletableFuture<>();
+    private final AgentGoal goal = AgentGoal.builder().goalType("FIX_BROKEN_TEST").build();
+    private final AgentConfig config = AgentConfig.builder().maxIterations(5).build();
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = mock(AgentOrchestrator.class);
+        AgentExecutionService executionService = mock(AgentExecutionService.class);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        runRecorder = new AgentRunRecorder(objectMapper);
+        service = new AgentReplayService(orchestrator, executionService, runRecorder, objectMapper);
+        ReflectionTestUtils.setField(service, "replayDirectory", replayDirectory.toString());
+
+        execution = AgentExecution.builder()
+                .id(UUID.randomUUID())
+                .agentType(AgentType.SELF_HEALING_TEST_FIXER)
+                .status(AgentStatus.RUNNING)
+                .build();
+        when(orchestrator.getAgent(AgentType.SELF_HEALING_TEST_FIXER)).thenReturn(Optional.of(mock(BaseAgent.class)));
+        when(executionService.createExecution(any(), any(), any(), any(), eq("replay-recorder")))
+                .thenReturn(execution);
+        when(orchestrator.startExecution(execution, goal, config)).thenAnswer(invocation -> {
+            // The recorder is attached before the orchestrator launches the agent
+            assertThat(runRecorder.isActive(execution.getId())).isTrue();
+            return run;
+        });
+    }
+
+    @Test
+    void testRecordingStartsThroughOrchestratorAndSavesOnCompletion() {
+        AgentExecution started = service.record("heal", AgentType.SELF_HEALING_TEST_FIXER, goal, config);
+
+        assertThat(started.getId()).isEqualTo(execution.getId());
+        verify(orchestrator).startExecution(execution, goal, config);
+        assertThat(Files.exists(replayDirectory.resolve("heal.json"))).isFalse();
+
+        runRecorder.record(execution.getId(), AgentActionType.READ_FILE, Map.of("path", "a.java"),
+                Map.of("success", true), 10);
+        run.complete(AgentResult.builder()
+                .status(AgentStatus.SUCCEEDED)
+                .iterationsCompleted(2)
+                .totalDuration(Duration.ofMillis(50))
+                .build());
+
+        AgentReplayRecording recording = service.load("heal");
+        assertThat(recording.getSourceExecutionId()).isEqualTo(execution.getId());
+        assertThat(recording.getToolCalls()).hasSize(1);
+        assertThat(recording.getReport().getStatus()).isEqualTo(AgentStatus.SUCCEEDED);
+        assertThat(recording.getReport().getWallTimeMs()).isEqualTo(50L);
+        assertThat(runRecorder.isActive(execution.getId())).isFalse();
+    }
+
+    @Test
+    void testStoppedRecordingLeavesNoFile() {
+        service.record("heal", AgentType.SELF_HEALING_TEST_FIXER, goal, config);
+
+        run.completeExceptionally(new CancellationException());
+
+        assertThat(Files.exists(replayDirectory.resolve("heal.json"))).isFalse();
+        assertThat(runRecorder.isActive(execution.getId())).isFalse();
+    }
+}
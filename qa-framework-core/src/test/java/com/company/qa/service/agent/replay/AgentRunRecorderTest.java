@@ -0,0 +1,98 @@
+package com.company.qa.service.agent.replay;
+
+import com.company.qa.model.agent.RecordedToolCall;
+import com.company.qa.model.enums.AgentActionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgentRunRecorderTest {
+
+    private AgentRunRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        recorder = new AgentRunRecorder(new ObjectMapper());
+    }
+
+    @Test
+    void testUnregisteredExecutionIsIgnored() {
+        UUID executionId = UUID.randomUUID();
+
+        assertFalse(recorder.isActive(executionId));
+        assertTrue(recorder.replay(executionId, AgentActionType.READ_FILE, Map.of()).isEmpty());
+
+        recorder.record(executionId, AgentActionType.READ_FILE, Map.of(), Map.of("success", true), 5);
+        assertTrue(recorder.finish(executionId).toolCalls().isEmpty());
+    }
+
+    @Test
+    void testRecordingCapturesCallsInOrder() {
+        UUID executionId = UUID.randomUUID();
+        UUID testId = UUID.randomUUID();
+        recorder.startRecording(executionId);
+
+        recorder.record(executionId, AgentActionType.EXTRACT_BROKEN_LOCATOR,
+                Map.of("testId", testId), Map.of("success", true), 12);
+        recorder.record(executionId, AgentActionType.READ_FILE,
+                Map.of("pageUrl", "https://example.com"), Map.of("success", true), 40);
+
+        AgentRunRecorder.Capture capture = recorder.finish(executionId);
+
+        assertEquals(2, capture.toolCalls().size());
+        assertEquals(AgentActionType.EXTRACT_BROKEN_LOCATOR, capture.toolCalls().get(0).getActionType());
+        assertEquals(1, capture.toolCalls().get(1).getSequence());
+        // Stored in JSON form so recordings loaded from disk match live calls
+        assertEquals(testId.toString(), capture.toolCalls().get(0).getParameters().get("testId"));
+        assertFalse(recorder.isActive(executionId));
+    }
+
+    @Test
+    void testReplayPrefersExactParameterMatch() {
+        UUID executionId = UUID.randomUUID();
+        recorder.startReplay(executionId, List.of(
+                call(0, AgentActionType.READ_FILE, Map.of("pageUrl", "https://a.example"), "a"),
+                call(1, AgentActionType.READ_FILE, Map.of("pageUrl", "https://b.example"), "b")));
+
+        Map<String, Object> result = recorder.replay(executionId, AgentActionType.READ_FILE,
+                Map.of("pageUrl", "https://b.example")).orElseThrow();
+
+        assertEquals("b", result.get("relevantHtml"));
+        assertEquals(0, recorder.finish(executionId).divergences());
+    }
+
+    @Test
+    void testReplayCountsDivergencesAndMisses() {
+        UUID executionId = UUID.randomUUID();
+        recorder.startReplay(executionId, List.of(
+                call(0, AgentActionType.READ_FILE, Map.of("pageUrl", "https://a.example"), "a")));
+
+        Map<String, Object> diverged = recorder.replay(executionId, AgentActionType.READ_FILE,
+                Map.of("pageUrl", "https://other.example")).orElseThrow();
+        Map<String, Object> missed = recorder.replay(executionId, AgentActionType.READ_FILE,
+                Map.of("pageUrl", "https://a.example")).orElseThrow();
+
+        assertEquals("a", diverged.get("relevantHtml"));
+        assertEquals(false, missed.get("success"));
+
+        AgentRunRecorder.Capture capture = recorder.finish(executionId);
+        assertEquals(1, capture.divergences());
+        assertEquals(1, capture.misses());
+    }
+
+    private RecordedToolCall call(int sequence, AgentActionType actionType,
+                                  Map<String, Object> parameters, String html) {
+        return RecordedToolCall.builder()
+                .sequence(sequence)
+                .actionType(actionType)
+                .parameters(parameters)
+                .result(Map.of("success", true, "relevantHtml", html))
+                .build();
+    }
+}
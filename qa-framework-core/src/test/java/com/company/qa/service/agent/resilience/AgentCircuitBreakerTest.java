@@ -0,0 +1,116 @@
+package com.company.qa.service.agent.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgentCircuitBreakerTest {
+
+    private static final String TOOL = "VerifyFixTool";
+
+    private AgentCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new AgentCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "openSeconds", 1L);
+    }
+
+    @Test
+    void testOpensOnFailureRateOnceMinimumCallsAreBuffered() {
+        for (int i = 0; i < 4; i++) {
+            breaker.recordCall(TOOL, false, 10, 1_000);
+        }
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.CLOSED);
+
+        breaker.recordCall(TOOL, false, 10, 1_000);
+
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest(TOOL)).isFalse();
+        assertThat(breaker.getSnapshot(TOOL).rejectedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void testMostlySuccessfulToolStaysClosed() {
+        for (int i = 0; i < 20; i++) {
+            breaker.recordCall(TOOL, i % 4 != 0, 10, 1_000);
+        }
+
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.CLOSED);
+        assertThat(breaker.getSnapshot(TOOL).failureRate()).isEqualTo(0.25);
+    }
+
+    @Test
+    void testOpensOnSlowCallsEvenWhenTheySucceed() {
+        for (int i = 0; i < 5; i++) {
+            breaker.recordCall(TOOL, true, 5_000, 1_000);
+        }
+
+        AgentCircuitBreaker.CircuitSnapshot snapshot = breaker.getSnapshot(TOOL);
+        assertThat(snapshot.state()).isEqualTo(AgentCircuitBreaker.State.OPEN);
+        assertThat(snapshot.slowCallRate()).isEqualTo(1.0);
+        assertThat(snapshot.p95LatencyMs()).isEqualTo(5_000);
+    }
+
+    @Test
+    void testHalfOpenLetsOneProbeThroughAndClosesOnFastSuccess() throws Exception {
+        openCircuit();
+        Thread.sleep(1_100);
+
+        assertThat(breaker.allowRequest(TOOL)).isTrue();
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.HALF_OPEN);
+        assertThat(CompletableFuture.supplyAsync(() -> breaker.allowRequest(TOOL)).get()).isFalse();
+
+        breaker.recordCall(TOOL, true, 10, 1_000);
+
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.CLOSED);
+        assertThat(breaker.getSnapshot(TOOL).bufferedCalls()).isZero();
+    }
+
+    @Test
+    void testSlowProbeReopensCircuit() throws Exception {
+        openCircuit();
+        Thread.sleep(1_100);
+
+        assertThat(breaker.allowRequest(TOOL)).isTrue();
+        breaker.recordCall(TOOL, true, 5_000, 1_000);
+
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.OPEN);
+        assertThat(breaker.getSnapshot(TOOL).transitions()).isEqualTo(3);
+    }
+
+    @Test
+    void testResultsFromOtherThreadsDoNotDecideTheProbe() throws Exception {
+        openCircuit();
+        Thread.sleep(1_100);
+        assertThat(breaker.allowRequest(TOOL)).isTrue();
+
+        CompletableFuture.runAsync(() -> breaker.recordCall(TOOL, true, 10, 1_000)).get();
+
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void testReopenedCircuitWaitsAFullOpenPeriod() throws Exception {
+        openCircuit();
+        Thread.sleep(1_100);
+        assertThat(breaker.allowRequest(TOOL)).isTrue();
+        breaker.recordCall(TOOL, false, 10, 1_000);
+
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest(TOOL)).isFalse();
+        assertThat(breaker.getSnapshot(TOOL).openedAt()).isAfter(Instant.now().minusMillis(500));
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 5; i++) {
+            breaker.recordCall(TOOL, false, 10, 1_000);
+        }
+        assertThat(breaker.getState(TOOL)).isEqualTo(AgentCircuitBreaker.State.OPEN);
+    }
+}
@@ -1,15 +1,34 @@
 package com.company.qa.service.agent.tool;
 
+import com.company.qa.model.agent.PlannedAction;
 import com.company.qa.model.enums.AgentActionType;
+import com.company.qa.service.agent.replay.AgentRunRecorder;
 import com.company.qa.service.agent.resilience.AgentCircuitBreaker;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class AgentToolRegistryTest {
 
@@ -19,7 +38,8 @@ class AgentToolRegistryTest {
 
     @BeforeEach
     void setUp() {
-        registry = new AgentToolRegistry(circuitBreaker);
+        registry = new AgentToolRegistry(circuitBreaker, new ToolResultCache(), Runnable::run,
+                new AgentRunRecorder(new ObjectMapper()), mock(SideEffectLedger.class));
     }
 
     @Test
@@ -152,6 +172,265 @@ class AgentToolRegistryTest {
         assertTrue(byCategory.size() > 0);
     }
 
+    @Test
+    void testExecuteToolPastDeadlineIsNotStarted() {
+        AgentTool mockTool = createMockTool(AgentActionType.FETCH_JIRA_STORY, "Test Tool");
+        registry.registerTool(mockTool);
+
+        ToolBudget expired = ToolBudget.of(Instant.now().minusSeconds(1), null, () -> false);
+        Map<String, Object> result = registry.executeTool(
+                AgentActionType.FETCH_JIRA_STORY, Map.of("test", "value"), null, expired);
+
+        assertEquals(false, result.get("success"));
+        assertEquals(true, result.get("budgetExhausted"));
+    }
+
+    @Test
+    void testExecuteToolAfterStopRequestIsNotStarted() {
+        AgentTool mockTool = createMockTool(AgentActionType.FETCH_JIRA_STORY, "Test Tool");
+        registry.registerTool(mockTool);
+
+        ToolBudget stopped = ToolBudget.of(null, null, () -> true);
+        Map<String, Object> result = registry.executeTool(
+                AgentActionType.FETCH_JIRA_STORY, Map.of(), null, stopped);
+
+        assertEquals(true, result.get("budgetExhausted"));
+    }
+
+    @Test
+    void testConcurrentCallOverrunningItsTimeoutIsInterrupted() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            registry = new AgentToolRegistry(new AgentCircuitBreaker(), new ToolResultCache(), executor,
+                    new AgentRunRecorder(new ObjectMapper()), mock(SideEffectLedger.class));
+            CountDownLatch stopped = new CountDownLatch(1);
+            AtomicBoolean sawInterrupt = new AtomicBoolean(false);
+            AtomicBoolean sawAbort = new AtomicBoolean(false);
+            registry.registerTool(createMockTool(AgentActionType.FETCH_JIRA_STORY, "Fast Tool"));
+            registry.registerTool(new SlowTool(stopped, sawInterrupt, sawAbort));
+
+            List<Map<String, Object>> results = registry.executeToolsConcurrently(List.of(
+                    PlannedAction.builder().actionType(AgentActionType.FETCH_JIRA_STORY).parameters(Map.of()).build(),
+                    PlannedAction.builder().actionType(AgentActionType.ANALYZE_TEST_STABILITY)
+                            .parameters(Map.of()).timeoutMs(200L).build()),
+                    null);
+
+            assertEquals(true, results.get(0).get("success"));
+            assertEquals(false, results.get(1).get("success"));
+            assertEquals(true, results.get(1).get("timedOut"));
+            assertTrue(((Number) results.get(1).get("durationMs")).longValue() >= 200);
+            assertTrue(((Number) results.get(0).get("durationMs")).longValue() < 200);
+
+            // The slow tool stops instead of running on in the background
+            assertTrue(stopped.await(5, TimeUnit.SECONDS));
+            assertTrue(sawInterrupt.get());
+            assertTrue(sawAbort.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTimedOutConcurrentCallIsOneBreakerFailure() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            AgentCircuitBreaker breaker = new AgentCircuitBreaker();
+            registry = new AgentToolRegistry(breaker, new ToolResultCache(), executor,
+                    new AgentRunRecorder(new ObjectMapper()), mock(SideEffectLedger.class));
+            CountDownLatch stopped = new CountDownLatch(1);
+            registry.registerTool(new SlowTool(stopped, new AtomicBoolean(), new AtomicBoolean()));
+
+            registry.executeToolsConcurrently(List.of(PlannedAction.builder()
+                    .actionType(AgentActionType.ANALYZE_TEST_STABILITY).parameters(Map.of()).timeoutMs(200L).build()),
+                    null);
+            assertTrue(stopped.await(5, TimeUnit.SECONDS));
+            // Let the interrupted call return through executeTool
+            Thread.sleep(200);
+
+            AgentCircuitBreaker.CircuitSnapshot snapshot = breaker.getSnapshot(SlowTool.class.getSimpleName());
+            assertEquals(1, snapshot.bufferedCalls());
+            assertEquals(1.0, snapshot.failureRate());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDeadlineBoundTimeoutIsNoBreakerFailure() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            AgentCircuitBreaker breaker = new AgentCircuitBreaker();
+            registry = new AgentToolRegistry(breaker, new ToolResultCache(), executor,
+                    new AgentRunRecorder(new ObjectMapper()), mock(SideEffectLedger.class));
+            CountDownLatch stopped = new CountDownLatch(1);
+            registry.registerTool(new SlowTool(stopped, new AtomicBoolean(), new AtomicBoolean()));
+
+            List<Map<String, Object>> results = registry.executeToolsConcurrently(List.of(PlannedAction.builder()
+                    .actionType(AgentActionType.ANALYZE_TEST_STABILITY).parameters(Map.of()).build()),
+                    null, ToolBudget.of(Instant.now().plusMillis(200), null, null));
+            assertTrue(stopped.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+
+            assertEquals(true, results.get(0).get("budgetExhausted"));
+            assertEquals(0, breaker.getSnapshot(SlowTool.class.getSimpleName()).bufferedCalls());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRejectedParametersDoNotTakeTheHalfOpenProbe() throws InterruptedException {
+        AgentCircuitBreaker breaker = new AgentCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "openSeconds", 1L);
+        registry = new AgentToolRegistry(breaker, new ToolResultCache(), Runnable::run,
+                new AgentRunRecorder(new ObjectMapper()), mock(SideEffectLedger.class));
+        registry.registerTool(new RequiresTicketTool());
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure(RequiresTicketTool.class.getSimpleName());
+        }
+        Thread.sleep(1_100);
+
+        Map<String, Object> invalid = registry.executeTool(AgentActionType.FETCH_JIRA_STORY, Map.of());
+        Map<String, Object> probe = registry.executeTool(AgentActionType.FETCH_JIRA_STORY, Map.of("ticket", "QA-1"));
+
+        assertEquals("Invalid parameters", invalid.get("error"));
+        assertEquals(true, probe.get("success"));
+        assertEquals(AgentCircuitBreaker.State.CLOSED, breaker.getState(RequiresTicketTool.class.getSimpleName()));
+    }
+
+    @Test
+    void testSideEffectLedgerIsOnlyConsultedForResumedExecutions() {
+        SideEffectLedger ledger = mock(SideEffectLedger.class);
+        registry = new AgentToolRegistry(new AgentCircuitBreaker(), new ToolResultCache(), Runnable::run,
+                new AgentRunRecorder(new ObjectMapper()), ledger);
+        AtomicInteger commits = new AtomicInteger();
+        AgentTool commitTool = new RequiresTicketTool() {
+            @Override
+            public Map<String, Object> execute(Map<String, Object> parameters) {
+                commits.incrementAndGet();
+                return Map.of("success", true);
+            }
+
+            @Override
+            public boolean hasExternalSideEffects() {
+                return true;
+            }
+        };
+        registry.registerTool(commitTool);
+        UUID executionId = UUID.randomUUID();
+        Map<String, Object> params = Map.of("ticket", "QA-1");
+        when(ledger.findApplied(commitTool, params, executionId))
+                .thenReturn(Optional.of(Map.of("success", true, "alreadyApplied", true)));
+
+        registry.executeTool(AgentActionType.FETCH_JIRA_STORY, params, executionId);
+        registry.resumeExecution(executionId);
+        Map<String, Object> resumed = registry.executeTool(AgentActionType.FETCH_JIRA_STORY, params, executionId);
+        registry.releaseExecution(executionId);
+        registry.executeTool(AgentActionType.FETCH_JIRA_STORY, params, executionId);
+
+        assertEquals(2, commits.get());
+        assertEquals(true, resumed.get("alreadyApplied"));
+        verify(ledger, times(1)).findApplied(commitTool, params, executionId);
+        verify(ledger, times(2)).started(commitTool, params, executionId);
+        verify(ledger, times(2)).completed(eq(commitTool), eq(params), eq(executionId), any());
+    }
+
+    /**
+     * Succeeds whenever a ticket is given.
+     */
+    private static class RequiresTicketTool implements AgentTool {
+
+        @Override
+        public AgentActionType getActionType() {
+            return AgentActionType.FETCH_JIRA_STORY;
+        }
+
+        @Override
+        public String getName() {
+            return "Ticket Tool";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Needs a ticket";
+        }
+
+        @Override
+        public Map<String, Object> execute(Map<String, Object> parameters) {
+            return Map.of("success", true);
+        }
+
+        @Override
+        public boolean validateParameters(Map<String, Object> parameters) {
+            return parameters.containsKey("ticket");
+        }
+
+        @Override
+        public Map<String, String> getParameterSchema() {
+            return Map.of("ticket", "string (required)");
+        }
+    }
+
+    /**
+     * Runs until interrupted, then reports what it saw.
+     */
+    private static class SlowTool implements AgentTool {
+
+        private final CountDownLatch stopped;
+        private final AtomicBoolean sawInterrupt;
+        private final AtomicBoolean sawAbort;
+
+        SlowTool(CountDownLatch stopped, AtomicBoolean sawInterrupt, AtomicBoolean sawAbort) {
+            this.stopped = stopped;
+            this.sawInterrupt = sawInterrupt;
+            this.sawAbort = sawAbort;
+        }
+
+        @Override
+        public AgentActionType getActionType() {
+            return AgentActionType.ANALYZE_TEST_STABILITY;
+        }
+
+        @Override
+        public String getName() {
+            return "Slow Tool";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Never finishes on its own";
+        }
+
+        @Override
+        public Map<String, Object> execute(Map<String, Object> parameters) {
+            return execute(parameters, ToolBudget.UNLIMITED);
+        }
+
+        @Override
+        public Map<String, Object> execute(Map<String, Object> parameters, ToolBudget budget) {
+            try {
+                Thread.sleep(60_000);
+                return Map.of("success", true);
+            } catch (InterruptedException e) {
+                sawInterrupt.set(true);
+                sawAbort.set(budget.shouldAbort());
+                return Map.of("success", false, "error", "interrupted");
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        @Override
+        public boolean validateParameters(Map<String, Object> parameters) {
+            return true;
+        }
+
+        @Override
+        public Map<String, String> getParameterSchema() {
+            return Map.of();
+        }
+    }
+
     private AgentTool createMockTool(AgentActionType actionType, String name) {
         return new AgentTool() {
             @Override
@@ -0,0 +1,132 @@
+package com.company.qa.service.agent.tool;
+
+import com.company.qa.model.enums.AgentActionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SideEffectLedgerTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOps;
+
+    @Mock
+    private AgentTool commitTool;
+
+    private final Map<String, Object> store = new HashMap<>();
+    private SideEffectLedger ledger;
+
+    private final UUID executionId = UUID.randomUUID();
+    private final Map<String, Object> parameters = Map.of(
+            "branchName", "feature/PROJ-1",
+            "commitMessage", "Add login test");
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        doAnswer(inv -> store.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(valueOps).set(anyString(), any(), any(Duration.class));
+        when(valueOps.get(anyString())).thenAnswer(inv -> store.get(inv.<String>getArgument(0)));
+        when(redisTemplate.delete(anyString())).thenAnswer(inv -> store.remove(inv.<String>getArgument(0)) != null);
+        when(commitTool.getActionType()).thenReturn(AgentActionType.COMMIT_CHANGES);
+
+        ledger = new SideEffectLedger(redisTemplate, new ObjectMapper());
+    }
+
+    @Test
+    void testUnknownCallIsRun() {
+        assertThat(ledger.findApplied(commitTool, parameters, executionId)).isEmpty();
+    }
+
+    @Test
+    void testCompletedCallReturnsRecordedResult() {
+        ledger.started(commitTool, parameters, executionId);
+        ledger.completed(commitTool, parameters, executionId, Map.of("success", true, "commitSha", "abc123"));
+
+        Optional<Map<String, Object>> applied = ledger.findApplied(commitTool, parameters, executionId);
+
+        assertThat(applied).isPresent();
+        assertThat(applied.get()).containsEntry("commitSha", "abc123").containsEntry("alreadyApplied", true);
+        verify(commitTool, never()).findAppliedResult(any(), any());
+    }
+
+    @Test
+    void testInterruptedCallIsReconciledByTool() {
+        Instant before = Instant.now();
+        ledger.started(commitTool, parameters, executionId);
+        when(commitTool.findAppliedResult(eq(parameters), any())).thenReturn(Map.of("success", true, "commitSha", "def456"));
+
+        Optional<Map<String, Object>> applied = ledger.findApplied(commitTool, parameters, executionId);
+
+        assertThat(applied).isPresent();
+        assertThat(applied.get()).containsEntry("commitSha", "def456");
+
+        // Reconciled once, then served from the ledger
+        ledger.findApplied(commitTool, parameters, executionId);
+        ArgumentCaptor<Instant> startedAt = ArgumentCaptor.forClass(Instant.class);
+        verify(commitTool, times(1)).findAppliedResult(eq(parameters), startedAt.capture());
+        assertThat(startedAt.getValue()).isBetween(before.truncatedTo(ChronoUnit.MILLIS), Instant.now());
+    }
+
+    @Test
+    void testInterruptedCallWithoutTraceIsRunAgain() {
+        ledger.started(commitTool, parameters, executionId);
+        when(commitTool.findAppliedResult(eq(parameters), any())).thenReturn(null);
+
+        assertThat(ledger.findApplied(commitTool, parameters, executionId)).isEmpty();
+    }
+
+    @Test
+    void testFailedCallIsForgotten() {
+        ledger.started(commitTool, parameters, executionId);
+        ledger.failed(commitTool, parameters, executionId);
+
+        assertThat(store).isEmpty();
+        assertThat(ledger.findApplied(commitTool, parameters, executionId)).isEmpty();
+    }
+
+    @Test
+    void testLedgerIsScopedToExecutionAndParameters() {
+        ledger.completed(commitTool, parameters, executionId, Map.of("success", true));
+
+        assertThat(ledger.findApplied(commitTool, parameters, UUID.randomUUID())).isEmpty();
+        assertThat(ledger.findApplied(commitTool, Map.of("branchName", "feature/PROJ-2"), executionId)).isEmpty();
+    }
+
+    @Test
+    void testSameParametersWithNewContentsAreANewSideEffect() {
+        when(commitTool.sideEffectFingerprint(parameters)).thenReturn("contents-v1");
+        ledger.completed(commitTool, parameters, executionId, Map.of("success", true, "commitSha", "abc123"));
+
+        when(commitTool.sideEffectFingerprint(parameters)).thenReturn("contents-v2");
+        assertThat(ledger.findApplied(commitTool, parameters, executionId)).isEmpty();
+
+        when(commitTool.sideEffectFingerprint(parameters)).thenReturn("contents-v1");
+        assertThat(ledger.findApplied(commitTool, parameters, executionId)).isPresent();
+    }
+}
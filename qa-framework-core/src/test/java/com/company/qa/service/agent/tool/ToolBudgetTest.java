@@ -0,0 +1,68 @@
+package com.company.qa.service.agent.tool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolBudgetTest {
+
+    @Test
+    void testUnlimitedBudgetLeavesValuesUntouched() {
+        ToolBudget budget = ToolBudget.UNLIMITED;
+
+        assertThat(budget.hasDeadline()).isFalse();
+        assertThat(budget.shouldAbort()).isFalse();
+        assertThat(budget.capTimeoutMs(30_000)).isEqualTo(30_000);
+        assertThat(budget.maxAffordableTokens(0.0114)).isNull();
+    }
+
+    @Test
+    void testTimeoutIsCappedToTimeLeftButNotBelowMinimum() {
+        ToolBudget soon = ToolBudget.of(Instant.now().plusSeconds(5), null, () -> false);
+        ToolBudget passed = ToolBudget.of(Instant.now().minusSeconds(5), null, () -> false);
+
+        assertThat(soon.capTimeoutMs(30_000)).isBetween(ToolBudget.MIN_TIMEOUT_MS, 5_000);
+        assertThat(passed.capTimeoutMs(30_000)).isEqualTo(ToolBudget.MIN_TIMEOUT_MS);
+        assertThat(passed.isExpired()).isTrue();
+        assertThat(passed.shouldAbort()).isTrue();
+    }
+
+    @Test
+    void testMaxTokensFollowRemainingCost() {
+        ToolBudget budget = ToolBudget.of(null, 0.0114, () -> false);
+        ToolBudget spent = ToolBudget.of(null, -0.5, () -> false);
+
+        assertThat(budget.maxAffordableTokens(0.0114)).isEqualTo(1000);
+        assertThat(spent.maxAffordableTokens(0.0114)).isEqualTo(ToolBudget.MIN_MAX_TOKENS);
+    }
+
+    @Test
+    void testCancellationStopsOnlyTheDerivedBudget() {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        ToolBudget budget = ToolBudget.of(Instant.now().plusSeconds(60), 1.0, () -> false);
+        ToolBudget call = budget.withCancellation(cancelled::get);
+
+        assertThat(call.shouldAbort()).isFalse();
+        assertThat(call.isCancelled()).isFalse();
+        cancelled.set(true);
+        assertThat(call.shouldAbort()).isTrue();
+        assertThat(call.isCancelled()).isTrue();
+        assertThat(budget.shouldAbort()).isFalse();
+        assertThat(budget.isCancelled()).isFalse();
+        assertThat(call.getDeadline()).isEqualTo(budget.getDeadline());
+        assertThat(call.getRemainingAICost()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testStopRequestIsReadOnEveryCheck() {
+        AtomicBoolean stop = new AtomicBoolean(false);
+        ToolBudget budget = ToolBudget.of(null, null, stop::get);
+
+        assertThat(budget.shouldAbort()).isFalse();
+        stop.set(true);
+        assertThat(budget.shouldAbort()).isTrue();
+    }
+}
@@ -0,0 +1,141 @@
+package com.company.qa.service.agent.tool;
+
+import com.company.qa.model.enums.AgentActionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolResultCacheTest {
+
+    private ToolResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ToolResultCache();
+    }
+
+    @Test
+    void testNormalisedParametersShareEntry() {
+        AgentTool tool = idempotentTool(AgentTool.CacheScope.GLOBAL);
+
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("pageName", "login");
+        first.put("elementPurpose", "submit button ");
+        first.put("brokenLocator", null);
+
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("elementPurpose", "submit button");
+        second.put("pageName", "login");
+
+        cache.put(tool, first, null, Map.of("success", true, "totalFound", 2));
+
+        assertEquals(2, cache.get(tool, second, null).orElseThrow().get("totalFound"));
+    }
+
+    @Test
+    void testExecutionScopeIsolatesExecutions() {
+        AgentTool tool = idempotentTool(AgentTool.CacheScope.EXECUTION);
+        UUID executionA = UUID.randomUUID();
+        UUID executionB = UUID.randomUUID();
+        Map<String, Object> params = Map.of("pageName", "login");
+
+        cache.put(tool, params, executionA, Map.of("success", true));
+
+        assertTrue(cache.get(tool, params, executionA).isPresent());
+        assertTrue(cache.get(tool, params, executionB).isEmpty());
+
+        assertEquals(new ToolResultCache.Stats(1, 0), cache.getStats(executionA));
+        assertEquals(new ToolResultCache.Stats(0, 1), cache.getStats(executionB));
+    }
+
+    @Test
+    void testFailedResultsAreNotCached() {
+        AgentTool tool = idempotentTool(AgentTool.CacheScope.GLOBAL);
+        Map<String, Object> params = Map.of("pageUrl", "https://example.com");
+
+        cache.put(tool, params, null, Map.of("success", false, "error", "timeout"));
+
+        assertTrue(cache.get(tool, params, null).isEmpty());
+    }
+
+    @Test
+    void testReleaseExecutionKeepsGlobalEntries() {
+        AgentTool scoped = idempotentTool(AgentTool.CacheScope.EXECUTION);
+        AgentTool global = idempotentTool(AgentTool.CacheScope.GLOBAL);
+        UUID executionId = UUID.randomUUID();
+
+        cache.put(scoped, Map.of("a", 1), executionId, Map.of("success", true));
+        cache.put(global, Map.of("b", 2), executionId, Map.of("success", true));
+
+        cache.releaseExecution(executionId);
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.get(global, Map.of("b", 2), null).isPresent());
+    }
+
+    @Test
+    void testInvalidateByActionType() {
+        AgentTool tool = idempotentTool(AgentTool.CacheScope.GLOBAL);
+        cache.put(tool, Map.of("a", 1), null, Map.of("success", true));
+
+        cache.invalidate(AgentActionType.QUERY_ELEMENT_REGISTRY);
+
+        assertEquals(0, cache.size());
+    }
+
+    private AgentTool idempotentTool(AgentTool.CacheScope scope) {
+        return new AgentTool() {
+            @Override
+            public AgentActionType getActionType() {
+                return AgentActionType.QUERY_ELEMENT_REGISTRY;
+            }
+
+            @Override
+            public String getName() {
+                return "Cached Tool";
+            }
+
+            @Override
+            public String getDescription() {
+                return "Idempotent tool for testing";
+            }
+
+            @Override
+            public Map<String, Object> execute(Map<String, Object> parameters) {
+                return Map.of("success", true);
+            }
+
+            @Override
+            public boolean validateParameters(Map<String, Object> parameters) {
+                return true;
+            }
+
+            @Override
+            public Map<String, String> getParameterSchema() {
+                return new HashMap<>();
+            }
+
+            @Override
+            public boolean isIdempotent() {
+                return true;
+            }
+
+            @Override
+            public Duration getResultCacheTtl() {
+                return Duration.ofMinutes(1);
+            }
+
+            @Override
+            public CacheScope getResultCacheScope() {
+                return scope;
+            }
+        };
+    }
+}
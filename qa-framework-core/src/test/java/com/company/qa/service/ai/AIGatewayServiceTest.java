@@ -1,6 +1,8 @@
 package com.company.qa.service.ai;
 
 import com.company.qa.model.dto.*;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AITaskType;
 import com.company.qa.model.enums.UserRole;
 import com.company.qa.service.approval.ApprovalRequestService;
 import com.company.qa.service.audit.AuditLogService;
@@ -17,6 +19,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,9 +51,15 @@ class AIGatewayServiceTest {
 
     private  AIUsageTrackingService usageTrackingService;
 
+    @Mock
+    private AIResponseCache responseCache;
+
 
     @BeforeEach
     void setUp() {
+        // The gateway calls the async variants; their defaults delegate to the stubbed blocking calls
+        lenient().when(aiService.generateTestAsync(any())).thenCallRealMethod();
+        lenient().when(aiService.analyzeFailureAsync(any())).thenCallRealMethod();
         gatewayService = new AIGatewayService(
                 aiService,
                 sanitizerService,
@@ -58,7 +67,9 @@ class AIGatewayServiceTest {
                 responseValidator,
                 auditLogService,
                 approvalRequestService,
-                usageTrackingService
+                usageTrackingService,
+                responseCache,
+                new AIRequestCoalescer()
         );
     }
 
@@ -310,6 +321,110 @@ class AIGatewayServiceTest {
                 eq("test_generation"), anyString());
     }
 
+    @Test
+    @DisplayName("Should answer identical request from cache without calling AI")
+    void shouldServeCachedResponseWithoutCallingAI() {
+        SecureAIRequest request = createTestGenerationRequest();
+
+        when(rateLimiterService.checkRateLimit(any(UUID.class), any(UserRole.class)))
+                .thenReturn(new RateLimitResult(true, 49, 50, Instant.now().plusSeconds(3600)));
+        when(sanitizerService.sanitize(any(SanitizationRequest.class)))
+                .thenReturn(SanitizationResult.builder()
+                        .sanitizedContent("Clean content")
+                        .dataRedacted(false)
+                        .shouldBlock(false)
+                        .timestamp(Instant.now())
+                        .build());
+        when(responseCache.buildKey(any(), eq(AITaskType.TEST_GENERATION), any(String[].class)))
+                .thenReturn("cache-key");
+        when(responseCache.get("cache-key", AITaskType.TEST_GENERATION))
+                .thenReturn(Optional.of(new AIResponseCache.Hit("cache-key", AIResponseCache.Tier.REDIS,
+                        "Cached test code", 500, AIProvider.BEDROCK)));
+        when(responseValidator.validate(anyString(), any(ResponseType.class)))
+                .thenReturn(ValidationResult.builder().valid(true).shouldBlock(false).build());
+
+        // Execute
+        SecureAIResponse response = gatewayService.generateTest(request);
+
+        // Verify
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getContent()).isEqualTo("Cached test code");
+        assertThat(response.isCacheHit()).isTrue();
+        assertThat(response.getCacheTier()).isEqualTo("REDIS");
+        assertThat(response.getTokensUsed()).isZero();
+        assertThat(response.getTokensSaved()).isEqualTo(500);
+        verify(aiService, never()).generateTest(any());
+        verify(responseCache, never()).put(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should bypass cache for non-cacheable request")
+    void shouldBypassCacheWhenNotCacheable() {
+        SecureAIRequest request = createTestGenerationRequest();
+        request.setCacheable(false);
+
+        setupSuccessfulMocks();
+
+        // Execute
+        SecureAIResponse response = gatewayService.generateTest(request);
+
+        // Verify
+        assertThat(response.isCacheHit()).isFalse();
+        verify(responseCache, never()).buildKey(any(), any(), any(String[].class));
+        verify(aiService).generateTest(any(TestGenerationRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should not share a capped failure analysis with uncapped callers")
+    void shouldCoalesceCappedAnalysisOnlyWithSameCeiling() {
+        AIRequestCoalescer coalescer = spy(new AIRequestCoalescer());
+        gatewayService = new AIGatewayService(aiService, sanitizerService, rateLimiterService,
+                responseValidator, auditLogService, approvalRequestService, usageTrackingService,
+                responseCache, coalescer);
+        SecureAIRequest request = createFailureAnalysisRequest();
+        request.setMaxTokens(512);
+
+        when(rateLimiterService.checkRateLimit(any(UUID.class), any(UserRole.class)))
+                .thenReturn(new RateLimitResult(true, 49, 50, Instant.now().plusSeconds(3600)));
+        when(sanitizerService.sanitize(any(SanitizationRequest.class)))
+                .thenReturn(SanitizationResult.builder()
+                        .sanitizedContent("NullPointerException at line 42")
+                        .dataRedacted(false)
+                        .shouldBlock(false)
+                        .timestamp(Instant.now())
+                        .build());
+        when(responseCache.buildKey(any(), eq(AITaskType.FAILURE_ANALYSIS), any(String[].class)))
+                .thenReturn("cache-key");
+        when(responseCache.get("cache-key", AITaskType.FAILURE_ANALYSIS)).thenReturn(Optional.empty());
+        when(aiService.analyzeFailure(any(FailureAnalysisRequest.class)))
+                .thenReturn(AIResponse.builder().content("Capped analysis").tokensUsed(300).build());
+        when(responseValidator.validate(anyString(), any(ResponseType.class)))
+                .thenReturn(ValidationResult.builder().valid(true).shouldBlock(false).build());
+
+        // Execute
+        SecureAIResponse response = gatewayService.analyzeFailure(request);
+
+        // Verify
+        assertThat(response.isSuccess()).isTrue();
+        verify(coalescer).execute(eq("cache-key|maxTokens=512"), any());
+        verify(responseCache, never()).put(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should call the provider through its async variant")
+    void shouldCallProviderThroughAsyncVariant() {
+        SecureAIRequest request = createTestGenerationRequest();
+
+        setupSuccessfulMocks();
+
+        // Execute
+        SecureAIResponse response = gatewayService.generateTest(request);
+
+        // Verify
+        assertThat(response.isSuccess()).isTrue();
+        verify(aiService).generateTestAsync(any(TestGenerationRequest.class));
+    }
+
     // Helper methods
 
     private SecureAIRequest createTestGenerationRequest() {
@@ -0,0 +1,48 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.model.enums.AIProvider;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AIPricingServiceTest {
+
+    private final AIPricingService pricingService = new AIPricingService();
+
+    @Test
+    void testCostWithoutCacheUsageMatchesPlainCalculation() {
+        assertThat(pricingService.calculateCost(AIProvider.BEDROCK, "amazon.nova-pro-v1:0",
+                1_000_000, 100_000, 0, 0))
+                .isEqualByComparingTo(pricingService.calculateCost(AIProvider.BEDROCK, 1_000_000, 100_000));
+    }
+
+    @Test
+    void testCacheReadsAreDiscountedPerModelFamily() {
+        // 1M input tokens at $0.000035/1K = $0.035 uncached
+        BigDecimal uncached = pricingService.calculateCost(AIProvider.BEDROCK, 1_000_000, 0);
+        BigDecimal novaCached = pricingService.calculateCost(AIProvider.BEDROCK, "amazon.nova-pro-v1:0",
+                1_000_000, 0, 1_000_000, 0);
+        BigDecimal claudeCached = pricingService.calculateCost(AIProvider.BEDROCK,
+                "anthropic.claude-3-5-sonnet-20241022-v2:0", 1_000_000, 0, 1_000_000, 0);
+
+        assertThat(uncached).isEqualByComparingTo("0.0350");
+        assertThat(novaCached).isEqualByComparingTo("0.0088");
+        assertThat(claudeCached).isEqualByComparingTo("0.0035");
+    }
+
+    @Test
+    void testClaudeCacheWritesCostMoreThanInput() {
+        BigDecimal written = pricingService.calculateCost(AIProvider.BEDROCK,
+                "anthropic.claude-3-5-sonnet-20241022-v2:0", 1_000_000, 0, 0, 1_000_000);
+
+        assertThat(written).isEqualByComparingTo("0.0438");
+    }
+
+    @Test
+    void testOllamaIsFreeWithOrWithoutCache() {
+        assertThat(pricingService.calculateCost(AIProvider.OLLAMA, "llama3.2", 5000, 500, 4000, 0))
+                .isEqualByComparingTo(BigDecimal.ZERO);
+    }
+}
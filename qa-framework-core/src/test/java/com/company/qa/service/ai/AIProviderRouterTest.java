@@ -0,0 +1,264 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.model.dto.AIRequest;
+import com.company.qa.model.dto.AIResponse;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AIRoutingPolicy;
+import com.company.qa.model.enums.AITaskType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AIProviderRouterTest {
+
+    private AIConfig aiConfig;
+    private AIProviderLatencyTracker tracker;
+    private AIUsageTrackingService usageTrackingService;
+    private ExecutorService executor;
+
+    private AIService bedrock;
+    private AIService ollama;
+    private AIProviderRouter router;
+
+    @BeforeEach
+    void setUp() {
+        aiConfig = new AIConfig();
+        aiConfig.setProvider("bedrock");
+        aiConfig.getRouting().setEnabled(true);
+        aiConfig.getRouting().setMinSamples(3);
+        aiConfig.getRouting().setHedgeMinDelayMs(50);
+        aiConfig.getRouting().setHedgeMaxDelayMs(200);
+
+        tracker = new AIProviderLatencyTracker(aiConfig);
+        usageTrackingService = mock(AIUsageTrackingService.class);
+        executor = Executors.newFixedThreadPool(4);
+
+        bedrock = provider(AIProvider.BEDROCK);
+        ollama = provider(AIProvider.OLLAMA);
+        router = new AIProviderRouter(List.of(bedrock, ollama), aiConfig, tracker, new AIPricingService(),
+                usageTrackingService, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testCheapestPolicyPrefersFreeProvider() {
+        aiConfig.getRouting().setDefaultPolicy(AIRoutingPolicy.CHEAPEST);
+
+        assertThat(router.rank(AITaskType.GENERAL)).containsExactly(ollama, bedrock);
+    }
+
+    @Test
+    void testFastestPolicyUsesRecordedLatency() {
+        aiConfig.getRouting().getPolicies().put(AITaskType.FAILURE_ANALYSIS, AIRoutingPolicy.FASTEST);
+        String ollamaModel = aiConfig.getOllama().getModel();
+        String bedrockModel = aiConfig.getBedrock().getModel();
+        for (int i = 0; i < 3; i++) {
+            tracker.record(AIProvider.OLLAMA, ollamaModel, AITaskType.FAILURE_ANALYSIS, 4000, true);
+            tracker.record(AIProvider.BEDROCK, bedrockModel, AITaskType.FAILURE_ANALYSIS, 800, true);
+        }
+
+        assertThat(router.rank(AITaskType.FAILURE_ANALYSIS)).containsExactly(bedrock, ollama);
+        // Other task types have no samples and stay on the cheapest provider
+        assertThat(router.rank(AITaskType.GENERAL)).containsExactly(ollama, bedrock);
+    }
+
+    @Test
+    void testUnhealthyProviderIsTriedLast() {
+        String ollamaModel = aiConfig.getOllama().getModel();
+        for (int i = 0; i < 3; i++) {
+            tracker.record(AIProvider.OLLAMA, ollamaModel, AITaskType.GENERAL, 100, false);
+        }
+
+        assertThat(router.rank(AITaskType.GENERAL)).containsExactly(bedrock, ollama);
+    }
+
+    @Test
+    void testDemotedProviderRecoversOnceItsCallsAgeOut() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        aiConfig.getRouting().setWindowMaxAgeSeconds(600);
+        tracker = new AIProviderLatencyTracker(aiConfig, new SimpleMeterRegistry(), clock);
+        router = new AIProviderRouter(List.of(bedrock, ollama), aiConfig, tracker, new AIPricingService(),
+                usageTrackingService, executor);
+        String ollamaModel = aiConfig.getOllama().getModel();
+        for (int i = 0; i < 3; i++) {
+            tracker.record(AIProvider.OLLAMA, ollamaModel, AITaskType.GENERAL, 100, false);
+        }
+        assertThat(router.rank(AITaskType.GENERAL)).containsExactly(bedrock, ollama);
+
+        when(clock.millis()).thenReturn(601_000L);
+
+        assertThat(tracker.calls(AIProvider.OLLAMA, ollamaModel, AITaskType.GENERAL)).isZero();
+        assertThat(router.rank(AITaskType.GENERAL)).containsExactly(ollama, bedrock);
+    }
+
+    @Test
+    void testMockProviderIsTriedLast() {
+        AIService mockProvider = provider(AIProvider.MOCK);
+        router = new AIProviderRouter(List.of(mockProvider, bedrock), aiConfig, tracker,
+                new AIPricingService(), usageTrackingService, executor);
+
+        assertThat(router.rank(AITaskType.GENERAL)).containsExactly(bedrock, mockProvider);
+    }
+
+    @Test
+    void testUnhedgedRequestGoesToFirstProviderAndIsRecorded() {
+        AIRequest request = AIRequest.builder().taskType(AITaskType.GENERAL).prompt("hi").build();
+        when(ollama.execute(request)).thenReturn(AIResponse.success("ok", AIProvider.OLLAMA, AITaskType.GENERAL));
+
+        AIResponse response = router.execute(request);
+
+        assertThat(response.getProvider()).isEqualTo(AIProvider.OLLAMA);
+        verify(bedrock, never()).execute(any());
+        assertThat(tracker.calls(AIProvider.OLLAMA, aiConfig.getOllama().getModel(), AITaskType.GENERAL))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testProviderExceptionBecomesErrorResponse() {
+        AIRequest request = AIRequest.builder().taskType(AITaskType.GENERAL).prompt("hi").build();
+        when(ollama.execute(request)).thenThrow(new IllegalStateException("connection refused"));
+
+        AIResponse response = router.execute(request);
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getErrorMessage()).contains("connection refused");
+        assertThat(tracker.errorRate(AIProvider.OLLAMA, aiConfig.getOllama().getModel(), AITaskType.GENERAL))
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void testSlowPrimaryIsHedgedAndFirstValidResponseWins() throws Exception {
+        aiConfig.getRouting().getHedgedTasks().add(AITaskType.FIX_SUGGESTION);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ollama.suggestFix("code", "error")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return AIResponse.success("slow", AIProvider.OLLAMA, AITaskType.FIX_SUGGESTION);
+        });
+        when(bedrock.suggestFix("code", "error"))
+                .thenReturn(AIResponse.success("fast", AIProvider.BEDROCK, AITaskType.FIX_SUGGESTION));
+
+        AIResponse response = router.suggestFix("code", "error");
+        release.countDown();
+
+        assertThat(response.getContent()).isEqualTo("fast");
+        assertThat(response.getProvider()).isEqualTo(AIProvider.BEDROCK);
+    }
+
+    @Test
+    void testFailedPrimaryFailsOverWithoutWaitingForHedgeDelay() {
+        aiConfig.getRouting().getHedgedTasks().add(AITaskType.FIX_SUGGESTION);
+        aiConfig.getRouting().setHedgeMaxDelayMs(60_000);
+        when(ollama.suggestFix("code", "error"))
+                .thenReturn(AIResponse.error("model not loaded", AIProvider.OLLAMA, AITaskType.FIX_SUGGESTION));
+        when(bedrock.suggestFix("code", "error"))
+                .thenReturn(AIResponse.success("fixed", AIProvider.BEDROCK, AITaskType.FIX_SUGGESTION));
+
+        long start = System.nanoTime();
+        AIResponse response = router.suggestFix("code", "error");
+
+        assertThat(response.getContent()).isEqualTo("fixed");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(10_000);
+    }
+
+    @Test
+    void testFastPrimaryIsNotHedged() {
+        aiConfig.getRouting().getHedgedTasks().add(AITaskType.FIX_SUGGESTION);
+        aiConfig.getRouting().setHedgeMinDelayMs(2_000);
+        aiConfig.getRouting().setHedgeMaxDelayMs(2_000);
+        when(ollama.suggestFix("code", "error"))
+                .thenReturn(AIResponse.success("fixed", AIProvider.OLLAMA, AITaskType.FIX_SUGGESTION));
+
+        AIResponse response = router.suggestFix("code", "error");
+
+        assertThat(response.getProvider()).isEqualTo(AIProvider.OLLAMA);
+        verify(ollama, timeout(500)).suggestFix("code", "error");
+        verify(bedrock, never()).suggestFix(any(), any());
+    }
+
+    @Test
+    void testLosingHedgedCallUsageIsRecorded() throws Exception {
+        aiConfig.getRouting().getHedgedTasks().add(AITaskType.FIX_SUGGESTION);
+        CountDownLatch release = new CountDownLatch(1);
+        AIResponse slow = AIResponse.success("slow", AIProvider.OLLAMA, AITaskType.FIX_SUGGESTION);
+        slow.setTokensUsed(400);
+        when(ollama.suggestFix("code", "error")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return slow;
+        });
+        when(bedrock.suggestFix("code", "error"))
+                .thenReturn(AIResponse.success("fast", AIProvider.BEDROCK, AITaskType.FIX_SUGGESTION));
+
+        AIResponse response = router.suggestFix("code", "error");
+        release.countDown();
+
+        assertThat(response.getProvider()).isEqualTo(AIProvider.BEDROCK);
+        ArgumentCaptor<AIUsageTrackingService.AIUsageRequest> usage =
+                ArgumentCaptor.forClass(AIUsageTrackingService.AIUsageRequest.class);
+        verify(usageTrackingService, timeout(2_000)).recordUsage(usage.capture());
+        assertThat(usage.getValue().getProvider()).isEqualTo(AIProvider.OLLAMA);
+        assertThat(usage.getValue().getTotalTokens()).isEqualTo(400);
+    }
+
+    @Test
+    void testSingleProviderIsNotHedgedAgainstItself() {
+        aiConfig.getRouting().getHedgedTasks().add(AITaskType.FIX_SUGGESTION);
+        router = new AIProviderRouter(List.of(ollama), aiConfig, tracker, new AIPricingService(),
+                usageTrackingService, executor);
+        when(ollama.suggestFix("code", "error"))
+                .thenReturn(AIResponse.error("model not loaded", AIProvider.OLLAMA, AITaskType.FIX_SUGGESTION));
+
+        AIResponse response = router.suggestFix("code", "error");
+
+        assertThat(response.isSuccess()).isFalse();
+        verify(ollama, after(300).times(1)).suggestFix("code", "error");
+    }
+
+    @Test
+    void testBothFailedReturnsFailure() {
+        aiConfig.getRouting().getHedgedTasks().add(AITaskType.FIX_SUGGESTION);
+        when(ollama.suggestFix("code", "error"))
+                .thenReturn(AIResponse.error("down", AIProvider.OLLAMA, AITaskType.FIX_SUGGESTION));
+        when(bedrock.suggestFix("code", "error"))
+                .thenReturn(AIResponse.error("throttled", AIProvider.BEDROCK, AITaskType.FIX_SUGGESTION));
+
+        AIResponse response = router.suggestFix("code", "error");
+
+        assertThat(response.isSuccess()).isFalse();
+    }
+
+    @Test
+    void testDefaultProviderIsConfiguredProvider() {
+        assertThat(router.getProvider()).isEqualTo(AIProvider.BEDROCK);
+    }
+
+    private static AIService provider(AIProvider type) {
+        AIService service = mock(AIService.class);
+        when(service.getProvider()).thenReturn(type);
+        when(service.isAvailable()).thenReturn(true);
+        return service;
+    }
+}
@@ -0,0 +1,136 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.model.dto.AIResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AIRequestCoalescerTest {
+
+    private AIRequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new AIRequestCoalescer();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsShareOneCallAndSplitTokens() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Callable<AIResponse> request = () -> coalescer.execute("same-error", () -> {
+            calls.incrementAndGet();
+            await(release);
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("promptTokens", 700);
+            metadata.put("completionTokens", 300);
+            return AIResponse.builder().success(true).content("Root cause").tokensUsed(1000)
+                    .metadata(metadata).build();
+        });
+
+        List<Future<AIResponse>> futures = new ArrayList<>();
+        futures.add(executor.submit(request));
+        waitForParticipants("same-error", 1);
+        futures.add(executor.submit(request));
+        futures.add(executor.submit(request));
+        waitForParticipants("same-error", 3);
+        release.countDown();
+
+        List<AIResponse> responses = new ArrayList<>();
+        for (Future<AIResponse> future : futures) {
+            responses.add(future.get(5, TimeUnit.SECONDS));
+        }
+
+        assertThat(calls).hasValue(1);
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.getContent()).isEqualTo("Root cause");
+            assertThat(AIRequestCoalescer.sharedWith(response)).isEqualTo(3);
+        });
+        assertThat(responses).extracting(AIResponse::getTokensUsed).containsExactlyInAnyOrder(334, 333, 333);
+        assertThat(responses.stream().mapToInt(r -> (Integer) r.getMetadata("promptTokens")).sum()).isEqualTo(700);
+        assertThat(responses.stream().filter(AIRequestCoalescer::isSharedFollower)).hasSize(2);
+        assertThat(coalescer.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void testFailureOfSharedCallReachesWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<AIResponse> request = () -> coalescer.execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("Bedrock throttled");
+        });
+
+        Future<AIResponse> leader = executor.submit(request);
+        waitForParticipants("key", 1);
+        Future<AIResponse> follower = executor.submit(request);
+        waitForParticipants("key", 2);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("Bedrock throttled");
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("Bedrock throttled");
+    }
+
+    @Test
+    void testRequestsWithoutKeyAreNotShared() {
+        AtomicInteger calls = new AtomicInteger();
+
+        AIResponse first = coalescer.execute(null, () -> {
+            calls.incrementAndGet();
+            return AIResponse.builder().tokensUsed(100).build();
+        });
+        coalescer.execute(null, () -> {
+            calls.incrementAndGet();
+            return AIResponse.builder().tokensUsed(100).build();
+        });
+
+        assertThat(calls).hasValue(2);
+        assertThat(first.getTokensUsed()).isEqualTo(100);
+        assertThat(AIRequestCoalescer.sharedWith(first)).isEqualTo(1);
+    }
+
+    @Test
+    void testSequentialIdenticalRequestsMakeOwnCalls() {
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute("key", () -> AIResponse.builder().tokensUsed(calls.incrementAndGet()).build());
+        AIResponse second = coalescer.execute("key",
+                () -> AIResponse.builder().tokensUsed(calls.incrementAndGet()).build());
+
+        assertThat(calls).hasValue(2);
+        assertThat(AIRequestCoalescer.isSharedFollower(second)).isFalse();
+    }
+
+    private void waitForParticipants(String key, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.getParticipants(key) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalescer.getParticipants(key)).isEqualTo(expected);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
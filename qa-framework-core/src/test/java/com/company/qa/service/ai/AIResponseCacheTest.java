@@ -0,0 +1,128 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AITaskType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AIResponseCacheTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private AIConfig aiConfig;
+    private AIResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        aiConfig = new AIConfig();
+        aiConfig.getCache().setRedisEnabled(false);
+        cache = new AIResponseCache(aiConfig, redisTemplate, new ObjectMapper());
+    }
+
+    @Test
+    void testKeyDependsOnModelSettingsAndSanitisedPrompt() {
+        String key = cache.buildKey(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, "Login story", "PLAYWRIGHT");
+
+        assertThat(cache.buildKey(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, " Login story ", "PLAYWRIGHT"))
+                .isEqualTo(key);
+        assertThat(cache.buildKey(AIProvider.BEDROCK, AITaskType.FAILURE_ANALYSIS, "Login story", "PLAYWRIGHT"))
+                .isNotEqualTo(key);
+        assertThat(cache.buildKey(AIProvider.OLLAMA, AITaskType.TEST_GENERATION, "Login story", "PLAYWRIGHT"))
+                .isNotEqualTo(key);
+        assertThat(cache.buildKey(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, "Login stor", "yPLAYWRIGHT"))
+                .isNotEqualTo(key);
+
+        aiConfig.getBedrock().setTemperature(0.0);
+        assertThat(cache.buildKey(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, "Login story", "PLAYWRIGHT"))
+                .isNotEqualTo(key);
+    }
+
+    @Test
+    void testRoutedKeyDoesNotDependOnDefaultProvider() {
+        String unrouted = cache.buildKey(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, "Login story");
+        aiConfig.getRouting().setEnabled(true);
+
+        String key = cache.buildKey(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, "Login story");
+
+        assertThat(key).isNotEqualTo(unrouted);
+        assertThat(cache.buildKey(AIProvider.OLLAMA, AITaskType.TEST_GENERATION, "Login story")).isEqualTo(key);
+        assertThat(cache.buildKey(AIProvider.OLLAMA, AITaskType.FAILURE_ANALYSIS, "Login story")).isNotEqualTo(key);
+    }
+
+    @Test
+    void testNothingStoredWhenCacheDisabled() {
+        aiConfig.getCache().setEnabled(false);
+
+        String key = cache.buildKey(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, "Login story");
+        cache.put(key, AITaskType.TEST_GENERATION, AIProvider.BEDROCK, "@Test void login() {}", 500);
+
+        assertThat(cache.get(key, AITaskType.TEST_GENERATION)).isEmpty();
+    }
+
+    @Test
+    void testStoredResponseIsServedFromMemory() {
+        String key = cache.buildKey(AIProvider.BEDROCK, AITaskType.FAILURE_ANALYSIS, "NPE at line 42");
+        cache.put(key, AITaskType.FAILURE_ANALYSIS, AIProvider.BEDROCK, "Root cause: null user", 320);
+
+        Optional<AIResponseCache.Hit> hit = cache.get(key, AITaskType.FAILURE_ANALYSIS);
+
+        assertThat(hit).isPresent();
+        assertThat(hit.get().tier()).isEqualTo(AIResponseCache.Tier.MEMORY);
+        assertThat(hit.get().content()).isEqualTo("Root cause: null user");
+        assertThat(hit.get().tokensSaved()).isEqualTo(320);
+    }
+
+    @Test
+    void testEvictionIsBoundedPerTaskType() {
+        aiConfig.getCache().getMaxMemoryChars().put(AITaskType.FAILURE_ANALYSIS, 10L);
+        cache.put("generated", AITaskType.TEST_GENERATION, AIProvider.MOCK, "0123456789abcdef", 100);
+        cache.put("first", AITaskType.FAILURE_ANALYSIS, AIProvider.MOCK, "aaaaaa", 10);
+        cache.put("second", AITaskType.FAILURE_ANALYSIS, AIProvider.MOCK, "bbbbbb", 10);
+
+        assertThat(cache.get("first", AITaskType.FAILURE_ANALYSIS)).isEmpty();
+        assertThat(cache.get("second", AITaskType.FAILURE_ANALYSIS)).isPresent();
+        assertThat(cache.get("generated", AITaskType.TEST_GENERATION)).isPresent();
+        assertThat(cache.getMemoryChars(AITaskType.FAILURE_ANALYSIS)).isEqualTo(6);
+    }
+
+    @Test
+    void testRedisTierUsesTaskTypeTtlAndRefillsMemory() {
+        aiConfig.getCache().setRedisEnabled(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        cache.put("key", AITaskType.TEST_GENERATION, AIProvider.BEDROCK, "@Test void login() {}", 500);
+        verify(valueOperations).set(eq("ai:response:key"), anyString(), eq(Duration.ofHours(6)));
+
+        // Another instance: empty memory tier, same Redis
+        cache.clearMemory();
+        when(valueOperations.get("ai:response:key")).thenReturn(
+                "{\"content\":\"@Test void login() {}\",\"tokensUsed\":500,\"provider\":\"BEDROCK\"}");
+
+        Optional<AIResponseCache.Hit> hit = cache.get("key", AITaskType.TEST_GENERATION);
+
+        assertThat(hit).isPresent();
+        assertThat(hit.get().tier()).isEqualTo(AIResponseCache.Tier.REDIS);
+        assertThat(hit.get().provider()).isEqualTo(AIProvider.BEDROCK);
+        assertThat(cache.get("key", AITaskType.TEST_GENERATION).get().tier())
+                .isEqualTo(AIResponseCache.Tier.MEMORY);
+    }
+}
@@ -0,0 +1,100 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.model.dto.AIResponse;
+import com.company.qa.model.enums.AIProvider;
+import com.company.qa.model.enums.AITaskType;
+import com.company.qa.service.ai.AIStreamConsumer.StreamDecision;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AIStreamAccumulatorTest {
+
+    @Test
+    void testCompleteStreamUsesReportedUsage() {
+        List<String> seen = new ArrayList<>();
+        AIStreamAccumulator accumulator = new AIStreamAccumulator((delta, soFar) -> {
+            seen.add(delta);
+            return StreamDecision.CONTINUE;
+        });
+
+        accumulator.append("Hello ");
+        accumulator.append("world");
+        accumulator.reportUsage(120, 2);
+
+        AIResponse response = accumulator.toResponse(AIProvider.BEDROCK, AITaskType.GENERAL, "prompt");
+
+        assertThat(seen).containsExactly("Hello ", "world");
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getContent()).isEqualTo("Hello world");
+        assertThat(response.getTokensUsed()).isEqualTo(122);
+        assertThat(response.getMetadata("tokensEstimated")).isEqualTo(false);
+    }
+
+    @Test
+    void testCacheUsageIsAddedToPromptTokens() {
+        AIStreamAccumulator accumulator = new AIStreamAccumulator(null);
+
+        accumulator.append("{}");
+        accumulator.reportUsage(100, 2);
+        accumulator.reportCacheUsage(3000, 0);
+
+        AIResponse response = accumulator.toResponse(AIProvider.BEDROCK, AITaskType.TEST_GENERATION, "prompt");
+
+        assertThat(response.getMetadata("promptTokens")).isEqualTo(3100);
+        assertThat(response.getMetadata("cacheReadTokens")).isEqualTo(3000);
+        assertThat(response.getMetadata("cacheWriteTokens")).isEqualTo(0);
+        assertThat(response.getTokensUsed()).isEqualTo(3102);
+    }
+
+    @Test
+    void testConsumerCompleteStopsStreamAndEstimatesMissingUsage() {
+        AIStreamAccumulator accumulator = new AIStreamAccumulator((delta, soFar) ->
+                soFar.toString().contains("}") ? StreamDecision.COMPLETE : StreamDecision.CONTINUE);
+
+        assertThat(accumulator.append("{\"a\": 1")).isTrue();
+        assertThat(accumulator.append("}")).isFalse();
+        assertThat(accumulator.append(" trailing")).isFalse();
+
+        AIResponse response = accumulator.toResponse(AIProvider.BEDROCK, AITaskType.TEST_GENERATION,
+                "x".repeat(400));
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getContent()).isEqualTo("{\"a\": 1}");
+        assertThat(response.getMetadata("promptTokens")).isEqualTo(100);
+        assertThat(response.getMetadata("completionTokens")).isEqualTo(2);
+        assertThat(response.getMetadata("tokensEstimated")).isEqualTo(true);
+        assertThat(response.getMetadata("streamStopped")).isEqualTo(true);
+    }
+
+    @Test
+    void testConsumerAbortFailsResponseButKeepsTokens() {
+        AIStreamAccumulator accumulator = new AIStreamAccumulator((delta, soFar) -> StreamDecision.ABORT);
+
+        accumulator.append("Sure! Here is");
+        accumulator.reportUsage(50, null);
+        AIResponse response = accumulator.toResponse(AIProvider.OLLAMA, AITaskType.TEST_GENERATION, "prompt");
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(AIStreamAccumulator.isAborted(response)).isTrue();
+        assertThat(response.getTokensUsed()).isEqualTo(53);
+        assertThat(response.getErrorMessage()).contains("aborted");
+    }
+
+    @Test
+    void testReplayDeliversNonStreamedResponseOnce() {
+        List<String> seen = new ArrayList<>();
+        AIResponse response = AIResponse.success("complete text", AIProvider.MOCK, AITaskType.GENERAL);
+
+        AIResponse replayed = AIStreamConsumer.replay(response, (delta, soFar) -> {
+            seen.add(delta);
+            return StreamDecision.CONTINUE;
+        });
+
+        assertThat(seen).containsExactly("complete text");
+        assertThat(replayed.isSuccess()).isTrue();
+    }
+}
@@ -0,0 +1,256 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.exception.TestGenerationException;
+import com.company.qa.integration.jira.JiraStoryService;
+import com.company.qa.model.dto.SecureAIRequest;
+import com.company.qa.model.dto.SecureAIResponse;
+import com.company.qa.model.dto.request.TestGenerationRequest;
+import com.company.qa.model.dto.response.TestGenerationResponse;
+import com.company.qa.model.entity.AIGeneratedTest;
+import com.company.qa.model.entity.AITestGenerationAttempt;
+import com.company.qa.model.entity.JiraStory;
+import com.company.qa.repository.AIGeneratedTestRepository;
+import com.company.qa.repository.AITestGenerationAttemptRepository;
+import com.company.qa.repository.JiraStoryRepository;
+import com.company.qa.service.TestFileWriterService;
+import com.company.qa.service.context.JiraContextBuilder;
+import com.company.qa.service.context.PlaywrightContextBuilder;
+import com.company.qa.service.playwright.PlaywrightJavaRenderer;
+import com.company.qa.service.playwright.TestIntentParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AITestGenerationServiceCandidatesTest {
+
+    private AIGatewayService aiGatewayService;
+    private QualityAssessmentService qualityAssessmentService;
+    private AIGeneratedTestRepository generatedTestRepository;
+    private AITestGenerationAttemptRepository attemptRepository;
+    private JiraStoryService jiraStoryService;
+    private AITestGenerationService service;
+
+    private final List<AITestGenerationAttempt> attempts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        JiraStoryRepository jiraStoryRepository = mock(JiraStoryRepository.class);
+        JiraContextBuilder jiraContextBuilder = mock(JiraContextBuilder.class);
+        aiGatewayService = mock(AIGatewayService.class);
+        qualityAssessmentService = mock(QualityAssessmentService.class);
+        generatedTestRepository = mock(AIGeneratedTestRepository.class);
+        attemptRepository = mock(AITestGenerationAttemptRepository.class);
+        jiraStoryService = mock(JiraStoryService.class);
+
+        when(jiraStoryRepository.findByJiraKey("QA-1")).thenReturn(Optional.of(JiraStory.builder()
+                .jiraKey("QA-1")
+                .summary("User login")
+                .acceptanceCriteria("Given a user, when they log in, then they see the dashboard")
+                .build()));
+        when(jiraContextBuilder.buildStoryTestPrompt(any(), any())).thenReturn("Generate a login test");
+        when(generatedTestRepository.save(any())).thenAnswer(invocation -> {
+            AIGeneratedTest test = invocation.getArgument(0);
+            test.setId(UUID.randomUUID());
+            return test;
+        });
+        when(attemptRepository.save(any())).thenAnswer(invocation -> {
+            AITestGenerationAttempt attempt = invocation.getArgument(0);
+            if (attempts.stream().noneMatch(saved -> saved == attempt)) {
+                attempts.add(attempt);
+            }
+            return attempt;
+        });
+
+        service = new AITestGenerationService(jiraStoryRepository, generatedTestRepository, attemptRepository,
+                aiGatewayService, qualityAssessmentService, jiraContextBuilder, mock(TestFileWriterService.class),
+                jiraStoryService, mock(PlaywrightContextBuilder.class), mock(TestIntentParser.class),
+                mock(PlaywrightJavaRenderer.class));
+        ReflectionTestUtils.setField(service, "minimumQualityScore", new BigDecimal("60.0"));
+        ReflectionTestUtils.setField(service, "maxCostPerTest", new BigDecimal("0.50"));
+        ReflectionTestUtils.setField(service, "maxRetryAttempts", 3);
+        ReflectionTestUtils.setField(service, "streamEnabled", false);
+        ReflectionTestUtils.setField(service, "candidateCount", 3);
+        ReflectionTestUtils.setField(service, "candidateTemperatures", new double[]{0.3, 0.7, 1.0});
+        // Runs candidates on the calling thread, one after another
+        ReflectionTestUtils.setField(service, "candidateExecutor", (Executor) Runnable::run);
+    }
+
+    @Test
+    void testFirstCandidateClearingThresholdWins() {
+        answerByTemperature();
+        scoreByStep(Map.of("0.3", "85.0", "0.7", "95.0", "1.0", "40.0"));
+
+        TestGenerationResponse response = service.generateTestFromStory(request());
+
+        assertThat(response.getQualityScore()).isEqualByComparingTo("85.0");
+        verify(generatedTestRepository, times(1)).save(any());
+        assertThat(attempts.get(0).getGeneratedTestId()).isEqualTo(response.getTestId());
+    }
+
+    @Test
+    void testBestValidCandidateWinsWhenNoneClearsThreshold() {
+        answerByTemperature();
+        scoreByStep(Map.of("0.3", "30.0", "0.7", "55.0", "1.0", "45.0"));
+
+        TestGenerationResponse response = service.generateTestFromStory(request());
+
+        assertThat(response.getQualityScore()).isEqualByComparingTo("55.0");
+        assertThat(attempts).hasSize(3);
+        assertThat(attempts).allSatisfy(attempt -> assertThat(attempt.getSuccess()).isTrue());
+        assertThat(attempts.get(1).getGeneratedTestId()).isEqualTo(response.getTestId());
+    }
+
+    @Test
+    void testInvalidCandidatesAreSkipped() {
+        when(aiGatewayService.generateTest(any())).thenAnswer(invocation -> {
+            SecureAIRequest request = invocation.getArgument(0);
+            return request.getTemperature() == 0.7
+                    ? success(testCode("0.7"))
+                    : success("not json at all");
+        });
+        scoreByStep(Map.of("0.7", "50.0"));
+
+        TestGenerationResponse response = service.generateTestFromStory(request());
+
+        assertThat(response.getQualityScore()).isEqualByComparingTo("50.0");
+        assertThat(attempts).extracting(AITestGenerationAttempt::getSuccess).containsExactly(false, true, false);
+        assertThat(attempts.get(0).getErrorType()).isNotNull();
+    }
+
+    @Test
+    void testFailsWhenNoCandidateIsValid() {
+        when(aiGatewayService.generateTest(any())).thenReturn(SecureAIResponse.builder()
+                .success(false)
+                .errorMessage("Throttled")
+                .build());
+
+        assertThatThrownBy(() -> service.generateTestFromStory(request()))
+                .isInstanceOf(TestGenerationException.class)
+                .hasMessageContaining("none of 3 candidates");
+        assertThat(attempts).hasSize(3);
+    }
+
+    @Test
+    void testCandidatesAreFreshSamplesAtTheirTemperatures() {
+        answerByTemperature();
+        scoreByStep(Map.of("0.3", "30.0", "0.7", "30.0", "1.0", "30.0"));
+
+        service.generateTestFromStory(request());
+
+        ArgumentCaptor<SecureAIRequest> captor = ArgumentCaptor.forClass(SecureAIRequest.class);
+        verify(aiGatewayService, times(3)).generateTest(captor.capture());
+        assertThat(captor.getAllValues()).extracting(SecureAIRequest::getTemperature).containsExactly(0.3, 0.7, 1.0);
+        assertThat(captor.getAllValues()).noneMatch(SecureAIRequest::isCacheable);
+        assertThat(captor.getAllValues()).allMatch(r -> r.getStreamConsumer() != null);
+    }
+
+    @Test
+    void testCostCapLimitsCandidateCount() {
+        ReflectionTestUtils.setField(service, "candidateMaxCost", new BigDecimal("1.00"));
+        answerByTemperature();
+        scoreByStep(Map.of("0.3", "30.0", "0.7", "30.0", "1.0", "30.0"));
+
+        service.generateTestFromStory(request());
+
+        // 1.00 / 0.50 per test = 2 candidates
+        verify(aiGatewayService, times(2)).generateTest(any());
+    }
+
+    @Test
+    void testStoryInsertedByThisTransactionIsOnlyWrittenOnTheCallerThread() {
+        // A story fetched from Jira is not committed yet, so other threads can't reference it
+        when(jiraStoryService.fetchAndSaveFromJira("QA-2")).thenReturn(JiraStory.builder()
+                .jiraKey("QA-2")
+                .summary("Checkout")
+                .acceptanceCriteria("Given a cart, when the user checks out, then the order is placed")
+                .build());
+        Thread caller = Thread.currentThread();
+        when(attemptRepository.save(any())).thenAnswer(invocation -> {
+            if (Thread.currentThread() != caller) {
+                throw new IllegalStateException("violates foreign key constraint \"fk_jira_story_attempt\"");
+            }
+            attempts.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ReflectionTestUtils.setField(service, "candidateExecutor", executor);
+        answerByTemperature();
+        scoreByStep(Map.of("0.3", "30.0", "0.7", "55.0", "1.0", "45.0"));
+
+        try {
+            TestGenerationResponse response = service.generateTestFromStory(TestGenerationRequest.builder()
+                    .jiraStoryKey("QA-2")
+                    .testType(AIGeneratedTest.TestType.UI)
+                    .testFramework(AIGeneratedTest.TestFramework.CUCUMBER)
+                    .build());
+
+            assertThat(response.getQualityScore()).isEqualByComparingTo("55.0");
+            assertThat(attempts).hasSize(3);
+            assertThat(attempts).filteredOn(attempt -> response.getTestId().equals(attempt.getGeneratedTestId()))
+                    .hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void answerByTemperature() {
+        when(aiGatewayService.generateTest(any())).thenAnswer(invocation -> {
+            SecureAIRequest request = invocation.getArgument(0);
+            return success(testCode(String.valueOf(request.getTemperature())));
+        });
+    }
+
+    /**
+     * Scores each candidate by the step text it generated (its temperature).
+     */
+    private void scoreByStep(Map<String, String> scores) {
+        when(qualityAssessmentService.assessTestQuality(anyMap())).thenAnswer(invocation -> {
+            Map<String, Object> testCode = invocation.getArgument(0);
+            return QualityAssessmentService.QualityAssessmentResult.builder()
+                    .qualityScore(new BigDecimal(scores.get(String.valueOf(testCode.get("stepDefinitions")))))
+                    .confidenceLevel("MEDIUM")
+                    .build();
+        });
+    }
+
+    private static String testCode(String step) {
+        return "{\"featureFile\": \"Feature: Login\", \"stepDefinitions\": \"" + step + "\", \"pageObjects\": {}}";
+    }
+
+    private static SecureAIResponse success(String content) {
+        return SecureAIResponse.builder()
+                .success(true)
+                .content(content)
+                .tokensUsed(1000)
+                .estimatedCost(0.02)
+                .build();
+    }
+
+    private static TestGenerationRequest request() {
+        return TestGenerationRequest.builder()
+                .jiraStoryKey("QA-1")
+                .testType(AIGeneratedTest.TestType.UI)
+                .testFramework(AIGeneratedTest.TestFramework.CUCUMBER)
+                .build();
+    }
+}
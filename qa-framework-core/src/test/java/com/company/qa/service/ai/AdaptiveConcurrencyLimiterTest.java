@@ -0,0 +1,89 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.service.ai.AdaptiveConcurrencyLimiter.Outcome;
+import com.company.qa.service.ai.AdaptiveConcurrencyLimiter.Permit;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testWaitersGetPermitsInOrderAsOthersRelease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 0.5);
+
+        Permit first = limiter.acquire().join();
+        limiter.acquire().join();
+        CompletableFuture<Permit> third = limiter.acquire();
+        CompletableFuture<Permit> fourth = limiter.acquire();
+
+        assertThat(third).isNotDone();
+        assertThat(limiter.getWaiting()).isEqualTo(2);
+
+        first.release(Outcome.DROPPED);
+
+        assertThat(third).isDone();
+        assertThat(fourth).isNotDone();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void testThrottlingHalvesLimitOncePerCongestionWindow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 8, 2, 0.5);
+
+        Permit a = limiter.acquire().join();
+        Permit b = limiter.acquire().join();
+        a.release(Outcome.THROTTLED);
+        // b started before the decrease - its throttle belongs to the same window
+        b.release(Outcome.THROTTLED);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        Permit c = limiter.acquire().join();
+        c.release(Outcome.THROTTLED);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        Permit d = limiter.acquire().join();
+        d.release(Outcome.THROTTLED);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void testSuccessesGrowLimitBackUpToMaximum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 0.5);
+        limiter.acquire().join().release(Outcome.THROTTLED);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        // +1/limit per success: 2 -> 2.5 -> 2.9 -> 3.24
+        limiter.acquire().join().release(Outcome.SUCCESS);
+        limiter.acquire().join().release(Outcome.SUCCESS);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        limiter.acquire().join().release(Outcome.SUCCESS);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire().join().release(Outcome.SUCCESS);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void testBlockingAcquireTimesOutAndGivesUpItsPlace() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 0.5);
+        Permit held = limiter.acquire().join();
+
+        assertThatThrownBy(() -> limiter.acquireBlocking(20, TimeUnit.MILLISECONDS))
+                .isInstanceOf(TimeoutException.class);
+
+        held.release(Outcome.SUCCESS);
+        held.release(Outcome.SUCCESS);
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getWaiting()).isZero();
+        assertThat(limiter.acquireBlocking(1, TimeUnit.SECONDS)).isNotNull();
+    }
+}
@@ -0,0 +1,41 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.service.ai.AIStreamConsumer.StreamDecision;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonResponseStreamGuardTest {
+
+    private final StringBuilder text = new StringBuilder();
+
+    private StreamDecision feed(JsonResponseStreamGuard guard, String delta) {
+        text.append(delta);
+        return guard.onText(delta, text);
+    }
+
+    @Test
+    void testCompletesWhenTopLevelObjectCloses() {
+        JsonResponseStreamGuard guard = new JsonResponseStreamGuard(10_000, 100);
+
+        assertThat(feed(guard, "```json\n{\"testClass\": ")).isEqualTo(StreamDecision.CONTINUE);
+        assertThat(feed(guard, "\"class A { void t() { } }\", \"pageObjects\": {")).isEqualTo(StreamDecision.CONTINUE);
+        assertThat(feed(guard, "\"Login\": \"x\\\"}\"}")).isEqualTo(StreamDecision.CONTINUE);
+        assertThat(feed(guard, "}\n```\nHope this helps!")).isEqualTo(StreamDecision.COMPLETE);
+    }
+
+    @Test
+    void testAbortsProseAnswer() {
+        JsonResponseStreamGuard guard = new JsonResponseStreamGuard(10_000, 20);
+
+        assertThat(feed(guard, "Sure! Here is a test ")).isEqualTo(StreamDecision.ABORT);
+    }
+
+    @Test
+    void testAbortsRunawayGeneration() {
+        JsonResponseStreamGuard guard = new JsonResponseStreamGuard(50, 20);
+
+        assertThat(feed(guard, "{\"steps\": [\"")).isEqualTo(StreamDecision.CONTINUE);
+        assertThat(feed(guard, "a".repeat(60))).isEqualTo(StreamDecision.ABORT);
+    }
+}
@@ -0,0 +1,219 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.model.dto.AIRequest;
+import com.company.qa.model.dto.AIResponse;
+import com.company.qa.model.enums.AITaskType;
+import com.company.qa.service.agent.resilience.AgentCircuitBreaker;
+import com.company.qa.service.ai.AIStreamConsumer.StreamDecision;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Connection handling of OllamaAIService against a local stub server:
+ * in-flight limit, busy backoff, read timeouts and circuit breaking.
+ */
+class OllamaAIServiceConnectionTest {
+
+    private static final String ANSWER = "{\"response\": \"ok\", \"done\": true, \"prompt_eval_count\": 3, \"eval_count\": 5}";
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMs = 0;
+    private volatile boolean stallStream = false;
+
+    private AIConfig.OllamaConfig ollamaConfig;
+    private MeterRegistry meterRegistry;
+    private OllamaAIService aiService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/generate", this::handle);
+        server.createContext("/api/tags", exchange -> respond(exchange, 200, "{\"models\": []}"));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        ollamaConfig = new AIConfig.OllamaConfig();
+        ollamaConfig.setEnabled(true);
+        ollamaConfig.setBaseUrl("http://localhost:" + server.getAddress().getPort());
+        ollamaConfig.setTimeout(5);
+        ollamaConfig.setMaxParallel(4);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testCallsBeyondMaxParallelWaitForASlot() {
+        ollamaConfig.setMaxParallel(2);
+        delayMs = 200;
+        createService();
+
+        List<CompletableFuture<AIResponse>> calls = IntStream.range(0, 6)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> aiService.execute(request())))
+                .toList();
+
+        assertThat(calls).allSatisfy(call -> assertThat(call.join().isSuccess()).isTrue());
+        assertThat(requests.get()).isEqualTo(6);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+        assertThat(meterRegistry.get("ai.ollama.queue.wait").timer().count()).isEqualTo(6);
+    }
+
+    @Test
+    void testBusyServerLowersConcurrencyLimit() {
+        status = 503;
+        createService();
+
+        AIResponse response = aiService.execute(request());
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getErrorMessage()).contains("503");
+        assertThat(meterRegistry.get("ai.ollama.concurrency.limit").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    void testHungServerTimesOut() {
+        ollamaConfig.setTimeout(1);
+        delayMs = 3_000;
+        createService();
+
+        long start = System.currentTimeMillis();
+        AIResponse response = aiService.execute(request());
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getErrorMessage()).contains("did not answer within 1s");
+        assertThat(System.currentTimeMillis() - start).isLessThan(2_500);
+    }
+
+    @Test
+    void testStalledStreamIsDroppedAndReleasesItsSlot() {
+        ollamaConfig.setStreamIdleTimeout(1);
+        ollamaConfig.setMaxParallel(1);
+        stallStream = true;
+        createService();
+
+        long start = System.currentTimeMillis();
+        AIResponse response = aiService.execute(request(), (delta, textSoFar) -> StreamDecision.CONTINUE);
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getErrorMessage()).contains("stalled");
+        assertThat(System.currentTimeMillis() - start).isLessThan(2_500);
+
+        stallStream = false;
+        assertThat(aiService.execute(request()).isSuccess()).isTrue();
+    }
+
+    @Test
+    void testBusyAnswersDoNotOpenTheCircuit() {
+        status = 503;
+        createService();
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(aiService.execute(request()).isSuccess()).isFalse();
+        }
+
+        assertThat(requests.get()).isEqualTo(6);
+        assertThat(meterRegistry.find("ai.ollama.rejections").tag("reason", "circuit_open").counter()).isNull();
+    }
+
+    @Test
+    void testOpenCircuitFailsFastAndReportsUnavailable() {
+        status = 500;
+        createService();
+
+        // Default breaker: opens at a 50% failure rate over at least 5 calls
+        for (int i = 0; i < 5; i++) {
+            assertThat(aiService.execute(request()).isSuccess()).isFalse();
+        }
+        AIResponse rejected = aiService.execute(request());
+
+        assertThat(rejected.isSuccess()).isFalse();
+        assertThat(rejected.getErrorMessage()).contains("circuit is open");
+        assertThat(requests.get()).isEqualTo(5);
+        assertThat(aiService.isAvailable()).isFalse();
+        assertThat(meterRegistry.get("ai.ollama.rejections").tag("reason", "circuit_open").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void testHealthyServerIsAvailable() {
+        createService();
+
+        assertThat(aiService.isAvailable()).isTrue();
+        assertThat(aiService.execute(request()).getContent()).isEqualTo("ok");
+    }
+
+    private void createService() {
+        AIConfig aiConfig = new AIConfig();
+        aiConfig.setProvider("ollama");
+        aiConfig.setOllama(ollamaConfig);
+        aiService = new OllamaAIService(aiConfig, new ObjectMapper(), meterRegistry, new AgentCircuitBreaker());
+    }
+
+    private static AIRequest request() {
+        return AIRequest.builder()
+                .taskType(AITaskType.FAILURE_ANALYSIS)
+                .prompt("Why did the login test fail?")
+                .build();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            exchange.getRequestBody().readAllBytes();
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            if (stallStream) {
+                // One line of the generation, then nothing
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.write("{\"response\": \"Partial\", \"done\": false}\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(3_000);
+                out.close();
+                return;
+            }
+            respond(exchange, status, status == 200 ? ANSWER : "{\"error\": \"server busy\"}");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
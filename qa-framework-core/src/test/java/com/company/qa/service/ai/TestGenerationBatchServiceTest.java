@@ -0,0 +1,224 @@
+package com.company.qa.service.ai;
+
+import com.company.qa.exception.TestGenerationException;
+import com.company.qa.integration.jira.JiraStoryService;
+import com.company.qa.model.dto.request.TestGenerationBatchRequest;
+import com.company.qa.model.dto.request.TestGenerationRequest;
+import com.company.qa.model.dto.response.TestGenerationResponse;
+import com.company.qa.model.entity.AIGeneratedTest;
+import com.company.qa.model.entity.JiraStory;
+import com.company.qa.model.entity.TestGenerationBatch;
+import com.company.qa.model.entity.TestGenerationBatch.BatchStatus;
+import com.company.qa.model.entity.TestGenerationBatchItem;
+import com.company.qa.model.entity.TestGenerationBatchItem.ItemStatus;
+import com.company.qa.repository.AIGeneratedTestRepository;
+import com.company.qa.repository.JiraStoryRepository;
+import com.company.qa.repository.TestGenerationBatchItemRepository;
+import com.company.qa.repository.TestGenerationBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestGenerationBatchServiceTest {
+
+    private TestGenerationBatchRepository batchRepository;
+    private TestGenerationBatchItemRepository itemRepository;
+    private JiraStoryRepository jiraStoryRepository;
+    private AIGeneratedTestRepository generatedTestRepository;
+    private AITestGenerationService generationService;
+    private TestGenerationBatchService batchService;
+
+    private final Map<UUID, TestGenerationBatch> batches = new HashMap<>();
+    private final List<TestGenerationBatchItem> items = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        batchRepository = mock(TestGenerationBatchRepository.class);
+        itemRepository = mock(TestGenerationBatchItemRepository.class);
+        jiraStoryRepository = mock(JiraStoryRepository.class);
+        generatedTestRepository = mock(AIGeneratedTestRepository.class);
+        generationService = mock(AITestGenerationService.class);
+
+        when(batchRepository.save(any())).thenAnswer(invocation -> {
+            TestGenerationBatch batch = invocation.getArgument(0);
+            if (batch.getId() == null) {
+                batch.setId(UUID.randomUUID());
+            }
+            batches.put(batch.getId(), batch);
+            return batch;
+        });
+        when(batchRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(batches.get(invocation.<UUID>getArgument(0))));
+        when(itemRepository.saveAll(any())).thenAnswer(invocation -> {
+            invocation.<List<TestGenerationBatchItem>>getArgument(0).forEach(item -> {
+                item.setId(UUID.randomUUID());
+                items.add(item);
+            });
+            return invocation.getArgument(0);
+        });
+        when(itemRepository.findByBatchIdAndStatusOrderByCreatedAtAsc(any(), eq(ItemStatus.PENDING)))
+                .thenAnswer(invocation -> items.stream()
+                        .filter(item -> item.getStatus() == ItemStatus.PENDING)
+                        .toList());
+        when(itemRepository.findFirstByJiraStoryKeyAndContentHashAndStatusOrderByCompletedAtDesc(
+                anyString(), anyString(), any())).thenReturn(Optional.empty());
+        when(itemRepository.sumCost(any())).thenReturn(BigDecimal.ZERO);
+        when(jiraStoryRepository.findByJiraKey(anyString())).thenAnswer(invocation -> Optional.of(JiraStory.builder()
+                .jiraKey(invocation.getArgument(0))
+                .summary("Story " + invocation.getArgument(0))
+                .acceptanceCriteria("Given a user, when they log in, then they see the dashboard")
+                .build()));
+
+        // Runs workers on the calling thread
+        batchService = new TestGenerationBatchService(batchRepository, itemRepository, jiraStoryRepository,
+                mock(JiraStoryService.class), generatedTestRepository, generationService, Runnable::run);
+    }
+
+    @Test
+    void testGeneratesEveryStoryAndCompletes() {
+        when(generationService.generateTestFromStory(any())).thenReturn(generated("0.02"));
+
+        batchService.startBatch(request("QA-1", "QA-2", "QA-3", "QA-2"));
+
+        verify(generationService, times(3)).generateTestFromStory(any());
+        assertThat(items).extracting(TestGenerationBatchItem::getJiraStoryKey).containsExactly("QA-1", "QA-2", "QA-3");
+        assertThat(items).allSatisfy(item -> {
+            assertThat(item.getStatus()).isEqualTo(ItemStatus.SUCCEEDED);
+            assertThat(item.getContentHash()).hasSize(64);
+            assertThat(item.getCostUsd()).isEqualByComparingTo("0.02");
+        });
+        assertThat(onlyBatch().getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    }
+
+    @Test
+    void testUnchangedStoryIsSkipped() {
+        UUID previousTestId = UUID.randomUUID();
+        when(itemRepository.findFirstByJiraStoryKeyAndContentHashAndStatusOrderByCompletedAtDesc(
+                eq("QA-1"), anyString(), eq(ItemStatus.SUCCEEDED)))
+                .thenReturn(Optional.of(TestGenerationBatchItem.builder().generatedTestId(previousTestId).build()));
+        when(generatedTestRepository.existsById(previousTestId)).thenReturn(true);
+        when(generationService.generateTestFromStory(any())).thenReturn(generated("0.02"));
+
+        batchService.startBatch(request("QA-1", "QA-2"));
+
+        verify(generationService).generateTestFromStory(any());
+        assertThat(items.get(0).getStatus()).isEqualTo(ItemStatus.SKIPPED);
+        assertThat(items.get(1).getStatus()).isEqualTo(ItemStatus.SUCCEEDED);
+    }
+
+    @Test
+    void testForceRegenerateIgnoresContentHash() {
+        UUID previousTestId = UUID.randomUUID();
+        when(itemRepository.findFirstByJiraStoryKeyAndContentHashAndStatusOrderByCompletedAtDesc(
+                eq("QA-1"), anyString(), eq(ItemStatus.SUCCEEDED)))
+                .thenReturn(Optional.of(TestGenerationBatchItem.builder().generatedTestId(previousTestId).build()));
+        when(generatedTestRepository.existsById(previousTestId)).thenReturn(true);
+        when(generationService.generateTestFromStory(any())).thenReturn(generated("0.02"));
+
+        TestGenerationBatchRequest request = request("QA-1");
+        request.setForceRegenerate(true);
+        batchService.startBatch(request);
+
+        verify(generationService).generateTestFromStory(any());
+        assertThat(items.get(0).getStatus()).isEqualTo(ItemStatus.SUCCEEDED);
+    }
+
+    @Test
+    void testStopsStartingStoriesAtCostCeiling() {
+        when(generationService.generateTestFromStory(any())).thenReturn(generated("0.20"));
+
+        TestGenerationBatchRequest request = request("QA-1", "QA-2", "QA-3", "QA-4", "QA-5");
+        request.setMaxCostUsd(new BigDecimal("0.60"));
+        batchService.startBatch(request);
+
+        // First story reserves max-per-test (0.50), later ones the 0.20 average
+        verify(generationService, times(3)).generateTestFromStory(any());
+        assertThat(items).extracting(TestGenerationBatchItem::getStatus).containsExactly(
+                ItemStatus.SUCCEEDED, ItemStatus.SUCCEEDED, ItemStatus.SUCCEEDED,
+                ItemStatus.PENDING, ItemStatus.PENDING);
+        assertThat(onlyBatch().getStatus()).isEqualTo(BatchStatus.BUDGET_EXHAUSTED);
+    }
+
+    @Test
+    void testFailedStoryIsRecordedAndBatchContinues() {
+        when(generationService.generateTestFromStory(any())).thenAnswer(invocation -> {
+            TestGenerationRequest generationRequest = invocation.getArgument(0);
+            if (generationRequest.getJiraStoryKey().equals("QA-1")) {
+                throw new TestGenerationException("Test generation failed after 3 attempts");
+            }
+            return generated("0.02");
+        });
+
+        batchService.startBatch(request("QA-1", "QA-2"));
+
+        assertThat(items.get(0).getStatus()).isEqualTo(ItemStatus.FAILED);
+        assertThat(items.get(0).getErrorMessage()).contains("failed after 3 attempts");
+        assertThat(items.get(1).getStatus()).isEqualTo(ItemStatus.SUCCEEDED);
+        assertThat(onlyBatch().getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    }
+
+    @Test
+    void testInterruptedBatchIsResumedOnStartup() {
+        TestGenerationBatch batch = batchRepository.save(TestGenerationBatch.builder()
+                .status(BatchStatus.RUNNING)
+                .testType(AIGeneratedTest.TestType.UI)
+                .testFramework(AIGeneratedTest.TestFramework.PLAYWRIGHT)
+                .parallelism(2)
+                .totalStories(2)
+                .build());
+        items.add(TestGenerationBatchItem.builder().id(UUID.randomUUID()).batchId(batch.getId())
+                .jiraStoryKey("QA-1").status(ItemStatus.SUCCEEDED).build());
+        items.add(TestGenerationBatchItem.builder().id(UUID.randomUUID()).batchId(batch.getId())
+                .jiraStoryKey("QA-2").status(ItemStatus.PENDING).build());
+        when(batchRepository.findByStatusIn(any())).thenReturn(List.of(batch));
+        when(generationService.generateTestFromStory(any())).thenReturn(generated("0.02"));
+
+        batchService.resumeInterruptedBatches();
+
+        verify(itemRepository).resetRunning(batch.getId());
+        verify(generationService, times(1)).generateTestFromStory(any());
+        verify(generationService, never()).generateTestFromStory(
+                argThat(r -> r.getJiraStoryKey().equals("QA-1")));
+        assertThat(batch.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    }
+
+    private TestGenerationBatch onlyBatch() {
+        assertThat(batches).hasSize(1);
+        return batches.values().iterator().next();
+    }
+
+    private static TestGenerationBatchRequest request(String... storyKeys) {
+        return TestGenerationBatchRequest.builder()
+                .jiraStoryKeys(List.of(storyKeys))
+                .testType(AIGeneratedTest.TestType.UI)
+                .testFramework(AIGeneratedTest.TestFramework.PLAYWRIGHT)
+                .parallelism(2)
+                .build();
+    }
+
+    private static TestGenerationResponse generated(String cost) {
+        return TestGenerationResponse.builder()
+                .testId(UUID.randomUUID())
+                .totalCostUsd(new BigDecimal(cost))
+                .success(true)
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.company.qa.service.context;
 
+import com.company.qa.config.AIConfig;
 import com.company.qa.model.dto.ParsedAcceptanceCriteria;
 import com.company.qa.model.entity.AIGeneratedTest;
 import com.company.qa.model.entity.JiraStory;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
@@ -42,6 +44,9 @@ class PlaywrightContextBuilderTest {
     @Mock
     private AcceptanceCriteriaParser acParser;
 
+    @Spy
+    private PromptBudgeter promptBudgeter = new PromptBudgeter(new AIConfig());
+
     @InjectMocks
     private PlaywrightContextBuilder contextBuilder;
 
@@ -0,0 +1,108 @@
+package com.company.qa.service.context;
+
+import com.company.qa.config.AIConfig;
+import com.company.qa.service.context.PromptBudgeter.BudgetedPrompt;
+import com.company.qa.service.context.PromptBudgeter.Priority;
+import com.company.qa.service.context.PromptBudgeter.Section;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptBudgeterTest {
+
+    private AIConfig aiConfig;
+    private PromptBudgeter budgeter;
+
+    @BeforeEach
+    void setUp() {
+        aiConfig = new AIConfig();
+        aiConfig.getPromptBudget().setMinSectionTokens(50);
+        budgeter = new PromptBudgeter(aiConfig);
+    }
+
+    @Test
+    void testPromptWithinBudgetIsUnchanged() {
+        BudgetedPrompt prompt = budgeter.fit("PROJ-1", List.of(
+                Section.required("story", "a".repeat(400)),
+                Section.optional("registry", "b".repeat(400), Priority.LOW)), 1000);
+
+        assertThat(prompt.text()).isEqualTo("a".repeat(400) + "b".repeat(400));
+        assertThat(prompt.breakdown()).isEqualTo("story=100, registry=100");
+    }
+
+    @Test
+    void testOverBudgetTrimsLeastRelevantSectionsFirst() {
+        BudgetedPrompt prompt = budgeter.fit("PROJ-1", List.of(
+                Section.required("story", "s".repeat(400)),
+                Section.optional("fullRegistry", "r".repeat(2000), Priority.LOW),
+                Section.optional("guidance", "g".repeat(400), Priority.MEDIUM),
+                Section.required("outputFormat", "o".repeat(200))), 500);
+
+        // 100 + 50 required, 100 guidance, 250 left for the registry (of 500)
+        assertThat(prompt.text()).startsWith("s".repeat(400) + "r".repeat(100));
+        assertThat(prompt.text()).contains("characters omitted").endsWith("g".repeat(400) + "o".repeat(200));
+        assertThat(prompt.sections()).filteredOn(section -> section.name().equals("fullRegistry"))
+                .singleElement()
+                .satisfies(section -> assertThat(section.isTrimmed()).isTrue());
+        assertThat(prompt.breakdown()).contains("story=100", "guidance=100", "outputFormat=50", "/500(trimmed)");
+    }
+
+    @Test
+    void testSectionDroppedWhenTooLittleRoomIsLeft() {
+        BudgetedPrompt prompt = budgeter.fit("PROJ-1", List.of(
+                Section.required("story", "s".repeat(1600)),
+                Section.optional("pageObjects", "p".repeat(800), Priority.HIGH)), 420);
+
+        assertThat(prompt.text()).isEqualTo("s".repeat(1600));
+        assertThat(prompt.breakdown()).isEqualTo("story=400, pageObjects=0/200(dropped)");
+    }
+
+    @Test
+    void testBudgetResolvedFromLongestMatchingModelKey() {
+        aiConfig.setProvider("bedrock");
+        aiConfig.getBedrock().setModel("us.amazon.nova-micro-v1:0");
+        aiConfig.getPromptBudget().getMaxTokens().put("nova", 16000);
+        aiConfig.getPromptBudget().getMaxTokens().put("nova-micro", 8000);
+
+        assertThat(budgeter.resolveBudget()).isEqualTo(8000);
+
+        aiConfig.setProvider("mock");
+        assertThat(budgeter.resolveBudget()).isEqualTo(aiConfig.getPromptBudget().getDefaultMaxTokens());
+    }
+
+    @Test
+    void testStablePrefixCoversLeadingStableSections() {
+        BudgetedPrompt prompt = budgeter.fit("PROJ-1", List.of(
+                Section.optional("guidance", "g".repeat(400), Priority.MEDIUM).asStable(),
+                Section.required("outputFormat", "o".repeat(200)).asStable(),
+                Section.required("story", "s".repeat(400)),
+                Section.required("tail", "t".repeat(40)).asStable()), 1000);
+
+        assertThat(prompt.stablePrefix()).isEqualTo("g".repeat(400) + "o".repeat(200));
+        assertThat(prompt.withText(prompt.text() + "extra").stablePrefix()).isEqualTo(prompt.stablePrefix());
+        assertThat(prompt.withText("changed" + prompt.text()).stablePrefix()).isNull();
+    }
+
+    @Test
+    void testNoStablePrefixWhenPromptStartsWithStorySection() {
+        BudgetedPrompt prompt = budgeter.fit("PROJ-1", List.of(
+                Section.required("story", "s".repeat(400)),
+                Section.required("outputFormat", "o".repeat(200)).asStable()), 1000);
+
+        assertThat(prompt.stablePrefix()).isNull();
+    }
+
+    @Test
+    void testDisabledBudgetKeepsEverything() {
+        aiConfig.getPromptBudget().setEnabled(false);
+
+        BudgetedPrompt prompt = budgeter.fit("PROJ-1", List.of(
+                Section.required("story", "s".repeat(400)),
+                Section.optional("registry", "r".repeat(4000), Priority.LOW)), 100);
+
+        assertThat(prompt.text()).hasSize(4400);
+    }
+}
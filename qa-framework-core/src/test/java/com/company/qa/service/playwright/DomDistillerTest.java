@@ -0,0 +1,184 @@
+package com.company.qa.service.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the distillation script in headless Chromium against static pages.
+ * Skipped when no browser can be launched.
+ */
+class DomDistillerTest {
+
+    private static final String LOGIN_PAGE = """
+            <html>
+            <head>
+              <style>.btn { color: red; }</style>
+              <script>window.tracking = '<button id="fake">';</script>
+            </head>
+            <body>
+              <div class="layout">
+                <div class="wrapper">
+                  <div class="inner">
+                    <h1>Swag Labs</h1>
+                  </div>
+                </div>
+                <form id="login">
+                  <input type="text" data-test="username" placeholder="Username" id="user-name" autocomplete="off">
+                  <input type="password" data-test="password" placeholder="Password" id="password">
+                  <input type="hidden" name="csrf" value="secret-token">
+                  <input type="submit" data-test="login-button" class="btn btn-primary submit wide" value="Login">
+                </form>
+                <div style="display:none"><button id="hidden-button">Hidden</button></div>
+                <div aria-hidden="true"><a href="/ghost">Ghost</a></div>
+                <svg><circle r="4"></circle></svg>
+                <iframe src="about:blank"></iframe>
+              </div>
+            </body>
+            </html>
+            """;
+
+    private static Playwright playwright;
+    private static Browser browser;
+
+    private Page page;
+    private DomDistiller distiller;
+
+    @BeforeAll
+    static void launchBrowser() {
+        try {
+            playwright = Playwright.create();
+            browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+        } catch (Exception e) {
+            if (playwright != null) {
+                playwright.close();
+                playwright = null;
+            }
+        }
+    }
+
+    @AfterAll
+    static void closeBrowser() {
+        if (browser != null) {
+            browser.close();
+        }
+        if (playwright != null) {
+            playwright.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(browser != null, "Chromium is not available");
+        page = browser.newPage();
+        distiller = new DomDistiller();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (page != null) {
+            page.close();
+        }
+    }
+
+    @Test
+    void testLoginPageKeepsLocatorsAndDropsNoise() {
+        page.setContent(LOGIN_PAGE);
+
+        String html = distiller.distill(page, null);
+
+        assertThat(html).contains("<h1>Swag Labs</h1>");
+        assertThat(html).contains("<form id=\"login\">");
+        assertThat(html).contains("data-test=\"username\"", "placeholder=\"Username\"", "id=\"user-name\"");
+        assertThat(html).contains("data-test=\"login-button\"");
+        assertThat(html).doesNotContain("<script", "<style", "<svg", "<iframe", "tracking");
+        assertThat(html).doesNotContain("hidden-button", "Ghost", "csrf", "secret-token");
+        assertThat(html).doesNotContain("autocomplete");
+        assertThat(html.length()).isLessThan(LOGIN_PAGE.length());
+    }
+
+    @Test
+    void testSingleChildWrappersAreCollapsed() {
+        page.setContent(LOGIN_PAGE);
+
+        String html = distiller.distill(page, null);
+
+        assertThat(html).doesNotContain("wrapper", "inner", "<body");
+        assertThat(html).startsWith("<div class=\"layout\"><h1>Swag Labs</h1><form id=\"login\">");
+    }
+
+    @Test
+    void testInteractiveElementsAreKept() {
+        page.setContent("""
+                <main>
+                  <div><div><button>Add to cart</button></div></div>
+                  <a href="/cart" class="shopping_cart_link">Cart</a>
+                  <select name="sort"><option value="az">Name (A to Z)</option></select>
+                  <textarea name="notes" aria-label="Order notes"></textarea>
+                  <label for="agree">I agree</label>
+                  <div role="button" onclick="go()">Checkout</div>
+                  <span tabindex="0">Menu</span>
+                  <div data-testid="price">$29.99</div>
+                  <input type="text" name="coupon" value="SAVE10">
+                </main>
+                """);
+
+        String html = distiller.distill(page, null);
+
+        assertThat(html).contains("<button>Add to cart</button>");
+        assertThat(html).contains("<a href=\"/cart\" class=\"shopping_cart_link\">Cart</a>");
+        assertThat(html).contains("<select name=\"sort\">", "<option>Name (A to Z)</option>");
+        assertThat(html).contains("<textarea aria-label=\"Order notes\" name=\"notes\">");
+        assertThat(html).contains("<label for=\"agree\">I agree</label>");
+        assertThat(html).contains("<div role=\"button\">Checkout</div>");
+        assertThat(html).contains("<span>Menu</span>");
+        assertThat(html).contains("<div data-testid=\"price\">$29.99</div>");
+        // Typed values are not locators; only button labels are kept
+        assertThat(html).contains("<input name=\"coupon\" type=\"text\">");
+        assertThat(html).doesNotContain("SAVE10", "onclick");
+    }
+
+    @Test
+    void testTextAndAttributesAreCapped() {
+        ReflectionTestUtils.setField(distiller, "maxTextLength", 20);
+        String longHref = "/products/" + "x".repeat(200);
+        page.setContent("<p><a href=\"" + longHref + "\" class=\"one two three four five\">"
+                + "This product description is far too long to be useful for a locator</a></p>");
+
+        String html = distiller.distill(page, null);
+
+        assertThat(html).contains(">This product descrip…<");
+        assertThat(html).contains("class=\"one two three\"");
+        assertThat(html).contains("href=\"" + longHref.substring(0, 100) + "\"");
+        assertThat(html).doesNotContain(longHref.substring(0, 101));
+    }
+
+    @Test
+    void testSelectorLimitsDistillationToThatElement() {
+        page.setContent(LOGIN_PAGE);
+
+        String html = distiller.distill(page, "#login");
+
+        assertThat(html).startsWith("<form id=\"login\">");
+        assertThat(html).doesNotContain("Swag Labs");
+    }
+
+    @Test
+    void testUnmatchedSelectorFallsBackToBody() {
+        page.setContent(LOGIN_PAGE);
+
+        String html = distiller.distill(page, "#does-not-exist");
+
+        assertThat(html).contains("Swag Labs", "data-test=\"login-button\"");
+    }
+}
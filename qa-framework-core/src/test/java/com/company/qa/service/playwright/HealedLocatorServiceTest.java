@@ -0,0 +1,109 @@
+package com.company.qa.service.playwright;
+
+import com.company.qa.model.entity.HealedLocator;
+import com.company.qa.repository.HealedLocatorRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HealedLocatorServiceTest {
+
+    @Mock
+    private HealedLocatorRepository repository;
+
+    @InjectMocks
+    private HealedLocatorService service;
+
+    @Test
+    void testPageKeyIgnoresSchemeQueryAndTrailingSlash() {
+        assertThat(HealedLocatorService.pageKey("https://WWW.SauceDemo.com/inventory.html?sort=az#top"))
+                .isEqualTo("www.saucedemo.com/inventory.html");
+        assertThat(HealedLocatorService.pageKey("http://www.saucedemo.com/"))
+                .isEqualTo("www.saucedemo.com");
+        assertThat(HealedLocatorService.pageKey(null)).isEmpty();
+    }
+
+    @Test
+    void testLocatorKeyStripsOnlyRedundantPrefixes() {
+        assertThat(HealedLocatorService.locatorKey("css=#login-button")).isEqualTo("#login-button");
+        assertThat(HealedLocatorService.locatorKey("xpath=//button")).isEqualTo("//button");
+        assertThat(HealedLocatorService.locatorKey("testid=login-button")).isEqualTo("testid=login-button");
+    }
+
+    @Test
+    void testLookupPrefersExactPageOverSameHost() {
+        when(repository.findAll()).thenReturn(List.of(
+                entry("www.saucedemo.com/cart.html", "#checkout", "[data-test='checkout-cart']", "0.990"),
+                entry("www.saucedemo.com/inventory.html", "#checkout", "[data-test='checkout']", "0.700")));
+
+        Optional<HealedLocator> hit = service.lookup("https://www.saucedemo.com/inventory.html", "css=#checkout");
+
+        assertThat(hit).map(HealedLocator::getHealedLocator).contains("[data-test='checkout']");
+    }
+
+    @Test
+    void testLookupFallsBackToSameHostButNotOtherHosts() {
+        when(repository.findAll()).thenReturn(List.of(
+                entry("www.saucedemo.com/inventory.html", "#checkout", "[data-test='checkout']", "0.900")));
+
+        assertThat(service.lookup("https://www.saucedemo.com/cart.html", "#checkout")).isPresent();
+        assertThat(service.lookup("https://example.com/cart.html", "#checkout")).isEmpty();
+    }
+
+    @Test
+    void testLookupIgnoresLowConfidenceEntries() {
+        when(repository.findAll()).thenReturn(List.of(
+                entry("www.saucedemo.com", "#login", "#login-button", "0.300")));
+
+        assertThat(service.lookup("https://www.saucedemo.com", "#login")).isEmpty();
+    }
+
+    @Test
+    void testRecordRejectsUnknownOrIdenticalLocators() {
+        assertThat(service.record("https://www.saucedemo.com", "UNKNOWN", "#x", 0.9, "ai", null, null)).isEmpty();
+        assertThat(service.record("https://www.saucedemo.com", "css=#x", "#x", 0.9, "ai", null, null)).isEmpty();
+
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testRecordReplacesExistingEntryAndRefreshesSnapshot() {
+        HealedLocator existing = entry("www.saucedemo.com", "#login", "#old-login", "0.800");
+        existing.setHitCount(12);
+        when(repository.findAll()).thenReturn(List.of(existing));
+        when(repository.findByPageKeyAndLocatorKey("www.saucedemo.com", "#login"))
+                .thenReturn(Optional.of(existing));
+        when(repository.save(any(HealedLocator.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThat(service.lookup("https://www.saucedemo.com", "#login")).isPresent();
+        service.record("https://www.saucedemo.com/", "css=#login", "[data-test='login-button']",
+                0.95, "heuristic", null, null);
+
+        assertThat(existing.getHealedLocator()).isEqualTo("[data-test='login-button']");
+        assertThat(existing.getConfidence()).isEqualByComparingTo("0.950");
+        assertThat(existing.getHitCount()).isZero();
+        service.lookup("https://www.saucedemo.com", "#login");
+        verify(repository, times(2)).findAll();
+    }
+
+    private HealedLocator entry(String pageKey, String locatorKey, String healed, String confidence) {
+        return HealedLocator.builder()
+                .pageKey(pageKey)
+                .brokenLocator(locatorKey)
+                .locatorKey(locatorKey)
+                .healedLocator(healed)
+                .confidence(new BigDecimal(confidence))
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.company.qa.service.playwright;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocatorCandidateEngineTest {
+
+    private static final String LOGIN_PAGE = """
+            <form>
+              <input type="text" data-test="username" placeholder="Username" id="user-name">
+              <input type="password" data-test="password" placeholder="Password" id="password">
+              <input type="submit" data-test="login-button" id="login-button" value="Login">
+              <button class="btn secondary"><span>Forgot password?</span></button>
+            </form>
+            <script>var html = '<button id="login-button-old">';</script>
+            """;
+
+    private LocatorCandidateEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new LocatorCandidateEngine();
+    }
+
+    @Test
+    void testRenamedIdResolvesToTestAttribute() {
+        List<LocatorCandidateEngine.Candidate> candidates =
+                engine.generate(LOGIN_PAGE, "#login-btn", "login button", "CLICK", 3);
+
+        assertFalse(candidates.isEmpty());
+        assertEquals("[data-test='login-button']", candidates.get(0).locator());
+        assertEquals("attribute", candidates.get(0).strategy());
+        assertTrue(candidates.get(0).score() >= 0.55);
+    }
+
+    @Test
+    void testTextLocatorMatchesWrappedLabel() {
+        List<LocatorCandidateEngine.Candidate> candidates =
+                engine.generate(LOGIN_PAGE, "text='Forgot your password?'", "forgot password link", "CLICK", 3);
+
+        assertEquals("//button[normalize-space()='Forgot password?']", candidates.get(0).locator());
+    }
+
+    @Test
+    void testScriptContentIsIgnored() {
+        List<LocatorCandidateEngine.Candidate> candidates =
+                engine.generate(LOGIN_PAGE, "#login-button-old", null, null, 10);
+
+        assertTrue(candidates.stream().noneMatch(c -> c.locator().contains("login-button-old")));
+    }
+
+    @Test
+    void testParseXPathLocator() {
+        LocatorCandidateEngine.Target target =
+                LocatorCandidateEngine.parseLocator("//input[@name='user-name']");
+
+        assertEquals("input", target.tag());
+        assertEquals("user-name", target.attrs().get("name"));
+    }
+
+    @Test
+    void testSimilarity() {
+        assertEquals(1.0, LocatorCandidateEngine.similarity("login-button", "loginButton"));
+        assertTrue(LocatorCandidateEngine.similarity("login-btn", "login-button") > 0.6);
+        assertTrue(LocatorCandidateEngine.similarity("username", "checkout") < 0.4);
+    }
+}